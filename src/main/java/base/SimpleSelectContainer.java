@@ -15,11 +15,14 @@ public class SimpleSelectContainer {
 
     private HashMap<String, HashSet<String>> generatedTables;
 
+    private HashSet<String> referencedStorages;
+
     public SimpleSelectContainer() {
         this.symbolTable = new HashMap<>();
         this.reverseSymbolTable = new HashMap<>();
         this.translatedRefs = new HashMap<>();
         this.generatedTables = new HashMap<>();
+        this.referencedStorages = new HashSet<>();
     }
 
     public void addAliasTableMap(String tableName, String alias) {
@@ -61,6 +64,18 @@ public class SimpleSelectContainer {
         return generatedTables;
     }
 
+    public HashSet<String> getTables() {
+        return new HashSet<>(symbolTable.values());
+    }
+
+    public void addReferencedStorage(String storageId) {
+        referencedStorages.add(storageId);
+    }
+
+    public HashSet<String> getReferencedStorages() {
+        return referencedStorages;
+    }
+
     public String printSymbolTable() {
         StringBuilder buffer = new StringBuilder();
 
@@ -69,6 +69,115 @@ class ConfigParser {
             } else
                 configuration.put("storage_config_dir", storageConfigDir);
 
+            /////////////// transaction executor //////////////
+
+            //get type of the executor running transactions, optional
+            String transactionExecutor = (String) root.get("transaction_executor");
+
+            if (transactionExecutor != null) {
+                if (!transactionExecutor.equals("virtual") && !transactionExecutor.equals("pool")) {
+                    Log.log("transaction_executor must be either virtual or pool", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("transaction_executor", transactionExecutor);
+            }
+
+            //get number of threads of the transaction pool, optional
+            Object transactionPoolSize = root.get("transaction_pool_size");
+
+            if (transactionPoolSize != null) {
+                if (!(transactionPoolSize instanceof Long) || (Long) transactionPoolSize < 1) {
+                    Log.log("transaction_pool_size must be a positive integer", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("transaction_pool_size", transactionPoolSize.toString());
+            }
+
+            /////////////// decision log //////////////
+
+            //get path of the log keeping commit decisions of cross storage transactions, optional
+            String decisionLog = (String) root.get("decision_log");
+
+            if (decisionLog != null) {
+                if (decisionLog.length() == 0) {
+                    Log.log("decision_log can not be empty", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("decision_log", decisionLog);
+            }
+
+            /////////////// drill //////////////
+
+            //get address of the drillbit executing queries, optional
+            String drillbit = (String) root.get("drillbit");
+
+            if (drillbit != null) {
+                if (drillbit.length() == 0) {
+                    Log.log("drillbit can not be empty", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("drillbit", drillbit);
+            }
+
+            //get number of pooled connections to the drillbit, optional
+            Object drillPoolSize = root.get("drill_pool_size");
+
+            if (drillPoolSize != null) {
+                if (!(drillPoolSize instanceof Long) || (Long) drillPoolSize < 1) {
+                    Log.log("drill_pool_size must be a positive integer", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("drill_pool_size", drillPoolSize.toString());
+            }
+
+            /////////////// fetch size //////////////
+
+            //get number of rows fetched from storage systems at once while streaming results, optional
+            Object fetchSize = root.get("fetch_size");
+
+            if (fetchSize != null) {
+                if (!(fetchSize instanceof Long) || (Long) fetchSize < 1) {
+                    Log.log("fetch_size must be a positive integer", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("fetch_size", fetchSize.toString());
+            }
+
+            /////////////// native execution //////////////
+
+            //get whether Dolus executes supported selects itself instead of Drill, optional
+            Object nativeExecution = root.get("native_execution");
+
+            if (nativeExecution != null) {
+                if (!(nativeExecution instanceof Boolean)) {
+                    Log.log("native_execution must be true or false", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("native_execution", nativeExecution.toString());
+            }
+
+            //get memory a join executed by Dolus may take in megabytes before spilling to disk, optional
+            Object joinMemoryBudget = root.get("join_memory_budget");
+
+            if (joinMemoryBudget != null) {
+                if (!(joinMemoryBudget instanceof Long) || (Long) joinMemoryBudget < 1) {
+                    Log.log("join_memory_budget must be a positive integer", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("join_memory_budget", joinMemoryBudget.toString());
+            }
+
+            //get number of primary key ranges read concurrently by a full scan of a table, optional
+            Object scanParallelism = root.get("scan_parallelism");
+
+            if (scanParallelism != null) {
+                if (!(scanParallelism instanceof Long) || (Long) scanParallelism < 1) {
+                    Log.log("scan_parallelism must be a positive integer", componentName, Log.ERROR);
+                    result = false;
+                } else
+                    configuration.put("scan_parallelism", scanParallelism.toString());
+            }
+
         } catch (ParseException e) {
             Log.log("Can not parse contents of the main config file. Check JSON syntax", componentName, Log.ERROR);
             result = false;
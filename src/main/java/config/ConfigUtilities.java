@@ -4,6 +4,7 @@ import common.Log;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -55,6 +56,51 @@ public class ConfigUtilities {
      */
     private static List<StorageConfigContainer> storageConfigContainerList;
 
+    /**
+     * Type of the executor running transactions: "virtual" or "pool"
+     */
+    private static String transactionExecutor = "virtual";
+
+    /**
+     * Number of threads of the transaction pool when transaction executor is "pool"
+     */
+    private static int transactionPoolSize = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * Path of the log keeping commit decisions of transactions writing to several storage systems
+     */
+    private static String decisionLog = "dolus-decisions.log";
+
+    /**
+     * Address of the drillbit executing queries, host or host:port
+     */
+    private static String drillbit = "localhost";
+
+    /**
+     * Number of pooled connections to the drillbit
+     */
+    private static int drillPoolSize = 10;
+
+    /**
+     * Number of rows fetched from storage systems at once while streaming results
+     */
+    private static int fetchSize = 1000;
+
+    /**
+     * Whether supported selects are executed by Dolus itself over native drivers instead of Drill
+     */
+    private static boolean nativeExecution = true;
+
+    /**
+     * Memory a join executed by Dolus may take in bytes before spilling to disk
+     */
+    private static long joinMemoryBudget = 64L * 1024 * 1024;
+
+    /**
+     * Number of primary key ranges a full scan of a table is split into and read concurrently, 1 reads tables serially
+     */
+    private static int scanParallelism = 1;
+
     /**
      * Flag indicates whether main config file loaded successfully or not
      */
@@ -124,6 +170,41 @@ public class ConfigUtilities {
 
             //configure logging system directory
             Log.setLogDir(configuration.get("log_dir"));
+
+            //configure transaction executor
+            if (configuration.containsKey("transaction_executor"))
+                transactionExecutor = configuration.get("transaction_executor");
+
+            if (configuration.containsKey("transaction_pool_size"))
+                transactionPoolSize = Integer.parseInt(configuration.get("transaction_pool_size"));
+
+            //configure decision log, it is kept next to the log file unless specified
+            if (configuration.containsKey("decision_log"))
+                decisionLog = configuration.get("decision_log");
+            else
+                decisionLog = Paths.get(configuration.get("log_dir")).resolveSibling("dolus-decisions.log").toString();
+
+            //configure drill
+            if (configuration.containsKey("drillbit"))
+                drillbit = configuration.get("drillbit");
+
+            if (configuration.containsKey("drill_pool_size"))
+                drillPoolSize = Integer.parseInt(configuration.get("drill_pool_size"));
+
+            //configure fetch size of streamed results
+            if (configuration.containsKey("fetch_size"))
+                fetchSize = Integer.parseInt(configuration.get("fetch_size"));
+
+            //configure native execution of selects
+            if (configuration.containsKey("native_execution"))
+                nativeExecution = Boolean.parseBoolean(configuration.get("native_execution"));
+
+            if (configuration.containsKey("join_memory_budget"))
+                joinMemoryBudget = Long.parseLong(configuration.get("join_memory_budget")) * 1024 * 1024;
+
+            //configure parallel scans of tables
+            if (configuration.containsKey("scan_parallelism"))
+                scanParallelism = Integer.parseInt(configuration.get("scan_parallelism"));
         } else
             Log.log("Storing main configuration failed", componentName, Log.ERROR);
 
@@ -341,4 +422,120 @@ public class ConfigUtilities {
         return null;
     }
 
+    /**
+     * Get all registered storage systems, top level storage systems first
+     *
+     * @return list of storage systems, empty if storage config is not loaded
+     * @since 1.0
+     */
+    public static List<StorageConfigContainer> getStorages() {
+
+        List<StorageConfigContainer> storages = new LinkedList<>();
+
+        if (!storageConfigLoaded)
+            return storages;
+
+        //visit the storage graph using BFS
+        Queue<StorageConfigContainer> queue = new LinkedList<>(storageConfigContainerList);
+
+        while (!queue.isEmpty()) {
+
+            StorageConfigContainer current = queue.remove();
+
+            storages.add(current);
+            queue.addAll(current.getChildren());
+        }
+
+        return storages;
+    }
+
+    /**
+     * Get path of the decision log
+     *
+     * @return path of the decision log file
+     * @since 1.0
+     */
+    public static String getDecisionLog() {
+        return decisionLog;
+    }
+
+    /**
+     * Get type of the executor running transactions
+     *
+     * @return "virtual" or "pool"
+     * @since 1.0
+     */
+    public static String getTransactionExecutor() {
+        return transactionExecutor;
+    }
+
+    /**
+     * Get number of threads of the transaction pool
+     *
+     * @return number of threads
+     * @since 1.0
+     */
+    public static int getTransactionPoolSize() {
+        return transactionPoolSize;
+    }
+
+    /**
+     * Get address of the drillbit executing queries
+     *
+     * @return host or host:port of the drillbit
+     * @since 1.0
+     */
+    public static String getDrillbit() {
+        return drillbit;
+    }
+
+    /**
+     * Get number of pooled connections to the drillbit
+     *
+     * @return size of the drill connection pool
+     * @since 1.0
+     */
+    public static int getDrillPoolSize() {
+        return drillPoolSize;
+    }
+
+    /**
+     * Get number of rows fetched from storage systems at once while streaming results
+     *
+     * @return JDBC fetch size, also the size of result batches
+     * @since 1.0
+     */
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Get whether supported selects are executed by Dolus itself instead of Drill
+     *
+     * @return true if native execution is enabled
+     * @since 1.0
+     */
+    public static boolean isNativeExecution() {
+        return nativeExecution;
+    }
+
+    /**
+     * Get memory a join executed by Dolus may take before spilling to disk
+     *
+     * @return memory budget of a join in bytes
+     * @since 1.0
+     */
+    public static long getJoinMemoryBudget() {
+        return joinMemoryBudget;
+    }
+
+    /**
+     * Get number of primary key ranges a full scan of a table is split into
+     *
+     * @return degree of parallelism of scans, 1 if tables are read serially
+     * @since 1.0
+     */
+    public static int getScanParallelism() {
+        return scanParallelism;
+    }
 }
@@ -32,6 +32,26 @@ public class MySqlConfigContainer extends StorageConfigContainer {
      */
     private HashMap<String, String> primaryKeys;
 
+    /**
+     * Maximum number of connections to this storage in use at once
+     */
+    private int poolSize = 10;
+
+    /**
+     * Time an idle pooled connection is kept open in milliseconds
+     */
+    private long idleTimeout = 60000;
+
+    /**
+     * Time to wait for validation of an idle pooled connection in seconds
+     */
+    private int validationTimeout = 2;
+
+    /**
+     * Maximum time to wait for a pooled connection in milliseconds
+     */
+    private long acquireTimeout = 5000;
+
     /**
      * Wraps a MySqlConfigContainer object around configs of a MySQL storage
      *
@@ -202,6 +222,39 @@ public class MySqlConfigContainer extends StorageConfigContainer {
         //store primary keys in container
         mySqlConfigContainer.setPrimaryKeys(primaryKeys);
 
+        /////////////////// connection pool //////////////////
+
+        //pool settings are optional, defaults are used for missing ones
+        JSONObject poolJsonObject = (JSONObject) mySqlConfigJsonObject.get("pool");
+
+        if (poolJsonObject != null) {
+
+            Long poolSize = (Long) poolJsonObject.get("size");
+            Long idleTimeout = (Long) poolJsonObject.get("idle_timeout");
+            Long validationTimeout = (Long) poolJsonObject.get("validation_timeout");
+            Long acquireTimeout = (Long) poolJsonObject.get("acquire_timeout");
+
+            if (poolSize != null) {
+
+                //make sure the pool can hand out at least one connection
+                if (poolSize < 1) {
+                    Log.log("For MySQL storage: " + id + ", pool size must be at least 1", componentName, Log.ERROR);
+                    return false;
+                }
+
+                mySqlConfigContainer.poolSize = poolSize.intValue();
+            }
+
+            if (idleTimeout != null)
+                mySqlConfigContainer.idleTimeout = idleTimeout;
+
+            if (validationTimeout != null)
+                mySqlConfigContainer.validationTimeout = validationTimeout.intValue();
+
+            if (acquireTimeout != null)
+                mySqlConfigContainer.acquireTimeout = acquireTimeout;
+        }
+
         return true;
     }
 
@@ -246,4 +299,44 @@ public class MySqlConfigContainer extends StorageConfigContainer {
     public void setPrimaryKeys(HashMap<String, String> primaryKeys) {
         this.primaryKeys = primaryKeys;
     }
+
+    /**
+     * Get maximum number of connections to this storage in use at once
+     *
+     * @return size of the connection pool
+     * @since 1.0
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Get time an idle pooled connection is kept open
+     *
+     * @return idle timeout in milliseconds
+     * @since 1.0
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Get time to wait for validation of an idle pooled connection
+     *
+     * @return validation timeout in seconds
+     * @since 1.0
+     */
+    public int getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    /**
+     * Get maximum time to wait for a pooled connection
+     *
+     * @return acquire timeout in milliseconds
+     * @since 1.0
+     */
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
 }
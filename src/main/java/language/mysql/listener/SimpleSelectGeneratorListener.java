@@ -63,6 +63,8 @@ public class SimpleSelectGeneratorListener extends MySqlParserBaseListener {
         String translatedTable = (storageId + "." + database + "." + tableName).toLowerCase();
         simpleSelectContainer.addGeneratedTableFor(tableName, translatedTable);
 
+        simpleSelectContainer.addReferencedStorage(storageId);
+
     }
 
     public static void main(String[] args) {
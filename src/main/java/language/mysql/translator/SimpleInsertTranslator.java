@@ -1,8 +1,11 @@
 package language.mysql.translator;
 
 import base.SimpleInsertContainer;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
 import config.MongoDBConfigContainer;
 import config.MySqlConfigContainer;
+import org.bson.Document;
 
 import java.util.HashMap;
 
@@ -15,7 +18,7 @@ public class SimpleInsertTranslator {
     private HashMap<String,String> mongoKeyValuePairs;
 
     private String mySqlInsertStatement;
-    private String mongoDBInsertStatement;
+    private Document mongoDBInsertDocument;
 
     public SimpleInsertTranslator(String tableName, HashMap<String,String> mySqlKeyValuePairs, HashMap<String,String> mongoKeyValuePairs) {
 
@@ -60,36 +63,60 @@ public class SimpleInsertTranslator {
             this.mySqlInsertStatement = mySqlInsertStatementBuffer.toString();
         }
 
-        //generate mongodb insert statement
+        //generate mongodb document, it is written with the driver instead of evaluating a shell command on the server
         if (mongoKeyValuePairs.size() != 0) {
-            mongoDBInsertStatementBuffer.append("db.").append(tableName).append(".").append("insert( { ");
 
-            Object[] mongoKeyArray = mongoKeyValuePairs.keySet().toArray();
+            Document document = new Document();
 
-            //append keys
-            for (int i = 0; i < mongoKeyArray.length; i++) {
-                if (i != 0)
-                    mongoDBInsertStatementBuffer.append(", ");
+            for (String key : mongoKeyValuePairs.keySet())
+                document.append(key, toValue(mongoKeyValuePairs.get(key)));
 
-                mongoDBInsertStatementBuffer.append(mongoKeyArray[i]).append(":").append(mongoKeyValuePairs.get(mongoKeyArray[i]));
-            }
+            this.mongoDBInsertDocument = document;
+        }
+    }
 
-            mongoDBInsertStatementBuffer.append(" } )");
+    /**
+     * Converts a SQL literal into its Java value
+     *
+     * @param literal SQL literal, e.g. "amin", 2 or 2.5
+     * @return value of the literal
+     */
+    public static Object toValue(String literal) {
+
+        if (literal.equalsIgnoreCase("null"))
+            return null;
+
+        //quoted string
+        if (literal.length() >= 2 && (literal.startsWith("\"") || literal.startsWith("'")) && literal.charAt(literal.length() - 1) == literal.charAt(0))
+            return literal.substring(1, literal.length() - 1);
+
+        try {
+            return Long.parseLong(literal);
+        } catch (NumberFormatException e) {
+            //not an integer
+        }
 
-            this.mongoDBInsertStatement = mongoDBInsertStatementBuffer.toString();
+        try {
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            return literal;
         }
     }
 
     @Override
     public String toString() {
-        return String.format("MySQL insert command: %s\nMongoDB insert command: %s", this.mySqlInsertStatement, this.mongoDBInsertStatement);
+        return String.format("MySQL insert command: %s\nMongoDB insert document: %s", this.mySqlInsertStatement, this.mongoDBInsertDocument == null ? null : this.mongoDBInsertDocument.toJson());
     }
 
     public String getMySqlInsertStatement() {
         return mySqlInsertStatement;
     }
 
-    public String getMongoDBInsertStatement() {
-        return mongoDBInsertStatement;
+    public Document getMongoDBInsertDocument() {
+        return mongoDBInsertDocument;
+    }
+
+    public WriteModel<Document> getMongoDBWriteModel() {
+        return mongoDBInsertDocument == null ? null : new InsertOneModel<>(mongoDBInsertDocument);
     }
 }
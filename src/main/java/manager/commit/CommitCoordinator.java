@@ -0,0 +1,300 @@
+package manager.commit;
+
+import common.Log;
+import config.ConfigUtilities;
+import config.MongoDBConfigContainer;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class commits writes of a transaction on several storage systems atomically, using two phase commit.
+ * <p>
+ * in the first phase every participant executes its writes in a native transaction of its storage system and prepares it.
+ * participants are prepared in parallel, so a commit takes about as long as the slowest storage system instead of the sum of all.
+ * if any participant fails to prepare, all of them are rolled back.
+ * </p>
+ * <p>
+ * a participant that can not prepare durably (MongoDB) is committed first and its commit decides the outcome.
+ * the decision is then forced to the decision log and the other participants are committed in parallel.
+ * after a crash, recover resolves transactions left prepared using the decision log and commit markers of MongoDB.
+ * xids carry the id of the Dolus node, so a node only recovers its own transactions and never those other nodes are committing.
+ * a transaction with a single participant is committed in one phase without touching the decision log.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class CommitCoordinator {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "CommitCoordinator";
+
+    /**
+     * Prefix of global transaction ids generated by Dolus, tells transactions of Dolus apart in storage systems
+     */
+    public static final String XID_PREFIX = "dolus-";
+
+    /**
+     * Node id used when Dolus runs on a single node
+     */
+    public static final String DEFAULT_NODE_ID = "local";
+
+    private final DecisionLog decisionLog;
+
+    /**
+     * Prefix of the xids of this node, like: "dolus-node1:"
+     */
+    private final String nodeXidPrefix;
+
+    /**
+     * Runs the phases of participants in parallel. participants mostly wait for their storage systems
+     */
+    private final ExecutorService executor;
+
+    /**
+     * @param decisionLog log keeping commit decisions, must be opened
+     */
+    public CommitCoordinator(DecisionLog decisionLog) {
+        this(decisionLog, DEFAULT_NODE_ID);
+    }
+
+    /**
+     * @param decisionLog log keeping commit decisions of this node, must be opened
+     * @param nodeId      id of the Dolus node, unique among nodes sharing storage systems.
+     *                    MySQL limits xids to 64 bytes, so it should be at most 20 characters long
+     */
+    public CommitCoordinator(DecisionLog decisionLog, String nodeId) {
+
+        this.decisionLog = decisionLog;
+        this.nodeXidPrefix = XID_PREFIX + nodeId + ":";
+
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Creates a coordinator with the decision log specified in main config file and recovers transactions of this node left in doubt by a crash
+     *
+     * @param nodeId id of the Dolus node, null if Dolus runs on a single node
+     * @return the coordinator, null if the decision log can not be opened
+     * @since 1.0
+     */
+    public static CommitCoordinator fromConfig(String nodeId) {
+
+        DecisionLog decisionLog = new DecisionLog(ConfigUtilities.getDecisionLog());
+
+        if (!decisionLog.open())
+            return null;
+
+        CommitCoordinator commitCoordinator = new CommitCoordinator(decisionLog, nodeId == null ? DEFAULT_NODE_ID : nodeId);
+
+        commitCoordinator.recover(ConfigUtilities.getStorages());
+
+        return commitCoordinator;
+    }
+
+    /**
+     * Commits writes of all participants atomically
+     *
+     * @param participants writes of the transaction on each storage system
+     * @return true if all writes are committed, false if all are rolled back
+     * @since 1.0
+     */
+    public boolean commit(List<CommitParticipant> participants) {
+
+        if (participants.isEmpty())
+            return true;
+
+        String xid = nodeXidPrefix + UUID.randomUUID();
+
+        if (participants.size() == 1)
+            return participants.get(0).commitOnePhase(xid);
+
+        //find the participant committed first, there can be at most one
+        CommitParticipant lastResource = null;
+        for (CommitParticipant participant : participants) {
+
+            if (participant.isDurablyPrepared())
+                continue;
+
+            if (lastResource != null) {
+                Log.log(String.format("Transaction: %s writes to %s and %s, which can not both be committed atomically", xid, lastResource.getName(), participant.getName()), componentName, Log.ERROR);
+                return false;
+            }
+
+            lastResource = participant;
+        }
+
+        //phase one: all participants write and prepare in parallel
+        if (!prepareAll(participants, xid)) {
+            rollbackAll(participants, xid);
+            return false;
+        }
+
+        LinkedList<CommitParticipant> prepared = new LinkedList<>(participants);
+
+        if (lastResource != null) {
+
+            prepared.remove(lastResource);
+
+            //commit of the last resource is the decision, a failure leaves nothing written
+            if (!lastResource.commit(xid)) {
+                rollbackAll(prepared, xid);
+                return false;
+            }
+        }
+
+        if (!decisionLog.logCommit(xid)) {
+
+            if (lastResource == null) {
+                rollbackAll(participants, xid);
+                return false;
+            }
+
+            //already decided by the last resource, recovery learns it from the commit marker
+            Log.log(String.format("Decision of transaction: %s is only kept by %s", xid, lastResource.getName()), componentName, Log.WARNING);
+        }
+
+        //phase two: the decision is durable, commit the rest in parallel
+        if (commitAll(prepared, xid)) {
+
+            decisionLog.logEnd(xid);
+
+            //markers are not needed anymore, nobody waits for them to be removed
+            for (CommitParticipant participant : participants)
+                executor.execute(() -> participant.forget(xid));
+        } else
+            Log.log(String.format("Transaction: %s is committed, participants that failed to commit are committed by recovery", xid), componentName, Log.ERROR);
+
+        return true;
+    }
+
+    private boolean prepareAll(List<CommitParticipant> participants, String xid) {
+
+        LinkedList<CompletableFuture<Boolean>> prepares = new LinkedList<>();
+
+        for (CommitParticipant participant : participants)
+            prepares.add(CompletableFuture.supplyAsync(() -> participant.prepare(xid), executor));
+
+        return allSucceeded(prepares);
+    }
+
+    private boolean commitAll(List<CommitParticipant> participants, String xid) {
+
+        LinkedList<CompletableFuture<Boolean>> commits = new LinkedList<>();
+
+        for (CommitParticipant participant : participants)
+            commits.add(CompletableFuture.supplyAsync(() -> participant.commit(xid), executor));
+
+        return allSucceeded(commits);
+    }
+
+    private void rollbackAll(List<CommitParticipant> participants, String xid) {
+
+        LinkedList<CompletableFuture<Void>> rollbacks = new LinkedList<>();
+
+        for (CommitParticipant participant : participants)
+            rollbacks.add(CompletableFuture.runAsync(() -> participant.rollback(xid), executor));
+
+        CompletableFuture.allOf(rollbacks.toArray(new CompletableFuture<?>[0])).join();
+
+        Log.log(String.format("Transaction: %s is rolled back", xid), componentName, Log.WARNING);
+    }
+
+    /**
+     * Waits for all futures, failed futures count as false
+     */
+    private boolean allSucceeded(List<CompletableFuture<Boolean>> futures) {
+
+        boolean succeeded = true;
+
+        for (CompletableFuture<Boolean> future : futures)
+            succeeded &= future.exceptionally(e -> {
+                Log.log("Participant failed, " + e, componentName, Log.ERROR);
+                return false;
+            }).join();
+
+        return succeeded;
+    }
+
+    /**
+     * Resolves transactions of this node left prepared on storage systems by a crash, must be called before this node commits anything.
+     * a prepared transaction is committed if the decision log or a commit marker on a MongoDB storage system says so,
+     * otherwise it is rolled back. prepared transactions of other nodes are left to them
+     *
+     * @param storages storage systems to recover
+     * @since 1.0
+     */
+    public void recover(Collection<StorageConfigContainer> storages) {
+
+        LinkedList<StorageConfigContainer> mongoDBStorages = new LinkedList<>();
+        for (StorageConfigContainer storage : storages) {
+            if (storage instanceof MongoDBConfigContainer)
+                mongoDBStorages.add(storage);
+        }
+
+        boolean resolved = true;
+
+        for (StorageConfigContainer storage : storages) {
+
+            if (!(storage instanceof MySqlConfigContainer))
+                continue;
+
+            resolved &= MySqlCommitParticipant.recover(storage, this::isOwnXid, xid -> {
+
+                if (decisionLog.isCommitted(xid))
+                    return true;
+
+                for (StorageConfigContainer mongoDBStorage : mongoDBStorages) {
+
+                    Boolean committed = MongoDBCommitParticipant.isCommitted(mongoDBStorage, xid);
+
+                    if (committed == null || committed)
+                        return committed;
+                }
+
+                //presumed abort
+                return false;
+            });
+        }
+
+        //every in doubt transaction is committed on all storage systems now
+        if (resolved) {
+            for (String xid : decisionLog.getInDoubt())
+                decisionLog.logEnd(xid);
+        }
+    }
+
+    /**
+     * Whether a global transaction id is generated by this node
+     *
+     * @param xid global transaction id
+     * @return true if the transaction belongs to this node
+     * @since 1.0
+     */
+    public boolean isOwnXid(String xid) {
+        return xid.startsWith(nodeXidPrefix);
+    }
+
+    /**
+     * Waits for pending phases to finish and closes the decision log
+     *
+     * @since 1.0
+     */
+    public void shutdown() {
+
+        executor.close();
+
+        decisionLog.close();
+    }
+}
@@ -0,0 +1,80 @@
+package manager.commit;
+
+/**
+ * This interface represents writes of a transaction on one storage system, committed by CommitCoordinator
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public interface CommitParticipant {
+
+    /**
+     * Get name of the participant, used in logging
+     *
+     * @return name of the participant
+     * @since 1.0
+     */
+    String getName();
+
+    /**
+     * Executes the writes inside a native transaction of the storage system and prepares them to be committed
+     *
+     * @param xid global id of the transaction
+     * @return true if the writes are prepared, false otherwise
+     * @since 1.0
+     */
+    boolean prepare(String xid);
+
+    /**
+     * Commits prepared writes
+     *
+     * @param xid global id of the transaction
+     * @return true if the writes are committed, false otherwise
+     * @since 1.0
+     */
+    boolean commit(String xid);
+
+    /**
+     * Rolls back the writes, prepared or not
+     *
+     * @param xid global id of the transaction
+     * @since 1.0
+     */
+    void rollback(String xid);
+
+    /**
+     * Whether prepared writes survive a crash of Dolus and can be resolved by recovery.
+     * a participant without durable prepare is committed first, so its commit decides the outcome of the transaction
+     *
+     * @return true if prepared writes are durable
+     * @since 1.0
+     */
+    boolean isDurablyPrepared();
+
+    /**
+     * Executes and commits the writes when the participant is the only one of the transaction
+     *
+     * @param xid global id of the transaction
+     * @return true if the writes are committed, false otherwise
+     * @since 1.0
+     */
+    default boolean commitOnePhase(String xid) {
+
+        if (!prepare(xid)) {
+            rollback(xid);
+            return false;
+        }
+
+        return commit(xid);
+    }
+
+    /**
+     * Releases whatever the participant kept for recovery, once the outcome of the transaction is known to all participants
+     *
+     * @param xid global id of the transaction
+     * @since 1.0
+     */
+    default void forget(String xid) {
+    }
+}
@@ -0,0 +1,207 @@
+package manager.commit;
+
+import common.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class is an append only file keeping commit decisions of transactions writing to several storage systems.
+ * <p>
+ * a "COMMIT xid" record is forced to disk before any participant is told to commit, an "END xid" record is appended
+ * when all participants committed. a transaction without a COMMIT record is presumed to be aborted.
+ * when the log is opened, records of ended transactions are dropped, so the log only grows with in doubt transactions.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class DecisionLog {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "DecisionLog";
+
+    private static final String COMMIT = "COMMIT";
+
+    private static final String END = "END";
+
+    private final Path path;
+
+    /**
+     * Transactions that are decided to commit but not all of their participants are known to be committed
+     */
+    private final LinkedHashSet<String> committed;
+
+    private FileChannel channel;
+
+    /**
+     * @param path path of the log file
+     */
+    public DecisionLog(String path) {
+
+        this.path = Paths.get(path);
+
+        this.committed = new LinkedHashSet<>();
+    }
+
+    /**
+     * Reads the decisions in the log and opens it for appending
+     *
+     * @return true if the log is opened, false otherwise
+     * @since 1.0
+     */
+    public synchronized boolean open() {
+
+        try {
+            if (Files.exists(path)) {
+
+                List<String> records = Files.readAllLines(path, StandardCharsets.UTF_8);
+
+                for (String record : records) {
+
+                    String[] parts = record.split(" ", 2);
+
+                    //a torn last record is ignored, its transaction is not decided yet
+                    if (parts.length != 2)
+                        continue;
+
+                    if (parts[0].equals(COMMIT))
+                        committed.add(parts[1]);
+                    else if (parts[0].equals(END))
+                        committed.remove(parts[1]);
+                }
+
+                compact();
+            }
+
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        } catch (IOException e) {
+            Log.log(String.format("Can not open decision log: %s, %s", path, e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+
+        Log.log(String.format("Decision log is opened with %d transactions in doubt", committed.size()), componentName, Log.INFORMATION);
+
+        return true;
+    }
+
+    /**
+     * Rewrites the log with only the undecided transactions
+     */
+    private void compact() throws IOException {
+
+        Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+
+        StringBuilder records = new StringBuilder();
+        for (String xid : committed)
+            records.append(COMMIT).append(" ").append(xid).append("\n");
+
+        Files.write(compacted, records.toString().getBytes(StandardCharsets.UTF_8));
+
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Records the decision to commit a transaction, returns once the decision is on disk
+     *
+     * @param xid global id of the transaction
+     * @return true if the decision is recorded, false otherwise
+     * @since 1.0
+     */
+    public synchronized boolean logCommit(String xid) {
+
+        if (!append(COMMIT, xid, true))
+            return false;
+
+        committed.add(xid);
+
+        return true;
+    }
+
+    /**
+     * Records that all participants of a transaction are committed.
+     * it is not forced to disk, a lost END record only makes recovery look at the transaction again
+     *
+     * @param xid global id of the transaction
+     * @since 1.0
+     */
+    public synchronized void logEnd(String xid) {
+
+        if (append(END, xid, false))
+            committed.remove(xid);
+    }
+
+    private boolean append(String type, String xid, boolean force) {
+
+        if (channel == null) {
+            Log.log("Decision log is not opened", componentName, Log.ERROR);
+            return false;
+        }
+
+        ByteBuffer record = ByteBuffer.wrap((type + " " + xid + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            while (record.hasRemaining())
+                channel.write(record);
+
+            if (force)
+                channel.force(false);
+
+        } catch (IOException e) {
+            Log.log(String.format("Can not append %s record of transaction: %s, %s", type, xid, e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether a transaction is decided to commit
+     *
+     * @param xid global id of the transaction
+     * @return true if there is a COMMIT record for the transaction
+     * @since 1.0
+     */
+    public synchronized boolean isCommitted(String xid) {
+        return committed.contains(xid);
+    }
+
+    /**
+     * Get transactions decided to commit whose participants are not all known to be committed
+     *
+     * @return global ids of the transactions
+     * @since 1.0
+     */
+    public synchronized Set<String> getInDoubt() {
+        return new HashSet<>(committed);
+    }
+
+    public synchronized void close() {
+
+        if (channel == null)
+            return;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.log("Can not close decision log, " + e.getMessage(), componentName, Log.WARNING);
+        }
+
+        channel = null;
+    }
+}
@@ -0,0 +1,203 @@
+package manager.commit;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.WriteModel;
+import common.Log;
+import config.StorageConfigContainer;
+import manager.connection.MongoClients;
+import org.bson.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class executes writes of a transaction on a MongoDB storage system inside a session transaction.
+ * <p>
+ * MongoDB can not keep a transaction prepared across a crash of Dolus, so this participant is committed first
+ * and its commit decides the outcome of the whole transaction.
+ * to let recovery learn that decision, a marker document with the id of the transaction is inserted in the same session transaction.
+ * session transactions need a replica set.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MongoDBCommitParticipant implements CommitParticipant {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MongoDBCommitParticipant";
+
+    /**
+     * Collection keeping marker documents of committed transactions
+     */
+    private static final String MARKER_COLLECTION = "dolus_commit_markers";
+
+    /**
+     * Number of times a commit with unknown result is retried
+     */
+    private static final int MAX_COMMIT_RETRIES = 3;
+
+    private final StorageConfigContainer storage;
+
+    /**
+     * Collection to write to
+     */
+    private final String collection;
+
+    /**
+     * Writes sent to the collection in one bulk write
+     */
+    private final List<WriteModel<Document>> writes;
+
+    private ClientSession session;
+
+    /**
+     * @param storage    MongoDB storage system to write to
+     * @param collection collection to write to
+     * @param writes     inserts, updates and deletes applied to the collection in order
+     */
+    public MongoDBCommitParticipant(StorageConfigContainer storage, String collection, List<WriteModel<Document>> writes) {
+        this.storage = storage;
+        this.collection = collection;
+        this.writes = writes;
+    }
+
+    @Override
+    public String getName() {
+        return storage.getId();
+    }
+
+    @Override
+    public boolean prepare(String xid) {
+        return write(xid, true);
+    }
+
+    private boolean write(String xid, boolean withMarker) {
+
+        try {
+            MongoClient mongoClient = MongoClients.getClient(storage);
+
+            session = mongoClient.startSession();
+            session.startTransaction(TransactionOptions.builder().writeConcern(WriteConcern.MAJORITY).build());
+
+            MongoDatabase database = mongoClient.getDatabase(storage.getDatabase());
+
+            database.getCollection(collection).bulkWrite(session, writes);
+
+            if (withMarker)
+                database.getCollection(MARKER_COLLECTION).insertOne(session, new Document("_id", xid).append("time", new Date()));
+
+        } catch (MongoException e) {
+            Log.log(String.format("Can not prepare transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean commit(String xid) {
+
+        for (int retry = 0; ; retry++) {
+
+            try {
+                session.commitTransaction();
+                return true;
+
+            } catch (MongoException e) {
+
+                //the commit may or may not have been applied, committing again is safe
+                if (e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL) && retry < MAX_COMMIT_RETRIES) {
+                    Log.log(String.format("Result of committing transaction: %s on storage: %s is unknown, retrying", xid, getName()), componentName, Log.WARNING);
+                    continue;
+                }
+
+                Log.log(String.format("Can not commit transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.ERROR);
+                close();
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void rollback(String xid) {
+
+        try {
+            if (session != null && session.hasActiveTransaction())
+                session.abortTransaction();
+        } catch (MongoException e) {
+            Log.log(String.format("Can not roll back transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.WARNING);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public boolean isDurablyPrepared() {
+        return false;
+    }
+
+    @Override
+    public boolean commitOnePhase(String xid) {
+
+        //no other participant needs to learn the outcome, so no marker is written
+        if (!write(xid, false)) {
+            rollback(xid);
+            return false;
+        }
+
+        boolean committed = commit(xid);
+
+        close();
+
+        return committed;
+    }
+
+    @Override
+    public void forget(String xid) {
+
+        try {
+            MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(MARKER_COLLECTION).deleteOne(Filters.eq("_id", xid));
+        } catch (MongoException e) {
+            Log.log(String.format("Can not remove commit marker of transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.WARNING);
+        } finally {
+            close();
+        }
+    }
+
+    private void close() {
+
+        //the client is shared, only the session belongs to this participant
+        if (session != null)
+            session.close();
+
+        session = null;
+    }
+
+    /**
+     * Checks whether a transaction is committed on a MongoDB storage system, used by recovery
+     *
+     * @param storage MongoDB storage system
+     * @param xid     global id of the transaction
+     * @return true if the commit marker of the transaction is found, false if it is not, null if the storage can not be reached
+     * @since 1.0
+     */
+    public static Boolean isCommitted(StorageConfigContainer storage, String xid) {
+
+        try {
+            return MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(MARKER_COLLECTION).find(Filters.eq("_id", xid)).first() != null;
+        } catch (MongoException e) {
+            Log.log(String.format("Can not look up commit marker of transaction: %s on storage: %s, %s", xid, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package manager.commit;
+
+import common.Log;
+import config.StorageConfigContainer;
+import manager.connection.ConnectionPools;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * This class executes writes of a transaction on a MySQL storage system.
+ * <p>
+ * with other participants the writes run in an XA transaction that is prepared in the first phase,
+ * a prepared XA transaction survives a crash of Dolus and is resolved by recover.
+ * as the only participant the writes run in a local transaction.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MySqlCommitParticipant implements CommitParticipant {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MySqlCommitParticipant";
+
+    private final StorageConfigContainer storage;
+
+    /**
+     * Statements to execute, in order
+     */
+    private final List<String> statements;
+
+    private Connection connection;
+
+    /**
+     * @param storage    MySQL storage system to write to
+     * @param statements statements to execute, in order
+     */
+    public MySqlCommitParticipant(StorageConfigContainer storage, List<String> statements) {
+        this.storage = storage;
+        this.statements = statements;
+    }
+
+    @Override
+    public String getName() {
+        return storage.getId();
+    }
+
+    @Override
+    public boolean prepare(String xid) {
+
+        try {
+            connection = ConnectionPools.acquire(storage);
+
+            try (Statement statement = connection.createStatement()) {
+
+                statement.execute(String.format("XA START '%s'", xid));
+
+                for (String write : statements)
+                    statement.executeUpdate(write);
+
+                statement.execute(String.format("XA END '%s'", xid));
+                statement.execute(String.format("XA PREPARE '%s'", xid));
+            }
+
+        } catch (SQLException e) {
+            Log.log(String.format("Can not prepare transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean commit(String xid) {
+
+        try (Statement statement = connection.createStatement()) {
+
+            statement.execute(String.format("XA COMMIT '%s'", xid));
+
+        } catch (SQLException e) {
+            Log.log(String.format("Can not commit transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.ERROR);
+            discardConnection();
+            return false;
+        } finally {
+            closeConnection();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void rollback(String xid) {
+
+        if (connection == null)
+            return;
+
+        try (Statement statement = connection.createStatement()) {
+
+            //XA transaction may still be active if a write failed
+            try {
+                statement.execute(String.format("XA END '%s'", xid));
+            } catch (SQLException e) {
+                //already ended
+            }
+
+            statement.execute(String.format("XA ROLLBACK '%s'", xid));
+
+        } catch (SQLException e) {
+            Log.log(String.format("Can not roll back transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.WARNING);
+            discardConnection();
+        } finally {
+            closeConnection();
+        }
+    }
+
+    @Override
+    public boolean isDurablyPrepared() {
+        return true;
+    }
+
+    @Override
+    public boolean commitOnePhase(String xid) {
+
+        try {
+            connection = ConnectionPools.acquire(storage);
+            connection.setAutoCommit(false);
+
+            try (Statement statement = connection.createStatement()) {
+                for (String write : statements)
+                    statement.executeUpdate(write);
+            }
+
+            connection.commit();
+
+        } catch (SQLException e) {
+
+            Log.log(String.format("Can not commit transaction: %s on storage: %s, %s", xid, getName(), e.getMessage()), componentName, Log.ERROR);
+
+            try {
+                if (connection != null)
+                    connection.rollback();
+            } catch (SQLException rollbackException) {
+                Log.log("Can not roll back local transaction, " + rollbackException.getMessage(), componentName, Log.WARNING);
+            }
+
+            return false;
+        } finally {
+            closeConnection();
+        }
+
+        return true;
+    }
+
+    /**
+     * Closes a connection left in an unknown XA state, so it is not handed out by the pool again
+     */
+    private void discardConnection() {
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Log.log("Can not close connection, " + e.getMessage(), componentName, Log.WARNING);
+        }
+    }
+
+    private void closeConnection() {
+
+        ConnectionPools.release(storage, connection);
+
+        connection = null;
+    }
+
+    /**
+     * Resolves XA transactions of a Dolus node left prepared on a MySQL storage system by a crash
+     *
+     * @param storage   MySQL storage system
+     * @param ownXid    tells xids of the node apart, transactions of other nodes are not touched
+     * @param outcome   decides whether a prepared transaction is committed, returns null if the outcome is not known yet
+     * @return true if all prepared transactions of the node are resolved, false otherwise
+     * @since 1.0
+     */
+    public static boolean recover(StorageConfigContainer storage, Predicate<String> ownXid, Function<String, Boolean> outcome) {
+
+        Connection connection = null;
+
+        try {
+            connection = ConnectionPools.acquire(storage);
+
+            Statement statement = connection.createStatement();
+
+            LinkedList<String> prepared = new LinkedList<>();
+
+            try (ResultSet resultSet = statement.executeQuery("XA RECOVER")) {
+                while (resultSet.next()) {
+
+                    //xids of Dolus have no branch qualifier, so data is the global transaction id
+                    String xid = resultSet.getString("data");
+
+                    if (ownXid.test(xid))
+                        prepared.add(xid);
+                }
+            }
+
+            boolean resolved = true;
+
+            for (String xid : prepared) {
+
+                Boolean committed = outcome.apply(xid);
+
+                //outcome can not be learned now -> keep the transaction prepared for the next recovery
+                if (committed == null) {
+                    Log.log(String.format("Outcome of transaction: %s is unknown, it stays prepared on storage: %s", xid, storage.getId()), componentName, Log.WARNING);
+                    resolved = false;
+                } else if (committed) {
+                    statement.execute(String.format("XA COMMIT '%s'", xid));
+                    Log.log(String.format("Recovered transaction: %s is committed on storage: %s", xid, storage.getId()), componentName, Log.NOTICE);
+                } else {
+                    statement.execute(String.format("XA ROLLBACK '%s'", xid));
+                    Log.log(String.format("Recovered transaction: %s is rolled back on storage: %s", xid, storage.getId()), componentName, Log.NOTICE);
+                }
+            }
+
+            statement.close();
+
+            return resolved;
+
+        } catch (SQLException e) {
+            Log.log(String.format("Can not recover prepared transactions of storage: %s, %s", storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        } finally {
+            ConnectionPools.release(storage, connection);
+        }
+    }
+}
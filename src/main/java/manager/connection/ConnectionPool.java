@@ -0,0 +1,501 @@
+package manager.connection;
+
+import common.Log;
+import config.MySqlConfigContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps open JDBC connections to one data source, a MySQL storage system or Drill.
+ * <p>
+ * the pool is also the bulkhead of its data source: at most "size" connections are in use at once,
+ * and a caller waits at most "acquire timeout" for one. so a slow data source holds at most "size" workers,
+ * the others fail fast instead of piling up behind it.
+ * </p>
+ * <p>
+ * idle connections are reused most recently used first, so rarely needed connections stay idle and are closed after the idle timeout.
+ * a connection idle for more than a second is validated before it is handed out.
+ * </p>
+ * <p>
+ * each connection can keep its most recently used prepared statements, so a repeated query is not planned again.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ConnectionPool {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "ConnectionPool";
+
+    /**
+     * Connections idle for less than this many milliseconds are handed out without validation
+     */
+    private static final long VALIDATION_INTERVAL = 1000;
+
+    /**
+     * Name of the data source, used in logs and metrics
+     */
+    private final String name;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    /**
+     * Maximum number of connections in use at once
+     */
+    private final int size;
+
+    /**
+     * Time an idle connection is kept open in milliseconds
+     */
+    private final long idleTimeout;
+
+    /**
+     * Time to wait for validation of an idle connection in seconds
+     */
+    private final int validationTimeout;
+
+    /**
+     * Maximum time to wait for a connection in milliseconds
+     */
+    private final long acquireTimeout;
+
+    /**
+     * Number of prepared statements kept per connection, 0 disables caching
+     */
+    private final int statementCacheSize;
+
+    /**
+     * Limits the number of connections in use
+     */
+    private final Semaphore permits;
+
+    /**
+     * Idle connections, most recently used first
+     */
+    private final LinkedList<IdleConnection> idleConnections;
+
+    /**
+     * Isolation level of new connections, connections are given back to the pool with this level
+     */
+    private volatile int defaultIsolation = -1;
+
+    /**
+     * connection -> its prepared statements by query, least recently used first
+     */
+    private final Map<Connection, LinkedHashMap<String, PreparedStatement>> statementCaches;
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    private final AtomicLong acquiredConnections = new AtomicLong();
+
+    private final AtomicLong timedOutAcquires = new AtomicLong();
+
+    private final AtomicLong createdConnections = new AtomicLong();
+
+    private final AtomicLong closedConnections = new AtomicLong();
+
+    /**
+     * Sum of the times callers waited for a connection in nanoseconds
+     */
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private final AtomicLong statementCacheHits = new AtomicLong();
+
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    /**
+     * @param name               name of the data source, used in logs and metrics
+     * @param url                JDBC url of the data source
+     * @param username           username credential, null if the data source needs none
+     * @param password           password credential
+     * @param size               maximum number of connections in use at once
+     * @param idleTimeout        time an idle connection is kept open in milliseconds
+     * @param validationTimeout  time to wait for validation of an idle connection in seconds
+     * @param acquireTimeout     maximum time to wait for a connection in milliseconds
+     * @param statementCacheSize number of prepared statements kept per connection, 0 disables caching
+     */
+    public ConnectionPool(String name, String url, String username, String password, int size,
+                          long idleTimeout, int validationTimeout, long acquireTimeout, int statementCacheSize) {
+
+        this.name = name;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.size = size;
+        this.idleTimeout = idleTimeout;
+        this.validationTimeout = validationTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.statementCacheSize = statementCacheSize;
+
+        this.permits = new Semaphore(size, true);
+        this.idleConnections = new LinkedList<>();
+        this.statementCaches = new IdentityHashMap<>();
+    }
+
+    /**
+     * @param storage MySQL storage system of the pool, contains settings of the pool
+     */
+    public ConnectionPool(MySqlConfigContainer storage) {
+        this(storage.getId(), String.format("jdbc:mysql://%s:%s/%s?useCursorFetch=true", storage.getHost(), storage.getPort(), storage.getDatabase()),
+                storage.getUsername(), storage.getPassword(), storage.getPoolSize(),
+                storage.getIdleTimeout(), storage.getValidationTimeout(), storage.getAcquireTimeout(), 0);
+    }
+
+    /**
+     * Takes a connection from the pool, opens a new one if no idle connection is available.
+     * the connection must be given back with release
+     *
+     * @return connection to the data source in auto commit mode
+     * @throws SQLException if no connection is available within the acquire timeout or a connection can not be opened
+     * @since 1.0
+     */
+    public Connection acquire() throws SQLException {
+
+        long startedAt = System.nanoTime();
+
+        try {
+            if (!permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                timedOutAcquires.incrementAndGet();
+                throw new SQLException(String.format("No connection to: %s is available in %d ms", name, acquireTimeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to: " + name);
+        }
+
+        long waitTime = System.nanoTime() - startedAt;
+        totalWaitTime.addAndGet(waitTime);
+        maxWaitTime.accumulateAndGet(waitTime, Math::max);
+
+        try {
+            Connection connection = takeIdleConnection();
+
+            if (connection == null) {
+                connection = username == null ? DriverManager.getConnection(url) : DriverManager.getConnection(url, username, password);
+                createdConnections.incrementAndGet();
+
+                if (defaultIsolation == -1)
+                    defaultIsolation = connection.getTransactionIsolation();
+            }
+
+            inUse.incrementAndGet();
+            acquiredConnections.incrementAndGet();
+
+            return connection;
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still valid
+     *
+     * @return a valid idle connection, null if there is none
+     */
+    private Connection takeIdleConnection() {
+
+        while (true) {
+
+            IdleConnection idleConnection;
+
+            synchronized (idleConnections) {
+                if (idleConnections.isEmpty())
+                    return null;
+
+                idleConnection = idleConnections.removeFirst();
+            }
+
+            if (System.currentTimeMillis() - idleConnection.idleSince < VALIDATION_INTERVAL || isValid(idleConnection.connection))
+                return idleConnection.connection;
+
+            Log.log("Idle connection to: " + name + " is not valid anymore", componentName, Log.NOTICE);
+            close(idleConnection.connection);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives a connection back to the pool.
+     * an open transaction of the connection is rolled back, a connection that can not be reset is closed
+     *
+     * @param connection connection taken by acquire
+     * @since 1.0
+     */
+    public void release(Connection connection) {
+
+        if (connection == null)
+            return;
+
+        inUse.decrementAndGet();
+
+        try {
+            if (connection.isClosed())
+                close(connection);
+            else {
+
+                //next user of the connection expects a fresh connection
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+
+                if (defaultIsolation != -1 && connection.getTransactionIsolation() != defaultIsolation)
+                    connection.setTransactionIsolation(defaultIsolation);
+
+                synchronized (idleConnections) {
+                    idleConnections.addFirst(new IdleConnection(connection));
+                }
+            }
+        } catch (SQLException e) {
+            Log.log(String.format("Connection to: %s can not be reset, %s", name, e.getMessage()), componentName, Log.NOTICE);
+            close(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections idle for more than the idle timeout
+     *
+     * @since 1.0
+     */
+    public void evictIdleConnections() {
+
+        LinkedList<Connection> expired = new LinkedList<>();
+
+        long now = System.currentTimeMillis();
+
+        synchronized (idleConnections) {
+
+            //least recently used connections are at the end
+            Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+
+            while (iterator.hasNext()) {
+
+                IdleConnection idleConnection = iterator.next();
+
+                if (now - idleConnection.idleSince < idleTimeout)
+                    break;
+
+                iterator.remove();
+                expired.add(idleConnection.connection);
+            }
+        }
+
+        expired.forEach(this::close);
+    }
+
+    /**
+     * Prepares a query on a connection of this pool, reusing the statement prepared for the same query on that connection.
+     * a cached statement must not be closed by the caller, only its result sets
+     *
+     * @param connection connection taken by acquire
+     * @param query      query to prepare
+     * @return prepared statement of the query
+     * @throws SQLException if the query can not be prepared
+     * @since 1.0
+     */
+    public PreparedStatement prepare(Connection connection, String query) throws SQLException {
+
+        if (statementCacheSize == 0)
+            return connection.prepareStatement(query);
+
+        LinkedHashMap<String, PreparedStatement> statementCache;
+
+        synchronized (statementCaches) {
+            statementCache = statementCaches.computeIfAbsent(connection, key -> new LinkedHashMap<>(16, 0.75f, true));
+        }
+
+        //a connection is used by one caller at a time, so its cache needs no locking
+        PreparedStatement statement = statementCache.get(query);
+
+        if (statement != null && !statement.isClosed()) {
+            statementCacheHits.incrementAndGet();
+            return statement;
+        }
+
+        statementCacheMisses.incrementAndGet();
+
+        statement = connection.prepareStatement(query);
+        statementCache.put(query, statement);
+
+        //evict the least recently used statement
+        if (statementCache.size() > statementCacheSize) {
+
+            Iterator<PreparedStatement> iterator = statementCache.values().iterator();
+            PreparedStatement evicted = iterator.next();
+            iterator.remove();
+
+            try {
+                evicted.close();
+            } catch (SQLException e) {
+                Log.log("Can not close evicted statement, " + e.getMessage(), componentName, Log.NOTICE);
+            }
+        }
+
+        return statement;
+    }
+
+    private void close(Connection connection) {
+
+        closedConnections.incrementAndGet();
+
+        //statements are closed with their connection
+        synchronized (statementCaches) {
+            statementCaches.remove(connection);
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Log.log(String.format("Can not close connection to: %s, %s", name, e.getMessage()), componentName, Log.WARNING);
+        }
+    }
+
+    /**
+     * Closes all idle connections. connections in use are closed when they are released
+     *
+     * @since 1.0
+     */
+    public void close() {
+
+        LinkedList<IdleConnection> closing;
+
+        synchronized (idleConnections) {
+            closing = new LinkedList<>(idleConnections);
+            idleConnections.clear();
+        }
+
+        for (IdleConnection idleConnection : closing)
+            close(idleConnection.connection);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getIdle() {
+        synchronized (idleConnections) {
+            return idleConnections.size();
+        }
+    }
+
+    /**
+     * Get number of callers waiting for a connection
+     *
+     * @return number of waiting callers
+     * @since 1.0
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    public long getAcquiredConnections() {
+        return acquiredConnections.get();
+    }
+
+    public long getTimedOutAcquires() {
+        return timedOutAcquires.get();
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections.get();
+    }
+
+    public long getClosedConnections() {
+        return closedConnections.get();
+    }
+
+    /**
+     * Get average time callers waited for a connection
+     *
+     * @return average wait time in milliseconds
+     * @since 1.0
+     */
+    public double getAverageWaitTime() {
+        long acquired = acquiredConnections.get();
+        return acquired == 0 ? 0 : totalWaitTime.get() / 1e6 / acquired;
+    }
+
+    /**
+     * Get longest time a caller waited for a connection
+     *
+     * @return maximum wait time in milliseconds
+     * @since 1.0
+     */
+    public double getMaxWaitTime() {
+        return maxWaitTime.get() / 1e6;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pool: %s, size: %d, in use: %d, idle: %d, waiting: %d, acquired: %d, timed out: %d, created: %d, closed: %d, avg wait ms: %.2f, max wait ms: %.2f, statement hits: %d, statement misses: %d",
+                name, getSize(), getInUse(), getIdle(), getWaiting(), getAcquiredConnections(), getTimedOutAcquires(),
+                getCreatedConnections(), getClosedConnections(), getAverageWaitTime(), getMaxWaitTime(), getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * Connection waiting in the pool
+     */
+    private static class IdleConnection {
+
+        private final Connection connection;
+
+        /**
+         * Time the connection is released in milliseconds
+         */
+        private final long idleSince;
+
+        private IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package manager.connection;
+
+import common.Log;
+import config.ConfigUtilities;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds one connection pool per MySQL storage system and the pool of Drill, shared by all executors
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ConnectionPools {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "ConnectionPools";
+
+    /**
+     * How often idle connections are checked for eviction in milliseconds
+     */
+    private static final long EVICTION_PERIOD = 10000;
+
+    /**
+     * storage id -> pool of the storage, plus the Drill pool
+     */
+    private static final ConcurrentHashMap<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Key of the Drill pool among pools of storage systems
+     */
+    private static final String DRILL_POOL = "drill pool";
+
+    /**
+     * Number of prepared statements kept per Drill connection
+     */
+    private static final int DRILL_STATEMENT_CACHE_SIZE = 64;
+
+    private static ScheduledExecutorService evictor;
+
+    /**
+     * Get the pool of a MySQL storage system, the pool is created on first use
+     *
+     * @param storage MySQL storage system
+     * @return pool of the storage system
+     * @since 1.0
+     */
+    public static ConnectionPool getPool(StorageConfigContainer storage) {
+        return pools.computeIfAbsent(storage.getId(), id -> {
+            startEvictor();
+            return new ConnectionPool((MySqlConfigContainer) storage);
+        });
+    }
+
+    /**
+     * Takes a connection from the pool of a storage system
+     *
+     * @param storage MySQL storage system
+     * @return connection to the storage system, must be given back with release
+     * @throws SQLException if no connection is available in time
+     * @since 1.0
+     */
+    public static Connection acquire(StorageConfigContainer storage) throws SQLException {
+        return getPool(storage).acquire();
+    }
+
+    /**
+     * Gives a connection back to the pool of its storage system
+     *
+     * @param storage    MySQL storage system the connection is taken from
+     * @param connection connection to give back, may be null
+     * @since 1.0
+     */
+    public static void release(StorageConfigContainer storage, Connection connection) {
+        if (connection != null)
+            getPool(storage).release(connection);
+    }
+
+    /**
+     * Get the pool of connections to the drillbit specified in main config file, the pool is created on first use.
+     * the pool caches prepared statements of its connections
+     *
+     * @return pool of Drill connections
+     * @since 1.0
+     */
+    public static ConnectionPool getDrillPool() {
+        return pools.computeIfAbsent(DRILL_POOL, id -> {
+
+            //drill driver does not register itself through the service loader
+            try {
+                Class.forName("org.apache.drill.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                Log.log("Drill JDBC driver is not found", componentName, Log.ERROR);
+            }
+
+            startEvictor();
+            return new ConnectionPool("drill", "jdbc:drill:drillbit=" + ConfigUtilities.getDrillbit(), null, null,
+                    ConfigUtilities.getDrillPoolSize(), 60000, 2, 5000, DRILL_STATEMENT_CACHE_SIZE);
+        });
+    }
+
+    private static synchronized void startEvictor() {
+
+        if (evictor != null)
+            return;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        evictor.scheduleWithFixedDelay(() -> pools.values().forEach(ConnectionPool::evictIdleConnections),
+                EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Logs metrics of all pools
+     *
+     * @since 1.0
+     */
+    public static void logMetrics() {
+        for (ConnectionPool pool : pools.values())
+            Log.log(pool.toString(), componentName, Log.INFORMATION);
+    }
+
+    public static Iterable<ConnectionPool> getPools() {
+        return pools.values();
+    }
+
+    /**
+     * Closes idle connections of all pools
+     *
+     * @since 1.0
+     */
+    public static synchronized void closeAll() {
+
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+
+        pools.values().forEach(ConnectionPool::close);
+        pools.clear();
+    }
+}
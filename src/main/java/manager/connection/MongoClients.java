@@ -0,0 +1,54 @@
+package manager.connection;
+
+import com.mongodb.MongoClient;
+import config.StorageConfigContainer;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds one MongoClient per MongoDB storage system, shared by all executors.
+ * <p>
+ * a MongoClient keeps its own pool of connections and is safe to use from many threads,
+ * so it is created once per storage system and only closed on shutdown.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MongoClients {
+
+    private static final int DEFAULT_MONGODB_PORT = 27017;
+
+    /**
+     * storage id -> client of the storage
+     */
+    private static final ConcurrentHashMap<String, MongoClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Get the client of a MongoDB storage system, the client is created on first use
+     *
+     * @param storage MongoDB storage system
+     * @return client of the storage system, must not be closed by the caller
+     * @since 1.0
+     */
+    public static MongoClient getClient(StorageConfigContainer storage) {
+        return clients.computeIfAbsent(storage.getId(), id -> {
+
+            int port = storage.getPort() == null ? DEFAULT_MONGODB_PORT : Integer.parseInt(storage.getPort());
+
+            return new MongoClient(storage.getHost(), port);
+        });
+    }
+
+    /**
+     * Closes clients of all storage systems
+     *
+     * @since 1.0
+     */
+    public static void closeAll() {
+
+        clients.values().forEach(MongoClient::close);
+        clients.clear();
+    }
+}
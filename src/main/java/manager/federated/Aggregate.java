@@ -0,0 +1,129 @@
+package manager.federated;
+
+import language.mysql.utilities.MySqlParser;
+
+/**
+ * This class is an element of an aggregated select, either a column of the group by or an aggregate function of a column.
+ * <p>
+ * COUNT, SUM, MIN and MAX are supported. each of them can be computed in parts and the parts combined
+ * (counts are summed, minimums of minimums taken and so on), so storage systems compute them over the records they hold
+ * and Dolus only combines the parts.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class Aggregate {
+
+    public static final String COUNT = "COUNT";
+    public static final String SUM = "SUM";
+    public static final String MIN = "MIN";
+    public static final String MAX = "MAX";
+
+    /**
+     * Aggregate function, null for a column of the group by
+     */
+    private final String function;
+
+    /**
+     * Column aggregated or grouped by, null for COUNT(*)
+     */
+    private final String column;
+
+    /**
+     * Name of the element in the result
+     */
+    private final String label;
+
+    Aggregate(String function, String column, String label) {
+        this.function = function;
+        this.column = column;
+        this.label = label;
+    }
+
+    /**
+     * Creates an aggregate from a function call of a select
+     *
+     * @param functionCall the function call
+     * @param alias        alias of the table of the select
+     * @param label        name of the element in the result, null to use the text of the call
+     * @return the aggregate, null if the function or its argument is not supported
+     * @since 1.0
+     */
+    public static Aggregate of(MySqlParser.FunctionCallContext functionCall, String alias, String label) {
+
+        if (!(functionCall instanceof MySqlParser.AggregateFunctionCallContext))
+            return null;
+
+        MySqlParser.AggregateWindowedFunctionContext aggregate = ((MySqlParser.AggregateFunctionCallContext) functionCall).aggregateWindowedFunction();
+
+        //distinct values can not be combined from parts
+        if (aggregate.aggregator != null && aggregate.DISTINCT() != null)
+            return null;
+
+        String function = aggregate.getStart().getText().toUpperCase();
+
+        if (label == null)
+            label = functionCall.getText().toLowerCase();
+
+        if (function.equals(COUNT) && aggregate.starArg != null)
+            return new Aggregate(COUNT, null, label);
+
+        if (!function.equals(COUNT) && !function.equals(SUM) && !function.equals(MIN) && !function.equals(MAX))
+            return null;
+
+        if (aggregate.functionArg() == null || aggregate.functionArg().fullColumnName() == null)
+            return null;
+
+        String column = FederatedPlanner.getColumn(aggregate.functionArg().fullColumnName(), alias);
+
+        return column == null ? null : new Aggregate(function, column, label);
+    }
+
+    /**
+     * Get the name a storage system gives to the part of an aggregate it computes
+     *
+     * @param index index of the aggregate in the select
+     * @return name of the column of the part
+     * @since 1.0
+     */
+    public static String getPartName(int index) {
+        return "aggregate" + index;
+    }
+
+    /**
+     * Get the function combining parts of the aggregate
+     *
+     * @return SUM for counts, the function itself otherwise
+     * @since 1.0
+     */
+    public String getCombineFunction() {
+        return COUNT.equals(function) ? SUM : function;
+    }
+
+    public boolean isGroupColumn() {
+        return function == null;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+
+        if (function == null)
+            return column;
+
+        return String.format("%s(%s)", function, column == null ? "*" : column);
+    }
+}
@@ -0,0 +1,102 @@
+package manager.federated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class keeps column batches of the build side of a join in memory, indexed by primary key.
+ * a row is referred to by the index of its batch in the high 32 bits and its index in the batch in the low 32 bits
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchHashTable {
+
+    private final String primaryKey;
+
+    private final ArrayList<ColumnBatch> batches;
+
+    private final JoinHashTable index;
+
+    /**
+     * @param primaryKey column of the primary key in the batches
+     */
+    public BatchHashTable(String primaryKey) {
+
+        this.primaryKey = primaryKey;
+
+        this.batches = new ArrayList<>();
+        this.index = new JoinHashTable();
+    }
+
+    /**
+     * Adds the rows of a batch
+     *
+     * @param batch the rows
+     * @since 1.0
+     */
+    public void add(ColumnBatch batch) {
+
+        long batchReference = (long) batches.size() << 32;
+
+        batches.add(batch);
+
+        ColumnVector keys = batch.getColumn(primaryKey);
+
+        for (int i = 0; i < batch.getRowCount(); i++)
+            index.put(keys, i, batchReference | i);
+    }
+
+    /**
+     * Finds the row with the primary key at an index of a vector
+     *
+     * @param keys  primary keys of the probing rows
+     * @param row   index of the probing row
+     * @return reference of the row, JoinHashTable.NOT_FOUND if there is no row with the key
+     * @since 1.0
+     */
+    public long find(ColumnVector keys, int row) {
+        return index.get(keys, row);
+    }
+
+    /**
+     * Get the batch of a row
+     *
+     * @param reference reference of the row
+     * @return batch containing the row
+     * @since 1.0
+     */
+    public ColumnBatch getBatch(long reference) {
+        return batches.get((int) (reference >>> 32));
+    }
+
+    /**
+     * Get the index of a row in its batch
+     *
+     * @param reference reference of the row
+     * @return index of the row in getBatch(reference)
+     * @since 1.0
+     */
+    public static int getRow(long reference) {
+        return (int) reference;
+    }
+
+    public List<ColumnBatch> getBatches() {
+        return batches;
+    }
+
+    public String getPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * Estimates the heap taken by the index of the table, batches are accounted for when they are added
+     *
+     * @return size of the index in bytes
+     * @since 1.0
+     */
+    public long estimateIndexSize() {
+        return index.estimateSize();
+    }
+}
@@ -0,0 +1,122 @@
+package manager.federated;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class is a batch of rows stored by column, the unit passed between scans, joins and delivery of native selects.
+ * <p>
+ * each column is a ColumnVector holding the values of all rows of the batch, so a batch allocates a few arrays
+ * instead of a map and strings per row. rows are only materialized as maps when the batch is handed to the caller.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ColumnBatch {
+
+    /**
+     * column name -> values, in the order of the columns
+     */
+    private final LinkedHashMap<String, ColumnVector> columns;
+
+    private final int rowCount;
+
+    /**
+     * @param columns  column name -> values, every vector holds rowCount values
+     * @param rowCount number of rows of the batch
+     */
+    public ColumnBatch(LinkedHashMap<String, ColumnVector> columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public ColumnVector getColumn(String column) {
+        return columns.get(column);
+    }
+
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Estimates the heap taken by the batch
+     *
+     * @return size of the batch in bytes
+     * @since 1.0
+     */
+    public long estimateSize() {
+
+        long size = 64;
+
+        for (ColumnVector vector : columns.values())
+            size += vector.estimateSize();
+
+        return size;
+    }
+
+    /**
+     * Get consecutive rows of the batch
+     *
+     * @param from index of the first row
+     * @param to   index after the last row
+     * @return batch of the rows
+     * @since 1.0
+     */
+    public ColumnBatch slice(int from, int to) {
+
+        if (from == 0 && to == rowCount)
+            return this;
+
+        int count = to - from;
+
+        int[] indexes = new int[count];
+
+        for (int i = 0; i < count; i++)
+            indexes[i] = from + i;
+
+        LinkedHashMap<String, ColumnVector> sliced = new LinkedHashMap<>();
+
+        for (String column : columns.keySet()) {
+
+            ColumnVector[] sources = new ColumnVector[count];
+            Arrays.fill(sources, columns.get(column));
+
+            sliced.put(column, ColumnVector.gather(sources, indexes, count));
+        }
+
+        return new ColumnBatch(sliced, count);
+    }
+
+    /**
+     * Materializes rows of the batch
+     *
+     * @return rows as column -> value, in order
+     * @since 1.0
+     */
+    public List<HashMap<String, String>> toRows() {
+
+        LinkedList<HashMap<String, String>> rows = new LinkedList<>();
+
+        for (int i = 0; i < rowCount; i++) {
+
+            HashMap<String, String> row = new LinkedHashMap<>();
+
+            for (String column : columns.keySet())
+                row.put(column, columns.get(column).getString(i));
+
+            rows.add(row);
+        }
+
+        return rows;
+    }
+}
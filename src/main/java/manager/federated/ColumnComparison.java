@@ -0,0 +1,174 @@
+package manager.federated;
+
+import language.mysql.utilities.MySqlParser;
+
+/**
+ * This class is a comparison between two columns of a table living in different storage systems.
+ * no storage system can evaluate it, so it is evaluated on the rows of the join once both columns are known
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ColumnComparison {
+
+    private final String leftColumn;
+
+    private final String operator;
+
+    private final String rightColumn;
+
+    private ColumnComparison(String leftColumn, String operator, String rightColumn) {
+        this.leftColumn = leftColumn;
+        this.operator = operator;
+        this.rightColumn = rightColumn;
+    }
+
+    /**
+     * Creates a comparison from a condition in the form of "alias.attribute operator alias.attribute"
+     *
+     * @param condition the condition, may be in parentheses
+     * @param alias     alias of the table in the condition
+     * @return the comparison, null if the condition is not a comparison of two columns
+     * @since 1.0
+     */
+    public static ColumnComparison of(MySqlParser.ExpressionContext condition, String alias) {
+
+        if (!(condition instanceof MySqlParser.PredicateExpressionContext))
+            return null;
+
+        MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) condition).predicate();
+
+        //comparison in parentheses
+        if (predicate instanceof MySqlParser.ExpressionAtomPredicateContext) {
+
+            MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) predicate).expressionAtom();
+
+            if (atom instanceof MySqlParser.NestedExpressionAtomContext && ((MySqlParser.NestedExpressionAtomContext) atom).expression().size() == 1)
+                return of(((MySqlParser.NestedExpressionAtomContext) atom).expression(0), alias);
+
+            return null;
+        }
+
+        if (!(predicate instanceof MySqlParser.BinaryComparasionPredicateContext))
+            return null;
+
+        MySqlParser.BinaryComparasionPredicateContext comparison = (MySqlParser.BinaryComparasionPredicateContext) predicate;
+
+        String operator = comparison.comparisonOperator().getText();
+
+        String leftColumn = MongoDBFilters.getColumn(comparison.left, alias);
+        String rightColumn = MongoDBFilters.getColumn(comparison.right, alias);
+
+        if (leftColumn == null || rightColumn == null)
+            return null;
+
+        switch (operator) {
+            case "=":
+            case "!=":
+            case "<>":
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return new ColumnComparison(leftColumn, operator, rightColumn);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Evaluates the comparison on a row, like SQL a comparison with null is never satisfied
+     *
+     * @param left       values of the left column
+     * @param leftIndex  index of the value of the row in left
+     * @param right      values of the right column
+     * @param rightIndex index of the value of the row in right
+     * @return true if the row satisfies the comparison
+     * @since 1.0
+     */
+    public boolean test(ColumnVector left, int leftIndex, ColumnVector right, int rightIndex) {
+
+        if (left == null || right == null || left.isNull(leftIndex) || right.isNull(rightIndex))
+            return false;
+
+        int order;
+
+        if (left instanceof LongVector && right instanceof LongVector)
+            order = Long.compare(((LongVector) left).getLong(leftIndex), ((LongVector) right).getLong(rightIndex));
+        else
+            order = compare(left.getObject(leftIndex), right.getObject(rightIndex));
+
+        switch (operator) {
+            case "=":
+                return order == 0;
+            case "!=":
+            case "<>":
+                return order != 0;
+            case "<":
+                return order < 0;
+            case "<=":
+                return order <= 0;
+            case ">":
+                return order > 0;
+            default:
+                return order >= 0;
+        }
+    }
+
+    /**
+     * Compares two values that are not null.
+     * a number compared with anything is compared as a number like MySQL does, other values are compared as strings
+     *
+     * @param left  Long, Double or String
+     * @param right Long, Double or String
+     * @return negative, zero or positive as left is less than, equal to or greater than right
+     * @since 1.0
+     */
+    public static int compare(Object left, Object right) {
+
+        if (left instanceof Long && right instanceof Long)
+            return Long.compare((Long) left, (Long) right);
+
+        if (left instanceof Number || right instanceof Number) {
+
+            Double leftNumber = toNumber(left);
+            Double rightNumber = toNumber(right);
+
+            if (leftNumber != null && rightNumber != null)
+                return Double.compare(leftNumber, rightNumber);
+        }
+
+        return StorageScan.toValueString(left).compareTo(StorageScan.toValueString(right));
+    }
+
+    /**
+     * Get a value as a number
+     *
+     * @return the number, null if the value is not a number
+     */
+    private static Double toNumber(Object value) {
+
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getLeftColumn() {
+        return leftColumn;
+    }
+
+    public String getRightColumn() {
+        return rightColumn;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s", leftColumn, operator, rightColumn);
+    }
+}
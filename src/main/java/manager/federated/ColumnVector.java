@@ -0,0 +1,210 @@
+package manager.federated;
+
+import java.util.Arrays;
+
+/**
+ * This class is the values of one column of a ColumnBatch.
+ * <p>
+ * values are kept in a typed array of the subclass and nulls in a bitmap, so a batch of rows does not allocate
+ * an object per value. vectors are append only while a batch is built and read only afterwards.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class ColumnVector {
+
+    /**
+     * Initial number of values a vector has room for
+     */
+    protected static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of values in the vector
+     */
+    protected int size;
+
+    /**
+     * Bit i is set if value i is null
+     */
+    private long[] nulls = new long[1];
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int index) {
+
+        int word = index >>> 6;
+
+        return word < nulls.length && (nulls[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks the value at the end of the vector as null
+     */
+    protected void markNull(int index) {
+
+        int word = index >>> 6;
+
+        if (word >= nulls.length)
+            nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+
+        nulls[word] |= 1L << index;
+    }
+
+    /**
+     * Appends a null value
+     *
+     * @since 1.0
+     */
+    public abstract void appendNull();
+
+    /**
+     * Appends a value of another vector of the same type, any vector for a string vector
+     *
+     * @param source vector containing the value
+     * @param index  index of the value in source
+     * @since 1.0
+     */
+    public abstract void appendFrom(ColumnVector source, int index);
+
+    /**
+     * Get a value in the form its storage system produces it
+     *
+     * @param index index of the value
+     * @return string form of the value, null for null
+     * @since 1.0
+     */
+    public abstract String getString(int index);
+
+    /**
+     * Get a value boxed in its Java type, to send it back to a storage system
+     *
+     * @param index index of the value
+     * @return Long, Double or String, null for null
+     * @since 1.0
+     */
+    public abstract Object getObject(int index);
+
+    /**
+     * Creates an empty vector of the same type
+     *
+     * @param capacity number of values the vector has room for
+     * @return the empty vector
+     * @since 1.0
+     */
+    public abstract ColumnVector emptyCopy(int capacity);
+
+    /**
+     * Estimates the heap taken by the vector
+     *
+     * @return size of the vector in bytes
+     * @since 1.0
+     */
+    public long estimateSize() {
+        return 32 + nulls.length * 8L;
+    }
+
+    /**
+     * Collects values of several vectors into a new vector.
+     * the new vector has the type of the sources if they all have the same type, it is a string vector otherwise
+     *
+     * @param sources vector of each value, null for a null value
+     * @param indexes index of each value in its vector
+     * @param count   number of values
+     * @return vector of the values in order
+     * @since 1.0
+     */
+    public static ColumnVector gather(ColumnVector[] sources, int[] indexes, int count) {
+
+        ColumnVector type = null;
+        boolean mixed = false;
+
+        for (int i = 0; i < count; i++) {
+
+            if (sources[i] == null || sources[i].isNull(indexes[i]))
+                continue;
+
+            if (type == null)
+                type = sources[i];
+            else if (type.getClass() != sources[i].getClass())
+                mixed = true;
+        }
+
+        ColumnVector target = type == null || mixed ? new StringVector(count) : type.emptyCopy(count);
+
+        for (int i = 0; i < count; i++) {
+
+            if (sources[i] == null || sources[i].isNull(indexes[i]))
+                target.appendNull();
+            else
+                target.appendFrom(sources[i], indexes[i]);
+        }
+
+        return target;
+    }
+
+    /**
+     * Builds a vector from values read from a storage system
+     *
+     * @param values values of the column, Java objects of the driver
+     * @param count  number of values
+     * @return a long vector if all values are integers, a double vector if all are floating point, a string vector otherwise
+     * @since 1.0
+     */
+    public static ColumnVector of(Object[] values, int count) {
+
+        boolean integers = true;
+        boolean doubles = true;
+
+        for (int i = 0; i < count; i++) {
+
+            Object value = values[i];
+
+            if (value == null)
+                continue;
+
+            integers &= value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+            doubles &= value instanceof Double || value instanceof Float;
+        }
+
+        ColumnVector vector;
+
+        if (integers) {
+            LongVector longVector = new LongVector(count);
+
+            for (int i = 0; i < count; i++) {
+                if (values[i] == null)
+                    longVector.appendNull();
+                else
+                    longVector.append(((Number) values[i]).longValue());
+            }
+
+            vector = longVector;
+
+        } else if (doubles) {
+            DoubleVector doubleVector = new DoubleVector(count);
+
+            for (int i = 0; i < count; i++) {
+                if (values[i] == null)
+                    doubleVector.appendNull();
+                else
+                    doubleVector.append(((Number) values[i]).doubleValue());
+            }
+
+            vector = doubleVector;
+
+        } else {
+            StringVector stringVector = new StringVector(count);
+
+            for (int i = 0; i < count; i++)
+                stringVector.append(StorageScan.toValueString(values[i]));
+
+            vector = stringVector;
+        }
+
+        return vector;
+    }
+}
@@ -0,0 +1,75 @@
+package manager.federated;
+
+import java.util.Arrays;
+
+/**
+ * This class is a column of floating point numbers, kept unboxed
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class DoubleVector extends ColumnVector {
+
+    private double[] values;
+
+    public DoubleVector(int capacity) {
+        this.values = new double[Math.max(capacity, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Appends a value
+     *
+     * @param value the value
+     * @since 1.0
+     */
+    public void append(double value) {
+
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+
+        values[size++] = value;
+    }
+
+    @Override
+    public void appendNull() {
+        markNull(size);
+        append(0);
+    }
+
+    @Override
+    public void appendFrom(ColumnVector source, int index) {
+        append(((DoubleVector) source).getDouble(index));
+    }
+
+    /**
+     * Get a value without boxing it, meaningless for null values
+     *
+     * @param index index of the value
+     * @return the value
+     * @since 1.0
+     */
+    public double getDouble(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String getString(int index) {
+        return isNull(index) ? null : StorageScan.toValueString(values[index]);
+    }
+
+    @Override
+    public Object getObject(int index) {
+        return isNull(index) ? null : values[index];
+    }
+
+    @Override
+    public ColumnVector emptyCopy(int capacity) {
+        return new DoubleVector(capacity);
+    }
+
+    @Override
+    public long estimateSize() {
+        return super.estimateSize() + values.length * 8L;
+    }
+}
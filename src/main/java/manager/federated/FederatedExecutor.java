@@ -0,0 +1,776 @@
+package manager.federated;
+
+import common.Log;
+import config.ConfigUtilities;
+import config.StorageConfigContainer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * This class executes a federated select without Drill.
+ * <p>
+ * the select is split into one scan per storage system holding its columns. scans of all storage systems run in parallel
+ * over their native drivers. rows of the other storage systems are put in hash tables keyed by primary key,
+ * then rows of the storage system of the table are streamed and completed from the hash tables (primary key hash join).
+ * storage systems are inner joined like Drill joins them, a record missing in any storage system holding selected columns is dropped.
+ * rows travel as column batches from the scans to the end of the join and are only turned into maps when handed over.
+ * </p>
+ * <p>
+ * selects looking records up by primary key send the keys to every storage system,
+ * so each storage system answers from its primary key index and the lookups run concurrently.
+ * </p>
+ * <p>
+ * selects with a condition are driven by a storage system evaluating a part of it (semi join):
+ * primary keys of qualifying rows are streamed in batches and looked up in the other storage systems with IN / $in
+ * along with the parts of the condition those storage systems evaluate, so the other storage systems are never read as a whole.
+ * comparisons between columns of different storage systems are evaluated on the joined batches.
+ * an order and a limit are pushed to the storage of the table the same way, other columns are only looked up for the rows of the page.
+ * </p>
+ * <p>
+ * aggregates are computed by the storage of the table when it holds their columns, Dolus only combines the parts.
+ * otherwise they are computed from the rows of the join, see HashAggregation.
+ * </p>
+ * <p>
+ * hash tables of one select share the memory budget of a join. a hash table exceeding it spills to disk
+ * and the select is finished as a grace hash join, see SpillableHashTable.
+ * </p>
+ * <p>
+ * full scans of a storage system are split into ranges of the primary key read concurrently, see ParallelScan.
+ * lookups of primary keys are read serially, they are already answered from the primary key index.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class FederatedExecutor {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "FederatedExecutor";
+
+    /**
+     * Runs the scans building hash tables. scans mostly wait for their storage systems
+     */
+    private static final ExecutorService scanExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final FederatedQuery query;
+
+    /**
+     * Number of rows read from storage systems at once and handed over together
+     */
+    private final int batchSize;
+
+    /**
+     * Reason the select failed, null if it did not fail
+     */
+    private String failure;
+
+    /**
+     * @param query     planned select
+     * @param batchSize number of rows read from storage systems at once and handed over together
+     */
+    public FederatedExecutor(FederatedQuery query, int batchSize) {
+        this.query = query;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Executes the select and hands its rows over in batches.
+     * the next batch is only read once the previous one is accepted
+     *
+     * @param batches accepts a batch of rows, returns false to stop reading
+     * @return true if all rows are read, false if the select failed or reading is stopped
+     * @since 1.0
+     */
+    public boolean execute(Predicate<List<HashMap<String, String>>> batches) {
+
+        return executeBatches(batch -> batch.getRowCount() == 0 || batches.test(batch.toRows()));
+    }
+
+    /**
+     * Executes the select and hands its rows over as column batches
+     *
+     * @param output accepts a batch of rows, returns false to stop reading
+     * @return true if all rows are read, false if the select failed or reading is stopped
+     */
+    private boolean executeBatches(Predicate<ColumnBatch> output) {
+
+        //keys found by a subquery only hold for this execution
+        boolean lookup = false;
+
+        try {
+            //subqueries are evaluated once before the select, rows of the select are joined with their results
+            for (SubqueryCondition subquery : query.getSubqueryConditions()) {
+
+                subquery.clear();
+
+                FederatedExecutor executor = new FederatedExecutor(subquery.getSubquery(), batchSize);
+
+                if (!executor.executeBatches(subquery::add)) {
+                    failure = executor.getFailure();
+                    return false;
+                }
+
+                List<Object> matchingValues = subquery.getMatchingValues();
+
+                //a semi join on the primary key turns the select into lookups of the keys the subquery returned
+                if (matchingValues != null && query.getKeys() == null && matchingValues.size() <= FederatedPlanner.MAX_LOOKUP_KEYS
+                        && subquery.getOuterColumn().equals(query.getTableStorage().getPrimaryKey(query.getTable()))) {
+
+                    //no record can match an empty subquery
+                    if (matchingValues.isEmpty())
+                        return !query.isAggregated() || output.test(new HashAggregation(query.getAggregates(), query.getGroupBy(), false).getResult());
+
+                    query.setKeys(matchingValues);
+                    lookup = true;
+                }
+            }
+
+            if (query.isAggregated())
+                return aggregate(output);
+
+            return join(output);
+
+        } finally {
+            if (lookup)
+                query.setKeys(null);
+        }
+    }
+
+    /**
+     * Executes an aggregated select. the storage of the table computes the aggregates in parts whenever it holds all of their columns,
+     * Dolus then only combines the parts. otherwise the aggregates are computed from the rows of the join
+     */
+    private boolean aggregate(Predicate<ColumnBatch> output) {
+
+        boolean inStorage = query.getAggregationStorage() != null;
+
+        HashAggregation aggregation = new HashAggregation(query.getAggregates(), query.getGroupBy(), inStorage);
+
+        boolean read = inStorage ? aggregateInStorage(aggregation) : join(batch -> {
+            aggregation.add(batch);
+            return true;
+        });
+
+        return read && output.test(aggregation.getResult());
+    }
+
+    /**
+     * Lets the storage of the table compute parts of the aggregates. if another storage system evaluates a condition
+     * it drives: primary keys of its qualifying records are sent in batches to the storage of the table,
+     * which aggregates only those records. the parts of all batches are combined
+     */
+    private boolean aggregateInStorage(HashAggregation aggregation) {
+
+        StorageConfigContainer drivingStorage = null;
+
+        for (StorageConfigContainer storage : query.getStorageConditions().keySet())
+            if (storage != query.getTableStorage())
+                drivingStorage = storage;
+
+        if (drivingStorage == null)
+            return aggregateKeys(query.getKeys(), aggregation);
+
+        StorageScan drivingScan = StorageScan.create(drivingStorage, query.getTable(), query.getStorageColumns().get(drivingStorage), batchSize,
+                ConfigUtilities.getScanParallelism());
+
+        if (drivingScan == null) {
+            failure = "storage: " + drivingStorage.getId() + " is not supported";
+            return false;
+        }
+
+        drivingScan.setConditions(query.getConditions(drivingStorage), query.getAlias());
+
+        try {
+            if (!drivingScan.open()) {
+                failure = drivingScan.getFailure();
+                return false;
+            }
+
+            for (ColumnBatch drivingBatch = drivingScan.nextBatch(); drivingBatch != null; drivingBatch = drivingScan.nextBatch()) {
+
+                ColumnVector drivingKeys = drivingBatch.getColumn(drivingScan.getPrimaryKey());
+                LinkedList<Object> keys = new LinkedList<>();
+
+                for (int i = 0; i < drivingBatch.getRowCount(); i++)
+                    if (!drivingKeys.isNull(i))
+                        keys.add(drivingKeys.getObject(i));
+
+                if (!keys.isEmpty() && !aggregateKeys(keys, aggregation))
+                    return false;
+            }
+
+            if (drivingScan.getFailure() != null) {
+                failure = drivingScan.getFailure();
+                return false;
+            }
+
+            return true;
+
+        } finally {
+            drivingScan.close();
+        }
+    }
+
+    /**
+     * Aggregates records of the storage of the table in the storage system and combines the parts
+     *
+     * @param keys primary keys of the records, null for all records
+     * @return false if the scan failed
+     */
+    private boolean aggregateKeys(List<Object> keys, HashAggregation aggregation) {
+
+        StorageConfigContainer tableStorage = query.getTableStorage();
+
+        StorageScan scan = StorageScan.create(tableStorage, query.getTable(), new LinkedList<>(), batchSize, ConfigUtilities.getScanParallelism());
+
+        if (scan == null) {
+            failure = "storage: " + tableStorage.getId() + " is not supported";
+            return false;
+        }
+
+        scan.setKeys(keys);
+        scan.setConditions(query.getConditions(tableStorage), query.getAlias());
+        scan.setAggregation(query.getAggregates(), query.getGroupBy());
+
+        try {
+            if (!scan.open()) {
+                failure = scan.getFailure();
+                return false;
+            }
+
+            for (ColumnBatch batch = scan.nextBatch(); batch != null; batch = scan.nextBatch())
+                aggregation.add(batch);
+
+            if (scan.getFailure() != null) {
+                failure = scan.getFailure();
+                return false;
+            }
+
+            return true;
+
+        } finally {
+            scan.close();
+        }
+    }
+
+    /**
+     * Joins the columns of the select from all storage systems
+     *
+     * @param output accepts a batch of joined rows, returns false to stop reading
+     * @return true if all rows are read, false if the select failed or reading is stopped
+     */
+    private boolean join(Predicate<ColumnBatch> output) {
+
+        if (query.getDrivingStorage() != null)
+            return semiJoin(output);
+
+        StorageConfigContainer tableStorage = query.getTableStorage();
+
+        //hash tables of all storage systems share one memory budget
+        MemoryBudget budget = new MemoryBudget(ConfigUtilities.getJoinMemoryBudget());
+
+        //start building hash tables of the other storage systems
+        LinkedHashMap<StorageConfigContainer, CompletableFuture<SpillableHashTable>> builds = new LinkedHashMap<>();
+
+        for (StorageConfigContainer storage : query.getStorageColumns().keySet()) {
+
+            if (storage == tableStorage)
+                continue;
+
+            StorageScan scan = StorageScan.create(storage, query.getTable(), query.getStorageColumns().get(storage), batchSize,
+                    ConfigUtilities.getScanParallelism());
+
+            if (scan == null) {
+                failure = "storage: " + storage.getId() + " is not supported";
+                closeBuilds(builds);
+                return false;
+            }
+
+            scan.setKeys(query.getKeys());
+
+            builds.put(storage, CompletableFuture.supplyAsync(() -> build(scan, budget), scanExecutor));
+        }
+
+        //the table scan is opened while hash tables are being built, so the storage systems work in parallel
+        StorageScan tableScan = StorageScan.create(tableStorage, query.getTable(), query.getStorageColumns().get(tableStorage), batchSize,
+                ConfigUtilities.getScanParallelism());
+
+        if (tableScan == null) {
+            failure = "storage: " + tableStorage.getId() + " is not supported";
+            closeBuilds(builds);
+            return false;
+        }
+
+        tableScan.setKeys(query.getKeys());
+
+        try {
+            if (!tableScan.open()) {
+                failure = tableScan.getFailure();
+                return false;
+            }
+
+            HashMap<StorageConfigContainer, BatchHashTable> hashTables = new HashMap<>();
+            HashMap<StorageConfigContainer, SpillableHashTable> spilledTables = new HashMap<>();
+
+            for (StorageConfigContainer storage : builds.keySet()) {
+
+                SpillableHashTable hashTable = builds.get(storage).join();
+
+                if (hashTable == null)
+                    return false;
+
+                if (hashTable.isSpilled())
+                    spilledTables.put(storage, hashTable);
+                else
+                    hashTables.put(storage, hashTable.getTable());
+            }
+
+            if (spilledTables.isEmpty())
+                return probe(tableScan, hashTables, output);
+
+            return probePartitions(tableScan, hashTables, spilledTables, output);
+
+        } finally {
+            tableScan.close();
+            closeBuilds(builds);
+        }
+    }
+
+    /**
+     * Gives back memory and spill files of hash tables once they are built
+     */
+    private static void closeBuilds(LinkedHashMap<StorageConfigContainer, CompletableFuture<SpillableHashTable>> builds) {
+
+        for (CompletableFuture<SpillableHashTable> build : builds.values())
+            build.thenAccept(hashTable -> {
+                if (hashTable != null)
+                    hashTable.close();
+            });
+    }
+
+    /**
+     * Executes a select with a condition, an order or a limit. a storage system evaluating the condition drives:
+     * its qualifying rows are streamed in batches and only their primary keys are looked up in the other storage systems,
+     * so reads of the other storage systems grow with the result instead of the size of the table.
+     * ordered selects are driven by the storage of the table, which returns its rows sorted, and stop once the limit is reached
+     */
+    private boolean semiJoin(Predicate<ColumnBatch> output) {
+
+        StorageConfigContainer drivingStorage = query.getDrivingStorage();
+
+        long limit = query.getLimit();
+
+        //rows of the result still to skip and to hand over
+        long toSkip = query.getOffset();
+        long remaining = limit < 0 ? Long.MAX_VALUE : limit;
+
+        if (remaining == 0)
+            return true;
+
+        //a small page is read in a single fetch
+        int fetchSize = limit < 0 ? batchSize : (int) Math.max(1, Math.min(batchSize, toSkip + limit));
+
+        StorageScan drivingScan = StorageScan.create(drivingStorage, query.getTable(), query.getStorageColumns().get(drivingStorage), fetchSize,
+                ConfigUtilities.getScanParallelism());
+
+        if (drivingScan == null) {
+            failure = "storage: " + drivingStorage.getId() + " is not supported";
+            return false;
+        }
+
+        drivingScan.setConditions(query.getConditions(drivingStorage), query.getAlias());
+        drivingScan.setKeys(query.getKeys());
+        drivingScan.setOrder(query.getOrder());
+
+        //the storage system applies the limit itself if every row it returns is a row of the result
+        if (limit >= 0 && query.isDrivingStorageExact()) {
+            drivingScan.setLimit(toSkip, limit);
+            toSkip = 0;
+        }
+
+        try {
+            if (!drivingScan.open()) {
+                failure = drivingScan.getFailure();
+                return false;
+            }
+
+            for (ColumnBatch drivingBatch = drivingScan.nextBatch(); drivingBatch != null; drivingBatch = drivingScan.nextBatch()) {
+
+                //primary keys of the qualifying rows of the batch
+                ColumnVector drivingKeys = drivingBatch.getColumn(drivingScan.getPrimaryKey());
+                LinkedList<Object> keys = new LinkedList<>();
+
+                for (int i = 0; i < drivingBatch.getRowCount(); i++)
+                    if (!drivingKeys.isNull(i))
+                        keys.add(drivingKeys.getObject(i));
+
+                //look the keys of the batch up in the other storage systems concurrently
+                LinkedHashMap<StorageConfigContainer, CompletableFuture<BatchHashTable>> lookups = new LinkedHashMap<>();
+
+                for (StorageConfigContainer storage : query.getStorageColumns().keySet()) {
+
+                    if (storage == drivingStorage || keys.isEmpty())
+                        continue;
+
+                    StorageScan scan = StorageScan.create(storage, query.getTable(), query.getStorageColumns().get(storage), batchSize);
+
+                    if (scan == null) {
+                        failure = "storage: " + storage.getId() + " is not supported";
+                        return false;
+                    }
+
+                    scan.setKeys(keys);
+                    scan.setConditions(query.getConditions(storage), query.getAlias());
+
+                    lookups.put(storage, CompletableFuture.supplyAsync(() -> lookup(scan), scanExecutor));
+                }
+
+                HashMap<StorageConfigContainer, BatchHashTable> hashTables = new HashMap<>();
+
+                for (StorageConfigContainer storage : lookups.keySet()) {
+
+                    BatchHashTable hashTable = lookups.get(storage).join();
+
+                    if (hashTable == null)
+                        return false;
+
+                    hashTables.put(storage, hashTable);
+                }
+
+                ColumnBatch joined = join(drivingStorage, drivingBatch, drivingScan.getPrimaryKey(), hashTables);
+
+                int from = (int) Math.min(toSkip, joined.getRowCount());
+                int to = (int) Math.min(joined.getRowCount(), from + remaining);
+
+                toSkip -= from;
+                remaining -= to - from;
+
+                if (!output.test(joined.slice(from, to)))
+                    return false;
+
+                //rows after the limit are never read
+                if (remaining == 0)
+                    return true;
+            }
+
+            if (drivingScan.getFailure() != null) {
+                failure = drivingScan.getFailure();
+                return false;
+            }
+
+            return true;
+
+        } finally {
+            drivingScan.close();
+        }
+    }
+
+    /**
+     * Completes a batch of rows of one storage system with the columns of the other storage systems.
+     * rows of the other storage systems are found once per row, then every column of the result is gathered as a whole
+     *
+     * @param drivingStorage storage system the rows are read from
+     * @param drivingBatch   the rows
+     * @param drivingKey     primary key of the rows
+     * @param hashTables     rows of the other storage systems by primary key
+     * @return projected columns by label, rows the table has no record for or not satisfying the condition are left out
+     */
+    private ColumnBatch join(StorageConfigContainer drivingStorage, ColumnBatch drivingBatch, String drivingKey,
+                             HashMap<StorageConfigContainer, BatchHashTable> hashTables) {
+
+        int rowCount = drivingBatch.getRowCount();
+        ColumnVector keys = drivingBatch.getColumn(drivingKey);
+
+        //reference of the matching row of each storage system for each row of the batch
+        HashMap<StorageConfigContainer, long[]> references = new HashMap<>();
+
+        for (StorageConfigContainer storage : hashTables.keySet()) {
+
+            BatchHashTable hashTable = hashTables.get(storage);
+            long[] storageReferences = new long[rowCount];
+
+            for (int i = 0; i < rowCount; i++)
+                storageReferences[i] = hashTable.find(keys, i);
+
+            references.put(storage, storageReferences);
+        }
+
+        int[] selected = new int[rowCount];
+        int count = 0;
+
+        for (int i = 0; i < rowCount; i++)
+            if (isMatched(drivingStorage, references, i))
+                selected[count++] = i;
+
+        ColumnVector[] sources = new ColumnVector[count];
+        int[] indexes = new int[count];
+
+        //comparisons of columns of different storage systems
+        for (ColumnComparison comparison : query.getJoinConditions()) {
+
+            locate(comparison.getLeftColumn(), drivingStorage, drivingBatch, hashTables, references, selected, count, sources, indexes);
+
+            ColumnVector[] rightSources = new ColumnVector[count];
+            int[] rightIndexes = new int[count];
+
+            locate(comparison.getRightColumn(), drivingStorage, drivingBatch, hashTables, references, selected, count, rightSources, rightIndexes);
+
+            int satisfied = 0;
+
+            for (int j = 0; j < count; j++)
+                if (comparison.test(sources[j], indexes[j], rightSources[j], rightIndexes[j]))
+                    selected[satisfied++] = selected[j];
+
+            count = satisfied;
+        }
+
+        //decorrelated subqueries
+        for (SubqueryCondition subquery : query.getSubqueryConditions()) {
+
+            ColumnVector[] valueSources = new ColumnVector[count];
+            int[] valueIndexes = new int[count];
+
+            if (subquery.getOuterColumn() != null)
+                locate(subquery.getOuterColumn(), drivingStorage, drivingBatch, hashTables, references, selected, count, sources, indexes);
+
+            if (subquery.getValueColumn() != null)
+                locate(subquery.getValueColumn(), drivingStorage, drivingBatch, hashTables, references, selected, count, valueSources, valueIndexes);
+
+            int satisfied = 0;
+
+            for (int j = 0; j < count; j++)
+                if (subquery.test(subquery.getOuterColumn() == null ? null : sources[j], indexes[j], valueSources[j], valueIndexes[j]))
+                    selected[satisfied++] = selected[j];
+
+            count = satisfied;
+        }
+
+        List<String> columns = query.getColumns();
+        List<String> labels = query.getLabels();
+
+        LinkedHashMap<String, ColumnVector> result = new LinkedHashMap<>();
+
+        for (int i = 0; i < columns.size(); i++) {
+
+            locate(columns.get(i), drivingStorage, drivingBatch, hashTables, references, selected, count, sources, indexes);
+
+            result.put(labels.get(i), ColumnVector.gather(sources, indexes, count));
+        }
+
+        return new ColumnBatch(result, count);
+    }
+
+    /**
+     * Decides whether a row of the driving storage system is a result of the select
+     *
+     * @return false if a storage system has no record for the row or filtered it out
+     */
+    private boolean isMatched(StorageConfigContainer drivingStorage, HashMap<StorageConfigContainer, long[]> references, int row) {
+
+        for (StorageConfigContainer storage : query.getStorageColumns().keySet()) {
+
+            long[] storageReferences = references.get(storage);
+
+            //inner join, the record must exist in every storage system the select reads
+            if (storage != drivingStorage && (storageReferences == null || storageReferences[row] == JoinHashTable.NOT_FOUND))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the values of a column for the selected rows of a batch
+     *
+     * @param column   the column
+     * @param selected indexes of the selected rows in the driving batch
+     * @param count    number of selected rows
+     * @param sources  receives the vector of the value of each selected row, null for a missing record
+     * @param indexes  receives the index of the value of each selected row in its vector
+     */
+    private void locate(String column, StorageConfigContainer drivingStorage, ColumnBatch drivingBatch,
+                        HashMap<StorageConfigContainer, BatchHashTable> hashTables, HashMap<StorageConfigContainer, long[]> references,
+                        int[] selected, int count, ColumnVector[] sources, int[] indexes) {
+
+        StorageConfigContainer storage = query.getStorageOf(column);
+
+        if (storage == drivingStorage) {
+            ColumnVector vector = drivingBatch.getColumn(column);
+
+            for (int j = 0; j < count; j++) {
+                sources[j] = vector;
+                indexes[j] = selected[j];
+            }
+
+            return;
+        }
+
+        BatchHashTable hashTable = hashTables.get(storage);
+        long[] storageReferences = references.get(storage);
+
+        for (int j = 0; j < count; j++) {
+
+            long reference = storageReferences == null ? JoinHashTable.NOT_FOUND : storageReferences[selected[j]];
+
+            sources[j] = reference == JoinHashTable.NOT_FOUND ? null : hashTable.getBatch(reference).getColumn(column);
+            indexes[j] = BatchHashTable.getRow(reference);
+        }
+    }
+
+    /**
+     * Reads the rows of a lookup by primary key into a hash table, lookups are bounded by the batch size so they are always kept in memory
+     *
+     * @return rows by primary key, null if the scan failed
+     */
+    private BatchHashTable lookup(StorageScan scan) {
+
+        BatchHashTable hashTable = new BatchHashTable(scan.getPrimaryKey());
+
+        try {
+            if (!scan.open()) {
+                failure = scan.getFailure();
+                return null;
+            }
+
+            for (ColumnBatch batch = scan.nextBatch(); batch != null; batch = scan.nextBatch())
+                hashTable.add(batch);
+
+            if (scan.getFailure() != null) {
+                failure = scan.getFailure();
+                return null;
+            }
+
+            return hashTable;
+
+        } finally {
+            scan.close();
+        }
+    }
+
+    /**
+     * Reads all rows of a scan into a hash table keyed by primary key, the table spills to disk once the budget is exceeded
+     *
+     * @return the hash table, null if the scan failed
+     */
+    private SpillableHashTable build(StorageScan scan, MemoryBudget budget) {
+
+        SpillableHashTable hashTable = new SpillableHashTable(scan.getRowColumns(), scan.getPrimaryKey(), budget);
+
+        try {
+            if (!scan.open()) {
+                failure = scan.getFailure();
+                hashTable.close();
+                return null;
+            }
+
+            for (ColumnBatch batch = scan.nextBatch(); batch != null; batch = scan.nextBatch())
+                hashTable.add(batch);
+
+            if (scan.getFailure() != null) {
+                failure = scan.getFailure();
+                hashTable.close();
+                return null;
+            }
+
+            return hashTable;
+
+        } catch (IOException e) {
+            failure = "can not spill hash table to disk, " + e.getMessage();
+            Log.log(failure, componentName, Log.ERROR);
+            hashTable.close();
+            return null;
+        } finally {
+            scan.close();
+        }
+    }
+
+    /**
+     * Streams batches of the table and completes them with columns of the other storage systems
+     */
+    private boolean probe(StorageScan tableScan, HashMap<StorageConfigContainer, BatchHashTable> hashTables,
+                          Predicate<ColumnBatch> output) {
+
+        for (ColumnBatch tableBatch = tableScan.nextBatch(); tableBatch != null; tableBatch = tableScan.nextBatch())
+            if (!output.test(join(query.getTableStorage(), tableBatch, tableScan.getPrimaryKey(), hashTables)))
+                return false;
+
+        if (tableScan.getFailure() != null) {
+            failure = tableScan.getFailure();
+            Log.log(failure, componentName, Log.ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Joins rows of the table with spilled hash tables partition by partition.
+     * rows of the table are split into the partitions of the spilled tables first,
+     * then each partition of the spilled tables is loaded alone and joined with the rows of the table in it
+     */
+    private boolean probePartitions(StorageScan tableScan, HashMap<StorageConfigContainer, BatchHashTable> hashTables,
+                                    HashMap<StorageConfigContainer, SpillableHashTable> spilledTables,
+                                    Predicate<ColumnBatch> output) {
+
+        SpillFile[] tablePartitions = null;
+
+        try {
+            tablePartitions = SpillableHashTable.createPartitions(tableScan.getRowColumns());
+
+            for (ColumnBatch tableBatch = tableScan.nextBatch(); tableBatch != null; tableBatch = tableScan.nextBatch())
+                SpillableHashTable.write(tablePartitions, tableBatch, tableScan.getPrimaryKey());
+
+            if (tableScan.getFailure() != null) {
+                failure = tableScan.getFailure();
+                Log.log(failure, componentName, Log.ERROR);
+                return false;
+            }
+
+            for (int partition = 0; partition < SpillableHashTable.PARTITIONS; partition++) {
+
+                HashMap<StorageConfigContainer, BatchHashTable> partitionTables = new HashMap<>(hashTables);
+
+                for (StorageConfigContainer storage : spilledTables.keySet())
+                    partitionTables.put(storage, spilledTables.get(storage).loadPartition(partition));
+
+                SpillFile tablePartition = tablePartitions[partition];
+
+                for (ColumnBatch tableBatch = tablePartition.readBatch(batchSize); tableBatch != null; tableBatch = tablePartition.readBatch(batchSize))
+                    if (!output.test(join(query.getTableStorage(), tableBatch, tableScan.getPrimaryKey(), partitionTables)))
+                        return false;
+
+                tablePartition.close();
+            }
+
+            return true;
+
+        } catch (IOException e) {
+            failure = "can not join spilled partitions, " + e.getMessage();
+            Log.log(failure, componentName, Log.ERROR);
+            return false;
+        } finally {
+            SpillableHashTable.closePartitions(tablePartitions);
+        }
+    }
+
+    /**
+     * Get the reason the select failed
+     *
+     * @return reason of the failure, null if the select did not fail
+     * @since 1.0
+     */
+    public String getFailure() {
+        return failure;
+    }
+}
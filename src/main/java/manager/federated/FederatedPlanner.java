@@ -0,0 +1,669 @@
+package manager.federated;
+
+import common.Log;
+import config.ConfigUtilities;
+import config.MongoDBConfigContainer;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+import language.mysql.translator.SimpleInsertTranslator;
+import language.mysql.utilities.MySqlParser;
+import language.mysql.utilities.MySqlParserBaseListener;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class decides whether a select can be executed by Dolus itself and plans it.
+ * <p>
+ * supported selects project plain columns of a single table, optionally looking records up by primary key
+ * or filtered by a condition. the condition is split into the parts joined by AND, each part is pushed to the storage system
+ * owning its columns and only comparisons between columns of different storage systems are left to the join.
+ * an order by on columns of the storage system of the table and a limit are pushed to it.
+ * COUNT, SUM, MIN and MAX grouped by columns are supported as well. anything else is left to Drill.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class FederatedPlanner {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "FederatedPlanner";
+
+    /**
+     * Maximum number of values of an IN list looked up by primary key, longer lists are read as a whole
+     */
+    public static final int MAX_LOOKUP_KEYS = 100;
+
+    /**
+     * Plans a parsed select
+     *
+     * @param rootContext root of the parse tree of the select
+     * @return plan of the select, null if it must be executed by Drill
+     * @since 1.0
+     */
+    public static FederatedQuery plan(MySqlParser.RootContext rootContext) {
+
+        //subqueries in the condition are planned along with it
+        MySqlParser.QuerySpecificationContext specification = getOuterSpecification(rootContext);
+
+        if (specification == null)
+            return null;
+
+        MySqlParser.FromClauseContext fromClause = specification.fromClause();
+
+        if (fromClause == null || !specification.selectSpec().isEmpty() || specification.selectIntoExpression() != null)
+            return null;
+
+        if (fromClause.havingExpr != null || fromClause.ROLLUP() != null)
+            return null;
+
+        MySqlParser.AtomTableItemContext tableItem = getSingleTable(fromClause);
+
+        if (tableItem == null || specification.selectElements().star != null)
+            return null;
+
+        String table = tableItem.tableName().getText().toLowerCase();
+        String alias = tableItem.alias == null ? table : tableItem.alias.getText().toLowerCase();
+
+        StorageConfigContainer tableStorage = ConfigUtilities.findStorage(table);
+
+        if (tableStorage == null)
+            return null;
+
+        FederatedQuery query = new FederatedQuery(table, tableStorage);
+
+        //a condition either looks records up by primary key or is split between the storage systems of its columns
+        if (fromClause.whereExpr != null) {
+
+            LinkedList<Object> keys = getKeys(fromClause.whereExpr, alias, tableStorage.getPrimaryKey(table));
+
+            if (keys != null)
+                query.setKeys(keys);
+            else if (!planConditions(query, fromClause.whereExpr, alias))
+                return null;
+        }
+
+        if (isAggregated(specification))
+            return planAggregation(query, specification, alias) ? query : null;
+
+        //rows are read in order from the storage system of the sort columns and the select stops at its limit
+        if (specification.orderByClause() != null) {
+
+            LinkedHashMap<String, Boolean> order = getOrder(specification.orderByClause(), alias);
+
+            if (order == null)
+                return null;
+
+            //rows are streamed in order from the storage of the table, so only its columns can sort
+            for (String column : order.keySet())
+                if (ConfigUtilities.findStorage(table, column) != tableStorage)
+                    return null;
+
+            query.setOrder(order);
+        }
+
+        if (specification.limitClause() != null) {
+
+            long[] limit = getLimit(specification.limitClause());
+
+            if (limit == null)
+                return null;
+
+            query.setLimit(limit[0], limit[1]);
+        }
+
+        for (MySqlParser.SelectElementContext element : specification.selectElements().selectElement()) {
+
+            if (!(element instanceof MySqlParser.SelectColumnElementContext))
+                return null;
+
+            MySqlParser.SelectColumnElementContext columnElement = (MySqlParser.SelectColumnElementContext) element;
+
+            String column = getColumn(columnElement.fullColumnName(), alias);
+
+            if (column == null)
+                return null;
+
+            StorageConfigContainer storage = ConfigUtilities.findStorage(table, column);
+
+            if (storage == null) {
+                Log.log(String.format("No storage contains %s.%s", table, column), componentName, Log.ERROR);
+                return null;
+            }
+
+            String label = columnElement.uid() == null ? column : columnElement.uid().getText().toLowerCase();
+
+            query.addColumn(column, label, storage);
+        }
+
+        return query;
+    }
+
+    /**
+     * Decides whether a select computes aggregates
+     *
+     * @return true if the select has a group by or calls a function
+     */
+    static boolean isAggregated(MySqlParser.QuerySpecificationContext specification) {
+
+        if (!specification.fromClause().groupByItem().isEmpty())
+            return true;
+
+        for (MySqlParser.SelectElementContext element : specification.selectElements().selectElement())
+            if (element instanceof MySqlParser.SelectFunctionElementContext)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Plans the elements of an aggregated select. columns of the aggregates are projected as well,
+     * the executor either reads them to aggregate rows of the join or leaves aggregating to the storage of the table
+     *
+     * @param query         plan of the select
+     * @param specification the select
+     * @param alias         alias of the table of the select
+     * @return true if the aggregates are supported, false if the select must be executed by Drill
+     */
+    static boolean planAggregation(FederatedQuery query, MySqlParser.QuerySpecificationContext specification, String alias) {
+
+        //aggregated rows are not sorted or limited yet
+        if (specification.orderByClause() != null || specification.limitClause() != null)
+            return false;
+
+        LinkedList<String> groupBy = getGroupBy(specification.fromClause(), alias);
+        LinkedList<Aggregate> aggregates = getAggregates(specification.selectElements(), groupBy, alias);
+
+        if (groupBy == null || aggregates == null)
+            return false;
+
+        LinkedList<String> columns = new LinkedList<>(groupBy);
+
+        for (Aggregate aggregate : aggregates)
+            if (aggregate.getColumn() != null && !columns.contains(aggregate.getColumn()))
+                columns.add(aggregate.getColumn());
+
+        for (String column : columns) {
+
+            StorageConfigContainer storage = ConfigUtilities.findStorage(query.getTable(), column);
+
+            if (storage == null) {
+                Log.log(String.format("No storage contains %s.%s", query.getTable(), column), componentName, Log.ERROR);
+                return false;
+            }
+
+            query.addColumn(column, column, storage);
+        }
+
+        query.setAggregation(aggregates, groupBy);
+
+        return true;
+    }
+
+    /**
+     * Get the columns of the group by of a select
+     *
+     * @param fromClause from clause of the select
+     * @param alias      alias of the table of the select
+     * @return columns in order, empty if the select has no group by. null if an expression is not a column
+     */
+    static LinkedList<String> getGroupBy(MySqlParser.FromClauseContext fromClause, String alias) {
+
+        LinkedList<String> groupBy = new LinkedList<>();
+
+        for (MySqlParser.GroupByItemContext groupByItem : fromClause.groupByItem()) {
+
+            if (!(groupByItem.expression() instanceof MySqlParser.PredicateExpressionContext))
+                return null;
+
+            String column = MongoDBFilters.getColumn(((MySqlParser.PredicateExpressionContext) groupByItem.expression()).predicate(), alias);
+
+            if (column == null)
+                return null;
+
+            if (!groupBy.contains(column))
+                groupBy.add(column);
+        }
+
+        return groupBy;
+    }
+
+    /**
+     * Get the elements of an aggregated select
+     *
+     * @param selectElements elements of the select
+     * @param groupBy        columns of the group by
+     * @param alias          alias of the table of the select
+     * @return elements in order, null if an element is neither a supported aggregate nor a column of the group by
+     */
+    static LinkedList<Aggregate> getAggregates(MySqlParser.SelectElementsContext selectElements, List<String> groupBy, String alias) {
+
+        if (selectElements.star != null || groupBy == null)
+            return null;
+
+        LinkedList<Aggregate> aggregates = new LinkedList<>();
+
+        for (MySqlParser.SelectElementContext element : selectElements.selectElement()) {
+
+            if (element instanceof MySqlParser.SelectFunctionElementContext) {
+
+                MySqlParser.SelectFunctionElementContext functionElement = (MySqlParser.SelectFunctionElementContext) element;
+
+                Aggregate aggregate = Aggregate.of(functionElement.functionCall(), alias,
+                        functionElement.uid() == null ? null : functionElement.uid().getText().toLowerCase());
+
+                if (aggregate == null)
+                    return null;
+
+                aggregates.add(aggregate);
+
+            } else if (element instanceof MySqlParser.SelectColumnElementContext) {
+
+                MySqlParser.SelectColumnElementContext columnElement = (MySqlParser.SelectColumnElementContext) element;
+
+                String column = getColumn(columnElement.fullColumnName(), alias);
+
+                //a column outside the group by has no single value in a group
+                if (column == null || !groupBy.contains(column))
+                    return null;
+
+                aggregates.add(new Aggregate(null, column, columnElement.uid() == null ? column : columnElement.uid().getText().toLowerCase()));
+
+            } else
+                return null;
+        }
+
+        return aggregates;
+    }
+
+    /**
+     * Pushes each part of a condition to the storage system owning its columns
+     *
+     * @param query     plan of the select
+     * @param condition where clause of the select
+     * @param alias     alias of the table of the select
+     * @return true if every part of the condition is planned, false if the select must be executed by Drill
+     */
+    static boolean planConditions(FederatedQuery query, MySqlParser.ExpressionContext condition, String alias) {
+
+        LinkedList<MySqlParser.ExpressionContext> conjuncts = new LinkedList<>();
+
+        getConjuncts(condition, conjuncts);
+
+        for (MySqlParser.ExpressionContext conjunct : conjuncts) {
+
+            //subqueries are run once without their reference to the select and joined with its rows
+            if (hasSubquery(conjunct)) {
+
+                SubqueryCondition subquery = SubqueryCondition.of(conjunct, alias);
+
+                if (subquery == null)
+                    return false;
+
+                for (String column : new String[]{subquery.getOuterColumn(), subquery.getValueColumn()}) {
+
+                    if (column == null)
+                        continue;
+
+                    StorageConfigContainer storage = ConfigUtilities.findStorage(query.getTable(), column);
+
+                    if (storage == null)
+                        return false;
+
+                    query.addConditionColumn(column, storage);
+                }
+
+                query.addSubqueryCondition(subquery, alias);
+                continue;
+            }
+
+            LinkedHashSet<StorageConfigContainer> storages = getConditionStorages(conjunct, query.getTable(), alias);
+
+            if (storages == null || storages.isEmpty())
+                return false;
+
+            if (storages.size() == 1) {
+
+                StorageConfigContainer storage = storages.iterator().next();
+
+                if (!canEvaluate(storage, conjunct, alias))
+                    return false;
+
+                query.addCondition(conjunct, alias, storage);
+                continue;
+            }
+
+            ColumnComparison comparison = ColumnComparison.of(conjunct, alias);
+
+            if (comparison == null)
+                return false;
+
+            //columns of the comparison are read from their storage systems and compared by the join
+            query.addConditionColumn(comparison.getLeftColumn(), ConfigUtilities.findStorage(query.getTable(), comparison.getLeftColumn()));
+            query.addConditionColumn(comparison.getRightColumn(), ConfigUtilities.findStorage(query.getTable(), comparison.getRightColumn()));
+
+            query.addJoinCondition(comparison, alias);
+        }
+
+        return true;
+    }
+
+    /**
+     * Decides whether a storage system can evaluate a part of a condition on its own
+     *
+     * @param storage   storage system containing all columns of the condition
+     * @param condition the condition
+     * @param alias     alias of the table in the condition
+     * @return true if the condition can be pushed to the storage system
+     */
+    private static boolean canEvaluate(StorageConfigContainer storage, MySqlParser.ExpressionContext condition, String alias) {
+
+        //MySQL evaluates any condition on its own columns, MongoDB only what has a matching filter.
+        //records missing in a storage system are dropped by the join anyway, so a filter of any storage system is right
+        if (storage instanceof MySqlConfigContainer)
+            return true;
+
+        return storage instanceof MongoDBConfigContainer && MongoDBFilters.toFilter(condition, alias) != null;
+    }
+
+    /**
+     * Collects the parts of a condition joined by AND
+     *
+     * @param condition the condition
+     * @param conjuncts collects the parts
+     */
+    static void getConjuncts(MySqlParser.ExpressionContext condition, LinkedList<MySqlParser.ExpressionContext> conjuncts) {
+
+        if (condition instanceof MySqlParser.LogicalExpressionContext) {
+
+            MySqlParser.LogicalExpressionContext logical = (MySqlParser.LogicalExpressionContext) condition;
+
+            if (logical.logicalOperator().AND() != null || logical.logicalOperator().getText().equals("&&")) {
+                getConjuncts(logical.expression(0), conjuncts);
+                getConjuncts(logical.expression(1), conjuncts);
+                return;
+            }
+        }
+
+        //condition in parentheses
+        if (condition instanceof MySqlParser.PredicateExpressionContext) {
+
+            MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) condition).predicate();
+
+            if (predicate instanceof MySqlParser.ExpressionAtomPredicateContext) {
+
+                MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) predicate).expressionAtom();
+
+                if (atom instanceof MySqlParser.NestedExpressionAtomContext && ((MySqlParser.NestedExpressionAtomContext) atom).expression().size() == 1) {
+                    getConjuncts(((MySqlParser.NestedExpressionAtomContext) atom).expression(0), conjuncts);
+                    return;
+                }
+            }
+        }
+
+        conjuncts.add(condition);
+    }
+
+    /**
+     * Get the storage systems containing the columns of a condition
+     *
+     * @param condition part of the where clause of the select
+     * @param table     table of the select
+     * @param alias     alias of the table of the select
+     * @return storage systems in the order their columns appear, null if a column is not a column of the table
+     */
+    static LinkedHashSet<StorageConfigContainer> getConditionStorages(MySqlParser.ExpressionContext condition, String table, String alias) {
+
+        LinkedList<MySqlParser.FullColumnNameContext> columnNames = new LinkedList<>();
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterFullColumnName(MySqlParser.FullColumnNameContext ctx) {
+                columnNames.add(ctx);
+            }
+        }, condition);
+
+        LinkedHashSet<StorageConfigContainer> storages = new LinkedHashSet<>();
+
+        for (MySqlParser.FullColumnNameContext columnName : columnNames) {
+
+            String column = getColumn(columnName, alias);
+
+            if (column == null)
+                return null;
+
+            StorageConfigContainer storage = ConfigUtilities.findStorage(table, column);
+
+            if (storage == null)
+                return null;
+
+            storages.add(storage);
+        }
+
+        return storages;
+    }
+
+    /**
+     * Get the columns of an order by clause, only plain columns of the table are supported
+     *
+     * @param orderByClause the order by clause
+     * @param alias         alias of the table of the select
+     * @return column -> true for ascending order, false for descending order. null if an expression is not a column
+     */
+    static LinkedHashMap<String, Boolean> getOrder(MySqlParser.OrderByClauseContext orderByClause, String alias) {
+
+        LinkedHashMap<String, Boolean> order = new LinkedHashMap<>();
+
+        for (MySqlParser.OrderByExpressionContext orderByExpression : orderByClause.orderByExpression()) {
+
+            if (!(orderByExpression.expression() instanceof MySqlParser.PredicateExpressionContext))
+                return null;
+
+            String column = MongoDBFilters.getColumn(((MySqlParser.PredicateExpressionContext) orderByExpression.expression()).predicate(), alias);
+
+            if (column == null)
+                return null;
+
+            //a column sorted again does not change the order
+            order.putIfAbsent(column, orderByExpression.DESC() == null);
+        }
+
+        return order;
+    }
+
+    /**
+     * Get offset and number of rows of a limit clause
+     *
+     * @param limitClause the limit clause
+     * @return {offset, number of rows}, null if a number is not a decimal
+     */
+    static long[] getLimit(MySqlParser.LimitClauseContext limitClause) {
+
+        try {
+            long offset = limitClause.offset == null ? 0 : Long.parseLong(limitClause.offset.getText());
+            long limit = Long.parseLong(limitClause.limit.getText());
+
+            return new long[]{offset, limit};
+
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get values of the primary key a condition looks up, either "alias.pk = constant" or "alias.pk IN (constants)"
+     *
+     * @param condition  where clause of the select
+     * @param alias      alias of the table of the select
+     * @param primaryKey primary key of the table
+     * @return values of the primary key, null if the condition is not a primary key lookup
+     */
+    static LinkedList<Object> getKeys(MySqlParser.ExpressionContext condition, String alias, String primaryKey) {
+
+        if (!(condition instanceof MySqlParser.PredicateExpressionContext))
+            return null;
+
+        MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) condition).predicate();
+
+        LinkedList<String> constants = new LinkedList<>();
+
+        if (predicate instanceof MySqlParser.BinaryComparasionPredicateContext) {
+
+            MySqlParser.BinaryComparasionPredicateContext comparison = (MySqlParser.BinaryComparasionPredicateContext) predicate;
+
+            if (!comparison.comparisonOperator().getText().equals("="))
+                return null;
+
+            if (primaryKey.equals(MongoDBFilters.getColumn(comparison.left, alias)))
+                constants.add(MongoDBFilters.getConstant(comparison.right));
+            else if (primaryKey.equals(MongoDBFilters.getColumn(comparison.right, alias)))
+                constants.add(MongoDBFilters.getConstant(comparison.left));
+            else
+                return null;
+
+        } else if (predicate instanceof MySqlParser.InPredicateContext) {
+
+            MySqlParser.InPredicateContext in = (MySqlParser.InPredicateContext) predicate;
+
+            if (in.NOT() != null || in.expressions() == null || !primaryKey.equals(MongoDBFilters.getColumn(in.predicate(), alias)))
+                return null;
+
+            //large lists are cheaper to read as a whole
+            if (in.expressions().expression().size() > MAX_LOOKUP_KEYS)
+                return null;
+
+            for (MySqlParser.ExpressionContext expression : in.expressions().expression()) {
+
+                if (!(expression instanceof MySqlParser.PredicateExpressionContext))
+                    return null;
+
+                constants.add(MongoDBFilters.getConstant(((MySqlParser.PredicateExpressionContext) expression).predicate()));
+            }
+        } else
+            return null;
+
+        LinkedList<Object> keys = new LinkedList<>();
+
+        for (String constant : constants) {
+
+            if (constant == null)
+                return null;
+
+            keys.add(SimpleInsertTranslator.toValue(constant));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Get the only query specification of a select
+     *
+     * @param rootContext root of the parse tree of the select
+     * @return the query specification, null if the select has nested selects or unions
+     */
+    static MySqlParser.QuerySpecificationContext getSpecification(MySqlParser.RootContext rootContext) {
+
+        LinkedList<MySqlParser.QuerySpecificationContext> specifications = new LinkedList<>();
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterQuerySpecification(MySqlParser.QuerySpecificationContext ctx) {
+                specifications.add(ctx);
+            }
+        }, rootContext);
+
+        return specifications.size() == 1 ? specifications.getFirst() : null;
+    }
+
+    /**
+     * Get the outermost select of a parse tree, selects nested in it are subqueries
+     *
+     * @param rootContext root of the parse tree
+     * @return the select, null if there is no select or several selects are combined
+     */
+    static MySqlParser.QuerySpecificationContext getOuterSpecification(MySqlParser.RootContext rootContext) {
+
+        LinkedList<MySqlParser.QuerySpecificationContext> specifications = new LinkedList<>();
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterQuerySpecification(MySqlParser.QuerySpecificationContext ctx) {
+
+                for (ParserRuleContext parent = ctx.getParent(); parent != null; parent = parent.getParent())
+                    if (parent instanceof MySqlParser.QuerySpecificationContext)
+                        return;
+
+                specifications.add(ctx);
+            }
+        }, rootContext);
+
+        return specifications.size() == 1 ? specifications.getFirst() : null;
+    }
+
+    /**
+     * Decides whether a part of a condition contains a subquery
+     *
+     * @param condition the part of the condition
+     * @return true if a select is nested in it
+     */
+    static boolean hasSubquery(MySqlParser.ExpressionContext condition) {
+
+        boolean[] found = {false};
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterQuerySpecification(MySqlParser.QuerySpecificationContext ctx) {
+                found[0] = true;
+            }
+        }, condition);
+
+        return found[0];
+    }
+
+    /**
+     * Get the only table of a from clause
+     *
+     * @return the table, null if the from clause has joins, subqueries or several tables
+     */
+    static MySqlParser.AtomTableItemContext getSingleTable(MySqlParser.FromClauseContext fromClause) {
+
+        if (fromClause.tableSources().tableSource().size() != 1)
+            return null;
+
+        MySqlParser.TableSourceContext tableSource = fromClause.tableSources().tableSource(0);
+
+        if (!(tableSource instanceof MySqlParser.TableSourceBaseContext))
+            return null;
+
+        MySqlParser.TableSourceBaseContext tableSourceBase = (MySqlParser.TableSourceBaseContext) tableSource;
+
+        if (!tableSourceBase.joinPart().isEmpty() || !(tableSourceBase.tableSourceItem() instanceof MySqlParser.AtomTableItemContext))
+            return null;
+
+        return (MySqlParser.AtomTableItemContext) tableSourceBase.tableSourceItem();
+    }
+
+    /**
+     * Get the column a reference in the form of "alias.attribute" points to
+     *
+     * @param columnName reference to the column
+     * @param alias      alias of the table of the query
+     * @return name of the column, null if the reference does not point to a column of the table
+     */
+    static String getColumn(MySqlParser.FullColumnNameContext columnName, String alias) {
+
+        if (columnName.dottedId().size() != 1 || !columnName.uid().getText().equalsIgnoreCase(alias))
+            return null;
+
+        //just get the attribute and discard the "."
+        return columnName.dottedId(0).getText().substring(1).toLowerCase();
+    }
+}
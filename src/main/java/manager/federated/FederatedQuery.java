@@ -0,0 +1,394 @@
+package manager.federated;
+
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class is a select over one table whose columns are split between storage systems,
+ * planned to be executed by Dolus instead of Drill
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class FederatedQuery {
+
+    private final String table;
+
+    /**
+     * Storage system of the table, it defines the records of the table. other storage systems only add columns to them
+     */
+    private final StorageConfigContainer tableStorage;
+
+    /**
+     * Projected columns in order
+     */
+    private final LinkedList<String> columns;
+
+    /**
+     * Names of the projected columns in the result, in the order of columns
+     */
+    private final LinkedList<String> labels;
+
+    /**
+     * storage system -> projected columns it contains. the storage of the table is always first
+     */
+    private final LinkedHashMap<StorageConfigContainer, LinkedList<String>> storageColumns;
+
+    /**
+     * column -> storage system containing it
+     */
+    private final LinkedHashMap<String, StorageConfigContainer> columnStorages;
+
+    /**
+     * Values of the primary key to look up, null to read the whole table
+     */
+    private List<Object> keys;
+
+    /**
+     * storage system -> parts of the condition of the select it evaluates, the parts are ANDed together
+     */
+    private final LinkedHashMap<StorageConfigContainer, LinkedList<MySqlParser.ExpressionContext>> storageConditions;
+
+    /**
+     * Parts of the condition comparing columns of different storage systems, evaluated by the join
+     */
+    private final LinkedList<ColumnComparison> joinConditions;
+
+    /**
+     * Parts of the condition that are subqueries over other tables, decorrelated and evaluated by the join
+     */
+    private final LinkedList<SubqueryCondition> subqueryConditions;
+
+    /**
+     * Alias of the table in the condition
+     */
+    private String alias;
+
+    /**
+     * Sort columns in order, true for ascending. null if the select has no order by, sort columns live in the storage of the table
+     */
+    private LinkedHashMap<String, Boolean> order;
+
+    /**
+     * Number of rows to skip
+     */
+    private long offset;
+
+    /**
+     * Maximum number of rows of the select, -1 if the select has no limit
+     */
+    private long limit = -1;
+
+    /**
+     * Elements of an aggregated select in order, null if the select is not aggregated
+     */
+    private List<Aggregate> aggregates;
+
+    /**
+     * Columns of the group by of an aggregated select
+     */
+    private List<String> groupBy;
+
+    FederatedQuery(String table, StorageConfigContainer tableStorage) {
+
+        this.table = table;
+        this.tableStorage = tableStorage;
+
+        this.columns = new LinkedList<>();
+        this.labels = new LinkedList<>();
+        this.storageColumns = new LinkedHashMap<>();
+        this.columnStorages = new LinkedHashMap<>();
+        this.storageConditions = new LinkedHashMap<>();
+        this.joinConditions = new LinkedList<>();
+        this.subqueryConditions = new LinkedList<>();
+
+        storageColumns.put(tableStorage, new LinkedList<>());
+    }
+
+    /**
+     * Adds a projected column
+     *
+     * @param column  name of the column
+     * @param label   name of the column in the result
+     * @param storage storage system containing the column
+     */
+    void addColumn(String column, String label, StorageConfigContainer storage) {
+
+        columns.add(column);
+        labels.add(label);
+
+        columnStorages.put(column, storage);
+
+        LinkedList<String> columnsOfStorage = storageColumns.computeIfAbsent(storage, key -> new LinkedList<>());
+
+        if (!columnsOfStorage.contains(column))
+            columnsOfStorage.add(column);
+    }
+
+    void setKeys(List<Object> keys) {
+        this.keys = keys;
+    }
+
+    public List<Object> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Adds a part of the condition of the select evaluated by a storage system
+     *
+     * @param condition condition on the columns of one storage system
+     * @param alias     alias of the table in the condition
+     * @param storage   storage system containing all columns of the condition
+     */
+    void addCondition(MySqlParser.ExpressionContext condition, String alias, StorageConfigContainer storage) {
+
+        this.alias = alias;
+
+        storageConditions.computeIfAbsent(storage, key -> new LinkedList<>()).add(condition);
+
+        //the storage of a condition is scanned even if none of its columns are projected
+        storageColumns.computeIfAbsent(storage, key -> new LinkedList<>());
+    }
+
+    /**
+     * Adds a part of the condition of the select evaluated by the join
+     *
+     * @param comparison comparison of columns of different storage systems
+     * @param alias      alias of the table in the condition
+     */
+    void addJoinCondition(ColumnComparison comparison, String alias) {
+
+        this.alias = alias;
+
+        joinConditions.add(comparison);
+    }
+
+    /**
+     * Adds a part of the condition of the select that is a subquery, it is evaluated by the join
+     *
+     * @param subquery the decorrelated subquery
+     * @param alias    alias of the table in the condition
+     */
+    void addSubqueryCondition(SubqueryCondition subquery, String alias) {
+
+        this.alias = alias;
+
+        subqueryConditions.add(subquery);
+    }
+
+    /**
+     * Adds a column read only to evaluate conditions of the join, it is not projected
+     *
+     * @param column  name of the column
+     * @param storage storage system containing the column
+     */
+    void addConditionColumn(String column, StorageConfigContainer storage) {
+
+        columnStorages.putIfAbsent(column, storage);
+
+        LinkedList<String> columnsOfStorage = storageColumns.computeIfAbsent(storage, key -> new LinkedList<>());
+
+        if (!columnsOfStorage.contains(column))
+            columnsOfStorage.add(column);
+    }
+
+    /**
+     * Get parts of the condition a storage system evaluates
+     *
+     * @param storage the storage system
+     * @return conditions to AND, null if the storage system evaluates no condition
+     */
+    public List<MySqlParser.ExpressionContext> getConditions(StorageConfigContainer storage) {
+        return storageConditions.get(storage);
+    }
+
+    public LinkedHashMap<StorageConfigContainer, LinkedList<MySqlParser.ExpressionContext>> getStorageConditions() {
+        return storageConditions;
+    }
+
+    public List<ColumnComparison> getJoinConditions() {
+        return joinConditions;
+    }
+
+    public List<SubqueryCondition> getSubqueryConditions() {
+        return subqueryConditions;
+    }
+
+    /**
+     * Get the storage system the select is driven by. the storage of the table is preferred,
+     * records it filters out need not be looked up anywhere else
+     *
+     * @return a storage system evaluating a condition, null if no storage system evaluates a condition
+     */
+    public StorageConfigContainer getDrivingStorage() {
+
+        //rows must be read in order or counted, so the storage of the table drives
+        if (storageConditions.containsKey(tableStorage) || order != null || limit >= 0)
+            return tableStorage;
+
+        return storageConditions.isEmpty() ? null : storageConditions.keySet().iterator().next();
+    }
+
+    /**
+     * Decides whether every row read from the driving storage system is a row of the result,
+     * only then the storage system can apply the limit itself
+     *
+     * @return true if the join drops no row of the driving storage system
+     */
+    public boolean isDrivingStorageExact() {
+
+        if (getDrivingStorage() != tableStorage || !joinConditions.isEmpty() || !subqueryConditions.isEmpty())
+            return false;
+
+        //rows missing in any other storage system are dropped by the join
+        return storageColumns.size() == 1;
+    }
+
+    void setOrder(LinkedHashMap<String, Boolean> order) {
+        this.order = order;
+    }
+
+    public LinkedHashMap<String, Boolean> getOrder() {
+        return order;
+    }
+
+    void setLimit(long offset, long limit) {
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * Makes the select aggregated. columns of the aggregates must be added as projected columns as well,
+     * in case they are aggregated from rows of the join
+     *
+     * @param aggregates elements of the select in order
+     * @param groupBy    columns of the group by
+     */
+    void setAggregation(List<Aggregate> aggregates, List<String> groupBy) {
+        this.aggregates = aggregates;
+        this.groupBy = groupBy;
+    }
+
+    public boolean isAggregated() {
+        return aggregates != null;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Get the storage system that can compute the aggregates in parts, so only parts are combined by Dolus.
+     * it is the storage of the table if all aggregated and grouped columns live there,
+     * other storage systems can only restrict the records through their conditions and at most one of them may do so
+     *
+     * @return storage of the table, null if the aggregates must be computed from rows of the join
+     */
+    public StorageConfigContainer getAggregationStorage() {
+
+        if (aggregates == null || !joinConditions.isEmpty() || !subqueryConditions.isEmpty())
+            return null;
+
+        for (Aggregate aggregate : aggregates)
+            if (aggregate.getColumn() != null && columnStorages.get(aggregate.getColumn()) != tableStorage)
+                return null;
+
+        for (String column : groupBy)
+            if (columnStorages.get(column) != tableStorage)
+                return null;
+
+        int otherConditions = 0;
+
+        for (StorageConfigContainer storage : storageConditions.keySet())
+            if (storage != tableStorage)
+                otherConditions++;
+
+        return otherConditions <= 1 ? tableStorage : null;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public StorageConfigContainer getTableStorage() {
+        return tableStorage;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public LinkedHashMap<StorageConfigContainer, LinkedList<String>> getStorageColumns() {
+        return storageColumns;
+    }
+
+    public StorageConfigContainer getStorageOf(String column) {
+        return columnStorages.get(column);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder buffer = new StringBuilder();
+
+        buffer.append("federated select over: ").append(table);
+
+        storageColumns.forEach((storage, storageColumnList) -> buffer.append(String.format(", %s: %s", storage.getId(), storageColumnList)));
+
+        if (keys != null)
+            buffer.append(", keys: ").append(keys);
+
+        storageConditions.forEach((storage, conditions) -> {
+
+            LinkedList<String> texts = new LinkedList<>();
+
+            for (MySqlParser.ExpressionContext condition : conditions)
+                texts.add(condition.start.getInputStream().getText(Interval.of(condition.start.getStartIndex(), condition.stop.getStopIndex())));
+
+            buffer.append(String.format(", condition on %s: %s", storage.getId(), String.join(" AND ", texts)));
+        });
+
+        if (!joinConditions.isEmpty())
+            buffer.append(", condition on join: ").append(joinConditions);
+
+        if (!subqueryConditions.isEmpty())
+            buffer.append(", subqueries: ").append(subqueryConditions);
+
+        if (aggregates != null)
+            buffer.append(", aggregates: ").append(aggregates).append(", group by: ").append(groupBy);
+
+        if (order != null)
+            buffer.append(", order: ").append(order);
+
+        if (limit >= 0)
+            buffer.append(String.format(", offset: %d, limit: %d", offset, limit));
+
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package manager.federated;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class computes aggregates of a select in Dolus, grouping rows in a hash table by the columns of the group by.
+ * <p>
+ * it either aggregates rows of a join, or combines parts of the aggregates already computed by a storage system
+ * over subsets of the records. parts are named by Aggregate.getPartName, groups by the name of their column.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class HashAggregation {
+
+    /**
+     * Elements of the select in order
+     */
+    private final List<Aggregate> aggregates;
+
+    /**
+     * Columns of the group by
+     */
+    private final List<String> groupBy;
+
+    /**
+     * Whether rows are parts of aggregates computed by a storage system
+     */
+    private final boolean combine;
+
+    /**
+     * values of the group by -> value of each element of the select for the group
+     */
+    private final LinkedHashMap<List<String>, Object[]> groups;
+
+    /**
+     * @param aggregates elements of the select in order
+     * @param groupBy    columns of the group by
+     * @param combine    true if rows are parts of aggregates computed by a storage system, false if they are rows of a join
+     */
+    public HashAggregation(List<Aggregate> aggregates, List<String> groupBy, boolean combine) {
+
+        this.aggregates = aggregates;
+        this.groupBy = groupBy;
+        this.combine = combine;
+
+        this.groups = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds rows to their groups
+     *
+     * @param batch rows of a join, or parts of aggregates
+     * @since 1.0
+     */
+    public void add(ColumnBatch batch) {
+
+        ColumnVector[] keyColumns = new ColumnVector[groupBy.size()];
+
+        for (int i = 0; i < keyColumns.length; i++)
+            keyColumns[i] = batch.getColumn(groupBy.get(i));
+
+        ColumnVector[] inputs = new ColumnVector[aggregates.size()];
+
+        for (int i = 0; i < inputs.length; i++) {
+
+            Aggregate aggregate = aggregates.get(i);
+
+            if (aggregate.isGroupColumn())
+                inputs[i] = batch.getColumn(aggregate.getColumn());
+            else if (combine)
+                inputs[i] = batch.getColumn(Aggregate.getPartName(i));
+            else if (aggregate.getColumn() != null)
+                inputs[i] = batch.getColumn(aggregate.getColumn());
+        }
+
+        for (int row = 0; row < batch.getRowCount(); row++) {
+
+            String[] key = new String[keyColumns.length];
+
+            for (int i = 0; i < key.length; i++)
+                key[i] = keyColumns[i].getString(row);
+
+            Object[] values = groups.computeIfAbsent(Arrays.asList(key), group -> newGroup());
+
+            for (int i = 0; i < inputs.length; i++) {
+
+                Aggregate aggregate = aggregates.get(i);
+
+                //COUNT(*) of rows of a join
+                if (inputs[i] == null) {
+                    values[i] = (Long) values[i] + 1;
+                    continue;
+                }
+
+                if (inputs[i].isNull(row))
+                    continue;
+
+                Object value = inputs[i].getObject(row);
+
+                if (aggregate.isGroupColumn())
+                    values[i] = value;
+                else if (combine && Aggregate.COUNT.equals(aggregate.getFunction()))
+                    values[i] = (Long) values[i] + Long.parseLong(inputs[i].getString(row));
+                else
+                    values[i] = accumulate(combine ? aggregate.getCombineFunction() : aggregate.getFunction(), values[i], value);
+            }
+        }
+    }
+
+    /**
+     * Creates the values of a group before any row is added to it
+     */
+    private Object[] newGroup() {
+
+        Object[] values = new Object[aggregates.size()];
+
+        for (int i = 0; i < values.length; i++)
+            if (Aggregate.COUNT.equals(aggregates.get(i).getFunction()))
+                values[i] = 0L;
+
+        return values;
+    }
+
+    /**
+     * Adds a value to the value of an aggregate
+     *
+     * @param function function of the aggregate
+     * @param current  value of the aggregate so far, null if no value is added yet. a Long for COUNT, a BigDecimal for SUM
+     * @param value    the value, not null
+     * @return new value of the aggregate
+     */
+    private static Object accumulate(String function, Object current, Object value) {
+
+        switch (function) {
+            case Aggregate.COUNT:
+                return (Long) current + 1;
+
+            case Aggregate.SUM:
+                //exact sums, MySQL sums integers and decimals exactly as well
+                BigDecimal number = toDecimal(value);
+
+                if (number == null)
+                    return current;
+
+                return current == null ? number : ((BigDecimal) current).add(number);
+
+            case Aggregate.MIN:
+                return current == null || ColumnComparison.compare(value, current) < 0 ? value : current;
+
+            default:
+                return current == null || ColumnComparison.compare(value, current) > 0 ? value : current;
+        }
+    }
+
+    /**
+     * Get a value as a decimal
+     *
+     * @return the decimal, null if the value is not a number
+     */
+    private static BigDecimal toDecimal(Object value) {
+
+        try {
+            return new BigDecimal(StorageScan.toValueString(value));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the aggregated rows, a select without group by has a single row even if no rows were added
+     *
+     * @return a row per group with the elements of the select by label
+     * @since 1.0
+     */
+    public ColumnBatch getResult() {
+
+        if (groups.isEmpty() && groupBy.isEmpty())
+            groups.put(new ArrayList<>(), newGroup());
+
+        LinkedHashMap<String, ColumnVector> result = new LinkedHashMap<>();
+
+        int rowCount = groups.size();
+
+        for (int i = 0; i < aggregates.size(); i++) {
+
+            Object[] values = new Object[rowCount];
+
+            int row = 0;
+            for (Object[] groupValues : groups.values()) {
+
+                Object value = groupValues[i];
+
+                values[row++] = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value;
+            }
+
+            result.put(aggregates.get(i).getLabel(), ColumnVector.of(values, rowCount));
+        }
+
+        return new ColumnBatch(result, rowCount);
+    }
+}
@@ -0,0 +1,209 @@
+package manager.federated;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class maps primary keys to rows on the build side of a join.
+ * <p>
+ * rows are referred to by a long, usually the batch and the index of the row in it.
+ * primary keys are integers most of the time, those are kept unboxed in an open addressing table of longs.
+ * any other key is kept in a HashMap.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class JoinHashTable {
+
+    /**
+     * Initial number of slots, always a power of two
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Reference of an empty slot, also returned for missing keys
+     */
+    public static final long NOT_FOUND = -1;
+
+    private long[] keys;
+
+    /**
+     * Row reference of each slot, NOT_FOUND if the slot is empty
+     */
+    private long[] references;
+
+    /**
+     * Number of occupied slots
+     */
+    private int size;
+
+    /**
+     * References of rows whose primary key is not an integer
+     */
+    private final HashMap<String, Long> otherReferences;
+
+    public JoinHashTable() {
+
+        this.keys = new long[INITIAL_CAPACITY];
+        this.references = new long[INITIAL_CAPACITY];
+        this.otherReferences = new HashMap<>();
+
+        Arrays.fill(references, NOT_FOUND);
+    }
+
+    /**
+     * Adds the row with the primary key at an index of a vector, a row with the same primary key is replaced
+     *
+     * @param keys      vector of primary keys
+     * @param index     index of the primary key in the vector
+     * @param reference reference of the row, not negative
+     * @since 1.0
+     */
+    public void put(ColumnVector keys, int index, long reference) {
+
+        if (keys.isNull(index))
+            return;
+
+        if (keys instanceof LongVector) {
+            put(((LongVector) keys).getLong(index), reference);
+            return;
+        }
+
+        String key = keys.getString(index);
+        Long number = toLong(key);
+
+        if (number == null)
+            otherReferences.put(key, reference);
+        else
+            put(number, reference);
+    }
+
+    /**
+     * Get the row with the primary key at an index of a vector
+     *
+     * @param keys  vector of primary keys
+     * @param index index of the primary key in the vector
+     * @return reference of the row, NOT_FOUND if there is no row with the key
+     * @since 1.0
+     */
+    public long get(ColumnVector keys, int index) {
+
+        if (keys.isNull(index))
+            return NOT_FOUND;
+
+        if (keys instanceof LongVector)
+            return get(((LongVector) keys).getLong(index));
+
+        String key = keys.getString(index);
+        Long number = toLong(key);
+
+        if (number == null)
+            return otherReferences.getOrDefault(key, NOT_FOUND);
+
+        return get(number);
+    }
+
+    private void put(long key, long reference) {
+
+        //keep at most half of the slots occupied so probe sequences stay short
+        if ((size + 1) * 2 > this.keys.length)
+            resize();
+
+        int slot = find(key);
+
+        if (references[slot] == NOT_FOUND)
+            size++;
+
+        this.keys[slot] = key;
+        references[slot] = reference;
+    }
+
+    private long get(long key) {
+        return references[find(key)];
+    }
+
+    public int size() {
+        return size + otherReferences.size();
+    }
+
+    /**
+     * Get the slot of a key
+     *
+     * @return slot containing the key, or the empty slot it belongs to
+     */
+    private int find(long key) {
+
+        int mask = keys.length - 1;
+
+        //fibonacci hashing spreads sequential keys over the table
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+
+        while (references[slot] != NOT_FOUND && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void resize() {
+
+        long[] oldKeys = keys;
+        long[] oldReferences = references;
+
+        keys = new long[oldKeys.length * 2];
+        references = new long[oldReferences.length * 2];
+
+        Arrays.fill(references, NOT_FOUND);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+
+            if (oldReferences[i] == NOT_FOUND)
+                continue;
+
+            int slot = find(oldKeys[i]);
+
+            keys[slot] = oldKeys[i];
+            references[slot] = oldReferences[i];
+        }
+    }
+
+    /**
+     * Converts a key to a long if it is the canonical form of one, so "7" and "07" stay different keys
+     *
+     * @return the number, null if the key is not an integer
+     */
+    private static Long toLong(String key) {
+
+        int length = key.length();
+
+        if (length == 0 || length > 20)
+            return null;
+
+        int start = key.charAt(0) == '-' ? 1 : 0;
+
+        if (start == length || (key.charAt(start) == '0' && length > start + 1) || (start == 1 && key.equals("-0")))
+            return null;
+
+        for (int i = start; i < length; i++)
+            if (key.charAt(i) < '0' || key.charAt(i) > '9')
+                return null;
+
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            //out of the range of long
+            return null;
+        }
+    }
+
+    /**
+     * Estimates the heap taken by the table
+     *
+     * @return size of the table in bytes
+     * @since 1.0
+     */
+    public long estimateSize() {
+        return 64 + keys.length * 16L + otherReferences.size() * 96L;
+    }
+}
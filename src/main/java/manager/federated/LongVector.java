@@ -0,0 +1,75 @@
+package manager.federated;
+
+import java.util.Arrays;
+
+/**
+ * This class is a column of integers, kept unboxed
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LongVector extends ColumnVector {
+
+    private long[] values;
+
+    public LongVector(int capacity) {
+        this.values = new long[Math.max(capacity, INITIAL_CAPACITY)];
+    }
+
+    /**
+     * Appends a value
+     *
+     * @param value the value
+     * @since 1.0
+     */
+    public void append(long value) {
+
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+
+        values[size++] = value;
+    }
+
+    @Override
+    public void appendNull() {
+        markNull(size);
+        append(0);
+    }
+
+    @Override
+    public void appendFrom(ColumnVector source, int index) {
+        append(((LongVector) source).getLong(index));
+    }
+
+    /**
+     * Get a value without boxing it, meaningless for null values
+     *
+     * @param index index of the value
+     * @return the value
+     * @since 1.0
+     */
+    public long getLong(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String getString(int index) {
+        return isNull(index) ? null : Long.toString(values[index]);
+    }
+
+    @Override
+    public Object getObject(int index) {
+        return isNull(index) ? null : values[index];
+    }
+
+    @Override
+    public ColumnVector emptyCopy(int capacity) {
+        return new LongVector(capacity);
+    }
+
+    @Override
+    public long estimateSize() {
+        return super.estimateSize() + values.length * 8L;
+    }
+}
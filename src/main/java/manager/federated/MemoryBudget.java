@@ -0,0 +1,61 @@
+package manager.federated;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is the memory the hash tables of one join may take. hash tables are built concurrently, so they share it
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MemoryBudget {
+
+    /**
+     * Bytes not reserved yet
+     */
+    private final AtomicLong available;
+
+    /**
+     * @param bytes size of the budget in bytes
+     */
+    public MemoryBudget(long bytes) {
+        this.available = new AtomicLong(bytes);
+    }
+
+    /**
+     * Reserves memory if enough of it is left
+     *
+     * @param bytes bytes to reserve
+     * @return true if the memory is reserved, false if the budget is exceeded
+     * @since 1.0
+     */
+    public boolean reserve(long bytes) {
+
+        long current;
+
+        do {
+            current = available.get();
+
+            if (current < bytes)
+                return false;
+
+        } while (!available.compareAndSet(current, current - bytes));
+
+        return true;
+    }
+
+    /**
+     * Gives reserved memory back to the budget
+     *
+     * @param bytes bytes to give back
+     * @since 1.0
+     */
+    public void release(long bytes) {
+        available.addAndGet(bytes);
+    }
+
+    public long getAvailable() {
+        return available.get();
+    }
+}
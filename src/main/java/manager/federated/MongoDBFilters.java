@@ -0,0 +1,270 @@
+package manager.federated;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import language.mysql.translator.SimpleInsertTranslator;
+import language.mysql.utilities.MySqlParser;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class translates where clauses into MongoDB filters.
+ * <p>
+ * comparisons of an attribute with a constant combined with AND and OR are supported,
+ * anything else can not be evaluated by MongoDB and makes the translation fail.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MongoDBFilters {
+
+    /**
+     * Translates a condition on the attributes of a table
+     *
+     * @param expression condition to translate
+     * @param alias      alias of the table
+     * @return equivalent filter, null if the condition can not be translated
+     * @since 1.0
+     */
+    public static Bson toFilter(MySqlParser.ExpressionContext expression, String alias) {
+
+        if (expression instanceof MySqlParser.LogicalExpressionContext) {
+
+            MySqlParser.LogicalExpressionContext logical = (MySqlParser.LogicalExpressionContext) expression;
+
+            Bson left = toFilter(logical.expression(0), alias);
+            Bson right = toFilter(logical.expression(1), alias);
+
+            if (left == null || right == null)
+                return null;
+
+            if (logical.logicalOperator().AND() != null || logical.logicalOperator().getText().equals("&&"))
+                return Filters.and(left, right);
+            else if (logical.logicalOperator().OR() != null || logical.logicalOperator().getText().equals("||"))
+                return Filters.or(left, right);
+
+            return null;
+        }
+
+        if (!(expression instanceof MySqlParser.PredicateExpressionContext))
+            return null;
+
+        MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) expression).predicate();
+
+        //condition in parentheses
+        if (predicate instanceof MySqlParser.ExpressionAtomPredicateContext) {
+
+            MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) predicate).expressionAtom();
+
+            if (atom instanceof MySqlParser.NestedExpressionAtomContext && ((MySqlParser.NestedExpressionAtomContext) atom).expression().size() == 1)
+                return toFilter(((MySqlParser.NestedExpressionAtomContext) atom).expression(0), alias);
+
+            return null;
+        }
+
+        if (!(predicate instanceof MySqlParser.BinaryComparasionPredicateContext))
+            return null;
+
+        MySqlParser.BinaryComparasionPredicateContext comparison = (MySqlParser.BinaryComparasionPredicateContext) predicate;
+
+        String operator = comparison.comparisonOperator().getText();
+
+        String column = getColumn(comparison.left, alias);
+        String constant = getConstant(comparison.right);
+
+        //constant on the left, flip the comparison
+        if (column == null) {
+
+            column = getColumn(comparison.right, alias);
+            constant = getConstant(comparison.left);
+
+            operator = flip(operator);
+        }
+
+        if (column == null || constant == null || operator == null)
+            return null;
+
+        Object value = SimpleInsertTranslator.toValue(constant);
+
+        switch (operator) {
+            case "=":
+                return Filters.eq(column, value);
+            case "!=":
+            case "<>":
+                //unlike SQL, $ne also matches documents without the attribute
+                return Filters.and(Filters.ne(column, value), Filters.ne(column, null));
+            case ">":
+                return Filters.gt(column, value);
+            case ">=":
+                return Filters.gte(column, value);
+            case "<":
+                return Filters.lt(column, value);
+            case "<=":
+                return Filters.lte(column, value);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the attribute of the table a side of a comparison refers to
+     *
+     * @return name of the attribute, null if the side is not an attribute of the table
+     */
+    static String getColumn(MySqlParser.PredicateContext side, String alias) {
+
+        if (!(side instanceof MySqlParser.ExpressionAtomPredicateContext))
+            return null;
+
+        MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) side).expressionAtom();
+
+        if (!(atom instanceof MySqlParser.FullColumnNameExpressionAtomContext))
+            return null;
+
+        return FederatedPlanner.getColumn(((MySqlParser.FullColumnNameExpressionAtomContext) atom).fullColumnName(), alias);
+    }
+
+    /**
+     * Get the constant a side of a comparison is
+     *
+     * @return literal of the constant, null if the side is not a constant
+     */
+    static String getConstant(MySqlParser.PredicateContext side) {
+
+        if (!(side instanceof MySqlParser.ExpressionAtomPredicateContext))
+            return null;
+
+        MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) side).expressionAtom();
+
+        String sign = "";
+
+        //negative numbers are parsed as a minus applied to the number
+        if (atom instanceof MySqlParser.UnaryExpressionAtomContext) {
+
+            MySqlParser.UnaryExpressionAtomContext unary = (MySqlParser.UnaryExpressionAtomContext) atom;
+
+            if (!unary.unaryOperator().getText().equals("-"))
+                return null;
+
+            sign = "-";
+            atom = unary.expressionAtom();
+        }
+
+        if (!(atom instanceof MySqlParser.ConstantExpressionAtomContext))
+            return null;
+
+        MySqlParser.ConstantContext constant = ((MySqlParser.ConstantExpressionAtomContext) atom).constant();
+
+        //null never compares equal in SQL, it has no matching filter
+        if (constant.nullLiteral != null || constant.NULL_LITERAL() != null || constant.NULL_SPEC_LITERAL() != null)
+            return null;
+
+        if (!sign.isEmpty() && constant.decimalLiteral() == null && constant.REAL_LITERAL() == null)
+            return null;
+
+        return sign + constant.getText();
+    }
+
+    /**
+     * Get the operator comparing the same values with sides swapped
+     *
+     * @return flipped operator, null if the operator is not supported
+     */
+    private static String flip(String operator) {
+
+        switch (operator) {
+            case "=":
+            case "!=":
+            case "<>":
+                return operator;
+            case ">":
+                return "<";
+            case ">=":
+                return "<=";
+            case "<":
+                return ">";
+            case "<=":
+                return ">=";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Translates sort columns into a sort document
+     *
+     * @param order sort columns in order, true for ascending
+     * @return equivalent sort
+     * @since 1.0
+     */
+    public static Bson toSort(LinkedHashMap<String, Boolean> order) {
+
+        LinkedList<Bson> sorts = new LinkedList<>();
+
+        order.forEach((column, ascending) -> sorts.add(ascending ? Sorts.ascending(column) : Sorts.descending(column)));
+
+        return Sorts.orderBy(sorts);
+    }
+
+    /**
+     * Translates aggregates into stages of an aggregation pipeline.
+     * every group becomes a document with the columns of the group by and a field per aggregate named by Aggregate.getPartName
+     *
+     * @param aggregates elements of an aggregated select in order
+     * @param groupBy    columns the aggregates are grouped by
+     * @return $group and $project stages
+     * @since 1.0
+     */
+    public static List<Bson> toGroupStages(List<Aggregate> aggregates, List<String> groupBy) {
+
+        Document id = new Document();
+        Document project = new Document("_id", 0);
+
+        //missing attributes and nulls fall in the same group like NULL in SQL
+        for (String column : groupBy) {
+            id.append(column, new Document("$ifNull", Arrays.asList("$" + column, null)));
+            project.append(column, "$_id." + column);
+        }
+
+        Document group = new Document("_id", groupBy.isEmpty() ? null : id);
+
+        for (int i = 0; i < aggregates.size(); i++) {
+
+            Aggregate aggregate = aggregates.get(i);
+
+            if (aggregate.isGroupColumn())
+                continue;
+
+            String field = "$" + aggregate.getColumn();
+            Object accumulator;
+
+            switch (aggregate.getFunction()) {
+                case Aggregate.COUNT:
+                    //COUNT of an attribute only counts documents where it is not null
+                    accumulator = new Document("$sum", aggregate.getColumn() == null ? 1 :
+                            new Document("$cond", Arrays.asList(new Document("$gt", Arrays.asList(field, null)), 1, 0)));
+                    break;
+                case Aggregate.SUM:
+                    accumulator = new Document("$sum", field);
+                    break;
+                case Aggregate.MIN:
+                    accumulator = new Document("$min", field);
+                    break;
+                default:
+                    accumulator = new Document("$max", field);
+            }
+
+            group.append(Aggregate.getPartName(i), accumulator);
+            project.append(Aggregate.getPartName(i), 1);
+        }
+
+        return Arrays.asList(new Document("$group", group), new Document("$project", project));
+    }
+}
@@ -0,0 +1,199 @@
+package manager.federated;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import common.Log;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+import manager.connection.MongoClients;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class reads a collection from a MongoDB storage system through the shared client of the storage.
+ * documents are fetched in batches of the fetch size
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MongoDBScan extends StorageScan {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MongoDBScan";
+
+    private MongoCursor<Document> cursor;
+
+    MongoDBScan(StorageConfigContainer storage, String table, List<String> columns, int fetchSize) {
+        super(storage, table, columns, fetchSize);
+    }
+
+    /**
+     * Get the filter selecting documents of the scan
+     *
+     * @return conditions and keys of the scan combined
+     */
+    protected Bson getFilter() {
+
+        LinkedList<Bson> filters = new LinkedList<>();
+
+        if (conditions != null)
+            for (MySqlParser.ExpressionContext condition : conditions)
+                filters.add(MongoDBFilters.toFilter(condition, alias));
+
+        if (keys != null)
+            filters.add(Filters.in(primaryKey, keys));
+
+        if (rangeStart != null)
+            filters.add(Filters.gte(primaryKey, rangeStart));
+
+        //documents whose primary key is missing or not a number are never greater than a number, the first range holds them
+        if (rangeEnd != null)
+            filters.add(rangeStart == null ? Filters.not(Filters.gte(primaryKey, rangeEnd)) : Filters.lt(primaryKey, rangeEnd));
+
+        if (filters.isEmpty())
+            return new Document();
+
+        return filters.size() == 1 ? filters.getFirst() : Filters.and(filters);
+    }
+
+    @Override
+    public boolean open() {
+
+        try {
+            if (aggregates != null) {
+
+                LinkedList<Bson> pipeline = new LinkedList<>();
+
+                pipeline.add(Aggregates.match(getFilter()));
+                pipeline.addAll(MongoDBFilters.toGroupStages(aggregates, groupBy));
+
+                cursor = MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(table)
+                        .aggregate(pipeline)
+                        .batchSize(fetchSize)
+                        .iterator();
+
+                return true;
+            }
+
+            FindIterable<Document> find = MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(table)
+                    .find(getFilter())
+                    .projection(Projections.include(getRowColumns()))
+                    .batchSize(fetchSize);
+
+            if (order != null)
+                find.sort(MongoDBFilters.toSort(order));
+
+            //a limit of 0 means no limit to MongoDB
+            if (limit == 0)
+                return true;
+
+            if (limit > 0)
+                find.skip((int) Math.min(offset, Integer.MAX_VALUE)).limit((int) Math.min(limit, Integer.MAX_VALUE));
+
+            cursor = find.iterator();
+
+        } catch (MongoException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not read collection: %s from storage: %s, %s", table, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public long[] getKeyBounds() {
+
+        try {
+            MongoCollection<Document> collection = MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(table);
+
+            //only numbers are compared with the bounds of a range
+            Document first = collection.find(Filters.gte(primaryKey, Long.MIN_VALUE)).projection(Projections.include(primaryKey))
+                    .sort(Sorts.ascending(primaryKey)).first();
+            Document last = collection.find(Filters.lte(primaryKey, Long.MAX_VALUE)).projection(Projections.include(primaryKey))
+                    .sort(Sorts.descending(primaryKey)).first();
+
+            //no numeric primary key
+            if (first == null || last == null)
+                return null;
+
+            Object min = first.get(primaryKey);
+            Object max = last.get(primaryKey);
+
+            //bounds only balance the ranges, the first and the last range are open
+            if (!(min instanceof Number) || !(max instanceof Number))
+                return null;
+
+            return new long[]{((Number) min).longValue(), ((Number) max).longValue()};
+
+        } catch (MongoException e) {
+            Log.log(String.format("Can not read bounds of collection: %s from storage: %s, %s", table, storage.getId(), e.getMessage()), componentName, Log.WARNING);
+            return null;
+        }
+    }
+
+    @Override
+    public ColumnBatch nextBatch() {
+
+        if (cursor == null)
+            return null;
+
+        List<String> rowColumns = getResultColumns();
+
+        //values of a batch are collected per column, the type of each vector follows the values it gets
+        Object[][] values = new Object[rowColumns.size()][fetchSize];
+
+        int rowCount = 0;
+
+        try {
+            while (rowCount < fetchSize && cursor.hasNext()) {
+
+                Document document = cursor.next();
+
+                int index = 0;
+                for (String column : rowColumns)
+                    values[index++][rowCount] = document.get(column);
+
+                rowCount++;
+            }
+
+        } catch (MongoException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not read collection: %s from storage: %s, %s", table, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return null;
+        }
+
+        if (rowCount == 0)
+            return null;
+
+        LinkedHashMap<String, ColumnVector> batchColumns = new LinkedHashMap<>();
+
+        int index = 0;
+        for (String column : rowColumns)
+            batchColumns.put(column, ColumnVector.of(values[index++], rowCount));
+
+        return new ColumnBatch(batchColumns, rowCount);
+    }
+
+    @Override
+    public void close() {
+
+        if (cursor != null)
+            cursor.close();
+
+        cursor = null;
+    }
+}
@@ -0,0 +1,331 @@
+package manager.federated;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import common.Log;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+import manager.connection.MongoClients;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * This class sends a select to the MongoDB storage system holding all of its attributes as a find
+ * through the shared client of the storage. documents are fetched in batches of the fetch size
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MongoDBSelect extends SingleStoreSelect {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MongoDBSelect";
+
+    private final String collection;
+
+    private final Bson filter;
+
+    /**
+     * Projected attributes in order
+     */
+    private final LinkedList<String> columns;
+
+    /**
+     * Names of the projected attributes in the result, in the order of columns
+     */
+    private final LinkedList<String> labels;
+
+    /**
+     * Stages computing aggregates of the documents, null if the select is not aggregated
+     */
+    private List<Bson> groupStages;
+
+    /**
+     * Elements of an aggregated select in order, null if the select is not aggregated
+     */
+    private List<Aggregate> aggregates;
+
+    /**
+     * Whether the aggregates are computed over all documents, the result then has a row even if no document matches
+     */
+    private boolean global;
+
+    /**
+     * Sort of the documents, null to read them in any order
+     */
+    private Bson sort;
+
+    /**
+     * Number of documents to skip
+     */
+    private long offset;
+
+    /**
+     * Maximum number of documents to read, -1 to read all documents
+     */
+    private long limit = -1;
+
+    private MongoDBSelect(StorageConfigContainer storage, String collection, Bson filter, LinkedList<String> columns, LinkedList<String> labels, int fetchSize) {
+
+        super(storage, fetchSize);
+
+        this.collection = collection;
+        this.filter = filter;
+        this.columns = columns;
+        this.labels = labels;
+    }
+
+    /**
+     * Translates a select into a find. projections of plain attributes of one collection
+     * filtered by comparisons with constants, sorted by attributes and limited are supported.
+     * COUNT, SUM, MIN and MAX grouped by attributes are computed by an aggregation pipeline
+     *
+     * @param storage     MongoDB storage system holding all attributes of the select
+     * @param rootContext root of the parse tree of the select
+     * @param fetchSize   number of documents read at once
+     * @return the find, null if the select can not be expressed as a find
+     */
+    static MongoDBSelect plan(StorageConfigContainer storage, MySqlParser.RootContext rootContext, int fetchSize) {
+
+        MySqlParser.QuerySpecificationContext specification = FederatedPlanner.getSpecification(rootContext);
+
+        if (specification == null)
+            return null;
+
+        MySqlParser.FromClauseContext fromClause = specification.fromClause();
+
+        if (fromClause == null || !specification.selectSpec().isEmpty() || specification.selectIntoExpression() != null)
+            return null;
+
+        if (fromClause.havingExpr != null || fromClause.ROLLUP() != null)
+            return null;
+
+        MySqlParser.AtomTableItemContext tableItem = FederatedPlanner.getSingleTable(fromClause);
+
+        //a collection has no fixed attributes to expand "*" to
+        if (tableItem == null || specification.selectElements().star != null)
+            return null;
+
+        String collection = tableItem.tableName().getText().toLowerCase();
+        String alias = tableItem.alias == null ? collection : tableItem.alias.getText().toLowerCase();
+
+        LinkedList<String> columns = new LinkedList<>();
+        LinkedList<String> labels = new LinkedList<>();
+
+        LinkedList<String> groupBy = null;
+        LinkedList<Aggregate> aggregates = null;
+
+        //aggregates are computed by an aggregation pipeline, fields of its documents are read instead of attributes
+        if (FederatedPlanner.isAggregated(specification)) {
+
+            groupBy = FederatedPlanner.getGroupBy(fromClause, alias);
+            aggregates = FederatedPlanner.getAggregates(specification.selectElements(), groupBy, alias);
+
+            if (aggregates == null)
+                return null;
+
+            for (int i = 0; i < aggregates.size(); i++) {
+                columns.add(aggregates.get(i).isGroupColumn() ? aggregates.get(i).getColumn() : Aggregate.getPartName(i));
+                labels.add(aggregates.get(i).getLabel());
+            }
+        }
+
+        for (MySqlParser.SelectElementContext element : specification.selectElements().selectElement()) {
+
+            if (aggregates != null)
+                break;
+
+            if (!(element instanceof MySqlParser.SelectColumnElementContext))
+                return null;
+
+            MySqlParser.SelectColumnElementContext columnElement = (MySqlParser.SelectColumnElementContext) element;
+
+            String column = FederatedPlanner.getColumn(columnElement.fullColumnName(), alias);
+
+            if (column == null)
+                return null;
+
+            columns.add(column);
+            labels.add(columnElement.uid() == null ? column : columnElement.uid().getText().toLowerCase());
+        }
+
+        Bson filter = fromClause.whereExpr == null ? new Document() : MongoDBFilters.toFilter(fromClause.whereExpr, alias);
+
+        if (filter == null)
+            return null;
+
+        MongoDBSelect select = new MongoDBSelect(storage, collection, filter, columns, labels, fetchSize);
+
+        if (aggregates != null) {
+            select.aggregates = aggregates;
+            select.groupStages = MongoDBFilters.toGroupStages(aggregates, groupBy);
+            select.global = groupBy.isEmpty();
+        }
+
+        if (specification.orderByClause() != null) {
+
+            LinkedHashMap<String, Boolean> order = FederatedPlanner.getOrder(specification.orderByClause(), alias);
+
+            if (order == null)
+                return null;
+
+            //groups only have the columns of the group by
+            if (groupBy != null && !groupBy.containsAll(order.keySet()))
+                return null;
+
+            select.sort = MongoDBFilters.toSort(order);
+        }
+
+        if (specification.limitClause() != null) {
+
+            long[] limit = FederatedPlanner.getLimit(specification.limitClause());
+
+            if (limit == null)
+                return null;
+
+            select.offset = limit[0];
+            select.limit = limit[1];
+        }
+
+        return select;
+    }
+
+    @Override
+    public boolean execute(Consumer<List<String>> columns, Predicate<List<HashMap<String, String>>> batches) {
+
+        columns.accept(labels);
+
+        Bson projection = this.columns.contains("_id") ? Projections.include(this.columns) :
+                Projections.fields(Projections.include(this.columns), Projections.excludeId());
+
+        //a limit of 0 means no limit to MongoDB
+        if (limit == 0)
+            return batches.test(new LinkedList<>());
+
+        try (MongoCursor<Document> cursor = open(projection)) {
+
+            LinkedList<HashMap<String, String>> batch = new LinkedList<>();
+            long read = 0;
+
+            while (cursor.hasNext()) {
+
+                Document document = cursor.next();
+
+                HashMap<String, String> row = new LinkedHashMap<>();
+
+                for (int i = 0; i < this.columns.size(); i++)
+                    row.put(labels.get(i), StorageScan.toValueString(document.get(this.columns.get(i))));
+
+                batch.add(row);
+                read++;
+
+                if (batch.size() == fetchSize) {
+
+                    if (!batches.test(batch))
+                        return false;
+
+                    batch = new LinkedList<>();
+                }
+            }
+
+            //like SQL, aggregates over no documents are a row of zero counts and nulls
+            if (global && read == 0 && offset == 0)
+                batch.add(getEmptyGroup());
+
+            return batches.test(batch);
+
+        } catch (MongoException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not read collection: %s from storage: %s, %s", collection, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        }
+    }
+
+    /**
+     * Starts the find, or the aggregation pipeline of an aggregated select
+     */
+    private MongoCursor<Document> open(Bson projection) {
+
+        if (groupStages != null) {
+
+            LinkedList<Bson> pipeline = new LinkedList<>();
+
+            pipeline.add(Aggregates.match(filter));
+            pipeline.addAll(groupStages);
+
+            if (sort != null)
+                pipeline.add(Aggregates.sort(sort));
+
+            if (limit > 0) {
+                pipeline.add(Aggregates.skip((int) Math.min(offset, Integer.MAX_VALUE)));
+                pipeline.add(Aggregates.limit((int) Math.min(limit, Integer.MAX_VALUE)));
+            }
+
+            return MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(collection)
+                    .aggregate(pipeline)
+                    .batchSize(fetchSize)
+                    .iterator();
+        }
+
+        FindIterable<Document> find = MongoClients.getClient(storage).getDatabase(storage.getDatabase()).getCollection(collection)
+                .find(filter)
+                .projection(projection)
+                .batchSize(fetchSize);
+
+        if (sort != null)
+            find.sort(sort);
+
+        if (limit > 0)
+            find.skip((int) Math.min(offset, Integer.MAX_VALUE)).limit((int) Math.min(limit, Integer.MAX_VALUE));
+
+        return find.iterator();
+    }
+
+    /**
+     * Get the row of aggregates over no documents
+     */
+    private HashMap<String, String> getEmptyGroup() {
+
+        HashMap<String, String> row = new LinkedHashMap<>();
+
+        for (String label : labels)
+            row.put(label, null);
+
+        //counts are the only aggregates that are not null
+        for (int i = 0; i < aggregates.size(); i++)
+            if (Aggregate.COUNT.equals(aggregates.get(i).getFunction()))
+                row.put(labels.get(i), "0");
+
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        String find = String.format("find on %s, filter: %s, projection: %s", collection, filter.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry()).toJson(), columns);
+
+        if (sort != null)
+            find += ", sort: " + sort.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry()).toJson();
+
+        if (groupStages != null)
+            find += ", aggregates: " + aggregates;
+
+        if (limit >= 0)
+            find += String.format(", skip: %d, limit: %d", offset, limit);
+
+        return find;
+    }
+}
@@ -0,0 +1,304 @@
+package manager.federated;
+
+import common.Log;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+import language.mysql.utilities.MySqlParserBaseListener;
+import manager.connection.ConnectionPools;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class reads a table from a MySQL storage system through a pooled connection.
+ * rows are fetched with a server side cursor in batches of the fetch size, integer columns are kept unboxed
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MySqlScan extends StorageScan {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MySqlScan";
+
+    private Connection connection;
+
+    private PreparedStatement statement;
+
+    private ResultSet resultSet;
+
+    /**
+     * Whether each column of the rows is an integer column
+     */
+    private boolean[] integerColumns;
+
+    MySqlScan(StorageConfigContainer storage, String table, List<String> columns, int fetchSize) {
+        super(storage, table, columns, fetchSize);
+    }
+
+    /**
+     * Creates the query of the scan
+     *
+     * @return select statement reading the primary key and columns of the scan, keys are bound as parameters
+     */
+    protected String toSql() {
+
+        String sql = String.format("SELECT %s FROM %s", String.join(", ", aggregates == null ? getRowColumns() : getAggregateColumns()), table);
+
+        LinkedList<String> clauses = new LinkedList<>();
+
+        if (conditions != null)
+            for (MySqlParser.ExpressionContext condition : conditions)
+                clauses.add("(" + toSql(condition, alias) + ")");
+
+        if (keys != null)
+            clauses.add(String.format("%s IN (%s)", primaryKey, String.join(", ", Collections.nCopies(keys.size(), "?"))));
+
+        if (rangeStart != null)
+            clauses.add(String.format("%s >= %d", primaryKey, rangeStart));
+
+        if (rangeEnd != null)
+            clauses.add(rangeStart == null ? String.format("(%s < %d OR %s IS NULL)", primaryKey, rangeEnd, primaryKey)
+                    : String.format("%s < %d", primaryKey, rangeEnd));
+
+        if (!clauses.isEmpty())
+            sql += " WHERE " + String.join(" AND ", clauses);
+
+        if (aggregates != null && !groupBy.isEmpty())
+            sql += " GROUP BY " + String.join(", ", groupBy);
+
+        if (order != null) {
+
+            LinkedList<String> sortColumns = new LinkedList<>();
+
+            order.forEach((column, ascending) -> sortColumns.add(column + (ascending ? " ASC" : " DESC")));
+
+            sql += " ORDER BY " + String.join(", ", sortColumns);
+        }
+
+        if (limit >= 0)
+            sql += String.format(" LIMIT %d OFFSET %d", limit, offset);
+
+        return sql;
+    }
+
+    /**
+     * Get the select list of an aggregating scan
+     *
+     * @return columns of the group by followed by the aggregates named by their parts
+     */
+    private List<String> getAggregateColumns() {
+
+        LinkedList<String> selectList = new LinkedList<>(groupBy);
+
+        for (int i = 0; i < aggregates.size(); i++) {
+
+            Aggregate aggregate = aggregates.get(i);
+
+            if (!aggregate.isGroupColumn())
+                selectList.add(String.format("%s(%s) AS %s", aggregate.getFunction(), aggregate.getColumn() == null ? "*" : aggregate.getColumn(),
+                        Aggregate.getPartName(i)));
+        }
+
+        return selectList;
+    }
+
+    /**
+     * Creates the MySQL form of a condition on one table, references in the form of "alias.attribute" become "attribute"
+     * and everything else is kept as written
+     *
+     * @param condition condition on attributes of the table
+     * @param alias     alias of the table in the condition
+     * @return condition to send to MySQL
+     */
+    static String toSql(MySqlParser.ExpressionContext condition, String alias) {
+
+        CharStream input = condition.start.getInputStream();
+
+        StringBuilder sql = new StringBuilder();
+
+        //start of the text not copied yet
+        int[] position = {condition.start.getStartIndex()};
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterFullColumnName(MySqlParser.FullColumnNameContext ctx) {
+
+                sql.append(input.getText(Interval.of(position[0], ctx.start.getStartIndex() - 1)));
+                sql.append(FederatedPlanner.getColumn(ctx, alias));
+
+                position[0] = ctx.stop.getStopIndex() + 1;
+            }
+        }, condition);
+
+        sql.append(input.getText(Interval.of(position[0], condition.stop.getStopIndex())));
+
+        return sql.toString();
+    }
+
+    @Override
+    public boolean open() {
+
+        String sql = toSql();
+
+        try {
+            connection = ConnectionPools.acquire(storage);
+
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+
+            if (keys != null)
+                for (int i = 0; i < keys.size(); i++)
+                    statement.setObject(i + 1, keys.get(i));
+
+            resultSet = statement.executeQuery();
+
+            //integer columns are read into long vectors, anything else is kept as MySQL formats it
+            ResultSetMetaData metaData = resultSet.getMetaData();
+
+            integerColumns = new boolean[metaData.getColumnCount()];
+
+            for (int i = 0; i < integerColumns.length; i++) {
+
+                int type = metaData.getColumnType(i + 1);
+
+                integerColumns[i] = type == Types.TINYINT || type == Types.SMALLINT || type == Types.INTEGER
+                        || (type == Types.BIGINT && metaData.isSigned(i + 1));
+            }
+
+        } catch (SQLException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not execute: %s on storage: %s, %s", sql, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            close();
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public long[] getKeyBounds() {
+
+        String sql = String.format("SELECT MIN(%s), MAX(%s) FROM %s", primaryKey, primaryKey, table);
+
+        Connection boundsConnection = null;
+
+        try {
+            boundsConnection = ConnectionPools.acquire(storage);
+
+            try (PreparedStatement boundsStatement = boundsConnection.prepareStatement(sql);
+                 ResultSet bounds = boundsStatement.executeQuery()) {
+
+                int type = bounds.getMetaData().getColumnType(1);
+
+                if (type != Types.TINYINT && type != Types.SMALLINT && type != Types.INTEGER && type != Types.BIGINT)
+                    return null;
+
+                if (!bounds.next())
+                    return null;
+
+                long min = bounds.getLong(1);
+
+                //empty table
+                if (bounds.wasNull())
+                    return null;
+
+                return new long[]{min, bounds.getLong(2)};
+            }
+
+        } catch (SQLException e) {
+            Log.log(String.format("Can not execute: %s on storage: %s, %s", sql, storage.getId(), e.getMessage()), componentName, Log.WARNING);
+            return null;
+        } finally {
+            ConnectionPools.release(storage, boundsConnection);
+        }
+    }
+
+    @Override
+    public ColumnBatch nextBatch() {
+
+        if (resultSet == null)
+            return null;
+
+        List<String> rowColumns = getResultColumns();
+
+        ColumnVector[] vectors = new ColumnVector[rowColumns.size()];
+
+        for (int i = 0; i < vectors.length; i++)
+            vectors[i] = integerColumns[i] ? new LongVector(fetchSize) : new StringVector(fetchSize);
+
+        int rowCount = 0;
+
+        try {
+            while (rowCount < fetchSize && resultSet.next()) {
+
+                for (int i = 0; i < vectors.length; i++) {
+
+                    if (integerColumns[i]) {
+
+                        long value = resultSet.getLong(i + 1);
+
+                        if (resultSet.wasNull())
+                            vectors[i].appendNull();
+                        else
+                            ((LongVector) vectors[i]).append(value);
+
+                    } else
+                        ((StringVector) vectors[i]).append(resultSet.getString(i + 1));
+                }
+
+                rowCount++;
+            }
+
+        } catch (SQLException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not read table: %s from storage: %s, %s", table, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return null;
+        }
+
+        if (rowCount == 0)
+            return null;
+
+        LinkedHashMap<String, ColumnVector> batchColumns = new LinkedHashMap<>();
+
+        int index = 0;
+        for (String column : rowColumns)
+            batchColumns.put(column, vectors[index++]);
+
+        return new ColumnBatch(batchColumns, rowCount);
+    }
+
+    @Override
+    public void close() {
+
+        try {
+            if (resultSet != null)
+                resultSet.close();
+
+            if (statement != null)
+                statement.close();
+        } catch (SQLException e) {
+            Log.log("Can not close scan, " + e.getMessage(), componentName, Log.WARNING);
+        }
+
+        ConnectionPools.release(storage, connection);
+
+        resultSet = null;
+        statement = null;
+        connection = null;
+    }
+}
@@ -0,0 +1,131 @@
+package manager.federated;
+
+import common.Log;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+import language.mysql.utilities.MySqlParserBaseListener;
+import manager.connection.ConnectionPools;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * This class sends a select to the MySQL storage system holding all of its attributes over a pooled connection.
+ * rows are fetched with a server side cursor in batches of the fetch size
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class MySqlSelect extends SingleStoreSelect {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "MySqlSelect";
+
+    private final String sql;
+
+    MySqlSelect(StorageConfigContainer storage, String sql, int fetchSize) {
+        super(storage, fetchSize);
+        this.sql = sql;
+    }
+
+    /**
+     * Creates the MySQL form of a select. names of the storage config are lower case,
+     * so only table names are rewritten, everything else is kept as written
+     *
+     * @param rootContext root of the parse tree of the select
+     * @return select to send to MySQL
+     */
+    static String toSql(MySqlParser.RootContext rootContext) {
+
+        StringBuilder sql = new StringBuilder(rootContext.start.getInputStream().getText(
+                Interval.of(rootContext.start.getStartIndex(), rootContext.stop.getStopIndex())));
+
+        int offset = rootContext.start.getStartIndex();
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterTableName(MySqlParser.TableNameContext ctx) {
+
+                //lower casing keeps the length, so positions of the other tokens stay valid
+                for (int i = ctx.start.getStartIndex(); i <= ctx.stop.getStopIndex(); i++)
+                    sql.setCharAt(i - offset, Character.toLowerCase(sql.charAt(i - offset)));
+            }
+        }, rootContext);
+
+        return sql.toString().trim();
+    }
+
+    @Override
+    public boolean execute(Consumer<List<String>> columns, Predicate<List<HashMap<String, String>>> batches) {
+
+        Connection connection = null;
+
+        try {
+            connection = ConnectionPools.acquire(storage);
+
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+                statement.setFetchSize(fetchSize);
+
+                try (ResultSet rs = statement.executeQuery()) {
+
+                    ResultSetMetaData metaData = rs.getMetaData();
+
+                    LinkedList<String> labels = new LinkedList<>();
+                    for (int i = 1; i <= metaData.getColumnCount(); i++)
+                        labels.add(metaData.getColumnLabel(i));
+
+                    columns.accept(labels);
+
+                    LinkedList<HashMap<String, String>> batch = new LinkedList<>();
+
+                    while (rs.next()) {
+
+                        HashMap<String, String> row = new LinkedHashMap<>();
+
+                        int index = 1;
+                        for (String label : labels)
+                            row.put(label, rs.getString(index++));
+
+                        batch.add(row);
+
+                        if (batch.size() == fetchSize) {
+
+                            if (!batches.test(batch))
+                                return false;
+
+                            batch = new LinkedList<>();
+                        }
+                    }
+
+                    return batches.test(batch);
+                }
+            }
+
+        } catch (SQLException e) {
+            setFailure(e.getMessage());
+            Log.log(String.format("Can not execute: %s on storage: %s, %s", sql, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+            return false;
+        } finally {
+            ConnectionPools.release(storage, connection);
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
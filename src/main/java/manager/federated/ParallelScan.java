@@ -0,0 +1,249 @@
+package manager.federated;
+
+import common.Log;
+import config.StorageConfigContainer;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads a whole table from a storage system as several scans of ranges of its primary key running concurrently.
+ * <p>
+ * the range between the smallest and the largest primary key is split into ranges of equal width, one per degree of parallelism.
+ * the first range has no lower bound and the last no upper bound, so records are never missed even if bounds are outdated.
+ * batches are handed over as soon as any range produces them, so rows come in no particular order.
+ * </p>
+ * <p>
+ * scans of keys, sorted scans, limited scans and tables whose primary key is not an integer are read serially.
+ * every range of a MySQL table holds a pooled connection while it is read, the degree of parallelism should not exceed the pool size.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ParallelScan extends StorageScan {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "ParallelScan";
+
+    /**
+     * Runs the scans of ranges. scans mostly wait for their storage systems
+     */
+    private static final ExecutorService rangeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Marks the end of the rows of a range in the queue
+     */
+    private static final ColumnBatch END = new ColumnBatch(new LinkedHashMap<>(), 0);
+
+    /**
+     * How long a range waits for room in the queue before checking whether the scan is closed, in milliseconds
+     */
+    private static final long OFFER_TIMEOUT = 100;
+
+    /**
+     * Maximum number of ranges read concurrently
+     */
+    private final int parallelism;
+
+    /**
+     * Scan reading the table serially, null if it is read in ranges
+     */
+    private StorageScan serialScan;
+
+    /**
+     * Batches read by the ranges, each range adds END once it is read
+     */
+    private ArrayBlockingQueue<ColumnBatch> batches;
+
+    /**
+     * Number of ranges not read completely yet
+     */
+    private int openRanges;
+
+    /**
+     * Reason the first failed range failed, null if no range failed
+     */
+    private volatile String failure;
+
+    private volatile boolean closed;
+
+    ParallelScan(StorageConfigContainer storage, String table, List<String> columns, int fetchSize, int parallelism) {
+        super(storage, table, columns, fetchSize);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a scan of a range of the primary key with the keys, conditions and aggregates of this scan
+     */
+    private StorageScan createRange(Long rangeStart, Long rangeEnd) {
+
+        StorageScan scan = StorageScan.create(storage, table, columns, fetchSize);
+
+        scan.setKeys(keys);
+        scan.setConditions(conditions, alias);
+        scan.setOrder(order);
+        scan.setLimit(offset, limit);
+        scan.setRange(rangeStart, rangeEnd);
+
+        if (aggregates != null)
+            scan.setAggregation(aggregates, groupBy);
+
+        return scan;
+    }
+
+    /**
+     * Splits the primary key into ranges
+     *
+     * @return first primary key of every range but the first, null if the table is read serially
+     */
+    private List<Long> split() {
+
+        //looked up keys, sorted and limited records can not be read in ranges
+        if (keys != null || order != null || limit >= 0)
+            return null;
+
+        long[] bounds = createRange(null, null).getKeyBounds();
+
+        if (bounds == null)
+            return null;
+
+        LinkedList<Long> starts = new LinkedList<>();
+
+        try {
+            long span = Math.subtractExact(bounds[1], bounds[0]);
+
+            //too few keys to split
+            if (span < parallelism)
+                return null;
+
+            long width = span / parallelism + 1;
+
+            for (int i = 1; i < parallelism; i++)
+                starts.add(Math.addExact(bounds[0], Math.multiplyExact(i, width)));
+
+        } catch (ArithmeticException e) {
+            //keys span more than a long
+            return null;
+        }
+
+        return starts;
+    }
+
+    @Override
+    public boolean open() {
+
+        List<Long> starts = split();
+
+        if (starts == null) {
+            serialScan = createRange(null, null);
+            return serialScan.open();
+        }
+
+        batches = new ArrayBlockingQueue<>(parallelism);
+        openRanges = starts.size() + 1;
+
+        Long rangeStart = null;
+
+        for (Long rangeEnd : starts) {
+            read(createRange(rangeStart, rangeEnd));
+            rangeStart = rangeEnd;
+        }
+
+        read(createRange(rangeStart, null));
+
+        return true;
+    }
+
+    /**
+     * Reads a range concurrently and adds its batches to the queue
+     */
+    private void read(StorageScan range) {
+
+        rangeExecutor.execute(() -> {
+            try {
+                if (range.open())
+                    for (ColumnBatch batch = range.nextBatch(); batch != null && !closed; batch = range.nextBatch())
+                        offer(batch);
+
+                if (range.getFailure() != null && failure == null)
+                    failure = range.getFailure();
+
+            } catch (RuntimeException e) {
+                failure = String.format("scan of %s on storage: %s failed, %s", table, storage.getId(), e.getMessage());
+                Log.log(failure, componentName, Log.ERROR);
+            } finally {
+                range.close();
+                offer(END);
+            }
+        });
+    }
+
+    /**
+     * Adds a batch to the queue, waits while the queue is full unless the scan is closed
+     */
+    private void offer(ColumnBatch batch) {
+
+        try {
+            while (!closed)
+                if (batches.offer(batch, OFFER_TIMEOUT, TimeUnit.MILLISECONDS))
+                    return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ColumnBatch nextBatch() {
+
+        if (serialScan != null)
+            return serialScan.nextBatch();
+
+        try {
+            while (openRanges > 0 && failure == null) {
+
+                ColumnBatch batch = batches.take();
+
+                if (batch != END)
+                    return batch;
+
+                openRanges--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = String.format("scan of %s on storage: %s is interrupted", table, storage.getId());
+        }
+
+        return null;
+    }
+
+    @Override
+    public long[] getKeyBounds() {
+        return createRange(null, null).getKeyBounds();
+    }
+
+    @Override
+    public String getFailure() {
+        return serialScan != null ? serialScan.getFailure() : failure;
+    }
+
+    /**
+     * Stops reading, ranges still being read stop at their next batch and give back their resources themselves
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+
+        if (serialScan != null)
+            serialScan.close();
+    }
+}
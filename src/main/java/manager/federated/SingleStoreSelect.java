@@ -0,0 +1,107 @@
+package manager.federated;
+
+import base.SimpleSelectContainer;
+import config.ConfigUtilities;
+import config.MongoDBConfigContainer;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * This class is a select whose attributes all live in one storage system.
+ * <p>
+ * such a select gains nothing from a federated engine, so it is sent straight to its storage system:
+ * MySQL receives the select itself over a pooled connection, MongoDB receives an equivalent find.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class SingleStoreSelect {
+
+    protected final StorageConfigContainer storage;
+
+    /**
+     * Number of rows read from the storage system at once and handed over together
+     */
+    protected final int fetchSize;
+
+    /**
+     * Reason the select failed, null if it did not fail
+     */
+    private String failure;
+
+    protected SingleStoreSelect(StorageConfigContainer storage, int fetchSize) {
+        this.storage = storage;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * Decides whether a select can be sent straight to a single storage system
+     *
+     * @param container   names, aliases and storage systems referenced by the select
+     * @param rootContext root of the parse tree of the select
+     * @param fetchSize   number of rows read from the storage system at once
+     * @return the select on its storage system, null if it references several storage systems or can not be expressed natively
+     * @since 1.0
+     */
+    public static SingleStoreSelect route(SimpleSelectContainer container, MySqlParser.RootContext rootContext, int fetchSize) {
+
+        if (container.getReferencedStorages().size() != 1)
+            return null;
+
+        //every table must have an attribute referenced, otherwise its storage system is unknown
+        if (!container.getGeneratedTables().keySet().containsAll(container.getTables()))
+            return null;
+
+        String storageId = container.getReferencedStorages().iterator().next();
+
+        for (StorageConfigContainer storage : ConfigUtilities.getStorages()) {
+
+            if (!storage.getId().equals(storageId))
+                continue;
+
+            if (storage instanceof MySqlConfigContainer)
+                return new MySqlSelect(storage, MySqlSelect.toSql(rootContext), fetchSize);
+            else if (storage instanceof MongoDBConfigContainer)
+                return MongoDBSelect.plan(storage, rootContext, fetchSize);
+        }
+
+        return null;
+    }
+
+    /**
+     * Executes the select on its storage system and hands its rows over in batches.
+     * the next batch is only read once the previous one is accepted
+     *
+     * @param columns accepts labels of the columns of the result, called before the first batch
+     * @param batches accepts a batch of rows, returns false to stop reading
+     * @return true if all rows are read, false if the select failed or reading is stopped
+     * @since 1.0
+     */
+    public abstract boolean execute(Consumer<List<String>> columns, Predicate<List<HashMap<String, String>>> batches);
+
+    protected void setFailure(String failure) {
+        this.failure = String.format("select on storage: %s failed, %s", storage.getId(), failure);
+    }
+
+    /**
+     * Get the reason the select failed
+     *
+     * @return reason of the failure, null if the select did not fail
+     * @since 1.0
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    public StorageConfigContainer getStorage() {
+        return storage;
+    }
+}
@@ -0,0 +1,207 @@
+package manager.federated;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class is a temporary file keeping rows of a join that do not fit in memory.
+ * <p>
+ * rows are appended through a buffered stream, then the file is read back in batches through memory mapped windows,
+ * so reading never copies the file into the heap. every row has the same columns, only values are written as strings:
+ * [length of the row][number of values]([length of the value or -1 for null][UTF-8 bytes])*
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SpillFile implements AutoCloseable {
+
+    /**
+     * Size of the part of the file mapped at once in bytes
+     */
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final Path path;
+
+    /**
+     * Columns of the rows in the order their values are written
+     */
+    private final List<String> columns;
+
+    private DataOutputStream output;
+
+    private long rowCount;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer window;
+
+    /**
+     * Offset of the next row to read in the file
+     */
+    private long position;
+
+    /**
+     * @param columns columns of the rows kept in the file
+     * @throws IOException if the file can not be created
+     */
+    public SpillFile(List<String> columns) throws IOException {
+
+        this.columns = columns;
+
+        this.path = Files.createTempFile("dolus-join-", ".spill");
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    /**
+     * Appends a row of a batch
+     *
+     * @param batch batch containing the row, values of the columns of the file are written
+     * @param row   index of the row in the batch
+     * @throws IOException if the file can not be written
+     * @since 1.0
+     */
+    public void write(ColumnBatch batch, int row) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(bytes);
+
+        record.writeInt(columns.size());
+
+        for (String column : columns) {
+
+            String value = batch.getColumn(column).getString(row);
+
+            if (value == null)
+                record.writeInt(-1);
+            else {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+
+                record.writeInt(encoded.length);
+                record.write(encoded);
+            }
+        }
+
+        output.writeInt(bytes.size());
+        bytes.writeTo(output);
+
+        rowCount++;
+    }
+
+    /**
+     * Reads the next rows, the first call ends writing
+     *
+     * @param maxRows maximum number of rows to read
+     * @return the next rows, values as strings, null if all rows are read
+     * @throws IOException if the file can not be read
+     * @since 1.0
+     */
+    public ColumnBatch readBatch(int maxRows) throws IOException {
+
+        if (output != null) {
+            output.close();
+            output = null;
+
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        if (position >= channel.size())
+            return null;
+
+        StringVector[] vectors = new StringVector[columns.size()];
+
+        for (int i = 0; i < vectors.length; i++)
+            vectors[i] = new StringVector(maxRows);
+
+        int rows = 0;
+
+        while (rows < maxRows && position < channel.size()) {
+
+            ensureMapped(Integer.BYTES);
+            int length = window.getInt();
+            position += Integer.BYTES;
+
+            ensureMapped(length);
+
+            int count = window.getInt();
+
+            for (int i = 0; i < count; i++) {
+
+                int valueLength = window.getInt();
+
+                if (valueLength < 0)
+                    vectors[i].appendNull();
+                else {
+                    byte[] encoded = new byte[valueLength];
+                    window.get(encoded);
+
+                    vectors[i].append(new String(encoded, StandardCharsets.UTF_8));
+                }
+            }
+
+            position += length;
+            rows++;
+        }
+
+        LinkedHashMap<String, ColumnVector> batchColumns = new LinkedHashMap<>();
+
+        for (int i = 0; i < vectors.length; i++)
+            batchColumns.put(columns.get(i), vectors[i]);
+
+        return new ColumnBatch(batchColumns, rows);
+    }
+
+    /**
+     * Makes sure the next bytes of the file are mapped, maps a new window starting at the current position otherwise
+     */
+    private void ensureMapped(int bytes) throws IOException {
+
+        if (window != null && window.remaining() >= bytes)
+            return;
+
+        long size = Math.max(bytes, Math.min(WINDOW_SIZE, channel.size() - position));
+
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Deletes the file
+     *
+     * @since 1.0
+     */
+    @Override
+    public void close() {
+
+        try {
+            if (output != null)
+                output.close();
+
+            if (channel != null)
+                channel.close();
+
+            Files.deleteIfExists(path);
+
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+
+        output = null;
+        channel = null;
+        window = null;
+    }
+}
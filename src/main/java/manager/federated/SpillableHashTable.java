@@ -0,0 +1,248 @@
+package manager.federated;
+
+import common.Log;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This class is the build side of a join that stays within a memory budget (grace hash join).
+ * <p>
+ * batches of rows are kept in a BatchHashTable while the budget allows it. once the budget is exceeded all rows,
+ * those in memory and those still to come, are split by the hash of their primary key into PARTITIONS spill files
+ * and the memory is given back. the probe side is then split the same way and the join is done partition by partition,
+ * each partition needing about 1/PARTITIONS of the memory of the whole build side.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SpillableHashTable implements AutoCloseable {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "SpillableHashTable";
+
+    /**
+     * Number of partitions rows are split into once they do not fit in memory
+     */
+    public static final int PARTITIONS = 32;
+
+    /**
+     * Columns of the rows, the primary key first
+     */
+    private final List<String> columns;
+
+    private final String primaryKey;
+
+    private final MemoryBudget budget;
+
+    /**
+     * Number of rows read back from a spill file at once
+     */
+    private static final int SPILL_BATCH_SIZE = 1024;
+
+    /**
+     * Rows in memory, null once the table is spilled
+     */
+    private BatchHashTable table;
+
+    /**
+     * Memory reserved for the rows in memory in bytes
+     */
+    private long reserved;
+
+    /**
+     * Spill files by partition, null while rows fit in memory
+     */
+    private SpillFile[] partitions;
+
+    /**
+     * @param columns    columns of the rows, the primary key first
+     * @param primaryKey primary key of the rows
+     * @param budget     memory shared by the hash tables of the join
+     */
+    public SpillableHashTable(List<String> columns, String primaryKey, MemoryBudget budget) {
+
+        this.columns = columns;
+        this.primaryKey = primaryKey;
+        this.budget = budget;
+
+        this.table = new BatchHashTable(primaryKey);
+    }
+
+    /**
+     * Adds a batch of rows, spills the table if the batch does not fit in the budget
+     *
+     * @param batch the rows
+     * @throws IOException if a spill file can not be written
+     * @since 1.0
+     */
+    public void add(ColumnBatch batch) throws IOException {
+
+        if (partitions == null) {
+
+            //the index grows with the rows, account for it along with the batch
+            long size = batch.estimateSize() + batch.getRowCount() * 16L;
+
+            if (budget.reserve(size)) {
+                reserved += size;
+                table.add(batch);
+                return;
+            }
+
+            spill();
+        }
+
+        write(partitions, batch, primaryKey);
+    }
+
+    /**
+     * Moves all rows in memory to spill files and gives their memory back
+     */
+    private void spill() throws IOException {
+
+        Log.log(String.format("Hash table exceeded its memory budget with %d batches, spilling to disk", table.getBatches().size()), componentName, Log.NOTICE);
+
+        partitions = createPartitions(columns);
+
+        for (ColumnBatch batch : table.getBatches())
+            write(partitions, batch, primaryKey);
+
+        table = null;
+
+        budget.release(reserved);
+        reserved = 0;
+    }
+
+    /**
+     * Writes each row of a batch to the partition of its primary key
+     *
+     * @param files      spill files by partition
+     * @param batch      the rows
+     * @param primaryKey primary key of the rows
+     * @throws IOException if a spill file can not be written
+     * @since 1.0
+     */
+    public static void write(SpillFile[] files, ColumnBatch batch, String primaryKey) throws IOException {
+
+        ColumnVector keys = batch.getColumn(primaryKey);
+
+        for (int i = 0; i < batch.getRowCount(); i++)
+            files[partitionOf(keys.getString(i))].write(batch, i);
+    }
+
+    /**
+     * Get rows kept in memory
+     *
+     * @return rows by primary key, null if the table is spilled
+     * @since 1.0
+     */
+    public BatchHashTable getTable() {
+        return table;
+    }
+
+    /**
+     * Reads one partition of a spilled table into memory
+     *
+     * @param partition index of the partition
+     * @return rows of the partition
+     * @throws IOException if the spill file can not be read
+     * @since 1.0
+     */
+    public BatchHashTable loadPartition(int partition) throws IOException {
+
+        BatchHashTable partitionTable = new BatchHashTable(primaryKey);
+
+        SpillFile file = partitions[partition];
+
+        for (ColumnBatch batch = file.readBatch(SPILL_BATCH_SIZE); batch != null; batch = file.readBatch(SPILL_BATCH_SIZE))
+            partitionTable.add(batch);
+
+        //rows of a partition are read once
+        file.close();
+
+        return partitionTable;
+    }
+
+    public boolean isSpilled() {
+        return partitions != null;
+    }
+
+    /**
+     * Get the partition a primary key belongs to, both sides of the join use it
+     *
+     * @param key primary key
+     * @return index of the partition
+     * @since 1.0
+     */
+    public static int partitionOf(String key) {
+
+        int hash = key == null ? 0 : key.hashCode();
+
+        //mix the bits, sequential keys must not fall in sequential partitions only
+        hash ^= (hash >>> 16);
+        hash *= 0x85EBCA6B;
+        hash ^= (hash >>> 13);
+
+        return (hash & Integer.MAX_VALUE) % PARTITIONS;
+    }
+
+    /**
+     * Creates a spill file for each partition
+     *
+     * @param columns columns of the rows kept in the files
+     * @return spill files by partition
+     * @throws IOException if a file can not be created
+     * @since 1.0
+     */
+    public static SpillFile[] createPartitions(List<String> columns) throws IOException {
+
+        SpillFile[] files = new SpillFile[PARTITIONS];
+
+        try {
+            for (int i = 0; i < PARTITIONS; i++)
+                files[i] = new SpillFile(columns);
+
+        } catch (IOException e) {
+            closePartitions(files);
+            throw e;
+        }
+
+        return files;
+    }
+
+    /**
+     * Deletes spill files of partitions
+     *
+     * @param files spill files by partition, may contain nulls
+     * @since 1.0
+     */
+    public static void closePartitions(SpillFile[] files) {
+
+        if (files == null)
+            return;
+
+        for (SpillFile file : files)
+            if (file != null)
+                file.close();
+    }
+
+    /**
+     * Gives back the memory and deletes spill files of the table
+     *
+     * @since 1.0
+     */
+    @Override
+    public void close() {
+
+        budget.release(reserved);
+        reserved = 0;
+
+        closePartitions(partitions);
+
+        table = null;
+    }
+}
@@ -0,0 +1,328 @@
+package manager.federated;
+
+import config.MongoDBConfigContainer;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+import language.mysql.utilities.MySqlParser;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * This class reads columns of one table from one storage system directly through its native driver.
+ * <p>
+ * a scan is opened once, then its rows are pulled in column batches of the fetch size with nextBatch,
+ * so a scan never holds more than one batch in memory.
+ * every row contains the primary key of the storage system and the requested columns.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class StorageScan implements AutoCloseable {
+
+    protected final StorageConfigContainer storage;
+
+    protected final String table;
+
+    /**
+     * Primary key of the table in this storage system, rows of all storage systems are joined on it
+     */
+    protected final String primaryKey;
+
+    /**
+     * Columns to read, without the primary key
+     */
+    protected final List<String> columns;
+
+    /**
+     * Number of rows read from the storage system at once
+     */
+    protected final int fetchSize;
+
+    /**
+     * Values of the primary key to look up, null to read the whole table
+     */
+    protected List<Object> keys;
+
+    /**
+     * Conditions on the columns of the scan evaluated by the storage system, all must hold. null to read all records
+     */
+    protected List<MySqlParser.ExpressionContext> conditions;
+
+    /**
+     * Alias of the table in the condition
+     */
+    protected String alias;
+
+    /**
+     * Sort columns in order, true for ascending. null to read records in any order
+     */
+    protected LinkedHashMap<String, Boolean> order;
+
+    /**
+     * Number of records to skip
+     */
+    protected long offset;
+
+    /**
+     * Maximum number of records to read, -1 to read all records
+     */
+    protected long limit = -1;
+
+    /**
+     * Aggregates computed by the storage system over the records of the scan, null to read the records themselves
+     */
+    protected List<Aggregate> aggregates;
+
+    /**
+     * Columns the aggregates are grouped by
+     */
+    protected List<String> groupBy;
+
+    /**
+     * Smallest primary key of the range of the scan, null if the range has no lower bound
+     */
+    protected Long rangeStart;
+
+    /**
+     * Primary key after the range of the scan, null if the range has no upper bound.
+     * a range without lower bound also holds records whose primary key is null or not an integer
+     */
+    protected Long rangeEnd;
+
+    /**
+     * Reason the scan failed, null if it did not fail
+     */
+    private String failure;
+
+    protected StorageScan(StorageConfigContainer storage, String table, List<String> columns, int fetchSize) {
+
+        this.storage = storage;
+        this.table = table;
+        this.columns = columns;
+        this.fetchSize = fetchSize;
+
+        this.primaryKey = storage.getPrimaryKey(table);
+    }
+
+    /**
+     * Creates a scan reading a table from a storage system with its native driver
+     *
+     * @param storage   storage system to read from
+     * @param table     name of the table or collection
+     * @param columns   columns to read, without the primary key
+     * @param fetchSize number of rows read from the storage system at once
+     * @return the scan, null if the storage system is not supported
+     * @since 1.0
+     */
+    public static StorageScan create(StorageConfigContainer storage, String table, List<String> columns, int fetchSize) {
+
+        if (storage instanceof MySqlConfigContainer)
+            return new MySqlScan(storage, table, columns, fetchSize);
+        else if (storage instanceof MongoDBConfigContainer)
+            return new MongoDBScan(storage, table, columns, fetchSize);
+
+        return null;
+    }
+
+    /**
+     * Creates a scan reading a table from a storage system with its native driver.
+     * a scan of the whole table is split into ranges of the primary key read concurrently, see ParallelScan
+     *
+     * @param storage     storage system to read from
+     * @param table       name of the table or collection
+     * @param columns     columns to read, without the primary key
+     * @param fetchSize   number of rows read from the storage system at once
+     * @param parallelism number of ranges read concurrently, 1 to read the table serially
+     * @return the scan, null if the storage system is not supported
+     * @since 1.0
+     */
+    public static StorageScan create(StorageConfigContainer storage, String table, List<String> columns, int fetchSize, int parallelism) {
+
+        StorageScan scan = create(storage, table, columns, fetchSize);
+
+        if (scan == null || parallelism < 2)
+            return scan;
+
+        return new ParallelScan(storage, table, columns, fetchSize, parallelism);
+    }
+
+    /**
+     * Starts reading the table
+     *
+     * @return true if the scan is opened, false otherwise
+     * @since 1.0
+     */
+    public abstract boolean open();
+
+    /**
+     * Reads the next rows of the table, at most fetch size of them
+     *
+     * @return the rows with the columns of getResultColumns, null if there are no more rows or the scan failed
+     * @since 1.0
+     */
+    public abstract ColumnBatch nextBatch();
+
+    /**
+     * Finds the smallest and the largest primary key of the table, used to split the table into ranges
+     *
+     * @return smallest and largest primary key, null if the table is empty, its primary key is not an integer or they can not be read
+     * @since 1.0
+     */
+    public abstract long[] getKeyBounds();
+
+    /**
+     * Stops reading and gives back the resources of the scan
+     *
+     * @since 1.0
+     */
+    @Override
+    public abstract void close();
+
+    /**
+     * Restricts the scan to records with the given primary keys, they are looked up through the primary key index
+     *
+     * @param keys values of the primary key, null to read the whole table
+     * @since 1.0
+     */
+    public void setKeys(List<Object> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Restricts the scan to records satisfying conditions, they are evaluated by the storage system
+     *
+     * @param conditions conditions on columns of this storage system, all must hold. null to read all records
+     * @param alias      alias of the table in the conditions
+     * @since 1.0
+     */
+    public void setConditions(List<MySqlParser.ExpressionContext> conditions, String alias) {
+        this.conditions = conditions;
+        this.alias = alias;
+    }
+
+    /**
+     * Restricts the scan to a range of the primary key, it must be an integer
+     *
+     * @param rangeStart smallest primary key of the range, null for no lower bound.
+     *                   the range then also holds records whose primary key is null or not an integer
+     * @param rangeEnd   primary key after the range, null for no upper bound
+     * @since 1.0
+     */
+    public void setRange(Long rangeStart, Long rangeEnd) {
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+    }
+
+    /**
+     * Makes the storage system return records sorted
+     *
+     * @param order sort columns in order, true for ascending. null to read records in any order
+     * @since 1.0
+     */
+    public void setOrder(LinkedHashMap<String, Boolean> order) {
+        this.order = order;
+    }
+
+    /**
+     * Makes the storage system return only part of the records, after the order is applied
+     *
+     * @param offset number of records to skip
+     * @param limit  maximum number of records to read, -1 to read all records
+     * @since 1.0
+     */
+    public void setLimit(long offset, long limit) {
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Makes the storage system compute aggregates over the records of the scan instead of returning them.
+     * each row of the scan is then a group with the columns of the group by and a part of each aggregate named by Aggregate.getPartName
+     *
+     * @param aggregates elements of an aggregated select in order
+     * @param groupBy    columns the aggregates are grouped by
+     * @since 1.0
+     */
+    public void setAggregation(List<Aggregate> aggregates, List<String> groupBy) {
+        this.aggregates = aggregates;
+        this.groupBy = groupBy;
+    }
+
+    protected void setFailure(String failure) {
+        this.failure = String.format("scan of %s on storage: %s failed, %s", table, storage.getId(), failure);
+    }
+
+    /**
+     * Get the reason the scan failed
+     *
+     * @return reason of the failure, null if the scan did not fail
+     * @since 1.0
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Get columns of the rows of the scan
+     *
+     * @return the primary key followed by the other columns
+     * @since 1.0
+     */
+    public List<String> getRowColumns() {
+
+        LinkedList<String> rowColumns = new LinkedList<>(columns);
+
+        rowColumns.remove(primaryKey);
+        rowColumns.addFirst(primaryKey);
+
+        return rowColumns;
+    }
+
+    /**
+     * Get columns of the batches of the scan
+     *
+     * @return the columns of the group by and parts of aggregates for an aggregating scan, getRowColumns otherwise
+     * @since 1.0
+     */
+    public List<String> getResultColumns() {
+
+        if (aggregates == null)
+            return getRowColumns();
+
+        LinkedList<String> resultColumns = new LinkedList<>(groupBy);
+
+        for (int i = 0; i < aggregates.size(); i++)
+            if (!aggregates.get(i).isGroupColumn())
+                resultColumns.add(Aggregate.getPartName(i));
+
+        return resultColumns;
+    }
+
+    public StorageConfigContainer getStorage() {
+        return storage;
+    }
+
+    public String getPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * Converts a value read from a storage system into the string every storage system produces for it.
+     * MongoDB may keep integers as doubles, MySQL returns them as integers, both must produce the same string to be joined on
+     *
+     * @param value value read from a storage system
+     * @return string form of the value, null for null
+     * @since 1.0
+     */
+    public static String toValueString(Object value) {
+
+        if (value instanceof Double && (Double) value == Math.rint((Double) value) && !Double.isInfinite((Double) value))
+            return String.valueOf(((Double) value).longValue());
+
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,203 @@
+package manager.federated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class is a column of strings.
+ * <p>
+ * values are dictionary encoded while the column has few distinct strings, every distinct string is kept once
+ * and values are codes into the dictionary, so repeated values like colors or names of boats take four bytes each.
+ * once the dictionary grows past MAX_DICTIONARY_SIZE the column is mostly unique values like names or keys,
+ * the dictionary only costs a lookup and an entry per value, so values are decoded to plain strings and kept as they are.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class StringVector extends ColumnVector {
+
+    /**
+     * Maximum number of distinct strings encoded in the dictionary
+     */
+    static final int MAX_DICTIONARY_SIZE = 256;
+
+    /**
+     * Code of each value, null once the vector keeps plain strings
+     */
+    private int[] codes;
+
+    /**
+     * code -> string, null once the vector keeps plain strings
+     */
+    private ArrayList<String> dictionary;
+
+    /**
+     * string -> code, null once the vector keeps plain strings
+     */
+    private HashMap<String, Integer> dictionaryCodes;
+
+    /**
+     * Each value, null while the vector is dictionary encoded
+     */
+    private String[] values;
+
+    /**
+     * Estimated heap taken by the strings of the dictionary or by the plain strings in bytes
+     */
+    private long stringsSize;
+
+    public StringVector(int capacity) {
+
+        this.codes = new int[Math.max(capacity, INITIAL_CAPACITY)];
+        this.dictionary = new ArrayList<>();
+        this.dictionaryCodes = new HashMap<>();
+    }
+
+    /**
+     * Appends a value
+     *
+     * @param value the value, may be null
+     * @since 1.0
+     */
+    public void append(String value) {
+
+        if (value == null) {
+            appendNull();
+            return;
+        }
+
+        if (values != null) {
+            appendValue(value);
+            return;
+        }
+
+        Integer code = dictionaryCodes.get(value);
+
+        if (code == null) {
+
+            if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                decode();
+                appendValue(value);
+                return;
+            }
+
+            code = dictionary.size();
+
+            dictionary.add(value);
+            dictionaryCodes.put(value, code);
+
+            //string, its characters and the entry of the dictionary
+            stringsSize += 40 + value.length() * 2L + 48;
+        }
+
+        appendCode(code);
+    }
+
+    private void appendCode(int code) {
+
+        if (size == codes.length)
+            codes = Arrays.copyOf(codes, codes.length * 2);
+
+        codes[size++] = code;
+    }
+
+    private void appendValue(String value) {
+
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+
+        values[size++] = value;
+
+        if (value != null)
+            stringsSize += 40 + value.length() * 2L;
+    }
+
+    /**
+     * Replaces the codes with the strings they stand for and drops the dictionary
+     */
+    private void decode() {
+
+        values = new String[codes.length];
+        stringsSize = 0;
+
+        for (int i = 0; i < size; i++) {
+
+            if (isNull(i))
+                continue;
+
+            values[i] = dictionary.get(codes[i]);
+            stringsSize += 40 + values[i].length() * 2L;
+        }
+
+        codes = null;
+        dictionary = null;
+        dictionaryCodes = null;
+    }
+
+    @Override
+    public void appendNull() {
+
+        markNull(size);
+
+        if (values != null)
+            appendValue(null);
+        else
+            appendCode(-1);
+    }
+
+    @Override
+    public void appendFrom(ColumnVector source, int index) {
+        append(source.getString(index));
+    }
+
+    @Override
+    public String getString(int index) {
+
+        if (values != null)
+            return values[index];
+
+        return isNull(index) ? null : dictionary.get(codes[index]);
+    }
+
+    @Override
+    public Object getObject(int index) {
+        return getString(index);
+    }
+
+    /**
+     * Decides whether values are codes into a dictionary
+     *
+     * @return true if the vector is dictionary encoded, false if it keeps plain strings
+     * @since 1.0
+     */
+    public boolean isDictionaryEncoded() {
+        return values == null;
+    }
+
+    /**
+     * Get number of distinct strings in the vector
+     *
+     * @return size of the dictionary, -1 if the vector keeps plain strings
+     * @since 1.0
+     */
+    public int getDictionarySize() {
+        return values == null ? dictionary.size() : -1;
+    }
+
+    @Override
+    public ColumnVector emptyCopy(int capacity) {
+        return new StringVector(capacity);
+    }
+
+    @Override
+    public long estimateSize() {
+
+        if (values != null)
+            return super.estimateSize() + values.length * 8L + stringsSize;
+
+        return super.estimateSize() + codes.length * 4L + stringsSize;
+    }
+}
@@ -0,0 +1,640 @@
+package manager.federated;
+
+import language.mysql.utilities.MySqlLexer;
+import language.mysql.utilities.MySqlParser;
+import language.mysql.utilities.MySqlParserBaseListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * This class is a part of the condition of a select that is a subquery over another table, decorrelated.
+ * <p>
+ * instead of running the subquery once per row of the select, the subquery is rewritten without its reference to the select
+ * and executed once before the select:
+ * EXISTS and IN become a semi join with the values of the correlated column, NOT EXISTS and NOT IN an anti join,
+ * and a comparison with an aggregating subquery becomes a join with the subquery grouped by the correlated column.
+ * rows of the select are then filtered by the join like comparisons of columns of different storage systems.
+ * </p>
+ * <p>
+ * supported subqueries select from a single table with an alias, and refer to the select only through one equality
+ * between a column of their table and a column of the select in the form of "inner_alias.attribute = outer_alias.attribute".
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SubqueryCondition {
+
+    /**
+     * EXISTS and IN, rows having a match in the subquery qualify
+     */
+    public static final String SEMI_JOIN = "semi join";
+
+    /**
+     * NOT EXISTS and NOT IN, rows without a match in the subquery qualify
+     */
+    public static final String ANTI_JOIN = "anti join";
+
+    /**
+     * Comparison with the value of an aggregating subquery for the row
+     */
+    public static final String SCALAR = "scalar";
+
+    /**
+     * Label of the correlated column in the result of the subquery
+     */
+    private static final String KEY_LABEL = "SUBQUERY_KEY";
+
+    /**
+     * Label of the aggregate in the result of a scalar subquery
+     */
+    private static final String VALUE_LABEL = "SUBQUERY_VALUE";
+
+    private final String type;
+
+    /**
+     * Column of the select matched with the correlated column of the subquery, null for a scalar subquery without correlation
+     */
+    private final String outerColumn;
+
+    /**
+     * Whether rows of the select with a null outer column or a subquery returning null never qualify, as for NOT IN
+     */
+    private final boolean nullRejecting;
+
+    /**
+     * Column of the select compared with the value of a scalar subquery
+     */
+    private final String valueColumn;
+
+    /**
+     * Comparison operator of a scalar subquery, the column of the select is on its left
+     */
+    private final String operator;
+
+    /**
+     * Whether the aggregate of a scalar subquery is a COUNT, which is 0 for rows without a group
+     */
+    private final boolean count;
+
+    /**
+     * The subquery without its reference to the select
+     */
+    private final FederatedQuery subquery;
+
+    /**
+     * value of the correlated column as a string -> value of the correlated column for semi and anti joins,
+     * value of the aggregate for scalar subqueries. filled by add
+     */
+    private final HashMap<String, Object> values;
+
+    /**
+     * Whether the subquery returned a null value of the correlated column
+     */
+    private boolean containsNull;
+
+    private SubqueryCondition(String type, String outerColumn, boolean nullRejecting, String valueColumn, String operator, boolean count,
+                              FederatedQuery subquery) {
+
+        this.type = type;
+        this.outerColumn = outerColumn;
+        this.nullRejecting = nullRejecting;
+        this.valueColumn = valueColumn;
+        this.operator = operator;
+        this.count = count;
+        this.subquery = subquery;
+
+        this.values = new HashMap<>();
+    }
+
+    /**
+     * Creates a decorrelated subquery from a part of a condition in the form of "[NOT] EXISTS (select)",
+     * "alias.attribute [NOT] IN (select)" or "alias.attribute operator (select)"
+     *
+     * @param condition the part of the condition
+     * @param alias     alias of the table of the select in the condition
+     * @return the subquery, null if the condition is not a subquery or the subquery is not supported
+     * @since 1.0
+     */
+    public static SubqueryCondition of(MySqlParser.ExpressionContext condition, String alias) {
+
+        boolean negated = false;
+
+        if (condition instanceof MySqlParser.NotExpressionContext) {
+            negated = true;
+            condition = ((MySqlParser.NotExpressionContext) condition).expression();
+        }
+
+        if (!(condition instanceof MySqlParser.PredicateExpressionContext))
+            return null;
+
+        MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) condition).predicate();
+
+        //[NOT] EXISTS (select)
+        if (predicate instanceof MySqlParser.ExpressionAtomPredicateContext) {
+
+            MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) predicate).expressionAtom();
+
+            if (!(atom instanceof MySqlParser.ExistsExpessionAtomContext))
+                return null;
+
+            return ofExists(((MySqlParser.ExistsExpessionAtomContext) atom).selectStatement(), alias, negated);
+        }
+
+        if (negated)
+            return null;
+
+        //alias.attribute [NOT] IN (select)
+        if (predicate instanceof MySqlParser.InPredicateContext) {
+
+            MySqlParser.InPredicateContext in = (MySqlParser.InPredicateContext) predicate;
+
+            String outerColumn = MongoDBFilters.getColumn(in.predicate(), alias);
+
+            if (in.selectStatement() == null || outerColumn == null)
+                return null;
+
+            return ofIn(in.selectStatement(), alias, outerColumn, in.NOT() != null);
+        }
+
+        //alias.attribute operator (select) or (select) operator alias.attribute
+        if (predicate instanceof MySqlParser.BinaryComparasionPredicateContext) {
+
+            MySqlParser.BinaryComparasionPredicateContext comparison = (MySqlParser.BinaryComparasionPredicateContext) predicate;
+
+            String operator = comparison.comparisonOperator().getText();
+
+            if (flip(operator) == null)
+                return null;
+
+            String valueColumn = MongoDBFilters.getColumn(comparison.left, alias);
+            MySqlParser.SelectStatementContext select = getSubquery(comparison.right);
+
+            if (valueColumn == null) {
+
+                valueColumn = MongoDBFilters.getColumn(comparison.right, alias);
+                select = getSubquery(comparison.left);
+                operator = flip(operator);
+            }
+
+            if (valueColumn == null || select == null || operator == null)
+                return null;
+
+            return ofScalar(select, alias, valueColumn, operator);
+        }
+
+        return null;
+    }
+
+    /**
+     * Decorrelates "[NOT] EXISTS (select)", the select must refer to the outer select through one equality
+     */
+    private static SubqueryCondition ofExists(MySqlParser.SelectStatementContext select, String alias, boolean negated) {
+
+        MySqlParser.QuerySpecificationContext specification = getSpecification(select);
+
+        if (specification == null || !specification.selectSpec().isEmpty())
+            return null;
+
+        Decorrelation decorrelation = decorrelate(specification, alias);
+
+        if (decorrelation == null || decorrelation.outerColumn == null)
+            return null;
+
+        FederatedQuery subquery = plan(String.format("SELECT %s.%s AS %s FROM %s", decorrelation.innerAlias, decorrelation.innerColumn.toUpperCase(),
+                KEY_LABEL, decorrelation.from));
+
+        if (subquery == null)
+            return null;
+
+        return new SubqueryCondition(negated ? ANTI_JOIN : SEMI_JOIN, decorrelation.outerColumn, false, null, null, false, subquery);
+    }
+
+    /**
+     * Decorrelates "alias.attribute [NOT] IN (select)", the select must not refer to the outer select
+     */
+    private static SubqueryCondition ofIn(MySqlParser.SelectStatementContext select, String alias, String outerColumn, boolean negated) {
+
+        MySqlParser.QuerySpecificationContext specification = getSpecification(select);
+
+        if (specification == null || specification.selectElements().star != null || specification.selectElements().selectElement().size() != 1)
+            return null;
+
+        if (!(specification.selectElements().selectElement(0) instanceof MySqlParser.SelectColumnElementContext))
+            return null;
+
+        Decorrelation decorrelation = decorrelate(specification, alias);
+
+        if (decorrelation == null || decorrelation.outerColumn != null)
+            return null;
+
+        String innerColumn = FederatedPlanner.getColumn(
+                ((MySqlParser.SelectColumnElementContext) specification.selectElements().selectElement(0)).fullColumnName(), decorrelation.innerAlias);
+
+        if (innerColumn == null)
+            return null;
+
+        FederatedQuery subquery = plan(String.format("SELECT %s.%s AS %s FROM %s", decorrelation.innerAlias, innerColumn.toUpperCase(), KEY_LABEL,
+                decorrelation.from));
+
+        if (subquery == null)
+            return null;
+
+        //NOT IN is unknown for nulls, so rows are rejected instead of kept
+        return new SubqueryCondition(negated ? ANTI_JOIN : SEMI_JOIN, outerColumn, negated, null, null, false, subquery);
+    }
+
+    /**
+     * Decorrelates "alias.attribute operator (select)", the select must compute a single aggregate without group by
+     */
+    private static SubqueryCondition ofScalar(MySqlParser.SelectStatementContext select, String alias, String valueColumn, String operator) {
+
+        MySqlParser.QuerySpecificationContext specification = getSpecification(select);
+
+        if (specification == null || !specification.selectSpec().isEmpty() || specification.selectElements().star != null
+                || specification.selectElements().selectElement().size() != 1 || specification.fromClause() == null
+                || specification.fromClause().groupByItem().size() != 0)
+            return null;
+
+        if (!(specification.selectElements().selectElement(0) instanceof MySqlParser.SelectFunctionElementContext))
+            return null;
+
+        MySqlParser.FunctionCallContext functionCall = ((MySqlParser.SelectFunctionElementContext) specification.selectElements().selectElement(0)).functionCall();
+
+        Decorrelation decorrelation = decorrelate(specification, alias);
+
+        if (decorrelation == null)
+            return null;
+
+        Aggregate aggregate = Aggregate.of(functionCall, decorrelation.innerAlias, null);
+
+        if (aggregate == null)
+            return null;
+
+        //the subquery is grouped by the correlated column, so it returns the value for every row of the select at once
+        String sql;
+
+        if (decorrelation.outerColumn == null)
+            sql = String.format("SELECT %s AS %s FROM %s", getText(functionCall), VALUE_LABEL, decorrelation.from);
+        else
+            sql = String.format("SELECT %s.%s AS %s, %s AS %s FROM %s GROUP BY %s.%s", decorrelation.innerAlias, decorrelation.innerColumn.toUpperCase(),
+                    KEY_LABEL, getText(functionCall), VALUE_LABEL, decorrelation.from, decorrelation.innerAlias, decorrelation.innerColumn.toUpperCase());
+
+        FederatedQuery subquery = plan(sql);
+
+        if (subquery == null)
+            return null;
+
+        return new SubqueryCondition(SCALAR, decorrelation.outerColumn, false, valueColumn, operator, Aggregate.COUNT.equals(aggregate.getFunction()),
+                subquery);
+    }
+
+    /**
+     * A subquery split into its reference to the outer select and the rest of it
+     */
+    private static class Decorrelation {
+
+        /**
+         * Alias of the table of the subquery as written
+         */
+        private String innerAlias;
+
+        /**
+         * Column of the subquery equal to the column of the outer select, null if the subquery does not refer to the outer select
+         */
+        private String innerColumn;
+
+        /**
+         * Column of the outer select, null if the subquery does not refer to the outer select
+         */
+        private String outerColumn;
+
+        /**
+         * From clause of the subquery without its reference to the outer select, in the form of "table alias [WHERE condition]"
+         */
+        private String from;
+    }
+
+    /**
+     * Removes the reference to the outer select from the condition of a subquery
+     *
+     * @param specification the subquery
+     * @param alias         alias of the table of the outer select
+     * @return the subquery without the reference, null if it refers to the outer select in any other way
+     */
+    private static Decorrelation decorrelate(MySqlParser.QuerySpecificationContext specification, String alias) {
+
+        MySqlParser.FromClauseContext fromClause = specification.fromClause();
+
+        if (fromClause == null || fromClause.havingExpr != null || specification.orderByClause() != null || specification.limitClause() != null)
+            return null;
+
+        MySqlParser.AtomTableItemContext tableItem = FederatedPlanner.getSingleTable(fromClause);
+
+        if (tableItem == null || tableItem.alias == null || tableItem.alias.getText().equalsIgnoreCase(alias))
+            return null;
+
+        Decorrelation decorrelation = new Decorrelation();
+        decorrelation.innerAlias = tableItem.alias.getText();
+
+        LinkedList<String> conditions = new LinkedList<>();
+
+        if (fromClause.whereExpr != null) {
+
+            LinkedList<MySqlParser.ExpressionContext> conjuncts = new LinkedList<>();
+
+            FederatedPlanner.getConjuncts(fromClause.whereExpr, conjuncts);
+
+            for (MySqlParser.ExpressionContext conjunct : conjuncts) {
+
+                LinkedList<MySqlParser.FullColumnNameContext> outerColumns = new LinkedList<>();
+
+                if (!getOuterColumns(conjunct, alias, decorrelation.innerAlias, outerColumns))
+                    return null;
+
+                if (outerColumns.isEmpty()) {
+                    conditions.add("(" + getText(conjunct) + ")");
+                    continue;
+                }
+
+                //the only reference allowed is one equality with a column of the subquery
+                if (decorrelation.outerColumn != null || !(conjunct instanceof MySqlParser.PredicateExpressionContext))
+                    return null;
+
+                MySqlParser.PredicateContext predicate = ((MySqlParser.PredicateExpressionContext) conjunct).predicate();
+
+                if (!(predicate instanceof MySqlParser.BinaryComparasionPredicateContext))
+                    return null;
+
+                MySqlParser.BinaryComparasionPredicateContext comparison = (MySqlParser.BinaryComparasionPredicateContext) predicate;
+
+                if (!comparison.comparisonOperator().getText().equals("="))
+                    return null;
+
+                decorrelation.innerColumn = MongoDBFilters.getColumn(comparison.left, decorrelation.innerAlias);
+                decorrelation.outerColumn = MongoDBFilters.getColumn(comparison.right, alias);
+
+                if (decorrelation.innerColumn == null) {
+                    decorrelation.innerColumn = MongoDBFilters.getColumn(comparison.right, decorrelation.innerAlias);
+                    decorrelation.outerColumn = MongoDBFilters.getColumn(comparison.left, alias);
+                }
+
+                if (decorrelation.innerColumn == null || decorrelation.outerColumn == null)
+                    return null;
+            }
+        }
+
+        decorrelation.from = getText(tableItem) + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+
+        return decorrelation;
+    }
+
+    /**
+     * Collects references to the outer select in a part of the condition of a subquery
+     *
+     * @param outerColumns collects the references
+     * @return false if the part refers to columns other than those of the subquery and the outer select, or has a subquery itself
+     */
+    private static boolean getOuterColumns(MySqlParser.ExpressionContext condition, String alias, String innerAlias,
+                                           LinkedList<MySqlParser.FullColumnNameContext> outerColumns) {
+
+        boolean[] supported = {true};
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterFullColumnName(MySqlParser.FullColumnNameContext ctx) {
+
+                if (FederatedPlanner.getColumn(ctx, alias) != null)
+                    outerColumns.add(ctx);
+                else if (FederatedPlanner.getColumn(ctx, innerAlias) == null)
+                    supported[0] = false;
+            }
+
+            @Override
+            public void enterQuerySpecification(MySqlParser.QuerySpecificationContext ctx) {
+                supported[0] = false;
+            }
+        }, condition);
+
+        return supported[0];
+    }
+
+    /**
+     * Get the select of a subquery used as a value
+     *
+     * @return the select, null if the side of the comparison is not a subquery
+     */
+    private static MySqlParser.SelectStatementContext getSubquery(MySqlParser.PredicateContext side) {
+
+        if (!(side instanceof MySqlParser.ExpressionAtomPredicateContext))
+            return null;
+
+        MySqlParser.ExpressionAtomContext atom = ((MySqlParser.ExpressionAtomPredicateContext) side).expressionAtom();
+
+        return atom instanceof MySqlParser.SubqueryExpessionAtomContext ? ((MySqlParser.SubqueryExpessionAtomContext) atom).selectStatement() : null;
+    }
+
+    /**
+     * Get the query specification of a plain select
+     *
+     * @return the specification, null for unions and selects with locks
+     */
+    private static MySqlParser.QuerySpecificationContext getSpecification(MySqlParser.SelectStatementContext select) {
+
+        if (!(select instanceof MySqlParser.SimpleSelectContext) || ((MySqlParser.SimpleSelectContext) select).lockClause() != null)
+            return null;
+
+        MySqlParser.QuerySpecificationContext specification = ((MySqlParser.SimpleSelectContext) select).querySpecification();
+
+        return specification.selectIntoExpression() == null ? specification : null;
+    }
+
+    /**
+     * Get the operator of a comparison with its sides swapped
+     *
+     * @return the operator, null if it is not supported
+     */
+    private static String flip(String operator) {
+
+        switch (operator) {
+            case "=":
+            case "!=":
+            case "<>":
+                return operator;
+            case "<":
+                return ">";
+            case "<=":
+                return ">=";
+            case ">":
+                return "<";
+            case ">=":
+                return "<=";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Plans a decorrelated subquery
+     *
+     * @param sql the subquery, keywords and names in uppercase
+     * @return plan of the subquery, null if it can not be executed by Dolus
+     */
+    private static FederatedQuery plan(String sql) {
+        return FederatedPlanner.plan(new MySqlParser(new CommonTokenStream(new MySqlLexer(CharStreams.fromString(sql)))).root());
+    }
+
+    /**
+     * Get the text of a part of the query as written
+     */
+    private static String getText(ParserRuleContext context) {
+        return context.start.getInputStream().getText(Interval.of(context.start.getStartIndex(), context.stop.getStopIndex()));
+    }
+
+    /**
+     * Forgets rows of the subquery added by a previous execution
+     *
+     * @since 1.0
+     */
+    public void clear() {
+        values.clear();
+        containsNull = false;
+    }
+
+    /**
+     * Adds rows of the subquery
+     *
+     * @param batch rows of the subquery
+     * @return true, the whole subquery is always read
+     * @since 1.0
+     */
+    public boolean add(ColumnBatch batch) {
+
+        //labels of the result are lowercase
+        ColumnVector keys = batch.getColumn(KEY_LABEL.toLowerCase());
+        ColumnVector aggregates = batch.getColumn(VALUE_LABEL.toLowerCase());
+
+        for (int i = 0; i < batch.getRowCount(); i++) {
+
+            if (keys != null && keys.isNull(i)) {
+                containsNull = true;
+                continue;
+            }
+
+            String key = keys == null ? null : StorageScan.toValueString(keys.getObject(i));
+
+            if (type.equals(SCALAR))
+                values.put(key, aggregates.isNull(i) ? null : aggregates.getObject(i));
+            else
+                values.putIfAbsent(key, keys.getObject(i));
+        }
+
+        return true;
+    }
+
+    /**
+     * Evaluates the condition on a row of the select once the whole subquery is added
+     *
+     * @param outer      values of the column of the select matched with the subquery, null if the record is missing
+     * @param outerIndex index of the value of the row in outer
+     * @param value      values of the column of the select compared with a scalar subquery, null if the record is missing
+     * @param valueIndex index of the value of the row in value
+     * @return true if the row satisfies the condition
+     * @since 1.0
+     */
+    public boolean test(ColumnVector outer, int outerIndex, ColumnVector value, int valueIndex) {
+
+        boolean outerNull = outer == null || outer.isNull(outerIndex);
+
+        switch (type) {
+            case SEMI_JOIN:
+                return !outerNull && values.containsKey(StorageScan.toValueString(outer.getObject(outerIndex)));
+
+            case ANTI_JOIN:
+                //NOT IN over an empty subquery is true even for nulls
+                if (nullRejecting && values.isEmpty() && !containsNull)
+                    return true;
+
+                if (outerNull)
+                    return !nullRejecting;
+
+                return !(nullRejecting && containsNull) && !values.containsKey(StorageScan.toValueString(outer.getObject(outerIndex)));
+
+            default:
+                if (value == null || value.isNull(valueIndex))
+                    return false;
+
+                Object aggregate;
+
+                if (outerColumn == null)
+                    aggregate = values.get(null);
+                else if (outerNull || !values.containsKey(StorageScan.toValueString(outer.getObject(outerIndex))))
+                    aggregate = count ? Long.valueOf(0) : null;
+                else
+                    aggregate = values.get(StorageScan.toValueString(outer.getObject(outerIndex)));
+
+                if (aggregate == null)
+                    return false;
+
+                int order = ColumnComparison.compare(value.getObject(valueIndex), aggregate);
+
+                switch (operator) {
+                    case "=":
+                        return order == 0;
+                    case "!=":
+                    case "<>":
+                        return order != 0;
+                    case "<":
+                        return order < 0;
+                    case "<=":
+                        return order <= 0;
+                    case ">":
+                        return order > 0;
+                    default:
+                        return order >= 0;
+                }
+        }
+    }
+
+    /**
+     * Get values of the correlated column returned by a semi join, they are the only values the column of the select can have
+     *
+     * @return values of the correlated column, null if this is not a semi join
+     * @since 1.0
+     */
+    public LinkedList<Object> getMatchingValues() {
+        return type.equals(SEMI_JOIN) ? new LinkedList<>(values.values()) : null;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getOuterColumn() {
+        return outerColumn;
+    }
+
+    public String getValueColumn() {
+        return valueColumn;
+    }
+
+    public FederatedQuery getSubquery() {
+        return subquery;
+    }
+
+    @Override
+    public String toString() {
+
+        if (type.equals(SCALAR))
+            return String.format("%s %s (%s) per %s", valueColumn, operator, subquery, outerColumn);
+
+        return String.format("%s on %s with (%s)", type, outerColumn, subquery);
+    }
+}
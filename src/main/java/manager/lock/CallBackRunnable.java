@@ -34,32 +34,39 @@ public class CallBackRunnable implements Runnable {
     @Override
     public void run() {
 
-        boolean isFirstQueueEmpty = false;
-        boolean isSecondQueueEmpty = false;
+        while (true) {
 
-        while (!(exit && isFirstQueueEmpty && isSecondQueueEmpty)) {
+            //read the flag before draining the queues
+            //lock manager adds every granted request before calling exit, so they are all drained below
+            boolean exiting = exit;
+
+            boolean isFirstQueueEmpty = false;
+            boolean isSecondQueueEmpty = false;
 
             //try to lock the first queue
             if (firstQueueLock.tryLock()) {
 
-                isFirstQueueEmpty = firstQueue.isEmpty();
-
                 //inform all transactions in the first queue of their granted locks
                 informTransaction(firstQueue);
 
+                isFirstQueueEmpty = firstQueue.isEmpty();
+
                 //unlock the first queue
                 firstQueueLock.unlock();
             }
             if (secondQueueLock.tryLock()) {
 
-                isSecondQueueEmpty = secondQueue.isEmpty();
-
-                //inform all transactions in the first queue of their granted locks
+                //inform all transactions in the second queue of their granted locks
                 informTransaction(secondQueue);
 
+                isSecondQueueEmpty = secondQueue.isEmpty();
+
                 //unlock the second queue
                 secondQueueLock.unlock();
             }
+
+            if (exiting && isFirstQueueEmpty && isSecondQueueEmpty)
+                return;
         }
     }
 
@@ -1,5 +1,7 @@
 package manager.lock;
 
+import common.Log;
+import manager.transaction.Transaction;
 import org.jgrapht.alg.cycle.CycleDetector;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.SimpleDirectedGraph;
@@ -8,6 +10,8 @@ import java.util.Set;
 
 /**
  * This class is responsible for periodically traversing the waiting graph and detecting cycles in it.
+ * of the waiting transactions involved in cycles, the youngest one (see Transaction.compareIds) is chosen as the victim and told to die,
+ * its queries abort and release its locks.
  *
  * @author m.amin rayej
  * @version 1.0
@@ -15,6 +19,11 @@ import java.util.Set;
  */
 public class DeadLockDetectorRunnable implements Runnable {
 
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "DeadLockDetector";
+
     /**
      * Directed graph that represents the relationships between transactions and resources(lock tree elements)
      * basically is used for cycle detection -> dead lock
@@ -33,21 +42,34 @@ public class DeadLockDetectorRunnable implements Runnable {
     @Override
     public void run() {
 
-        System.out.println("Dead lock detection is running");
-
         CycleDetector<GraphNode, DefaultEdge> cycleDetector = new CycleDetector<>(waitingGraph);
 
         while (true) {
 
+            Transaction victim = null;
+
             synchronized (waitingGraph) {
                 Set<GraphNode> involveNodes = cycleDetector.findCycles();
 
-                if (involveNodes.size() != 0) {
-                    //TODO inform transaction manager of this cycle
-                    System.out.println("Dead lock detected");
+                for (GraphNode node : involveNodes) {
+
+                    //only a transaction waiting for a resource can break the cycle by giving up
+                    if (node.getNodeType() != GraphNode.TRANSACTION_NODE || waitingGraph.outDegreeOf(node) == 0)
+                        continue;
+
+                    Transaction transaction = (Transaction) node.getElement();
+
+                    if (victim == null || Transaction.compareIds(transaction.getTransactionId(), victim.getTransactionId()) > 0)
+                        victim = transaction;
                 }
             }
 
+            //informed outside of the graph monitor, the victim releases its locks through the lock manager
+            if (victim != null) {
+                Log.log("Dead lock detected, victim: " + victim.getTransactionId(), componentName, Log.WARNING);
+                victim.die();
+            }
+
             try {
                 Thread.sleep(period);
             } catch (InterruptedException e) {
@@ -24,6 +24,32 @@ public class LockConstants {
         public static final int INTENT_SHARED = 5;
         public static final int NO_LOCK = 6;
 
+        /**
+         * Get the name of a lock type
+         *
+         * @param lockType lock type
+         * @return name of the lock type
+         * @since 1.0
+         */
+        public static String getName(int lockType) {
+
+            switch (lockType) {
+                case EXCLUSIVE:
+                    return "EXCLUSIVE";
+                case UPDATE:
+                    return "UPDATE";
+                case INTENT_EXCLUSIVE:
+                    return "INTENT_EXCLUSIVE";
+                case SHARED:
+                    return "SHARED";
+                case INTENT_SHARED:
+                    return "INTENT_SHARED";
+                case NO_LOCK:
+                    return "NO_LOCK";
+                default:
+                    return "UNKNOWN";
+            }
+        }
     }
 
     /**
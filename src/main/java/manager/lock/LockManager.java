@@ -11,8 +11,10 @@ import org.jgrapht.graph.SimpleDirectedGraph;
 
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -23,7 +25,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @version 1.0
  * @since 1.0
  */
-public class LockManager {
+public class LockManager implements LockService {
 
     /**
      * Component name to use in logging system
@@ -53,6 +55,12 @@ public class LockManager {
      */
     private final HashMap<String,GraphNode> graphNodeMap;
 
+    /**
+     * Keeps a shadow copy of the lock table by replaying the changes this lock manager records.
+     * it lets the lock table be inspected without holding the monitor of the lock manager
+     */
+    private final LockTableSnapshotter lockTableSnapshotter;
+
     /**
      * Default constructor
      *
@@ -72,6 +80,13 @@ public class LockManager {
 
         //start dead lock detector thread
         new Thread( deadLockDetectorRunnable ).start();
+
+        lockTableSnapshotter = new LockTableSnapshotter(100);
+
+        //start the thread that replays lock table changes into the shadow copy
+        Thread snapshotterThread = new Thread(lockTableSnapshotter, "lock-table-snapshotter");
+        snapshotterThread.setDaemon(true);
+        snapshotterThread.start();
     }
 
 //    public static void main(String[] args) throws InterruptedException {
@@ -117,6 +132,7 @@ public class LockManager {
      * @return true if lock request is granted, false otherwise
      * @since 1.0
      */
+    @Override
     public synchronized boolean lock(Transaction transaction, Lock lock) {
 
         //manage requested lock tree for this transaction
@@ -254,6 +270,8 @@ public class LockManager {
             //add transaction to waiting queue of this element
             databaseElement.acquireLock(transaction, originalLock, appliedLock);
 
+            lockTableSnapshotter.recordAcquire(databaseElement.getName(), transaction.getTransactionId(), originalLock.getType(), true);
+
             //get transaction Id
             String transactionId = transaction.getTransactionId();
 
@@ -269,6 +287,8 @@ public class LockManager {
 
         boolean granted = databaseElement.acquireLock(transaction, originalLock, appliedLock);
 
+        lockTableSnapshotter.recordAcquire(databaseElement.getName(), transaction.getTransactionId(), originalLock.getType(), granted);
+
         //add a conditional relationship (edge) between transaction and resource node in waiting graph
         //if granted is true the relationship is  : ( resource ) ---> ( transaction )
         //if granted is false the relationship is : ( transaction ) ---> ( resource )
@@ -325,6 +345,8 @@ public class LockManager {
             //add transaction to the queue
             tableElement.acquireLock(transaction, originalLock, appliedLock);
 
+            lockTableSnapshotter.recordAcquire(tableElement.getName(), transaction.getTransactionId(), originalLock.getType(), true);
+
             //get transaction id
             String transactionId = transaction.getTransactionId();
 
@@ -341,6 +363,8 @@ public class LockManager {
         //try to acquire the lock on this table element
         boolean granted = tableElement.acquireLock(transaction, originalLock, appliedLock);
 
+        lockTableSnapshotter.recordAcquire(tableElement.getName(), transaction.getTransactionId(), originalLock.getType(), granted);
+
         //add a conditional relationship (edge) between transaction and resource node in waiting graph
         //if granted is true the relationship is  : ( resource ) ---> ( transaction )
         //if granted is false the relationship is : ( transaction ) ---> ( resource )
@@ -389,6 +413,8 @@ public class LockManager {
             //add transaction to queue
             recordElement.acquireLock(transaction, lock, lock);
 
+            lockTableSnapshotter.recordAcquire(recordElement.getName(), transaction.getTransactionId(), lock.getType(), true);
+
             //get transaction id
             String transactionId = transaction.getTransactionId();
 
@@ -403,6 +429,8 @@ public class LockManager {
 
         boolean granted = recordElement.acquireLock(transaction, lock, lock);
 
+        lockTableSnapshotter.recordAcquire(recordElement.getName(), transaction.getTransactionId(), lock.getType(), granted);
+
         addConditionalResourceRelationshipToWaitingGraph(recordElement, transactionNode, granted);
 
         String transactionId = transaction.getTransactionId();
@@ -418,8 +446,13 @@ public class LockManager {
      * @param transaction transaction object that wants to release its locks
      * @since 1.0
      */
+    @Override
     public synchronized void unlock(Transaction transaction) {
 
+        //transaction has not requested any lock from this lock manager -> nothing to release
+        if (!requestedLockTreeMap.containsKey(transaction.getTransactionId()))
+            return;
+
         //create shared queues
         Queue<LockRequest> firstQueue = new LinkedList<>();
         Queue<LockRequest> secondQueue = new LinkedList<>();
@@ -485,6 +518,8 @@ public class LockManager {
                     //release the lock held by the transaction and get list of new granted transactions
                     LinkedList<LockRequest> grantedRequests = lockTreeElement.releaseLock(transactionId);
 
+                    lockTableSnapshotter.recordRelease(lockTreeElement.getName(), transactionId, grantedRequests);
+
                     //if granted requests is null -> it means there can not be any granted requests
                     //because both granted and waiting list of the element is empty
                     //remove the element from lock tree
@@ -513,6 +548,8 @@ public class LockManager {
                 //we can release the lock on table itself
                 LinkedList<LockRequest> grantedRequests = requestedTableElement.getLockTreeElement().releaseLock(transactionId);
 
+                lockTableSnapshotter.recordRelease(requestedTableElement.getLockTreeElement().getName(), transactionId, grantedRequests);
+
                 //if granted requests is null -> it means there can not be any granted requests
                 //because both granted and waiting list of the element is empty
                 //remove the element from lock tree
@@ -541,6 +578,8 @@ public class LockManager {
             //we can release the lock on database itself
             LinkedList<LockRequest> grantedRequests = requestedDatabaseElement.getLockTreeElement().releaseLock(transactionId);
 
+            lockTableSnapshotter.recordRelease(requestedDatabaseElement.getLockTreeElement().getName(), transactionId, grantedRequests);
+
             //if granted requests is null -> it means there can not be any granted requests
             //because both granted and waiting list of the element is empty
             //remove the element from lock tree
@@ -588,6 +627,7 @@ public class LockManager {
      * @param lock        original lock
      * @param lockType    lock type the transaction wants its request to be degraded to
      */
+    @Override
     public synchronized void degradeLock(Transaction transaction, Lock lock, int lockType) {
 
         //get database name
@@ -611,6 +651,8 @@ public class LockManager {
 
             //degrade its lock type
             grantedLockRequests = databaseElement.degradeLock(transaction, lockType);
+
+            lockTableSnapshotter.recordDegrade(databaseElement.getName(), transaction.getTransactionId(), lockType, grantedLockRequests);
         } else { //degrade table element
 
             //get table element specified by table name
@@ -618,6 +660,8 @@ public class LockManager {
 
             //degrade its lock
             grantedLockRequests = tableElement.degradeLock(transaction, lockType);
+
+            lockTableSnapshotter.recordDegrade(tableElement.getName(), transaction.getTransactionId(), lockType, grantedLockRequests);
         }
 
         //update waiting graph relationships (edges)
@@ -689,6 +733,15 @@ public class LockManager {
 
             //unlock the second queue
             secondQueueLock.unlock();
+        } else {
+
+            //call back thread moved from the first queue to the second one between the two tries
+            //wait for the first queue instead of dropping the granted transactions
+            firstQueueLock.lock();
+
+            firstQueue.addAll(grantedRequests);
+
+            firstQueueLock.unlock();
         }
     }
 
@@ -770,10 +823,35 @@ public class LockManager {
         //else add edge ( transaction ) ---> ( resource )
         if (condition)
             addEdgeToWaitingGraph(resourceNode, transactionNode);
+        else if (lockElement.isHeldBy(((Transaction) transactionNode.getElement()).getTransactionId()))
+            addUpgradeRelationshipsToWaitingGraph(lockElement, transactionNode);
         else
             addEdgeToWaitingGraph(transactionNode, resourceNode);
     }
 
+    /**
+     * This method is used when a transaction waits to upgrade a lock it already holds.
+     * ( resource ) ---> ( transaction ) already exists, so ( transaction ) ---> ( resource ) would be a cycle
+     * without a dead lock. the transaction waits for the other holders of the resource instead:
+     * ( transaction ) ---> ( holder )
+     *
+     * @param lockElement lock element the transaction holds a lock on
+     * @param transactionNode graph node that represents the upgrading transaction in waiting graph
+     * @since 1.0
+     */
+    private void addUpgradeRelationshipsToWaitingGraph(LockTreeElement lockElement, GraphNode transactionNode) {
+
+        String transactionId = ((Transaction) transactionNode.getElement()).getTransactionId();
+
+        for (Transaction holder : lockElement.getOtherHolders(transactionId)) {
+
+            GraphNode holderNode = graphNodeMap.get(holder.getTransactionId());
+
+            if (holderNode != null)
+                addEdgeToWaitingGraph(transactionNode, holderNode);
+        }
+    }
+
     /**
      * Removes a transaction node from waiting graph
      *
@@ -837,7 +915,10 @@ public class LockManager {
                 GraphNode transactionNode = graphNodeMap.get(grantedRequest.getTransaction().getTransactionId());
 
                 //remove ( transaction ) --> ( resource )
-                waitingGraph.removeEdge(transactionNode, resourceNode);
+                //an upgrade has no such edge, it waited for the other holders of the resource instead
+                if (waitingGraph.removeEdge(transactionNode, resourceNode) == null)
+                    for (DefaultEdge holderEdge : waitingGraph.outgoingEdgesOf(resourceNode))
+                        waitingGraph.removeEdge(transactionNode, waitingGraph.getEdgeTarget(holderEdge));
 
                 //add ( transaction ) <-- ( resource )
                 waitingGraph.addEdge(resourceNode, transactionNode);
@@ -845,6 +926,90 @@ public class LockManager {
         }
     }
 
+    /**
+     * Get the snapshotter of the lock table.
+     * snapshots are taken from a shadow copy, so taking them does not block lock(), unlock() and degradeLock()
+     *
+     * @return lock table snapshotter of this lock manager
+     * @since 1.0
+     */
+    public LockTableSnapshotter getLockTableSnapshotter() {
+        return lockTableSnapshotter;
+    }
+
+    /**
+     * Get ids of all transactions that are waiting for at least one resource in the lock tree
+     *
+     * @return set of waiting transaction ids
+     * @since 1.0
+     */
+    public synchronized Set<String> getWaitingTransactionIds() {
+
+        Set<String> waitingTransactionIds = new HashSet<>();
+
+        //synchronize with deadlock detector thread
+        synchronized (waitingGraph) {
+
+            //a transaction is waiting if there is an edge like ( transaction ) ---> ( resource )
+            for (GraphNode node : waitingGraph.vertexSet()) {
+
+                if (node.getNodeType() == GraphNode.TRANSACTION_NODE && waitingGraph.outDegreeOf(node) != 0)
+                    waitingTransactionIds.add(((Transaction) node.getElement()).getTransactionId());
+            }
+        }
+
+        return waitingTransactionIds;
+    }
+
+    /**
+     * Get ids of all transactions that hold a resource the specified transaction is waiting for.
+     * in waiting graph these are the transactions reachable like: ( transaction ) ---> ( resource ) ---> ( holder ),
+     * or like ( transaction ) ---> ( holder ) for an upgrade of a held lock
+     *
+     * @param transactionId id of the waiting transaction
+     * @return set of transaction ids blocking the specified transaction, empty if it is not waiting
+     * @since 1.0
+     */
+    public synchronized Set<String> getBlockingTransactionIds(String transactionId) {
+
+        Set<String> blockingTransactionIds = new HashSet<>();
+
+        //get graph node related to the transaction in waiting graph
+        GraphNode transactionNode = graphNodeMap.get(transactionId);
+
+        //this lock manager does not know the transaction
+        if (transactionNode == null)
+            return blockingTransactionIds;
+
+        //synchronize with deadlock detector thread
+        synchronized (waitingGraph) {
+
+            if (!waitingGraph.containsVertex(transactionNode))
+                return blockingTransactionIds;
+
+            //for each resource the transaction is waiting for, collect transactions that hold that resource
+            for (DefaultEdge waitingEdge : waitingGraph.outgoingEdgesOf(transactionNode)) {
+
+                GraphNode resourceNode = waitingGraph.getEdgeTarget(waitingEdge);
+
+                //a waiting upgrade points at the other holders directly ( transaction ) ---> ( holder )
+                if (resourceNode.getNodeType() == GraphNode.TRANSACTION_NODE) {
+                    blockingTransactionIds.add(((Transaction) resourceNode.getElement()).getTransactionId());
+                    continue;
+                }
+
+                for (DefaultEdge holdingEdge : waitingGraph.outgoingEdgesOf(resourceNode)) {
+
+                    GraphNode holderNode = waitingGraph.getEdgeTarget(holdingEdge);
+
+                    blockingTransactionIds.add(((Transaction) holderNode.getElement()).getTransactionId());
+                }
+            }
+        }
+
+        return blockingTransactionIds;
+    }
+
     /**
      * Generates the resource name that the lock is requested upon
      *
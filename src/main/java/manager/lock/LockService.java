@@ -0,0 +1,43 @@
+package manager.lock;
+
+import manager.transaction.Transaction;
+
+/**
+ * This interface is implemented by every component that can serve lock requests of transactions.
+ * a lock service either manages the lock tree itself (LockManager) or routes the requests to the
+ * component that owns the requested part of the lock tree.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public interface LockService {
+
+    /**
+     * Interface for transactions to acquire locks
+     *
+     * @param transaction transaction that requested the lock
+     * @param lock        lock that transaction wants to acquire
+     * @return true if lock request is granted immediately, false otherwise
+     * @since 1.0
+     */
+    boolean lock(Transaction transaction, Lock lock);
+
+    /**
+     * An interface for transactions to release all of their locks
+     *
+     * @param transaction transaction object that wants to release its locks
+     * @since 1.0
+     */
+    void unlock(Transaction transaction);
+
+    /**
+     * Degrades a lock type into a less strict one
+     *
+     * @param transaction transaction that requested the degrading
+     * @param lock        original lock
+     * @param lockType    lock type the transaction wants its request to be degraded to
+     * @since 1.0
+     */
+    void degradeLock(Transaction transaction, Lock lock, int lockType);
+}
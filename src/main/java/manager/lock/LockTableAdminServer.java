@@ -0,0 +1,83 @@
+package manager.lock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import common.Log;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is a tiny admin endpoint that streams lock table snapshots as JSON lines.
+ * GET /locks returns a snapshot of the lock table of the lock manager.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockTableAdminServer {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "LockTableAdminServer";
+
+    private final LockTableSnapshotter snapshotter;
+
+    private final InetSocketAddress address;
+
+    private HttpServer server;
+
+    public LockTableAdminServer(LockTableSnapshotter snapshotter, InetSocketAddress address) {
+        this.snapshotter = snapshotter;
+        this.address = address;
+    }
+
+    /**
+     * Starts serving snapshots
+     *
+     * @throws IOException if the address can not be bound
+     * @since 1.0
+     */
+    public void start() throws IOException {
+
+        server = HttpServer.create(address, 0);
+
+        server.createContext("/locks", this::handleSnapshotRequest);
+
+        server.start();
+
+        Log.log("Lock table admin endpoint is listening on " + address, componentName, Log.INFORMATION);
+    }
+
+    private void handleSnapshotRequest(HttpExchange exchange) throws IOException {
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+
+        //response length is unknown -> stream the lines
+        exchange.sendResponseHeaders(200, 0);
+
+        try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            snapshotter.dump(writer);
+        }
+    }
+
+    /**
+     * Stops serving snapshots
+     *
+     * @since 1.0
+     */
+    public void stop() {
+        if (server != null)
+            server.stop(0);
+    }
+}
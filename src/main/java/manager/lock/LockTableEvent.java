@@ -0,0 +1,69 @@
+package manager.lock;
+
+/**
+ * This class represents a change in the lock table.
+ * lock manager records an event for every change it makes, in the same order it makes them,
+ * so replaying the events gives the exact state of the lock table at any version.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockTableEvent {
+
+    /**
+     * Different types of events
+     * 1- granted  : transaction holds the element now (it may have been waiting before)
+     * 2- waiting  : transaction is added to the waiting queue of the element
+     * 3- released : transaction is removed from granted list and waiting queue of the element
+     * 4- degraded : lock type held by the transaction on the element is degraded
+     */
+    public static final int GRANTED = 1;
+    public static final int WAITING = 2;
+    public static final int RELEASED = 3;
+    public static final int DEGRADED = 4;
+
+    /**
+     * Version of the lock table after this event
+     */
+    private final long version;
+
+    private final int type;
+
+    /**
+     * Unique name of the element in lock tree
+     */
+    private final String element;
+
+    private final String transactionId;
+
+    private final int lockType;
+
+    public LockTableEvent(long version, int type, String element, String transactionId, int lockType) {
+        this.version = version;
+        this.type = type;
+        this.element = element;
+        this.transactionId = transactionId;
+        this.lockType = lockType;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public String getElement() {
+        return element;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public int getLockType() {
+        return lockType;
+    }
+}
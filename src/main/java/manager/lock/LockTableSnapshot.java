@@ -0,0 +1,142 @@
+package manager.lock;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import manager.lock.LockConstants.LockTypes;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is an immutable snapshot of the lock table at a version.
+ * it contains granted lists and waiting queues of all elements, and the waits-for edges derived from them.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockTableSnapshot {
+
+    /**
+     * Version of the lock table this snapshot represents
+     */
+    private final long version;
+
+    /**
+     * Time of taking the snapshot in milliseconds
+     */
+    private final long takenAt;
+
+    /**
+     * element name -> (transaction id -> applied lock type) of the granted requests
+     */
+    private final LinkedHashMap<String, LinkedHashMap<String, Integer>> grantedLists;
+
+    /**
+     * element name -> (transaction id -> applied lock type) of the waiting requests
+     */
+    private final LinkedHashMap<String, LinkedHashMap<String, Integer>> waitingQueues;
+
+    public LockTableSnapshot(long version, long takenAt,
+                             LinkedHashMap<String, LinkedHashMap<String, Integer>> grantedLists,
+                             LinkedHashMap<String, LinkedHashMap<String, Integer>> waitingQueues) {
+
+        this.version = version;
+        this.takenAt = takenAt;
+        this.grantedLists = grantedLists;
+        this.waitingQueues = waitingQueues;
+    }
+
+    /**
+     * Writes the snapshot as JSON lines.
+     * first line describes the snapshot, then there is one line per element and one line per waits-for edge
+     * ( waiting transaction ) ---> ( holding transaction )
+     *
+     * @param writer writer to write the lines to
+     * @throws IOException if writing fails
+     * @since 1.0
+     */
+    public void writeJsonLines(Writer writer) throws IOException {
+
+        Gson gson = new Gson();
+
+        JsonObject header = new JsonObject();
+        header.addProperty("kind", "snapshot");
+        header.addProperty("version", version);
+        header.addProperty("taken_at", takenAt);
+        header.addProperty("elements", grantedLists.size());
+        writeLine(writer, gson, header);
+
+        for (String elementName : grantedLists.keySet()) {
+
+            JsonObject element = new JsonObject();
+            element.addProperty("kind", "element");
+            element.addProperty("version", version);
+            element.addProperty("name", elementName);
+            element.add("granted", toJsonArray(grantedLists.get(elementName)));
+            element.add("waiting", toJsonArray(waitingQueues.get(elementName)));
+            writeLine(writer, gson, element);
+        }
+
+        for (String elementName : waitingQueues.keySet()) {
+
+            for (String waitingTransactionId : waitingQueues.get(elementName).keySet()) {
+
+                for (String holdingTransactionId : grantedLists.get(elementName).keySet()) {
+
+                    if (holdingTransactionId.equals(waitingTransactionId))
+                        continue;
+
+                    JsonObject edge = new JsonObject();
+                    edge.addProperty("kind", "waits_for");
+                    edge.addProperty("version", version);
+                    edge.addProperty("waiting", waitingTransactionId);
+                    edge.addProperty("holding", holdingTransactionId);
+                    edge.addProperty("element", elementName);
+                    writeLine(writer, gson, edge);
+                }
+            }
+        }
+
+        writer.flush();
+    }
+
+    private JsonArray toJsonArray(LinkedHashMap<String, Integer> requests) {
+
+        JsonArray array = new JsonArray();
+
+        for (Map.Entry<String, Integer> request : requests.entrySet()) {
+
+            JsonObject requestObject = new JsonObject();
+            requestObject.addProperty("transaction", request.getKey());
+            requestObject.addProperty("type", LockTypes.getName(request.getValue()));
+            array.add(requestObject);
+        }
+
+        return array;
+    }
+
+    private void writeLine(Writer writer, Gson gson, JsonObject line) throws IOException {
+        writer.write(gson.toJson(line));
+        writer.write("\n");
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    public LinkedHashMap<String, LinkedHashMap<String, Integer>> getGrantedLists() {
+        return grantedLists;
+    }
+
+    public LinkedHashMap<String, LinkedHashMap<String, Integer>> getWaitingQueues() {
+        return waitingQueues;
+    }
+}
@@ -0,0 +1,275 @@
+package manager.lock;
+
+import common.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class keeps a shadow copy of the lock table and takes snapshots of it.
+ * <p>
+ * lock manager only appends an event to a lock free journal while it holds its monitor.
+ * a background thread replays the journal into the shadow copy, and snapshots are copied from the shadow copy.
+ * so neither replaying nor snapshotting ever takes the monitor of the lock manager.
+ * a snapshot taken at version v contains exactly the changes recorded up to v, so it is always consistent.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockTableSnapshotter implements Runnable {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "LockTableSnapshotter";
+
+    /**
+     * Recorded events that are not replayed into the shadow copy yet
+     */
+    private final ConcurrentLinkedQueue<LockTableEvent> journal;
+
+    /**
+     * Version of the last recorded event.
+     * only written by the lock manager while it holds its monitor
+     */
+    private long recordedVersion;
+
+    /**
+     * Shadow copy of the lock table: element name -> element state
+     */
+    private final LinkedHashMap<String, ShadowElement> shadowTable;
+
+    /**
+     * Version of the last event replayed into the shadow copy
+     */
+    private long appliedVersion;
+
+    /**
+     * Period of replaying the journal in milliseconds
+     */
+    private final int period;
+
+    private volatile boolean exit = false;
+
+    public LockTableSnapshotter(int period) {
+
+        this.period = period;
+
+        this.journal = new ConcurrentLinkedQueue<>();
+        this.shadowTable = new LinkedHashMap<>();
+    }
+
+    /**
+     * Records the result of a lock request on an element
+     *
+     * @param element       unique name of the element
+     * @param transactionId id of the requesting transaction
+     * @param lockType      type of the lock applied to the element
+     * @param granted       whether the request is granted or queued
+     * @since 1.0
+     */
+    void recordAcquire(String element, String transactionId, int lockType, boolean granted) {
+
+        record(granted ? LockTableEvent.GRANTED : LockTableEvent.WAITING, element, transactionId, lockType);
+    }
+
+    /**
+     * Records releasing the lock of a transaction on an element and the requests granted because of it
+     *
+     * @param element         unique name of the element
+     * @param transactionId   id of the releasing transaction
+     * @param grantedRequests requests granted because of the release, may be null
+     * @since 1.0
+     */
+    void recordRelease(String element, String transactionId, LinkedList<LockRequest> grantedRequests) {
+
+        record(LockTableEvent.RELEASED, element, transactionId, LockConstants.LockTypes.NO_LOCK);
+
+        recordGrantedRequests(element, grantedRequests);
+    }
+
+    /**
+     * Records degrading the lock of a transaction on an element and the requests granted because of it
+     *
+     * @param element         unique name of the element
+     * @param transactionId   id of the degrading transaction
+     * @param lockType        degraded lock type
+     * @param grantedRequests requests granted because of degrading, may be null
+     * @since 1.0
+     */
+    void recordDegrade(String element, String transactionId, int lockType, LinkedList<LockRequest> grantedRequests) {
+
+        record(LockTableEvent.DEGRADED, element, transactionId, lockType);
+
+        recordGrantedRequests(element, grantedRequests);
+    }
+
+    private void recordGrantedRequests(String element, LinkedList<LockRequest> grantedRequests) {
+
+        if (grantedRequests == null)
+            return;
+
+        for (LockRequest grantedRequest : grantedRequests)
+            record(LockTableEvent.GRANTED, element, grantedRequest.getTransaction().getTransactionId(), grantedRequest.getAppliedLock().getType());
+    }
+
+    private void record(int type, String element, String transactionId, int lockType) {
+
+        recordedVersion++;
+
+        journal.add(new LockTableEvent(recordedVersion, type, element, transactionId, lockType));
+    }
+
+    @Override
+    public void run() {
+
+        while (!exit) {
+
+            //keep the journal short so taking a snapshot only replays a few events
+            synchronized (shadowTable) {
+                applyJournal();
+            }
+
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Replays all recorded events into the shadow copy.
+     * caller must hold the monitor of the shadow table
+     */
+    private void applyJournal() {
+
+        LockTableEvent event;
+
+        while ((event = journal.poll()) != null) {
+
+            ShadowElement element = shadowTable.get(event.getElement());
+
+            if (element == null) {
+
+                //released elements are already removed
+                if (event.getType() == LockTableEvent.RELEASED)
+                    continue;
+
+                element = new ShadowElement();
+                shadowTable.put(event.getElement(), element);
+            }
+
+            if (event.getType() == LockTableEvent.GRANTED) {
+
+                element.waitingQueue.remove(event.getTransactionId());
+                element.grantedList.put(event.getTransactionId(), event.getLockType());
+
+            } else if (event.getType() == LockTableEvent.WAITING) {
+
+                element.waitingQueue.put(event.getTransactionId(), event.getLockType());
+
+            } else if (event.getType() == LockTableEvent.RELEASED) {
+
+                element.grantedList.remove(event.getTransactionId());
+                element.waitingQueue.remove(event.getTransactionId());
+
+                //same as the lock tree, an element with no granted and waiting requests is removed
+                if (element.grantedList.isEmpty() && element.waitingQueue.isEmpty())
+                    shadowTable.remove(event.getElement());
+
+            } else if (event.getType() == LockTableEvent.DEGRADED) {
+
+                if (element.grantedList.containsKey(event.getTransactionId()))
+                    element.grantedList.put(event.getTransactionId(), event.getLockType());
+            }
+
+            appliedVersion = event.getVersion();
+        }
+    }
+
+    /**
+     * Takes a consistent snapshot of the lock table
+     *
+     * @return snapshot containing every change recorded before this call
+     * @since 1.0
+     */
+    public LockTableSnapshot takeSnapshot() {
+
+        synchronized (shadowTable) {
+
+            applyJournal();
+
+            LinkedHashMap<String, LinkedHashMap<String, Integer>> grantedLists = new LinkedHashMap<>();
+            LinkedHashMap<String, LinkedHashMap<String, Integer>> waitingQueues = new LinkedHashMap<>();
+
+            for (String elementName : shadowTable.keySet()) {
+
+                ShadowElement element = shadowTable.get(elementName);
+
+                grantedLists.put(elementName, new LinkedHashMap<>(element.grantedList));
+                waitingQueues.put(elementName, new LinkedHashMap<>(element.waitingQueue));
+            }
+
+            return new LockTableSnapshot(appliedVersion, System.currentTimeMillis(), grantedLists, waitingQueues);
+        }
+    }
+
+    /**
+     * Takes a snapshot and writes it as JSON lines
+     *
+     * @param writer writer to write the snapshot to
+     * @throws IOException if writing fails
+     * @since 1.0
+     */
+    public void dump(Writer writer) throws IOException {
+        takeSnapshot().writeJsonLines(writer);
+    }
+
+    /**
+     * Takes a snapshot and appends it as JSON lines to the specified file
+     *
+     * @param dumpFile path of the file
+     * @return true if the snapshot is written successfully, false otherwise
+     * @since 1.0
+     */
+    public boolean dump(String dumpFile) {
+
+        try (FileWriter writer = new FileWriter(new File(dumpFile), true)) {
+
+            dump(writer);
+
+            return true;
+        } catch (IOException e) {
+            Log.log("Can not dump lock table to: " + dumpFile + ", " + e.getMessage(), componentName, Log.ERROR);
+            return false;
+        }
+    }
+
+    public void exit() {
+        this.exit = true;
+    }
+
+    /**
+     * State of an element in the shadow copy
+     */
+    private static class ShadowElement {
+
+        /**
+         * transaction id -> applied lock type, in the order of grant
+         */
+        private final LinkedHashMap<String, Integer> grantedList = new LinkedHashMap<>();
+
+        /**
+         * transaction id -> applied lock type, in the order of request
+         */
+        private final LinkedHashMap<String, Integer> waitingQueue = new LinkedHashMap<>();
+    }
+}
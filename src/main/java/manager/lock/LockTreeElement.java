@@ -113,6 +113,11 @@ public class LockTreeElement {
             return new LinkedList<>();
         }
 
+        //an upgrade of the held lock may still be waiting, remove it too
+        LockRequest waitingUpgrade = waitingMap.remove(transactionId);
+        if (waitingUpgrade != null)
+            waitingQueue.remove(waitingUpgrade);
+
         //remove the transaction from granted hash map
         grantedMap.remove(transactionId);
 
@@ -158,6 +163,13 @@ public class LockTreeElement {
      */
     public boolean acquireLock(Transaction transaction, Lock appliedLock, Lock originalLock) {
 
+        //get the lock this transaction already holds on this element, if any
+        //a transaction running several statements requests the same elements again
+        LockRequest heldRequest = grantedMap.get(transaction.getTransactionId());
+
+        if (heldRequest != null)
+            return upgradeLock(transaction, heldRequest, appliedLock, originalLock);
+
         //check compatibility between type of the request lock and current active lock type
         boolean isCompatible = checkCompatibility(appliedLock);
 
@@ -198,6 +210,116 @@ public class LockTreeElement {
         }
     }
 
+    /**
+     * Handles a lock request of a transaction that already holds a lock on this element.
+     * if the held lock covers the request nothing changes, otherwise the held lock is upgraded in place
+     * when the upgrade is compatible with locks of other transactions, or the upgrade waits in the waiting queue
+     *
+     * @param transaction  transaction that requested the lock
+     * @param heldRequest  lock request of the transaction that is already granted
+     * @param appliedLock  lock to be applied to this element
+     * @param originalLock original lock requested by the transaction
+     * @return true if request granted and false otherwise
+     */
+    private boolean upgradeLock(Transaction transaction, LockRequest heldRequest, Lock appliedLock, Lock originalLock) {
+
+        int heldLockType = heldRequest.getAppliedLock().getType();
+
+        //held lock already gives the transaction everything it requested
+        if (covers(heldLockType, appliedLock.getType()))
+            return true;
+
+        //lock to hold after the upgrade must cover both the held and the requested lock
+        //there is no lock type combining the two (e.g. shared and intent exclusive) -> use an exclusive lock
+        Lock upgradedLock = appliedLock;
+        if (!covers(appliedLock.getType(), heldLockType))
+            upgradedLock = new Lock(appliedLock.getDatabase(), appliedLock.getTable(), appliedLock.getRecord(), LockTypes.EXCLUSIVE);
+
+        LockRequest lockRequest = new LockRequest(transaction, originalLock, upgradedLock);
+
+        //upgrade must only be compatible with locks held by other transactions
+        if (checkCompatibility(upgradedLock, getActiveLockTypeOfOthers(transaction.getTransactionId()))) {
+
+            //replace the held request with the upgraded one
+            grantedList.remove(heldRequest);
+            grantedList.add(lockRequest);
+            grantedMap.put(transaction.getTransactionId(), lockRequest);
+
+            grantedList.sort(new LockRequestComparator());
+
+            currentActiveLockType = grantedList.get(0).getAppliedLock().getType();
+
+            return true;
+        }
+
+        //wait until other transactions release their locks, the held lock is kept meanwhile
+        waitingQueue.add(lockRequest);
+        waitingMap.put(transaction.getTransactionId(), lockRequest);
+
+        return false;
+    }
+
+    /**
+     * Checks whether holding a lock type gives all the access of another lock type
+     *
+     * @param heldLockType      type of the held lock
+     * @param requestedLockType type of the requested lock
+     * @return true if the held lock type covers the requested lock type
+     */
+    private boolean covers(int heldLockType, int requestedLockType) {
+
+        return heldLockType == requestedLockType ||
+                heldLockType == LockTypes.EXCLUSIVE ||
+                requestedLockType == LockTypes.INTENT_SHARED ||
+                (heldLockType == LockTypes.UPDATE && requestedLockType == LockTypes.SHARED);
+    }
+
+    /**
+     * Checks whether a transaction holds a granted lock on this element
+     *
+     * @param transactionId id of the transaction
+     * @return true if the transaction holds a lock on this element, even if an upgrade of it is waiting
+     * @since 1.0
+     */
+    public boolean isHeldBy(String transactionId) {
+        return grantedMap.containsKey(transactionId);
+    }
+
+    /**
+     * Get transactions holding a lock on this element other than the given one
+     *
+     * @param transactionId id of the transaction to ignore
+     * @return transactions holding a lock on this element
+     * @since 1.0
+     */
+    public LinkedList<Transaction> getOtherHolders(String transactionId) {
+
+        LinkedList<Transaction> holders = new LinkedList<>();
+
+        for (LockRequest grantedRequest : grantedList)
+            if (!grantedRequest.getTransaction().getTransactionId().equals(transactionId))
+                holders.add(grantedRequest.getTransaction());
+
+        return holders;
+    }
+
+    /**
+     * Get most restrictive lock type held on this element by transactions other than the given one
+     *
+     * @param transactionId id of the transaction to ignore
+     * @return most restrictive lock type held by other transactions, NO_LOCK if there is none
+     */
+    private int getActiveLockTypeOfOthers(String transactionId) {
+
+        //granted list is sorted, so the first request of another transaction is the most restrictive one
+        for (LockRequest grantedRequest : grantedList) {
+            if (!grantedRequest.getTransaction().getTransactionId().equals(transactionId))
+                return grantedRequest.getAppliedLock().getType();
+        }
+
+        return LockTypes.NO_LOCK;
+    }
+
     /**
      * Degrades a lock type into a less strict one
      *
@@ -260,8 +382,16 @@ public class LockTreeElement {
             //get first element in the waiting queue
             LockRequest waitingRequest = waitingQueue.peek();
 
+            //get id of the waiting transaction
+            String transactionId = waitingRequest.getTransaction().getTransactionId();
+
+            //an upgrade of a held lock only has to be compatible with locks of other transactions
+            LockRequest heldRequest = grantedMap.get(transactionId);
+
             //check whether the requested lock by waiting element is compatible with current active lock type
-            boolean isCompatible = checkCompatibility(waitingRequest.getAppliedLock());
+            boolean isCompatible = heldRequest == null ?
+                    checkCompatibility(waitingRequest.getAppliedLock()) :
+                    checkCompatibility(waitingRequest.getAppliedLock(), getActiveLockTypeOfOthers(transactionId));
 
             //if requested lock type by waiting element is compatible with current active lock type
             if (isCompatible) {
@@ -270,7 +400,11 @@ public class LockTreeElement {
                 waitingQueue.remove();
 
                 //remove the waiting request from waiting map
-                waitingMap.remove(waitingRequest.getTransaction().getTransactionId());
+                waitingMap.remove(transactionId);
+
+                //upgraded request replaces the held one
+                if (heldRequest != null)
+                    grantedList.remove(heldRequest);
 
                 //add element to granted list
                 grantedList.add(waitingRequest);
@@ -300,6 +434,17 @@ public class LockTreeElement {
      * @return true if lock is compatible with current active lock type
      */
     private boolean checkCompatibility(Lock lock) {
+        return checkCompatibility(lock, currentActiveLockType);
+    }
+
+    /**
+     * Checks compatibility between an active lock type and lock type of the argument
+     *
+     * @param lock lock object to compare its type with the active lock type
+     * @param currentActiveLockType most restrictive lock type held on this element
+     * @return true if lock is compatible with the active lock type
+     */
+    private boolean checkCompatibility(Lock lock, int currentActiveLockType) {
 
         //get the type of the lock
         int lockType = lock.getType();
@@ -48,6 +48,10 @@ public class RequestedLockTree {
      */
     public void addDatabaseLock(String databaseName, LockTreeElement databaseElement) {
 
+        //database is already requested by an earlier statement of the transaction
+        if (this.databaseMap.containsKey(databaseName))
+            return;
+
         //create a new requested lock element to represent the new locked database in acquire lock tree
         RequestedLockTreeElement requestedDatabaseElement = new RequestedLockTreeElement(databaseElement, true);
 
@@ -69,6 +73,10 @@ public class RequestedLockTree {
      */
     public void addTableLock(String databaseName, String tableName, LockTreeElement tableElement) {
 
+        //table is already requested by an earlier statement of the transaction
+        if (this.tableMap.containsKey(tableName))
+            return;
+
         //create a new requested lock element to represent the new locked table in requested lock tree
         RequestedLockTreeElement requestedTableElement = new RequestedLockTreeElement(tableElement, true);
 
@@ -98,6 +106,12 @@ public class RequestedLockTree {
         //get table element that contains the record
         RequestedLockTreeElement requestedTableElement = tableMap.get(table);
 
+        //record is already requested by an earlier statement of the transaction
+        for (RequestedLockTreeElement child : requestedTableElement.getChildren()) {
+            if (child.getLockTreeElement() == recordElement)
+                return;
+        }
+
         //add new requested record element to its table
         requestedTableElement.addChild(requestedRecordElement);
     }
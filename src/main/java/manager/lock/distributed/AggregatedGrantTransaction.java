@@ -0,0 +1,71 @@
+package manager.lock.distributed;
+
+import manager.lock.Lock;
+import manager.transaction.Transaction;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A database level lock is requested on every lock node, because tables of a database can be owned by different nodes.
+ * this class stands for the transaction in each of those requests and informs the original transaction
+ * only when all nodes have granted the lock.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class AggregatedGrantTransaction extends Transaction {
+
+    /**
+     * Transaction that requested the lock
+     */
+    private final Transaction transaction;
+
+    /**
+     * Number of nodes that have not granted the lock yet
+     */
+    private final AtomicInteger remainingGrants;
+
+    /**
+     * Default constructor
+     *
+     * @param transaction    transaction that requested the lock
+     * @param expectedGrants number of nodes the lock is requested on
+     * @since 1.0
+     */
+    public AggregatedGrantTransaction(Transaction transaction, int expectedGrants) {
+
+        super(null, transaction.getTransactionId(), null);
+
+        this.transaction = transaction;
+        this.remainingGrants = new AtomicInteger(expectedGrants);
+    }
+
+    /**
+     * Counts one grant
+     *
+     * @return true if this was the last missing grant
+     * @since 1.0
+     */
+    public boolean countDown() {
+        return remainingGrants.decrementAndGet() == 0;
+    }
+
+    @Override
+    public void lockIsGranted(Lock lock) {
+
+        //inform the transaction only when the last node granted the lock
+        if (countDown())
+            transaction.lockIsGranted(lock);
+    }
+
+    @Override
+    public void die() {
+        transaction.die();
+    }
+
+    @Override
+    public void run() {
+        //never executed, only stands for the original transaction in lock requests
+    }
+}
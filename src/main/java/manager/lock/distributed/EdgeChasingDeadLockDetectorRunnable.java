@@ -0,0 +1,135 @@
+package manager.lock.distributed;
+
+import common.Log;
+import manager.lock.LockManager;
+import manager.transaction.Transaction;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class detects dead locks spanning several lock nodes using edge chasing.
+ * <p>
+ * no node knows the whole waits-for graph. periodically each node sends a probe (initiator, target) for every
+ * local waiting transaction and every transaction blocking it. a node receiving a probe forwards it along the
+ * blocking edges of the target it knows about. if a probe comes back to its initiator, there is a cycle.
+ * </p>
+ * <p>
+ * probes only travel towards transactions older than their initiator (see Transaction.compareIds), so only the youngest
+ * transaction of a cycle gets its probe back. it is chosen as the victim and told to die, the other transactions of the cycle survive.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class EdgeChasingDeadLockDetectorRunnable implements Runnable {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "EdgeChasingDeadLockDetector";
+
+    /**
+     * Lock manager of the local node
+     */
+    private final LockManager lockManager;
+
+    /**
+     * Node used to send probes to other nodes
+     */
+    private final LockNode node;
+
+    /**
+     * Period of initiating probes in milliseconds
+     */
+    private final int period;
+
+    /**
+     * Probes this node has already forwarded in the current period, like: "initiator->target"
+     * keeps probes from circulating forever
+     */
+    private final Set<String> forwardedProbes;
+
+    private volatile boolean exit = false;
+
+    public EdgeChasingDeadLockDetectorRunnable(LockManager lockManager, LockNode node, int period) {
+
+        this.lockManager = lockManager;
+        this.node = node;
+        this.period = period;
+
+        this.forwardedProbes = Collections.synchronizedSet(new HashSet<>());
+    }
+
+    @Override
+    public void run() {
+
+        while (!exit) {
+
+            forwardedProbes.clear();
+
+            //initiate a probe along every edge ( waiting transaction ) ---> ( blocking transaction ) known locally
+            for (String waitingTransactionId : lockManager.getWaitingTransactionIds()) {
+
+                for (String blockingTransactionId : lockManager.getBlockingTransactionIds(waitingTransactionId)) {
+
+                    if (Transaction.compareIds(blockingTransactionId, waitingTransactionId) < 0)
+                        sendProbe(waitingTransactionId, blockingTransactionId);
+                }
+            }
+
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Handles a probe received from this node or another node
+     *
+     * @param initiatorId id of the transaction that initiated the probe
+     * @param targetId    id of the transaction the probe has reached
+     * @since 1.0
+     */
+    public void receiveProbe(String initiatorId, String targetId) {
+
+        //follow every edge ( target ) ---> ( blocking transaction ) known by this node
+        for (String blockingTransactionId : lockManager.getBlockingTransactionIds(targetId)) {
+
+            //probe came back to its initiator -> initiator is waiting for itself
+            if (blockingTransactionId.equals(initiatorId)) {
+                Log.log(String.format("Dead lock detected: transaction %s waits for itself through transaction %s", initiatorId, targetId), componentName, Log.WARNING);
+                node.abortTransaction(initiatorId);
+                continue;
+            }
+
+            if (Transaction.compareIds(blockingTransactionId, initiatorId) < 0)
+                sendProbe(initiatorId, blockingTransactionId);
+        }
+    }
+
+    /**
+     * Sends a probe to this node and all other nodes, unless it is already forwarded in the current period
+     *
+     * @param initiatorId id of the transaction that initiated the probe
+     * @param targetId    id of the transaction the probe is sent to
+     */
+    private void sendProbe(String initiatorId, String targetId) {
+
+        if (!forwardedProbes.add(initiatorId + "->" + targetId))
+            return;
+
+        //the target may be waiting on this node as well
+        receiveProbe(initiatorId, targetId);
+
+        node.broadcast(LockMessage.probe(initiatorId, targetId));
+    }
+
+    public void exit() {
+        this.exit = true;
+    }
+}
@@ -0,0 +1,318 @@
+package manager.lock.distributed;
+
+import manager.lock.Lock;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This class represents a message exchanged between lock nodes.
+ * messages are written in a compact binary form and are always sent inside a batch:
+ * [ message count ][ message 1 ][ message 2 ] ...
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockMessage {
+
+    /**
+     * Different types of messages
+     * 1- lock     : transaction requests a lock on a resource owned by the receiver
+     * 2- unlock   : transaction releases all of its locks held on the receiver
+     * 3- degrade  : transaction degrades a lock held on the receiver
+     * 4- response : answer to a lock, unlock or degrade request
+     * 5- grant    : a waiting lock request of a transaction is granted by the receiver's peer
+     * 6- probe    : edge chasing probe used to detect dead locks spanning several nodes
+     * 7- die      : transaction is chosen as a dead lock victim and must stop waiting for its locks
+     */
+    public static final byte LOCK = 1;
+    public static final byte UNLOCK = 2;
+    public static final byte DEGRADE = 3;
+    public static final byte RESPONSE = 4;
+    public static final byte GRANT = 5;
+    public static final byte PROBE = 6;
+    public static final byte DIE = 7;
+
+    /**
+     * type of the message
+     */
+    private byte type;
+
+    /**
+     * id of the request, responses carry the id of the request they answer
+     */
+    private long requestId;
+
+    /**
+     * id of the transaction the message is about. for probes this is the id of the target transaction
+     */
+    private String transactionId;
+
+    /**
+     * id of the transaction that initiated a probe
+     */
+    private String initiatorId;
+
+    /**
+     * lock the message is about
+     */
+    private Lock lock;
+
+    /**
+     * lock type that a degrade request wants to degrade to
+     */
+    private int degradedLockType;
+
+    /**
+     * id of the node that granted the lock of a grant message
+     */
+    private int nodeId;
+
+    /**
+     * result of a request
+     */
+    private boolean granted;
+
+    private LockMessage(byte type) {
+        this.type = type;
+    }
+
+    /**
+     * Creates a lock request
+     *
+     * @param transactionId id of the requesting transaction
+     * @param lock          requested lock
+     * @return lock request message
+     * @since 1.0
+     */
+    public static LockMessage lock(String transactionId, Lock lock) {
+        LockMessage message = new LockMessage(LOCK);
+        message.transactionId = transactionId;
+        message.lock = lock;
+        return message;
+    }
+
+    /**
+     * Creates an unlock request
+     *
+     * @param transactionId id of the transaction releasing its locks
+     * @return unlock request message
+     * @since 1.0
+     */
+    public static LockMessage unlock(String transactionId) {
+        LockMessage message = new LockMessage(UNLOCK);
+        message.transactionId = transactionId;
+        return message;
+    }
+
+    /**
+     * Creates a degrade request
+     *
+     * @param transactionId    id of the transaction degrading its lock
+     * @param lock             original lock
+     * @param degradedLockType lock type to degrade to
+     * @return degrade request message
+     * @since 1.0
+     */
+    public static LockMessage degrade(String transactionId, Lock lock, int degradedLockType) {
+        LockMessage message = new LockMessage(DEGRADE);
+        message.transactionId = transactionId;
+        message.lock = lock;
+        message.degradedLockType = degradedLockType;
+        return message;
+    }
+
+    /**
+     * Creates a response to a request
+     *
+     * @param requestId id of the answered request
+     * @param granted   result of the request
+     * @return response message
+     * @since 1.0
+     */
+    public static LockMessage response(long requestId, boolean granted) {
+        LockMessage message = new LockMessage(RESPONSE);
+        message.requestId = requestId;
+        message.granted = granted;
+        return message;
+    }
+
+    /**
+     * Creates a grant notification
+     *
+     * @param transactionId id of the transaction that is granted
+     * @param lock          granted lock
+     * @param nodeId        id of the granting node
+     * @return grant message
+     * @since 1.0
+     */
+    public static LockMessage grant(String transactionId, Lock lock, int nodeId) {
+        LockMessage message = new LockMessage(GRANT);
+        message.transactionId = transactionId;
+        message.lock = lock;
+        message.nodeId = nodeId;
+        return message;
+    }
+
+    /**
+     * Creates a die notification
+     *
+     * @param transactionId id of the dead lock victim
+     * @return die message
+     * @since 1.0
+     */
+    public static LockMessage die(String transactionId) {
+        LockMessage message = new LockMessage(DIE);
+        message.transactionId = transactionId;
+        return message;
+    }
+
+    /**
+     * Creates an edge chasing probe
+     *
+     * @param initiatorId id of the transaction that initiated the probe
+     * @param targetId    id of the transaction the probe is sent to
+     * @return probe message
+     * @since 1.0
+     */
+    public static LockMessage probe(String initiatorId, String targetId) {
+        LockMessage message = new LockMessage(PROBE);
+        message.initiatorId = initiatorId;
+        message.transactionId = targetId;
+        return message;
+    }
+
+    /**
+     * Writes this message to the output stream
+     *
+     * @param output stream to write the message to
+     * @throws IOException if writing to the stream fails
+     * @since 1.0
+     */
+    public void write(DataOutputStream output) throws IOException {
+
+        output.writeByte(type);
+        output.writeLong(requestId);
+
+        if (type == RESPONSE) {
+            output.writeBoolean(granted);
+            return;
+        }
+
+        writeString(output, transactionId);
+
+        if (type == PROBE) {
+            writeString(output, initiatorId);
+            return;
+        }
+
+        if (type == UNLOCK || type == DIE)
+            return;
+
+        //lock, degrade and grant messages carry a lock
+        writeString(output, lock.getDatabase());
+        writeString(output, lock.getTable());
+        output.writeBoolean(lock.getRecord() != null);
+        if (lock.getRecord() != null)
+            output.writeInt(lock.getRecord());
+        output.writeByte(lock.getType());
+
+        if (type == DEGRADE)
+            output.writeByte(degradedLockType);
+
+        if (type == GRANT)
+            output.writeInt(nodeId);
+    }
+
+    /**
+     * Reads a message from the input stream
+     *
+     * @param input stream to read the message from
+     * @return read message
+     * @throws IOException if reading from the stream fails
+     * @since 1.0
+     */
+    public static LockMessage read(DataInputStream input) throws IOException {
+
+        LockMessage message = new LockMessage(input.readByte());
+        message.requestId = input.readLong();
+
+        if (message.type == RESPONSE) {
+            message.granted = input.readBoolean();
+            return message;
+        }
+
+        message.transactionId = readString(input);
+
+        if (message.type == PROBE) {
+            message.initiatorId = readString(input);
+            return message;
+        }
+
+        if (message.type == UNLOCK || message.type == DIE)
+            return message;
+
+        String database = readString(input);
+        String table = readString(input);
+        Integer record = input.readBoolean() ? input.readInt() : null;
+        int lockType = input.readByte();
+
+        message.lock = new Lock(database, table, record, lockType);
+
+        if (message.type == DEGRADE)
+            message.degradedLockType = input.readByte();
+
+        if (message.type == GRANT)
+            message.nodeId = input.readInt();
+
+        return message;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null)
+            output.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getInitiatorId() {
+        return initiatorId;
+    }
+
+    public Lock getLock() {
+        return lock;
+    }
+
+    public int getDegradedLockType() {
+        return degradedLockType;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isGranted() {
+        return granted;
+    }
+}
@@ -0,0 +1,21 @@
+package manager.lock.distributed;
+
+/**
+ * This interface is implemented by components that process messages received on a lock peer connection.
+ * responses are not passed to the handler, they complete the request they answer.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public interface LockMessageHandler {
+
+    /**
+     * Handles a message received on a connection
+     *
+     * @param connection connection the message is received on, responses must be sent back on this connection
+     * @param message    received message
+     * @since 1.0
+     */
+    void handleMessage(LockPeerConnection connection, LockMessage message);
+}
@@ -0,0 +1,312 @@
+package manager.lock.distributed;
+
+import common.Log;
+import manager.lock.LockManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class represents one Dolus node in a partitioned lock service.
+ * <p>
+ * every node runs a local lock manager that serves the lock subtrees hash-assigned to it,
+ * accepts lock requests of other nodes' transactions and runs the edge chasing dead lock detector.
+ * local transactions should use the lock service returned by getLockService() once the node is started.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockNode implements LockMessageHandler {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "LockNode";
+
+    /**
+     * Id of this node, index of its address in the node address list
+     */
+    private final int nodeId;
+
+    /**
+     * Addresses of all nodes, every node must be started with the same list
+     */
+    private final List<InetSocketAddress> nodeAddresses;
+
+    /**
+     * Lock manager serving the resources owned by this node
+     */
+    private final LockManager lockManager;
+
+    /**
+     * Lock service for local transactions, created once the node is started
+     */
+    private volatile PartitionedLockManager partitionedLockManager;
+
+    /**
+     * Dead lock detector of the node, created once the node is started
+     */
+    private volatile EdgeChasingDeadLockDetectorRunnable deadLockDetectorRunnable;
+
+    /**
+     * Period of initiating dead lock probes in milliseconds
+     */
+    private final int deadLockDetectionPeriod;
+
+    /**
+     * Mapping between a node id and the connection this node opened to it
+     */
+    private final HashMap<Integer, LockPeerConnection> peerConnections;
+
+    /**
+     * Connections other nodes opened to this node
+     */
+    private final List<LockPeerConnection> acceptedConnections;
+
+    /**
+     * Mapping between the id of a transaction owned by another node and the transaction standing for it in the local lock manager
+     */
+    private final ConcurrentHashMap<String, RemoteTransaction> remoteTransactions;
+
+    private ServerSocket serverSocket;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Default constructor
+     *
+     * @param nodeId                  id of this node
+     * @param nodeAddresses           addresses of all nodes
+     * @param deadLockDetectionPeriod period of initiating dead lock probes in milliseconds
+     * @since 1.0
+     */
+    public LockNode(int nodeId, List<InetSocketAddress> nodeAddresses, int deadLockDetectionPeriod) {
+
+        this.nodeId = nodeId;
+        this.nodeAddresses = nodeAddresses;
+
+        this.deadLockDetectionPeriod = deadLockDetectionPeriod;
+
+        this.lockManager = new LockManager();
+
+        this.peerConnections = new HashMap<>();
+        this.acceptedConnections = new ArrayList<>();
+        this.remoteTransactions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts listening for other nodes and starts the dead lock detector
+     *
+     * @throws IOException if the address of this node can not be bound
+     * @since 1.0
+     */
+    public void start() throws IOException {
+
+        //both keep a reference to this node, they are created once the node is constructed
+        partitionedLockManager = new PartitionedLockManager(this, lockManager);
+        deadLockDetectorRunnable = new EdgeChasingDeadLockDetectorRunnable(lockManager, this, deadLockDetectionPeriod);
+
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(nodeAddresses.get(nodeId));
+
+        Thread acceptThread = new Thread(this::acceptLoop, "lock-node-" + nodeId);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        Thread detectorThread = new Thread(deadLockDetectorRunnable, "lock-node-" + nodeId + "-detector");
+        detectorThread.setDaemon(true);
+        detectorThread.start();
+
+        Log.log(String.format("Lock node %d is listening on %s", nodeId, nodeAddresses.get(nodeId)), componentName, Log.INFORMATION);
+    }
+
+    private void acceptLoop() {
+
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+
+                LockPeerConnection connection = new LockPeerConnection(socket, this);
+                connection.start();
+
+                synchronized (acceptedConnections) {
+                    acceptedConnections.add(connection);
+                }
+            } catch (IOException e) {
+                if (!closed)
+                    Log.log("Accepting lock peer failed: " + e.getMessage(), componentName, Log.ERROR);
+            }
+        }
+    }
+
+    /**
+     * Get the connection to another node, connects to it if there is no open connection
+     *
+     * @param peerId id of the other node
+     * @return connection to the node
+     * @throws IOException if connecting to the node fails
+     * @since 1.0
+     */
+    public synchronized LockPeerConnection getPeerConnection(int peerId) throws IOException {
+
+        LockPeerConnection connection = peerConnections.get(peerId);
+
+        if (connection == null || connection.isClosed()) {
+
+            Socket socket = new Socket();
+            socket.connect(nodeAddresses.get(peerId));
+
+            connection = new LockPeerConnection(socket, this);
+            connection.start();
+
+            peerConnections.put(peerId, connection);
+        }
+
+        return connection;
+    }
+
+    /**
+     * Sends a message to all other nodes
+     *
+     * @param message message to send
+     * @since 1.0
+     */
+    public void broadcast(LockMessage message) {
+
+        for (int peerId = 0; peerId < nodeAddresses.size(); peerId++) {
+
+            if (peerId == nodeId)
+                continue;
+
+            try {
+                getPeerConnection(peerId).send(message);
+            } catch (IOException e) {
+                Log.log(String.format("Can not send message to lock node %d: %s", peerId, e.getMessage()), componentName, Log.ERROR);
+            }
+        }
+    }
+
+    @Override
+    public void handleMessage(LockPeerConnection connection, LockMessage message) {
+
+        String transactionId = message.getTransactionId();
+
+        switch (message.getType()) {
+
+            case LockMessage.LOCK: {
+
+                RemoteTransaction transaction = remoteTransactions.computeIfAbsent(transactionId, id -> new RemoteTransaction(id, connection, nodeId));
+
+                boolean granted = lockManager.lock(transaction, message.getLock());
+
+                connection.send(LockMessage.response(message.getRequestId(), granted));
+                break;
+            }
+            case LockMessage.UNLOCK: {
+
+                RemoteTransaction transaction = remoteTransactions.remove(transactionId);
+
+                if (transaction != null)
+                    lockManager.unlock(transaction);
+
+                connection.send(LockMessage.response(message.getRequestId(), true));
+                break;
+            }
+            case LockMessage.DEGRADE: {
+
+                RemoteTransaction transaction = remoteTransactions.get(transactionId);
+
+                if (transaction != null)
+                    lockManager.degradeLock(transaction, message.getLock(), message.getDegradedLockType());
+
+                connection.send(LockMessage.response(message.getRequestId(), transaction != null));
+                break;
+            }
+            case LockMessage.GRANT:
+
+                partitionedLockManager.lockIsGranted(transactionId, message.getNodeId(), message.getLock());
+                break;
+
+            case LockMessage.DIE:
+
+                //ignored by nodes that do not own the transaction
+                partitionedLockManager.abortTransaction(transactionId);
+                break;
+
+            case LockMessage.PROBE:
+
+                deadLockDetectorRunnable.receiveProbe(message.getInitiatorId(), transactionId);
+                break;
+
+            default:
+                Log.log("Unknown lock message type: " + message.getType(), componentName, Log.WARNING);
+        }
+    }
+
+    /**
+     * Aborts a dead lock victim, a transaction owned by another node is aborted by its owner
+     *
+     * @param transactionId id of the victim
+     * @since 1.0
+     */
+    public void abortTransaction(String transactionId) {
+
+        if (!partitionedLockManager.abortTransaction(transactionId))
+            broadcast(LockMessage.die(transactionId));
+    }
+
+    /**
+     * Stops listening and closes all connections
+     *
+     * @since 1.0
+     */
+    public void close() {
+
+        closed = true;
+
+        if (deadLockDetectorRunnable != null)
+            deadLockDetectorRunnable.exit();
+
+        try {
+            if (serverSocket != null)
+                serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this) {
+            peerConnections.values().forEach(LockPeerConnection::close);
+        }
+
+        synchronized (acceptedConnections) {
+            acceptedConnections.forEach(LockPeerConnection::close);
+        }
+    }
+
+    /**
+     * Get the lock service local transactions must use
+     *
+     * @return partitioned lock service of this node, null if the node is not started
+     * @since 1.0
+     */
+    public PartitionedLockManager getLockService() {
+        return partitionedLockManager;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getNodeCount() {
+        return nodeAddresses.size();
+    }
+}
@@ -0,0 +1,219 @@
+package manager.lock.distributed;
+
+import common.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class wraps a socket between two lock nodes.
+ * a writer thread drains every queued message and sends them as one batch,
+ * so concurrent lock requests of different transactions share a single write.
+ * a reader thread completes pending requests with their responses and passes every other message to the handler.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockPeerConnection {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "LockPeerConnection";
+
+    /**
+     * Maximum number of messages written in one batch
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final Socket socket;
+
+    private final DataInputStream input;
+
+    private final DataOutputStream output;
+
+    /**
+     * Messages waiting to be written by the writer thread
+     */
+    private final BlockingQueue<LockMessage> outgoingQueue;
+
+    /**
+     * Mapping between a request id and the future waiting for its response
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<LockMessage>> pendingRequests;
+
+    private final AtomicLong requestIdGenerator;
+
+    private final LockMessageHandler handler;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Default constructor
+     *
+     * @param socket  connected socket
+     * @param handler handler of the received messages
+     * @throws IOException if streams of the socket can not be opened
+     * @since 1.0
+     */
+    public LockPeerConnection(Socket socket, LockMessageHandler handler) throws IOException {
+
+        this.socket = socket;
+        this.handler = handler;
+
+        //lock messages are tiny, do not let the kernel delay them
+        socket.setTcpNoDelay(true);
+
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        this.outgoingQueue = new LinkedBlockingQueue<>();
+        this.pendingRequests = new ConcurrentHashMap<>();
+        this.requestIdGenerator = new AtomicLong();
+    }
+
+    /**
+     * Starts the reader and writer threads of this connection
+     *
+     * @since 1.0
+     */
+    public void start() {
+
+        Thread writerThread = new Thread(this::writeLoop, "lock-peer-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        Thread readerThread = new Thread(this::readLoop, "lock-peer-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Queues a message to be sent in the next batch
+     *
+     * @param message message to send
+     * @since 1.0
+     */
+    public void send(LockMessage message) {
+        outgoingQueue.add(message);
+    }
+
+    /**
+     * Sends a request and returns a future which is completed when its response is received
+     *
+     * @param message request message
+     * @return future of the response
+     * @since 1.0
+     */
+    public CompletableFuture<LockMessage> request(LockMessage message) {
+
+        CompletableFuture<LockMessage> future = new CompletableFuture<>();
+
+        long requestId = requestIdGenerator.incrementAndGet();
+        message.setRequestId(requestId);
+
+        pendingRequests.put(requestId, future);
+
+        send(message);
+
+        return future;
+    }
+
+    /**
+     * Drains the outgoing queue and writes the messages as batches
+     */
+    private void writeLoop() {
+
+        ArrayList<LockMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        try {
+            while (!closed) {
+
+                //wait for at least one message, then take whatever else is queued
+                batch.add(outgoingQueue.take());
+                outgoingQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                output.writeInt(batch.size());
+                for (LockMessage message : batch)
+                    message.write(output);
+                output.flush();
+
+                batch.clear();
+            }
+        } catch (IOException | InterruptedException e) {
+            if (!closed)
+                Log.log("Writing to lock peer failed: " + e.getMessage(), componentName, Log.ERROR);
+            close();
+        }
+    }
+
+    /**
+     * Reads batches of messages and dispatches them
+     */
+    private void readLoop() {
+
+        try {
+            while (!closed) {
+
+                int batchSize = input.readInt();
+
+                for (int i = 0; i < batchSize; i++) {
+
+                    LockMessage message = LockMessage.read(input);
+
+                    //a response completes the request waiting for it
+                    if (message.getType() == LockMessage.RESPONSE) {
+                        CompletableFuture<LockMessage> future = pendingRequests.remove(message.getRequestId());
+                        if (future != null)
+                            future.complete(message);
+                    } else
+                        handler.handleMessage(this, message);
+                }
+            }
+        } catch (EOFException e) {
+            //peer closed the connection
+            close();
+        } catch (IOException e) {
+            if (!closed)
+                Log.log("Reading from lock peer failed: " + e.getMessage(), componentName, Log.ERROR);
+            close();
+        }
+    }
+
+    /**
+     * Closes the connection and fails every pending request
+     *
+     * @since 1.0
+     */
+    public void close() {
+
+        closed = true;
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        for (CompletableFuture<LockMessage> future : pendingRequests.values())
+            future.completeExceptionally(new IOException("Lock peer connection is closed"));
+
+        pendingRequests.clear();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
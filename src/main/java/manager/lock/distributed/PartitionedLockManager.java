@@ -0,0 +1,265 @@
+package manager.lock.distributed;
+
+import common.Log;
+import manager.lock.Lock;
+import manager.lock.LockManager;
+import manager.lock.LockService;
+import manager.transaction.Transaction;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class routes lock requests of local transactions to the lock node that owns the requested resource.
+ * <p>
+ * ownership of every table subtree (the table element and all of its record elements) is assigned to a node
+ * by hashing "database_table". a database level lock must be compatible with locks on every table of the database,
+ * so it is requested on all nodes and is granted only when all of them granted it.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class PartitionedLockManager implements LockService {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "PartitionedLockManager";
+
+    /**
+     * Maximum time to wait for the response of a remote lock node
+     */
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Node this lock manager belongs to
+     */
+    private final LockNode node;
+
+    /**
+     * Lock manager of the local node, serves resources owned by this node
+     */
+    private final LockManager localLockManager;
+
+    /**
+     * Mapping between "transaction id|node id|lock name" and the transaction object to inform when a remote node grants the lock.
+     * a database level lock is requested on every node with the same name, so the granting node is part of the key
+     */
+    private final ConcurrentHashMap<String, Transaction> waitingGrants;
+
+    /**
+     * Mapping between a transaction id and ids of the nodes the transaction has requested locks from
+     */
+    private final ConcurrentHashMap<String, Set<Integer>> requestedNodes;
+
+    /**
+     * Mapping between a transaction id and local transactions that requested locks, used to abort dead lock victims
+     */
+    private final ConcurrentHashMap<String, Transaction> localTransactions;
+
+    /**
+     * Default constructor
+     *
+     * @param node             node this lock manager belongs to
+     * @param localLockManager lock manager of the local node
+     * @since 1.0
+     */
+    public PartitionedLockManager(LockNode node, LockManager localLockManager) {
+
+        this.node = node;
+        this.localLockManager = localLockManager;
+
+        this.waitingGrants = new ConcurrentHashMap<>();
+        this.requestedNodes = new ConcurrentHashMap<>();
+        this.localTransactions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Finds the node that owns the resource of the lock
+     *
+     * @param lock table or record level lock
+     * @return id of the owner node
+     * @since 1.0
+     */
+    public int getOwnerNode(Lock lock) {
+
+        String subtreeName = lock.getDatabase() + "_" + lock.getTable();
+
+        return Math.floorMod(subtreeName.hashCode(), node.getNodeCount());
+    }
+
+    @Override
+    public boolean lock(Transaction transaction, Lock lock) {
+
+        localTransactions.put(transaction.getTransactionId(), transaction);
+
+        //database level lock -> must be granted by every node
+        if (lock.getTable() == null)
+            return lockOnAllNodes(transaction, lock);
+
+        return lockOnNode(getOwnerNode(lock), transaction, lock);
+    }
+
+    /**
+     * Requests the lock on every node
+     *
+     * @param transaction transaction that requested the lock
+     * @param lock        database level lock
+     * @return true if all nodes granted the lock immediately
+     */
+    private boolean lockOnAllNodes(Transaction transaction, Lock lock) {
+
+        //stands for the transaction on every node and informs it when the last node grants the lock
+        AggregatedGrantTransaction aggregatedTransaction = new AggregatedGrantTransaction(transaction, node.getNodeCount());
+
+        boolean allGranted = false;
+
+        for (int nodeId = 0; nodeId < node.getNodeCount(); nodeId++) {
+
+            //count immediate grants here, grants that arrive later are counted by the aggregated transaction itself
+            if (lockOnNode(nodeId, aggregatedTransaction, lock) && aggregatedTransaction.countDown())
+                allGranted = true;
+        }
+
+        return allGranted;
+    }
+
+    /**
+     * Requests the lock on the specified node
+     *
+     * @param nodeId      id of the node to request the lock from
+     * @param transaction transaction to inform of the grant
+     * @param lock        requested lock
+     * @return true if the lock is granted immediately
+     */
+    private boolean lockOnNode(int nodeId, Transaction transaction, Lock lock) {
+
+        String transactionId = transaction.getTransactionId();
+
+        //remember the node so the transaction releases its locks on it
+        requestedNodes.computeIfAbsent(transactionId, id -> ConcurrentHashMap.newKeySet()).add(nodeId);
+
+        if (nodeId == node.getNodeId())
+            return localLockManager.lock(transaction, lock);
+
+        //register the transaction before sending the request, the grant may arrive right after the response
+        String grantKey = getGrantKey(transactionId, nodeId, lock);
+        waitingGrants.put(grantKey, transaction);
+
+        LockMessage response = sendRequest(nodeId, LockMessage.lock(transactionId, lock));
+
+        boolean granted = response != null && response.isGranted();
+
+        if (granted)
+            waitingGrants.remove(grantKey);
+
+        return granted;
+    }
+
+    @Override
+    public void unlock(Transaction transaction) {
+
+        String transactionId = transaction.getTransactionId();
+
+        localTransactions.remove(transactionId);
+
+        Set<Integer> nodeIds = requestedNodes.remove(transactionId);
+
+        //transaction has not requested any lock
+        if (nodeIds == null)
+            return;
+
+        for (int nodeId : nodeIds) {
+
+            if (nodeId == node.getNodeId())
+                localLockManager.unlock(transaction);
+            else
+                sendRequest(nodeId, LockMessage.unlock(transactionId));
+        }
+
+        //discard grants the transaction is still waiting for
+        waitingGrants.keySet().removeIf(key -> key.startsWith(transactionId + "|"));
+    }
+
+    @Override
+    public void degradeLock(Transaction transaction, Lock lock, int lockType) {
+
+        //database level lock is held on every node
+        if (lock.getTable() == null) {
+            for (int nodeId = 0; nodeId < node.getNodeCount(); nodeId++)
+                degradeLockOnNode(nodeId, transaction, lock, lockType);
+        } else
+            degradeLockOnNode(getOwnerNode(lock), transaction, lock, lockType);
+    }
+
+    private void degradeLockOnNode(int nodeId, Transaction transaction, Lock lock, int lockType) {
+
+        if (nodeId == node.getNodeId())
+            localLockManager.degradeLock(transaction, lock, lockType);
+        else
+            sendRequest(nodeId, LockMessage.degrade(transaction.getTransactionId(), lock, lockType));
+    }
+
+    /**
+     * Called by the lock node when a remote node grants a waiting lock request of a local transaction
+     *
+     * @param transactionId id of the granted transaction
+     * @param nodeId        id of the granting node
+     * @param lock          granted lock
+     * @since 1.0
+     */
+    void lockIsGranted(String transactionId, int nodeId, Lock lock) {
+
+        Transaction transaction = waitingGrants.remove(getGrantKey(transactionId, nodeId, lock));
+
+        if (transaction == null) {
+            Log.log(String.format("Grant of lock: %s received for transaction: %s but transaction is not waiting for it", lock, transactionId), componentName, Log.WARNING);
+            return;
+        }
+
+        transaction.lockIsGranted(lock);
+    }
+
+    /**
+     * Aborts a local transaction chosen as a dead lock victim
+     *
+     * @param transactionId id of the victim
+     * @return true if the transaction is a local transaction holding or waiting for locks
+     * @since 1.0
+     */
+    public boolean abortTransaction(String transactionId) {
+
+        Transaction transaction = localTransactions.get(transactionId);
+
+        if (transaction == null)
+            return false;
+
+        transaction.die();
+
+        return true;
+    }
+
+    /**
+     * Sends a request to a node and waits for its response
+     *
+     * @param nodeId  id of the destination node
+     * @param message request message
+     * @return response of the request, or null if the node could not answer
+     */
+    private LockMessage sendRequest(int nodeId, LockMessage message) {
+
+        try {
+            return node.getPeerConnection(nodeId).request(message).get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.log(String.format("Request of transaction: %s to lock node: %d failed: %s", message.getTransactionId(), nodeId, e.getMessage()), componentName, Log.ERROR);
+            return null;
+        }
+    }
+
+    private String getGrantKey(String transactionId, int nodeId, Lock lock) {
+        return transactionId + "|" + nodeId + "|" + lock.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package manager.lock.distributed;
+
+import manager.lock.Lock;
+import manager.transaction.Transaction;
+
+/**
+ * This class represents a transaction of another Dolus node inside the local lock manager.
+ * when the local lock manager grants a waiting request of this transaction,
+ * the grant is sent back to the node that owns the transaction.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class RemoteTransaction extends Transaction {
+
+    /**
+     * Connection to the node that owns the transaction
+     */
+    private final LockPeerConnection connection;
+
+    /**
+     * Id of the local node, grants name the node that granted them
+     */
+    private final int nodeId;
+
+    /**
+     * Default constructor
+     *
+     * @param transactionId globally unique id of the transaction
+     * @param connection    connection to the node that owns the transaction
+     * @param nodeId        id of the local node
+     * @since 1.0
+     */
+    public RemoteTransaction(String transactionId, LockPeerConnection connection, int nodeId) {
+
+        super(null, transactionId, null);
+
+        this.connection = connection;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void lockIsGranted(Lock lock) {
+        connection.send(LockMessage.grant(getTransactionId(), lock, nodeId));
+    }
+
+    @Override
+    public void die() {
+        //the owner node aborts the queries of the transaction
+        connection.send(LockMessage.die(getTransactionId()));
+    }
+
+    @Override
+    public void run() {
+        //remote transactions are executed by their own node
+    }
+}
@@ -0,0 +1,337 @@
+package manager.transaction;
+
+import common.Log;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * This class decides when submitted transactions may start.
+ * <p>
+ * at most "limit" transactions run at once, the rest wait in per client queues that are served round robin,
+ * so a client submitting a burst can not starve the others.
+ * by Little's law, running transactions = throughput * latency. once Dolus or its storage systems are saturated,
+ * admitting more transactions only raises latency. so the limit follows the observed latency of transactions
+ * (time spent waiting for locks plus time spent on storage systems) in AIMD fashion:
+ * it grows by 1/limit per transaction finished near the best latency seen, and shrinks by 10% when latency is too high.
+ * </p>
+ * <p>
+ * when pending queues are full, the oldest transaction of the client with the longest queue is shed,
+ * or the new transaction is rejected if its own client has the longest queue.
+ * </p>
+ * <p>
+ * transactions admitted when another one finishes are started on the starter thread of the controller.
+ * finished() is called on the pipeline stage finishing a transaction, starting there could block that stage
+ * on the full translate stage feeding it.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class AdmissionController {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "AdmissionController";
+
+    /**
+     * Latency above best latency * tolerance is considered as overload
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Factor the limit is multiplied by on overload
+     */
+    private static final double DECREASE_FACTOR = 0.9;
+
+    /**
+     * How fast the best latency drifts towards recent latencies, so it can follow a slower storage system
+     */
+    private static final double BASELINE_DRIFT = 0.001;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /**
+     * Maximum number of pending transactions of all clients
+     */
+    private final int maxPending;
+
+    /**
+     * Current concurrency limit
+     */
+    private double limit;
+
+    /**
+     * Best observed latency in nanoseconds, 0 if nothing is observed yet
+     */
+    private double baselineLatency;
+
+    private int inFlight;
+
+    private int pendingCount;
+
+    /**
+     * client id -> pending transactions of the client, in the order clients are served
+     */
+    private final LinkedHashMap<String, LinkedList<PendingTransaction>> pendingQueues;
+
+    /**
+     * Informed of transactions that are shed from pending queues or fail to start
+     */
+    private final Consumer<Transaction> shedListener;
+
+    /**
+     * Starts transactions admitted by finished transactions, one at a time in the order they are admitted
+     */
+    private final ExecutorService starter;
+
+    private long rejectedCount;
+
+    private long shedCount;
+
+    /**
+     * @param initialLimit initial concurrency limit
+     * @param minLimit     minimum concurrency limit
+     * @param maxLimit     maximum concurrency limit
+     * @param maxPending   maximum number of transactions waiting to start
+     * @param shedListener informed of every shed transaction and every transaction failing to start, may be null
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, int maxPending, Consumer<Transaction> shedListener) {
+
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.maxPending = maxPending;
+        this.shedListener = shedListener;
+
+        this.pendingQueues = new LinkedHashMap<>();
+
+        this.starter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "admission-starter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a transaction. it starts right away if the limit allows, otherwise it waits in the queue of its client
+     *
+     * @param clientId    id of the client submitting the transaction
+     * @param transaction transaction to start
+     * @param start       starts the transaction
+     * @return true if the transaction is accepted, false if it is rejected
+     * @since 1.0
+     */
+    public boolean submit(String clientId, Transaction transaction, Runnable start) {
+
+        LinkedList<PendingTransaction> startable;
+        PendingTransaction shed = null;
+
+        synchronized (this) {
+
+            if (pendingCount >= maxPending) {
+
+                String longestClientId = getLongestQueueClientId();
+
+                //the client of the new transaction already has the most pending transactions -> reject it
+                if (longestClientId == null || longestClientId.equals(clientId) ||
+                        pendingQueues.get(longestClientId).size() <= pendingSize(clientId)) {
+
+                    rejectedCount++;
+                    Log.log(String.format("Transaction: %s of client: %s is rejected, pending queues are full", transaction.getTransactionId(), clientId), componentName, Log.WARNING);
+                    return false;
+                }
+
+                shed = removeFirst(longestClientId);
+                shedCount++;
+            }
+
+            pendingQueues.computeIfAbsent(clientId, key -> new LinkedList<>()).add(new PendingTransaction(transaction, start));
+            pendingCount++;
+
+            startable = takeStartable();
+        }
+
+        if (shed != null) {
+
+            Log.log(String.format("Transaction: %s is shed from pending queues", shed.transaction.getTransactionId()), componentName, Log.WARNING);
+
+            if (shedListener != null)
+                shedListener.accept(shed.transaction);
+        }
+
+        startAll(startable);
+
+        return true;
+    }
+
+    /**
+     * Informs the controller that a started transaction is finished.
+     * transactions admitted in its place start on the starter thread, never on the caller's thread
+     *
+     * @param latency time the transaction waited for locks and storage systems in nanoseconds, negative if unknown
+     * @since 1.0
+     */
+    public void finished(long latency) {
+
+        LinkedList<PendingTransaction> startable;
+
+        synchronized (this) {
+
+            inFlight--;
+
+            if (latency >= 0)
+                adjustLimit(latency);
+
+            startable = takeStartable();
+        }
+
+        if (!startable.isEmpty())
+            starter.execute(() -> startAll(startable));
+    }
+
+    /**
+     * Adjusts the limit based on latency of a finished transaction.
+     * caller must hold the monitor of the controller
+     */
+    private void adjustLimit(long latency) {
+
+        if (baselineLatency == 0 || latency < baselineLatency)
+            baselineLatency = latency;
+        else
+            baselineLatency += (latency - baselineLatency) * BASELINE_DRIFT;
+
+        if (latency > baselineLatency * LATENCY_TOLERANCE)
+            limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+        else
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    /**
+     * Removes pending transactions that can start under the current limit, serving clients round robin.
+     * caller must hold the monitor of the controller
+     */
+    private LinkedList<PendingTransaction> takeStartable() {
+
+        LinkedList<PendingTransaction> startable = new LinkedList<>();
+
+        while (inFlight < (int) limit && pendingCount > 0) {
+
+            //first client in the map is the next one to serve
+            String clientId = pendingQueues.keySet().iterator().next();
+
+            startable.add(removeFirst(clientId));
+            inFlight++;
+
+            //move the client to the end of the map so others are served first
+            LinkedList<PendingTransaction> queue = pendingQueues.remove(clientId);
+            if (queue != null)
+                pendingQueues.put(clientId, queue);
+        }
+
+        return startable;
+    }
+
+    private PendingTransaction removeFirst(String clientId) {
+
+        LinkedList<PendingTransaction> queue = pendingQueues.get(clientId);
+
+        PendingTransaction pendingTransaction = queue.removeFirst();
+        pendingCount--;
+
+        if (queue.isEmpty())
+            pendingQueues.remove(clientId);
+
+        return pendingTransaction;
+    }
+
+    private String getLongestQueueClientId() {
+
+        String longestClientId = null;
+        int longestSize = 0;
+
+        for (Map.Entry<String, LinkedList<PendingTransaction>> entry : pendingQueues.entrySet()) {
+            if (entry.getValue().size() > longestSize) {
+                longestClientId = entry.getKey();
+                longestSize = entry.getValue().size();
+            }
+        }
+
+        return longestClientId;
+    }
+
+    private int pendingSize(String clientId) {
+        LinkedList<PendingTransaction> queue = pendingQueues.get(clientId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Starts transactions outside of the monitor of the controller, starting may block on a full pipeline
+     */
+    private void startAll(LinkedList<PendingTransaction> startable) {
+
+        while (!startable.isEmpty()) {
+
+            PendingTransaction pendingTransaction = startable.removeFirst();
+
+            try {
+                pendingTransaction.start.run();
+            } catch (RuntimeException e) {
+                Log.log(String.format("Can not start transaction: %s, %s", pendingTransaction.transaction.getTransactionId(), e), componentName, Log.ERROR);
+
+                //the transaction never runs, it is aborted like a shed one
+                if (shedListener != null)
+                    shedListener.accept(pendingTransaction.transaction);
+
+                //its place goes to the next pending transactions without a latency sample, they start in this loop
+                synchronized (this) {
+                    inFlight--;
+                    startable.addAll(takeStartable());
+                }
+            }
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public synchronized long getShedCount() {
+        return shedCount;
+    }
+
+    /**
+     * Transaction waiting to start
+     */
+    private static class PendingTransaction {
+
+        private final Transaction transaction;
+
+        private final Runnable start;
+
+        private PendingTransaction(Transaction transaction, Runnable start) {
+            this.transaction = transaction;
+            this.start = start;
+        }
+    }
+}
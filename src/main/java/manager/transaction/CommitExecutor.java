@@ -0,0 +1,75 @@
+package manager.transaction;
+
+import common.Log;
+import manager.commit.CommitParticipant;
+
+import java.util.List;
+
+/**
+ * This class commits an explicit transaction: deferred writes of all its statements are committed in one atomic commit,
+ * published and all locks of the transaction are released at once
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+class CommitExecutor extends QueryExecutor {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "CommitExecutor";
+
+    private Transaction transaction;
+
+    private boolean committed;
+
+    /**
+     * Whether the deferred writes are committed on all their storage systems
+     */
+    private boolean written;
+
+    CommitExecutor(Transaction transaction) {
+
+        super(transaction);
+
+        this.transaction = transaction;
+    }
+
+    @Override
+    protected boolean translate() {
+        return true;
+    }
+
+    @Override
+    protected void requestLocks() {
+        //statements of the transaction already requested every lock it needs
+    }
+
+    @Override
+    protected boolean execute() {
+
+        List<CommitParticipant> participants = transaction.takeDeferredWrites();
+
+        if (participants == null) {
+            committed = commitTransaction(null);
+            return committed;
+        }
+
+        //writes of all statements are committed or rolled back together
+        boolean validated = commitTransaction(() -> written = commitAtomically(participants));
+
+        committed = validated && written;
+
+        return committed;
+    }
+
+    @Override
+    protected void deliver() {
+        Log.log("Transaction: " + transaction.getTransactionId() + " is committed", componentName, Log.INFORMATION);
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+}
@@ -1,42 +1,35 @@
 package manager.transaction;
 
-import base.SimpleInsertContainer;
-import com.mongodb.CommandResult;
-import com.mongodb.DB;
-import com.mongodb.MongoClient;
-import com.mongodb.client.MongoDatabase;
-import config.ConfigUtilities;
-import config.StorageConfigContainer;
-import language.mysql.filter.SimpleInsertFilter;
-import language.mysql.listener.SimpleInsertListener;
-import language.mysql.translator.SimpleInsertTranslator;
-import language.mysql.utilities.MySqlLexer;
-import language.mysql.utilities.MySqlParser;
+import common.Log;
+import manager.commit.CommitParticipant;
 import manager.lock.Lock;
 import manager.lock.LockConstants;
-import manager.lock.LockManager;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-import org.bson.Document;
-import org.bson.conversions.Bson;
-import org.json.simple.JSONObject;
 
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
 
 public class InsertExecutorRunnable extends QueryExecutor{
 
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "InsertExecutorRunnable";
+
     private String table;
 
-    private String mySqlInsertQuery;
+    private String query;
 
-    private String mongoDBInsertQuery;
+    private String database;
 
-    private String query;
+    /**
+     * Record inserted by the query
+     */
+    private InsertRow row;
+
+    /**
+     * Whether the record is written to all its storage systems
+     */
+    private boolean inserted;
 
     public InsertExecutorRunnable(String query, Transaction transaction) {
 
@@ -45,99 +38,94 @@ public class InsertExecutorRunnable extends QueryExecutor{
         this.query = query;
     }
     @Override
-    public void run() {
-        translateQuery(query);
+    protected boolean translate() {
+
+        row = InsertRow.parse(query);
+
+        if (row == null)
+            return false;
+
+        table = row.getTable();
 
-        String database = getDatabase(this.table);
+        database = row.getDatabase();
+
+        return true;
+    }
+
+    @Override
+    protected void requestLocks() {
+
+        if (isOptimistic())
+            return;
 
         //submit lock request for table
         super.submitLock(new Lock(database,table.toLowerCase(), LockConstants.LockTypes.EXCLUSIVE));
 
         System.out.println("Lock requests are submitted");
-        waitOrDie();
-        System.out.println("reached after wait or die");
+    }
 
-        //execute mysql query
-        if (mySqlInsertQuery != null) {
-            try
-            {
-                // create a mysql database connection
-                String myDriver = "com.mysql.cj.jdbc.Driver";
-                String myUrl = "jdbc:mysql://localhost/sailingmanagement";
-                Class.forName(myDriver);
-                Connection conn = DriverManager.getConnection(myUrl, "test", "test");
-                Statement statement = conn.createStatement();
-
-                System.out.println("Connected to database");
-
-                //execute insert
-                System.out.println("Executing insert: " + this.mySqlInsertQuery);
-                statement.executeUpdate(this.mySqlInsertQuery);
-                System.out.println("Done executing insert");
-
-                System.out.println("Closing the connection");
-                conn.close();
-            }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-            }
-        }
+    @Override
+    protected boolean execute() {
 
-        //execute mongodb query
-        if (mongoDBInsertQuery != null) {
-            System.out.println("Connection to mongodb...");
-            MongoClient mongoClient = new MongoClient( "localhost" , 27017 );
-            System.out.println("Connected to mongodb");
-
-            System.out.println("Executing insert: " + mongoDBInsertQuery);
-            MongoDatabase db = mongoClient.getDatabase( database );
-            Bson command = new Document("eval", mongoDBInsertQuery);
-            Document result= db.runCommand(command);
-            System.out.println("Executed insert: " + mongoDBInsertQuery);
-            System.out.println(result.get("ok"));
-        }
+        if (isOptimistic()) {
 
-        super.releaseLock();
+            return executeOptimistically(() -> {
 
-    }
+                recordWrite(database, table.toLowerCase(), row.getPrimaryKeyValue());
 
-    private String getDatabase(String tableName) {
+                return commitInsert();
+            });
+        }
 
-        StorageConfigContainer configContainer = ConfigUtilities.findStorage(tableName.toLowerCase());
+        System.out.println("reached after wait or die");
 
-        if (configContainer != null)
-            return configContainer.getDatabase();
-        else
-            return null;
-    }
+        if (isDead()) {
+            Log.log("Query is chosen as a dead lock victim: " + query, componentName, Log.WARNING);
+            abort();
+            return false;
+        }
 
-    private void translateQuery(String query) {
-        CharStream charStream = CharStreams.fromString(query);
+        recordWrite(database, table.toLowerCase(), row.getPrimaryKeyValue());
 
-        MySqlLexer lexer = new MySqlLexer(charStream);
+        return commitInsert();
+    }
 
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+    @Override
+    protected void deliver() {
 
-        MySqlParser parser = new MySqlParser(tokenStream);
+        QueryResult result = getQueryResult();
 
-        MySqlParser.RootContext rootContext = parser.root();
+        if (result != null) {
 
-        SimpleInsertContainer container = new SimpleInsertContainer();
+            if (inserted)
+                result.complete();
+            else
+                result.fail("insert is rolled back");
 
-        SimpleInsertListener listener = new SimpleInsertListener(container);
+            return;
+        }
 
-        new ParseTreeWalker().walk(listener, rootContext);
+        if (inserted)
+            System.out.println("Inserted into: " + table);
+        else
+            System.out.println("Insert into: " + table + " is rolled back");
+    }
 
-        SimpleInsertFilter filter = new SimpleInsertFilter(container);
-        filter.filterKeyValues();
+    /**
+     * Writes parts of the record to their storage systems in one atomic commit.
+     * the insert of an explicit transaction is committed with the other writes of the transaction by its session
+     *
+     * @return result of commit
+     */
+    private boolean commitInsert() {
 
-        SimpleInsertTranslator translator = new SimpleInsertTranslator(container.getTableName(), filter.getMySqlKeyValuePairs(), filter.getMongoKeyValuePairs());
-        translator.translate();
+        List<CommitParticipant> participants = InsertRow.toParticipants(Collections.singletonList(row));
 
-        this.mySqlInsertQuery = translator.getMySqlInsertStatement();
-        this.mongoDBInsertQuery = translator.getMongoDBInsertStatement();
-        this.table = container.getTableName();
+        if (deferWrites(participants)) {
+            inserted = true;
+            return true;
+        }
 
+        return commit(() -> inserted = commitAtomically(participants));
     }
 }
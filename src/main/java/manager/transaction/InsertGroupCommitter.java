@@ -0,0 +1,268 @@
+package manager.transaction;
+
+import common.Log;
+import manager.lock.Lock;
+import manager.lock.LockConstants;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * This class coalesces concurrent inserts into the same table.
+ * <p>
+ * inserts submitted to a table are collected into a group until the group is full or its window elapses.
+ * a group is written by one transaction: one exclusive lock on the table, one multi row insert on MySQL and
+ * one insertMany on MongoDB, committed atomically. every insert of the group is completed with the result of the group.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class InsertGroupCommitter {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "InsertGroupCommitter";
+
+    /**
+     * Maximum time an insert waits for others to join its group in milliseconds
+     */
+    private final long window;
+
+    /**
+     * Number of inserts that makes a group full
+     */
+    private final int maxRows;
+
+    /**
+     * Creates the transactions writing groups
+     */
+    private final Supplier<Transaction> transactionFactory;
+
+    /**
+     * "database_table" -> group collecting inserts into the table
+     */
+    private final HashMap<String, Group> groups;
+
+    /**
+     * Flushes groups whose window elapsed
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Writes groups, each on its own virtual thread
+     */
+    private final ExecutorService writer;
+
+    /**
+     * @param window             maximum time an insert waits for others to join its group in milliseconds
+     * @param maxRows            number of inserts that makes a group full
+     * @param transactionFactory creates the transactions writing groups
+     */
+    public InsertGroupCommitter(long window, int maxRows, Supplier<Transaction> transactionFactory) {
+
+        this.window = window;
+        this.maxRows = Math.max(1, maxRows);
+        this.transactionFactory = transactionFactory;
+
+        this.groups = new HashMap<>();
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "insert-group-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.writer = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Adds an insert to the group of its table
+     *
+     * @param row record to insert
+     * @return completed with true when the group of the insert is committed, false if it is rolled back
+     * @since 1.0
+     */
+    public CompletableFuture<Boolean> submit(InsertRow row) {
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        String table = row.getTable().toLowerCase();
+
+        //tables of different databases may have the same name
+        String key = VersionTable.getKey(row.getDatabase(), table);
+
+        Group full = null;
+
+        synchronized (this) {
+
+            Group group = groups.get(key);
+
+            //first insert of a group starts its window
+            if (group == null) {
+
+                group = new Group(key, table, row.getDatabase());
+
+                Group scheduled = group;
+
+                try {
+                    timer.schedule(() -> flush(scheduled), window, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    Log.log(String.format("Insert into: %s is rejected, group committer is shut down", table), componentName, Log.ERROR);
+                    result.complete(false);
+                    return result;
+                }
+
+                groups.put(key, group);
+            }
+
+            group.rows.add(row);
+            group.results.add(result);
+
+            if (group.rows.size() >= maxRows) {
+                groups.remove(key);
+                full = group;
+            }
+        }
+
+        if (full != null) {
+            Group written = full;
+            writer.execute(() -> write(written));
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes a group whose window elapsed, unless it is already written because it became full
+     */
+    private void flush(Group group) {
+
+        synchronized (this) {
+            if (groups.get(group.key) != group)
+                return;
+
+            groups.remove(group.key);
+        }
+
+        writer.execute(() -> write(group));
+    }
+
+    private void write(Group group) {
+
+        boolean committed = false;
+
+        try {
+            GroupInsertExecutor groupInsertExecutor = new GroupInsertExecutor(group, transactionFactory.get());
+            groupInsertExecutor.run();
+
+            committed = groupInsertExecutor.inserted;
+        } catch (RuntimeException e) {
+            Log.log(String.format("Group of %d inserts into: %s failed, %s", group.rows.size(), group.table, e), componentName, Log.ERROR);
+        }
+
+        for (CompletableFuture<Boolean> result : group.results)
+            result.complete(committed);
+    }
+
+    /**
+     * Writes pending groups and stops accepting inserts
+     *
+     * @since 1.0
+     */
+    public void shutdown() {
+
+        LinkedList<Group> pending;
+
+        synchronized (this) {
+            pending = new LinkedList<>(groups.values());
+            groups.clear();
+        }
+
+        timer.shutdownNow();
+
+        for (Group group : pending)
+            writer.execute(() -> write(group));
+
+        writer.close();
+    }
+
+    /**
+     * Inserts into one table waiting to be written together
+     */
+    private static class Group {
+
+        private final String key;
+
+        private final String table;
+
+        private final String database;
+
+        private final LinkedList<InsertRow> rows = new LinkedList<>();
+
+        private final LinkedList<CompletableFuture<Boolean>> results = new LinkedList<>();
+
+        private Group(String key, String table, String database) {
+            this.key = key;
+            this.table = table;
+            this.database = database;
+        }
+    }
+
+    /**
+     * Writes a group of inserts in one transaction
+     */
+    private static class GroupInsertExecutor extends QueryExecutor {
+
+        private final Group group;
+
+        private boolean inserted;
+
+        private GroupInsertExecutor(Group group, Transaction transaction) {
+
+            super(transaction);
+
+            this.group = group;
+        }
+
+        @Override
+        protected boolean translate() {
+            //rows are parsed by their submitters
+            return true;
+        }
+
+        @Override
+        protected void requestLocks() {
+            submitLock(new Lock(group.database, group.table, LockConstants.LockTypes.EXCLUSIVE));
+        }
+
+        @Override
+        protected boolean execute() {
+
+            if (isDead()) {
+                Log.log(String.format("Group of %d inserts into: %s is chosen as a dead lock victim", group.rows.size(), group.table), componentName, Log.WARNING);
+                abort();
+                return false;
+            }
+
+            for (InsertRow row : group.rows)
+                recordWrite(group.database, group.table, row.getPrimaryKeyValue());
+
+            return commit(() -> inserted = commitAtomically(InsertRow.toParticipants(group.rows)));
+        }
+
+        @Override
+        protected void deliver() {
+            //submitters of the group are informed by write
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package manager.transaction;
+
+import base.SimpleInsertContainer;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import common.Log;
+import config.ConfigUtilities;
+import config.StorageConfigContainer;
+import language.mysql.filter.SimpleInsertFilter;
+import language.mysql.listener.SimpleInsertListener;
+import language.mysql.translator.SimpleInsertTranslator;
+import language.mysql.utilities.MySqlLexer;
+import language.mysql.utilities.MySqlParser;
+import manager.commit.CommitParticipant;
+import manager.commit.MongoDBCommitParticipant;
+import manager.commit.MySqlCommitParticipant;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.bson.Document;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * This class is a record parsed from an insert query, split into the parts stored on each storage system
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class InsertRow {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "InsertRow";
+
+    private String table;
+
+    /**
+     * Database of the storage system of the table
+     */
+    private String database;
+
+    /**
+     * Value of the primary key of the record
+     */
+    private String primaryKeyValue;
+
+    private StorageConfigContainer mySqlStorage;
+
+    /**
+     * Columns of the record stored in MySQL and their literal values
+     */
+    private HashMap<String, String> mySqlKeyValuePairs;
+
+    private String mySqlInsertQuery;
+
+    private StorageConfigContainer mongoDBStorage;
+
+    /**
+     * Part of the record stored in MongoDB, null if nothing is stored in MongoDB
+     */
+    private Document mongoDBDocument;
+
+    private InsertRow() {
+    }
+
+    /**
+     * Parses an insert query
+     *
+     * @param query insert query
+     * @return the inserted record, null if the table of the query is not found in storage systems
+     * @since 1.0
+     */
+    public static InsertRow parse(String query) {
+
+        CharStream charStream = CharStreams.fromString(query);
+
+        MySqlLexer lexer = new MySqlLexer(charStream);
+
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+
+        MySqlParser parser = new MySqlParser(tokenStream);
+
+        MySqlParser.RootContext rootContext = parser.root();
+
+        SimpleInsertContainer container = new SimpleInsertContainer();
+
+        SimpleInsertListener listener = new SimpleInsertListener(container);
+
+        new ParseTreeWalker().walk(listener, rootContext);
+
+        InsertRow row = new InsertRow();
+        row.table = container.getTableName();
+
+        StorageConfigContainer tableStorage = row.table == null ? null : ConfigUtilities.findStorage(row.table.toLowerCase());
+
+        if (tableStorage == null) {
+            Log.log("Table of the insert is not found: " + query, componentName, Log.ERROR);
+            return null;
+        }
+
+        SimpleInsertFilter filter = new SimpleInsertFilter(container);
+        filter.filterKeyValues();
+
+        SimpleInsertTranslator translator = new SimpleInsertTranslator(container.getTableName(), filter.getMySqlKeyValuePairs(), filter.getMongoKeyValuePairs());
+        translator.translate();
+
+        row.database = tableStorage.getDatabase();
+        row.primaryKeyValue = container.getValue(tableStorage.getPrimaryKey(row.table));
+        row.mySqlStorage = filter.getMySqlConfigContainer();
+        row.mySqlKeyValuePairs = filter.getMySqlKeyValuePairs();
+        row.mySqlInsertQuery = translator.getMySqlInsertStatement();
+        row.mongoDBStorage = filter.getMongoDBConfigContainer();
+        row.mongoDBDocument = translator.getMongoDBInsertDocument();
+
+        return row;
+    }
+
+    /**
+     * Creates participants writing records of the same table to their storage systems.
+     * records with the same MySQL columns are written with one multi row insert and records of a MongoDB storage with one insertMany
+     *
+     * @param rows records to write
+     * @return writes on each storage system
+     * @since 1.0
+     */
+    public static LinkedList<CommitParticipant> toParticipants(List<InsertRow> rows) {
+
+        LinkedList<CommitParticipant> participants = new LinkedList<>();
+
+        //a single record is written with the statement generated by the translator
+        if (rows.size() == 1) {
+
+            InsertRow row = rows.get(0);
+
+            if (row.mySqlInsertQuery != null)
+                participants.add(new MySqlCommitParticipant(row.mySqlStorage, Collections.singletonList(row.mySqlInsertQuery)));
+
+            if (row.mongoDBDocument != null)
+                participants.add(new MongoDBCommitParticipant(row.mongoDBStorage, row.table, Collections.singletonList(new InsertOneModel<>(row.mongoDBDocument))));
+
+            return participants;
+        }
+
+        //MySQL storage -> column list -> records with those columns
+        LinkedHashMap<StorageConfigContainer, LinkedHashMap<TreeSet<String>, LinkedList<InsertRow>>> mySqlRows = new LinkedHashMap<>();
+
+        //MongoDB storage -> inserts of documents
+        LinkedHashMap<StorageConfigContainer, LinkedList<WriteModel<Document>>> mongoDBWrites = new LinkedHashMap<>();
+
+        for (InsertRow row : rows) {
+
+            if (!row.mySqlKeyValuePairs.isEmpty())
+                mySqlRows.computeIfAbsent(row.mySqlStorage, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(new TreeSet<>(row.mySqlKeyValuePairs.keySet()), key -> new LinkedList<>())
+                        .add(row);
+
+            if (row.mongoDBDocument != null)
+                mongoDBWrites.computeIfAbsent(row.mongoDBStorage, key -> new LinkedList<>()).add(new InsertOneModel<>(row.mongoDBDocument));
+        }
+
+        String table = rows.get(0).table;
+
+        for (StorageConfigContainer storage : mySqlRows.keySet()) {
+
+            LinkedList<String> statements = new LinkedList<>();
+
+            for (TreeSet<String> columns : mySqlRows.get(storage).keySet())
+                statements.add(toMultiRowInsert(table, columns, mySqlRows.get(storage).get(columns)));
+
+            participants.add(new MySqlCommitParticipant(storage, statements));
+        }
+
+        for (StorageConfigContainer storage : mongoDBWrites.keySet())
+            participants.add(new MongoDBCommitParticipant(storage, table, mongoDBWrites.get(storage)));
+
+        return participants;
+    }
+
+    /**
+     * Creates one insert statement for several records
+     *
+     * @param table   name of the table
+     * @param columns columns all records have
+     * @param rows    records to insert
+     * @return insert statement like INSERT INTO table(c1, c2) VALUES(v1, v2), (v3, v4)
+     */
+    private static String toMultiRowInsert(String table, TreeSet<String> columns, List<InsertRow> rows) {
+
+        StringBuilder statement = new StringBuilder();
+
+        statement.append("INSERT INTO ").append(table).append("(").append(String.join(", ", columns)).append(") VALUES");
+
+        boolean first = true;
+
+        for (InsertRow row : rows) {
+
+            statement.append(first ? "(" : ", (");
+            first = false;
+
+            boolean firstValue = true;
+
+            for (String column : columns) {
+
+                if (!firstValue)
+                    statement.append(", ");
+                firstValue = false;
+
+                statement.append(row.mySqlKeyValuePairs.get(column));
+            }
+
+            statement.append(")");
+        }
+
+        return statement.toString();
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getPrimaryKeyValue() {
+        return primaryKeyValue;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MySQL insert: %s, MongoDB insert: %s", mySqlInsertQuery, mongoDBDocument == null ? null : mongoDBDocument.toJson());
+    }
+}
@@ -1,34 +1,457 @@
 package manager.transaction;
 
+import common.Log;
+import manager.commit.CommitCoordinator;
+import manager.commit.CommitParticipant;
 import manager.lock.Lock;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 public abstract class QueryExecutor implements Runnable{
 
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "QueryExecutor";
+
+    /**
+     * Number of times an optimistic query is executed before giving up
+     */
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 5;
+
     private HashMap<String,Boolean> lockRequests;
 
     private Transaction transaction;
 
-    private boolean allGranted;
+    /**
+     * Tables and records read and written by the query
+     */
+    private ReadWriteSet readWriteSet;
+
+    /**
+     * Handle of the result of a statement of an explicit transaction, the handle of a single query belongs to its transaction
+     */
+    private QueryResult statementResult;
+
+    private volatile boolean allGranted;
 
-    private boolean die;
+    private volatile boolean die;
+
+    /**
+     * Guards lock requests, allGranted and die. lock grants arrive on threads of the lock service
+     */
+    private final ReentrantLock grantLock = new ReentrantLock();
+
+    /**
+     * Signaled when all locks are granted or the executor must die
+     */
+    private final Condition grantedOrDied = grantLock.newCondition();
 
     public QueryExecutor(Transaction transaction) {
         this.transaction = transaction;
         lockRequests = new HashMap<>();
+
+        //statements of an explicit transaction share the read and write sets of the transaction, they are validated and published at commit
+        readWriteSet = transaction.isExplicit() ? transaction.getReadWriteSet() : new ReadWriteSet();
+    }
+
+    /**
+     * Runs all phases of the query one after another on the current thread.
+     * QueryPipeline runs the same phases on separate stages instead
+     */
+    @Override
+    public void run() {
+
+        try {
+            if (!translate())
+                return;
+
+            requestLocks();
+            waitOrDie();
+
+            if (executeAndMeasure())
+                deliver();
+        } catch (RuntimeException e) {
+            //locks requested before the failure must not outlive the query
+            abort();
+            throw e;
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Runs the execute phase and adds its duration to the execution time of the transaction
+     *
+     * @return result of the execute phase
+     */
+    boolean executeAndMeasure() {
+
+        long startedAt = System.nanoTime();
+
+        try {
+            return execute();
+        } finally {
+            transaction.addExecutionTime(System.nanoTime() - startedAt);
+        }
+    }
+
+    /**
+     * Marks the transaction of the query as finished. an explicit transaction is finished by its session
+     */
+    void finish() {
+        if (!transaction.isExplicit())
+            transaction.finished();
+    }
+
+    /**
+     * Aborts the transaction of the query and releases its locks.
+     * deferred writes of earlier statements of an explicit transaction are discarded
+     *
+     * @since 1.0
+     */
+    protected void abort() {
+        transaction.abort();
+        releaseLock();
+    }
+
+    /**
+     * Parses and translates the query. CPU bound
+     *
+     * @return true if the query is translated successfully, false otherwise
+     * @since 1.0
+     */
+    protected abstract boolean translate();
+
+    /**
+     * Submits lock requests of the query, if it needs any. granting them is waited for by waitOrDie
+     *
+     * @since 1.0
+     */
+    protected abstract void requestLocks();
+
+    /**
+     * Executes the translated query on storage systems and commits it. I/O bound
+     *
+     * @return true if there are results to deliver, false otherwise
+     * @since 1.0
+     */
+    protected abstract boolean execute();
+
+    /**
+     * Delivers results of the executed query
+     *
+     * @since 1.0
+     */
+    protected abstract void deliver();
+
+    /**
+     * Get the handle streaming the result of the query to its caller
+     *
+     * @return handle of the result, null if the result is printed
+     * @since 1.0
+     */
+    protected QueryResult getQueryResult() {
+        return transaction.isExplicit() ? statementResult : transaction.getQueryResult();
+    }
+
+    /**
+     * Sets the handle of the result of a statement of an explicit transaction
+     *
+     * @param statementResult handle of the result, null if the result is printed
+     */
+    void setStatementResult(QueryResult statementResult) {
+        this.statementResult = statementResult;
+    }
+
+    /**
+     * Whether the query is executed without locks and validated at commit
+     *
+     * @return true if the transaction of the query is optimistic
+     * @since 1.0
+     */
+    protected boolean isOptimistic() {
+        return transaction.getConcurrencyMode() == Transaction.OPTIMISTIC;
+    }
+
+    /**
+     * Whether selects of the query read a snapshot instead of locking
+     *
+     * @return true if the transaction of the query reads snapshots
+     * @since 1.0
+     */
+    protected boolean isSnapshot() {
+        return transaction.getConcurrencyMode() == Transaction.SNAPSHOT;
+    }
+
+    /**
+     * Opens a snapshot through the snapshot coordinator of the transaction
+     *
+     * @param snapshot snapshot to open
+     * @return true if the snapshot is opened, false otherwise
+     * @since 1.0
+     */
+    protected boolean openSnapshot(ReadSnapshot snapshot) {
+
+        SnapshotCoordinator snapshotCoordinator = transaction.getSnapshotCoordinator();
+
+        if (snapshotCoordinator == null) {
+            Log.log(String.format("Transaction: %s has no snapshot coordinator", transaction.getTransactionId()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return snapshotCoordinator.openSnapshot(snapshot);
+    }
+
+    /**
+     * Commits writes on several storage systems atomically through the commit coordinator of the transaction
+     *
+     * @param participants writes on each storage system
+     * @return true if all writes are committed, false if none is
+     * @since 1.0
+     */
+    protected boolean commitAtomically(List<CommitParticipant> participants) {
+
+        CommitCoordinator commitCoordinator = transaction.getCommitCoordinator();
+
+        if (commitCoordinator == null) {
+            Log.log(String.format("Transaction: %s has no commit coordinator", transaction.getTransactionId()), componentName, Log.ERROR);
+            return false;
+        }
+
+        return commitCoordinator.commit(participants);
+    }
+
+    /**
+     * Records reading a whole table. must be called before the table is actually read
+     *
+     * @param database name of the database
+     * @param table    name of the table
+     * @since 1.0
+     */
+    protected void recordRead(String database, String table) {
+        recordReadKey(VersionTable.getKey(database, table));
+    }
+
+    /**
+     * Records reading a single record. must be called before the record is actually read
+     *
+     * @param database        name of the database
+     * @param table           name of the table
+     * @param primaryKeyValue value of the primary key of the record
+     * @since 1.0
+     */
+    protected void recordRead(String database, String table, String primaryKeyValue) {
+        recordReadKey(VersionTable.getKey(database, table, primaryKeyValue));
+    }
+
+    private void recordReadKey(String key) {
+
+        VersionTable versionTable = transaction.getVersionTable();
+
+        if (versionTable != null)
+            readWriteSet.addRead(key, versionTable.getVersion(key));
+    }
+
+    /**
+     * Records writing a record
+     *
+     * @param database        name of the database
+     * @param table           name of the table
+     * @param primaryKeyValue value of the primary key of the record, null if it is not known
+     * @since 1.0
+     */
+    protected void recordWrite(String database, String table, String primaryKeyValue) {
+        readWriteSet.addWrite(database, table, primaryKeyValue);
+    }
+
+    /**
+     * Commits the query.
+     * a statement of an explicit transaction keeps its locks, its writes must be deferred with deferWrites instead
+     *
+     * @param writePhase writes of the query, may be null for read only queries
+     * @return false if validation of an optimistic query failed and it must be executed again, true otherwise
+     * @see #commitTransaction(Runnable)
+     * @since 1.0
+     */
+    protected boolean commit(Runnable writePhase) {
+
+        if (transaction.isExplicit()) {
+
+            if (writePhase != null) {
+                Log.log(String.format("Writes of transaction: %s must be deferred until its session commits", transaction.getTransactionId()), componentName, Log.ERROR);
+                return false;
+            }
+
+            return true;
+        }
+
+        return commitTransaction(writePhase);
+    }
+
+    /**
+     * Defers writes of a statement of an explicit transaction until its session commits.
+     * writes of all statements of the transaction are committed in one atomic commit
+     *
+     * @param participants writes of the statement on each storage system
+     * @return true if the writes are deferred, false if the query is not part of an explicit transaction and must commit them itself
+     * @since 1.0
+     */
+    protected boolean deferWrites(List<CommitParticipant> participants) {
+
+        if (!transaction.isExplicit())
+            return false;
+
+        transaction.deferWrites(participants);
+
+        return true;
+    }
+
+    /**
+     * Commits the transaction.
+     * <p>
+     * a pessimistic transaction already holds its locks: writes are applied between beginWrite and endWrite of the version table and all locks are released with one unlock.
+     * an optimistic transaction takes exclusive locks on the tables it wrote only for the write phase,
+     * then its read set is validated and its write keys are marked in one critical section of the version table, and writes are applied after it.
+     * </p>
+     *
+     * @param writePhase writes of the transaction, may be null for read only transactions
+     * @return false if validation of an optimistic transaction failed, true otherwise
+     * @since 1.0
+     */
+    boolean commitTransaction(Runnable writePhase) {
+
+        VersionTable versionTable = transaction.getVersionTable();
+
+        //writes must be ordered with snapshots opened on the storage systems
+        SnapshotCoordinator snapshotCoordinator = transaction.getSnapshotCoordinator();
+        if (writePhase != null && snapshotCoordinator != null) {
+            Runnable writes = writePhase;
+            writePhase = () -> snapshotCoordinator.commit(writes);
+        }
+
+        if (!isOptimistic()) {
+
+            //optimistic readers of the written keys fail validation until the write phase ends
+            if (versionTable != null)
+                versionTable.beginWrite(readWriteSet.getWriteSet());
+
+            try {
+                if (writePhase != null)
+                    writePhase.run();
+            } finally {
+                if (versionTable != null)
+                    versionTable.endWrite(readWriteSet.getWriteSet());
+            }
+
+            releaseLock();
+
+            return true;
+        }
+
+        //pessimistic queries that read the written tables must not see a half applied write phase
+        if (!readWriteSet.isReadOnly()) {
+
+            grantLock.lock();
+            try {
+                lockRequests.clear();
+                allGranted = false;
+                die = false;
+            } finally {
+                grantLock.unlock();
+            }
+
+            for (Lock lock : readWriteSet.getWriteLocks())
+                submitLock(lock);
+
+            waitOrDie();
+
+            //chosen as a deadlock victim -> nothing is written, execute the query again
+            if (die) {
+                releaseLock();
+                return false;
+            }
+        }
+
+        boolean committed = versionTable.validateAndBeginWrite(readWriteSet);
+
+        //writes run outside the monitor of the version table, validations of other transactions are not blocked meanwhile
+        if (committed) {
+            try {
+                if (writePhase != null)
+                    writePhase.run();
+            } finally {
+                versionTable.endWrite(readWriteSet.getWriteSet());
+            }
+        }
+
+        if (!readWriteSet.isReadOnly())
+            releaseLock();
+
+        return committed;
+    }
+
+    /**
+     * Executes an optimistic query until it is committed.
+     * only a query whose read set is changed by another committed query is executed again
+     *
+     * @param attempt read phase of the query followed by a call to commit, returns the result of commit
+     * @return true if the query is committed, false if it failed validation in all attempts
+     * @since 1.0
+     */
+    protected boolean executeOptimistically(BooleanSupplier attempt) {
+
+        //statements of an explicit transaction are validated once at commit, a failed validation aborts the whole transaction
+        if (transaction.isExplicit())
+            return attempt.getAsBoolean();
+
+        for (int attemptNumber = 1; attemptNumber <= MAX_OPTIMISTIC_ATTEMPTS; attemptNumber++) {
+
+            readWriteSet.clear();
+
+            if (attempt.getAsBoolean())
+                return true;
+
+            Log.log(String.format("Validation of transaction: %s failed in attempt: %d", transaction.getTransactionId(), attemptNumber), componentName, Log.WARNING);
+        }
+
+        Log.log(String.format("Transaction: %s is aborted after %d failed validations", transaction.getTransactionId(), MAX_OPTIMISTIC_ATTEMPTS), componentName, Log.ERROR);
+
+        return false;
     }
 
     public void lockIsGranted(Lock lock) {
         System.out.println("Lock: " + lock.toString() + " is granted");
-        lockRequests.put(lock.toString(), true);
 
-        allGranted = checkGranted();
-        System.out.println(allGranted);
+        grantLock.lock();
+        try {
+            lockRequests.put(lock.toString(), true);
+
+            allGranted = checkGranted();
+            System.out.println(allGranted);
+
+            if (allGranted)
+                grantedOrDied.signalAll();
+        } finally {
+            grantLock.unlock();
+        }
     }
 
     protected void submitLock(Lock lock) {
-        lockRequests.put(lock.toString(), false);
+
+        grantLock.lock();
+        try {
+            lockRequests.put(lock.toString(), false);
+            allGranted = false;
+        } finally {
+            grantLock.unlock();
+        }
+
+        //the lock service may grant the lock on this thread, so it must not be called while holding the grant lock
         transaction.submitLock(lock, this);
     }
 
@@ -46,8 +469,25 @@ public abstract class QueryExecutor implements Runnable{
         return allGranted;
     }
 
+    /**
+     * Whether the query is chosen as a dead lock victim while waiting for its locks
+     *
+     * @return true if the query must not be executed
+     * @since 1.0
+     */
+    protected boolean isDead() {
+        return die;
+    }
+
     public void die() {
-        this.die = true;
+
+        grantLock.lock();
+        try {
+            this.die = true;
+            grantedOrDied.signalAll();
+        } finally {
+            grantLock.unlock();
+        }
     }
 
     public void releaseLock() {
@@ -56,19 +496,24 @@ public abstract class QueryExecutor implements Runnable{
 
     protected void waitOrDie() {
 
-        while (true) {
+        long startedAt = System.nanoTime();
 
-            try {
-                if (allGranted || die) {
-                    System.out.println(allGranted);
-                    return;
-                }
-                else
-                    Thread.sleep(500);
-            }
-            catch(InterruptedException e) {
-                System.out.println("QueryExecutor is interrupted");
-            }
+        grantLock.lock();
+        try {
+            //parks the thread until a grant or die signal, a virtual thread gives up its carrier meanwhile
+            while (!lockRequests.isEmpty() && !allGranted && !die)
+                grantedOrDied.await();
+
+            System.out.println(allGranted);
+        }
+        catch(InterruptedException e) {
+            System.out.println("QueryExecutor is interrupted");
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            grantLock.unlock();
+
+            transaction.addLockWaitTime(System.nanoTime() - startedAt);
         }
     }
 }
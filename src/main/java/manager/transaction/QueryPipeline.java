@@ -0,0 +1,139 @@
+package manager.transaction;
+
+import common.Log;
+
+/**
+ * This class runs queries as a staged pipeline instead of running each query on one thread.
+ * <p>
+ * phases of a query executor are run on four stages, each with its own queue and threads:
+ * translate (parsing and translating, CPU bound), lock (waiting for locks), execute (storage system I/O) and deliver (results).
+ * a query moves to the next stage when its phase in the current stage is done.
+ * handing a query to a full stage blocks the stage handing it over. stages only feed the stages after them,
+ * so a full stage slows down the stages before it and the stages after it keep draining.
+ * queries enter the pipeline from client threads and the starter thread of the AdmissionController, never from a stage:
+ * a stage blocked on a full translate stage would wait for the stages it feeds itself.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class QueryPipeline {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "QueryPipeline";
+
+    private final Stage translateStage;
+
+    private final Stage lockStage;
+
+    private final Stage executeStage;
+
+    private final Stage deliverStage;
+
+    /**
+     * Creates a pipeline sized for the number of available processors
+     *
+     * @since 1.0
+     */
+    public QueryPipeline() {
+        this(Runtime.getRuntime().availableProcessors(), 64, 32, 2, 256);
+    }
+
+    /**
+     * @param translateThreads number of threads parsing and translating queries
+     * @param lockThreads      number of threads waiting for locks, bounds the number of queries waiting for locks at once
+     * @param executeThreads   number of threads executing queries on storage systems
+     * @param deliverThreads   number of threads delivering results
+     * @param queueCapacity    capacity of the queue of each stage
+     */
+    public QueryPipeline(int translateThreads, int lockThreads, int executeThreads, int deliverThreads, int queueCapacity) {
+
+        this.translateStage = new Stage("translate", translateThreads, queueCapacity);
+        this.lockStage = new Stage("lock", lockThreads, queueCapacity);
+        this.executeStage = new Stage("execute", executeThreads, queueCapacity);
+        this.deliverStage = new Stage("deliver", deliverThreads, queueCapacity);
+    }
+
+    /**
+     * Submits a query to the pipeline, blocks while the translate stage is full.
+     * must not be called from a thread of a stage, see the class description
+     *
+     * @param queryExecutor executor of the query
+     * @since 1.0
+     */
+    public void submit(QueryExecutor queryExecutor) {
+
+        translateStage.submit(() -> runPhase(queryExecutor, () -> {
+
+            if (!queryExecutor.translate()) {
+                queryExecutor.finish();
+                return;
+            }
+
+            lockStage.submit(() -> runPhase(queryExecutor, () -> {
+
+                queryExecutor.requestLocks();
+                queryExecutor.waitOrDie();
+
+                executeStage.submit(() -> runPhase(queryExecutor, () -> {
+
+                    if (!queryExecutor.executeAndMeasure()) {
+                        queryExecutor.finish();
+                        return;
+                    }
+
+                    deliverStage.submit(() -> runPhase(queryExecutor, () -> {
+                        queryExecutor.deliver();
+                        queryExecutor.finish();
+                    }));
+                }));
+            }));
+        }));
+    }
+
+    /**
+     * Runs a phase of a query, a query failing in any phase is aborted and finished
+     */
+    private void runPhase(QueryExecutor queryExecutor, Runnable phase) {
+
+        try {
+            phase.run();
+        } catch (RuntimeException e) {
+            //locks requested in an earlier phase must not outlive the query
+            queryExecutor.abort();
+            queryExecutor.finish();
+            throw e;
+        }
+    }
+
+    /**
+     * Logs metrics of all stages
+     *
+     * @since 1.0
+     */
+    public void logMetrics() {
+        for (Stage stage : getStages())
+            Log.log(stage.toString(), componentName, Log.INFORMATION);
+    }
+
+    public Stage[] getStages() {
+        return new Stage[]{translateStage, lockStage, executeStage, deliverStage};
+    }
+
+    /**
+     * Stops accepting queries and waits for queries already in the pipeline to complete.
+     * stages are shut down in order, so every stage can still hand its queries to the next one
+     *
+     * @param timeout maximum time to wait for each stage in milliseconds
+     * @since 1.0
+     */
+    public void shutdown(long timeout) {
+        for (Stage stage : getStages()) {
+            if (!stage.shutdown(timeout))
+                Log.log("Stage: " + stage.getName() + " did not finish its tasks in time", componentName, Log.WARNING);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package manager.transaction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is the handle of a query executed by TransactionManager, it streams rows of the result in batches.
+ * <p>
+ * rows are consumed either by pulling batches with nextBatch or by subscribing to the handle as a Flow.Publisher, not both.
+ * the executor of the query reads a batch from its storage system only when the consumer has room for it:
+ * at most PREFETCH_BATCHES batches wait in the handle, and the executor stops fetching from the driver until one of them is taken.
+ * together with the JDBC fetch size this keeps memory bounded regardless of the size of the result.
+ * </p>
+ * <p>
+ * a streamed query keeps its locks and connection until the last batch is taken,
+ * a consumer that stops reading must cancel the handle to release them.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class QueryResult implements Flow.Publisher<List<HashMap<String, String>>> {
+
+    /**
+     * Number of batches read ahead of the consumer
+     */
+    public static final int PREFETCH_BATCHES = 2;
+
+    /**
+     * How often a blocked executor checks whether the handle is cancelled in milliseconds
+     */
+    private static final long CANCEL_CHECK_INTERVAL = 100;
+
+    /**
+     * Marks the end of the batches in the queue
+     */
+    private static final List<HashMap<String, String>> END = Collections.emptyList();
+
+    /**
+     * Maximum number of rows in a batch
+     */
+    private final int batchSize;
+
+    private final LinkedBlockingQueue<List<HashMap<String, String>>> batches;
+
+    /**
+     * Room for batches, taken by the executor and given back by the consumer
+     */
+    private final Semaphore credits;
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Time the executor waited for the consumer to make room for batches in nanoseconds
+     */
+    private final AtomicLong backpressureTime = new AtomicLong();
+
+    private volatile boolean cancelled;
+
+    private volatile boolean succeeded;
+
+    private volatile String failure;
+
+    /**
+     * Names of the columns of the rows, null until the executor knows them
+     */
+    private volatile List<String> columns;
+
+    /**
+     * @param batchSize maximum number of rows in a batch, usually the JDBC fetch size
+     */
+    public QueryResult(int batchSize) {
+        this(batchSize, PREFETCH_BATCHES);
+    }
+
+    /**
+     * Creates a handle that never blocks the executor, all rows are buffered until the consumer takes them.
+     * used when the query runs on the thread of its consumer
+     *
+     * @param batchSize maximum number of rows in a batch
+     * @return buffering handle
+     */
+    static QueryResult buffered(int batchSize) {
+        //half of the maximum, so credits given back by the consumer never overflow the semaphore
+        return new QueryResult(batchSize, Integer.MAX_VALUE / 2);
+    }
+
+    /**
+     * @param batchSize       maximum number of rows in a batch
+     * @param prefetchBatches number of batches read ahead of the consumer
+     */
+    private QueryResult(int batchSize, int prefetchBatches) {
+
+        this.batchSize = Math.max(1, batchSize);
+
+        this.batches = new LinkedBlockingQueue<>();
+        this.credits = new Semaphore(prefetchBatches);
+    }
+
+    /**
+     * Takes the next batch of rows, waiting until the executor reads it
+     *
+     * @return next batch of rows, null if there are no more rows. isSucceeded tells whether the query failed
+     * @since 1.0
+     */
+    public List<HashMap<String, String>> nextBatch() {
+
+        if (cancelled)
+            return null;
+
+        List<HashMap<String, String>> batch;
+
+        try {
+            batch = batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            return null;
+        }
+
+        if (batch == END) {
+
+            //later calls must see the end too
+            batches.add(END);
+            return null;
+        }
+
+        credits.release();
+
+        return batch;
+    }
+
+    /**
+     * Stops the query, the executor stops reading and releases its locks and connection
+     *
+     * @since 1.0
+     */
+    public void cancel() {
+
+        cancelled = true;
+
+        fail("query is cancelled");
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<HashMap<String, String>>> subscriber) {
+
+        if (!subscribed.compareAndSet(false, true)) {
+
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("result of a query can only be consumed once"));
+
+            return;
+        }
+
+        Thread.ofVirtual().name("query-result-publisher").start(new BatchPublisher(subscriber));
+    }
+
+    /**
+     * Called by the executor once the columns of the result are known
+     */
+    void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Called by the executor to hand a batch to the consumer, blocks while the consumer has no room for it
+     *
+     * @param batch rows to hand over
+     * @return true if the batch is accepted, false if the handle is cancelled and the executor must stop reading
+     */
+    boolean publish(List<HashMap<String, String>> batch) {
+
+        if (batch.isEmpty())
+            return !cancelled;
+
+        long startedAt = System.nanoTime();
+
+        try {
+            while (!credits.tryAcquire(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (cancelled)
+                    return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            backpressureTime.addAndGet(System.nanoTime() - startedAt);
+        }
+
+        if (cancelled || terminated.get())
+            return false;
+
+        batches.add(batch);
+
+        return true;
+    }
+
+    /**
+     * Called by the executor when all rows are handed over and the query is committed
+     */
+    void complete() {
+
+        if (!terminated.compareAndSet(false, true))
+            return;
+
+        succeeded = true;
+        batches.add(END);
+    }
+
+    /**
+     * Called when the query fails, only the first of complete and fail has effect
+     *
+     * @param reason why the query failed
+     */
+    void fail(String reason) {
+
+        if (!terminated.compareAndSet(false, true))
+            return;
+
+        failure = reason;
+        batches.add(END);
+    }
+
+    /**
+     * Get the time the executor waited for a slow consumer, it is not spent on Dolus or its storage systems
+     *
+     * @return waiting time in nanoseconds
+     * @since 1.0
+     */
+    public long getBackpressureTime() {
+        return backpressureTime.get();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Get names of the columns of the rows
+     *
+     * @return column names, null if no row is read yet
+     * @since 1.0
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Whether all rows are read and the query is committed. meaningful after nextBatch returns null
+     *
+     * @return true if the query succeeded
+     * @since 1.0
+     */
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Get the reason the query failed
+     *
+     * @return reason of the failure, null if the query did not fail
+     * @since 1.0
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Delivers batches to a subscriber as it requests them
+     */
+    private class BatchPublisher implements Runnable, Flow.Subscription {
+
+        private final Flow.Subscriber<? super List<HashMap<String, String>>> subscriber;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition demanded = lock.newCondition();
+
+        /**
+         * Number of batches requested and not delivered yet
+         */
+        private long demand;
+
+        private boolean subscriptionCancelled;
+
+        /**
+         * Whether a non positive number of batches is requested, the subscriber is informed on the publishing thread
+         */
+        private boolean illegalRequest;
+
+        private BatchPublisher(Flow.Subscriber<? super List<HashMap<String, String>>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void run() {
+
+            subscriber.onSubscribe(this);
+
+            while (true) {
+
+                lock.lock();
+                try {
+                    while (demand == 0 && !subscriptionCancelled)
+                        demanded.awaitUninterruptibly();
+
+                    if (illegalRequest) {
+                        subscriber.onError(new IllegalArgumentException("number of requested batches must be positive"));
+                        return;
+                    }
+
+                    if (subscriptionCancelled)
+                        return;
+
+                    demand--;
+                } finally {
+                    lock.unlock();
+                }
+
+                //batches are only taken when requested, so a slow subscriber holds back the executor
+                List<HashMap<String, String>> batch = nextBatch();
+
+                if (batch == null) {
+
+                    if (succeeded)
+                        subscriber.onComplete();
+                    else if (!isSubscriptionCancelled())
+                        subscriber.onError(new IllegalStateException(failure));
+
+                    return;
+                }
+
+                subscriber.onNext(batch);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+
+                lock.lock();
+                try {
+                    illegalRequest = true;
+                } finally {
+                    lock.unlock();
+                }
+
+                cancel();
+                return;
+            }
+
+            lock.lock();
+            try {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                demanded.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+
+            lock.lock();
+            try {
+                subscriptionCancelled = true;
+                demanded.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            QueryResult.this.cancel();
+        }
+
+        private boolean isSubscriptionCancelled() {
+
+            lock.lock();
+            try {
+                return subscriptionCancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
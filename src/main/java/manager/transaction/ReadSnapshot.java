@@ -0,0 +1,244 @@
+package manager.transaction;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoClient;
+import com.mongodb.ReadConcern;
+import com.mongodb.TransactionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
+import common.Log;
+import config.MongoDBConfigContainer;
+import config.MySqlConfigContainer;
+import config.StorageConfigContainer;
+import manager.connection.ConnectionPools;
+import manager.connection.MongoClients;
+import org.bson.Document;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/**
+ * This class is a read only view of several storage systems at one Dolus commit timestamp.
+ * <p>
+ * on MySQL it is a transaction started with "START TRANSACTION WITH CONSISTENT SNAPSHOT"
+ * and on MongoDB it is a session transaction with snapshot read concern.
+ * snapshots must be opened through SnapshotCoordinator, so all storage systems see the same commits.
+ * a snapshot takes no locks, so it never blocks writers and writers never block it.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadSnapshot {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "ReadSnapshot";
+
+    /**
+     * Storage systems the snapshot is opened on
+     */
+    private final Collection<StorageConfigContainer> storages;
+
+    /**
+     * Collection used to establish the snapshot of MongoDB storage systems.
+     * MongoDB picks the point in time of a snapshot on its first read
+     */
+    private final String anchorCollection;
+
+    private final HashMap<StorageConfigContainer, Connection> mySqlConnections;
+
+    private final HashMap<StorageConfigContainer, MongoClient> mongoClients;
+
+    private final HashMap<StorageConfigContainer, ClientSession> mongoSessions;
+
+    /**
+     * Dolus commit timestamp the snapshot is opened at
+     */
+    private long timestamp;
+
+    /**
+     * @param storages         storage systems to open the snapshot on
+     * @param anchorCollection a collection present in all MongoDB storage systems of the snapshot
+     */
+    public ReadSnapshot(Collection<StorageConfigContainer> storages, String anchorCollection) {
+
+        this.storages = storages;
+        this.anchorCollection = anchorCollection;
+
+        this.mySqlConnections = new HashMap<>();
+        this.mongoClients = new HashMap<>();
+        this.mongoSessions = new HashMap<>();
+    }
+
+    /**
+     * Opens the snapshot on all storage systems. should only be called by SnapshotCoordinator
+     *
+     * @param timestamp commit timestamp of the snapshot
+     * @return true if the snapshot is opened on all storage systems, false otherwise
+     * @since 1.0
+     */
+    boolean open(long timestamp) {
+
+        this.timestamp = timestamp;
+
+        for (StorageConfigContainer storage : storages) {
+
+            try {
+                if (storage instanceof MySqlConfigContainer)
+                    openMySqlSnapshot(storage);
+                else if (storage instanceof MongoDBConfigContainer)
+                    openMongoDBSnapshot(storage);
+            } catch (SQLException | RuntimeException e) {
+                Log.log(String.format("Can not open snapshot on storage: %s, %s", storage.getId(), e.getMessage()), componentName, Log.ERROR);
+                close();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void openMySqlSnapshot(StorageConfigContainer storage) throws SQLException {
+
+        Connection connection = ConnectionPools.acquire(storage);
+        mySqlConnections.put(storage, connection);
+
+        //consistent snapshot is only meaningful in repeatable read
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+        }
+    }
+
+    private void openMongoDBSnapshot(StorageConfigContainer storage) {
+
+        MongoClient mongoClient = MongoClients.getClient(storage);
+        mongoClients.put(storage, mongoClient);
+
+        ClientSessionOptions sessionOptions = ClientSessionOptions.builder()
+                .defaultTransactionOptions(TransactionOptions.builder().readConcern(ReadConcern.SNAPSHOT).build())
+                .build();
+
+        ClientSession session = mongoClient.startSession(sessionOptions);
+        mongoSessions.put(storage, session);
+
+        session.startTransaction();
+
+        //first read of the transaction fixes its point in time
+        mongoClient.getDatabase(storage.getDatabase()).getCollection(anchorCollection).find(session).first();
+    }
+
+    /**
+     * Reads the specified columns of all records of a table from a storage system of the snapshot
+     *
+     * @param storage    storage system to read from
+     * @param table      name of the table or collection
+     * @param primaryKey name of the primary key of the table
+     * @param columns    columns to read
+     * @return primary key value -> (column -> value) of the records
+     * @since 1.0
+     */
+    public LinkedHashMap<String, LinkedHashMap<String, String>> readTable(StorageConfigContainer storage, String table, String primaryKey, Collection<String> columns) {
+
+        LinkedHashMap<String, LinkedHashMap<String, String>> records = new LinkedHashMap<>();
+
+        if (mySqlConnections.containsKey(storage)) {
+
+            LinkedList<String> fields = new LinkedList<>(columns);
+            fields.addFirst(primaryKey);
+
+            String sql = String.format("SELECT %s FROM %s", String.join(", ", fields), table);
+
+            try (Statement statement = mySqlConnections.get(storage).createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+
+                while (resultSet.next()) {
+
+                    LinkedHashMap<String, String> record = new LinkedHashMap<>();
+
+                    for (String column : columns)
+                        record.put(column, resultSet.getString(column));
+
+                    records.put(resultSet.getString(primaryKey), record);
+                }
+            } catch (SQLException e) {
+                Log.log(String.format("Can not read table: %s from storage: %s, %s", table, storage.getId(), e.getMessage()), componentName, Log.ERROR);
+                return null;
+            }
+
+        } else if (mongoSessions.containsKey(storage)) {
+
+            LinkedList<String> fields = new LinkedList<>(columns);
+            fields.add(primaryKey);
+
+            MongoCollection<Document> collection = mongoClients.get(storage).getDatabase(storage.getDatabase()).getCollection(table);
+
+            for (Document document : collection.find(mongoSessions.get(storage)).projection(Projections.include(fields))) {
+
+                LinkedHashMap<String, String> record = new LinkedHashMap<>();
+
+                for (String column : columns)
+                    record.put(column, toKeyString(document.get(column)));
+
+                records.put(toKeyString(document.get(primaryKey)), record);
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * MongoDB keeps numbers inserted through shell evaluation as doubles, MySQL returns them as integers.
+     * both must produce the same string to be merged on primary key
+     */
+    private String toKeyString(Object value) {
+
+        if (value instanceof Double && (Double) value == Math.rint((Double) value))
+            return String.valueOf(((Double) value).longValue());
+
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Ends the snapshot on all storage systems
+     *
+     * @since 1.0
+     */
+    public void close() {
+
+        for (StorageConfigContainer storage : mySqlConnections.keySet()) {
+            //nothing is written in a snapshot, the pool rolls it back
+            ConnectionPools.release(storage, mySqlConnections.get(storage));
+        }
+
+        for (StorageConfigContainer storage : mongoSessions.keySet()) {
+
+            ClientSession session = mongoSessions.get(storage);
+
+            if (session.hasActiveTransaction())
+                session.abortTransaction();
+
+            session.close();
+        }
+
+        mySqlConnections.clear();
+        mongoSessions.clear();
+        mongoClients.clear();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
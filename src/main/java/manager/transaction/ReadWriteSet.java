@@ -0,0 +1,105 @@
+package manager.transaction;
+
+import manager.lock.Lock;
+import manager.lock.LockConstants.LockTypes;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * This class keeps the tables and records a query read and wrote.
+ * reads are kept with the version they had when they were read.
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class ReadWriteSet {
+
+    /**
+     * Mapping between a read table or record key and its version at read time
+     */
+    private final HashMap<String, Long> readSet;
+
+    /**
+     * Keys of written tables and records
+     */
+    private final HashSet<String> writeSet;
+
+    /**
+     * Exclusive locks on the written tables, taken only for the short write phase of optimistic transactions
+     */
+    private final LinkedHashMap<String, Lock> writeLocks;
+
+    /**
+     * Default constructor
+     *
+     * @since 1.0
+     */
+    public ReadWriteSet() {
+        this.readSet = new HashMap<>();
+        this.writeSet = new HashSet<>();
+        this.writeLocks = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a read to the read set. if the key is already read, its first version is kept
+     *
+     * @param key     key of the table or record
+     * @param version version of the table or record at read time
+     * @since 1.0
+     */
+    public void addRead(String key, long version) {
+        readSet.putIfAbsent(key, version);
+    }
+
+    /**
+     * Adds a written record and its table to the write set
+     *
+     * @param database        name of the database
+     * @param table           name of the table
+     * @param primaryKeyValue value of the primary key of the record, null if the record is not known
+     * @since 1.0
+     */
+    public void addWrite(String database, String table, String primaryKeyValue) {
+
+        String tableKey = VersionTable.getKey(database, table);
+
+        //writing a record changes its table as well
+        writeSet.add(tableKey);
+
+        if (primaryKeyValue != null)
+            writeSet.add(VersionTable.getKey(database, table, primaryKeyValue));
+
+        writeLocks.putIfAbsent(tableKey, new Lock(database, table, LockTypes.EXCLUSIVE));
+    }
+
+    public HashMap<String, Long> getReadSet() {
+        return readSet;
+    }
+
+    public HashSet<String> getWriteSet() {
+        return writeSet;
+    }
+
+    public Collection<Lock> getWriteLocks() {
+        return writeLocks.values();
+    }
+
+    public boolean isReadOnly() {
+        return writeSet.isEmpty();
+    }
+
+    /**
+     * Forgets all reads and writes, used before executing a query again
+     *
+     * @since 1.0
+     */
+    public void clear() {
+        readSet.clear();
+        writeSet.clear();
+        writeLocks.clear();
+    }
+}
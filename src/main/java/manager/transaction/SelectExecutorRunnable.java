@@ -1,6 +1,7 @@
 package manager.transaction;
 
 import base.SimpleSelectContainer;
+import common.Log;
 import config.ConfigUtilities;
 import config.StorageConfigContainer;
 import language.mysql.listener.SimpleSelectGeneratorListener;
@@ -8,6 +9,7 @@ import language.mysql.listener.SimpleSelectNameAliasListener;
 import language.mysql.translator.SimpleSelectTranslator;
 import language.mysql.utilities.MySqlLexer;
 import language.mysql.utilities.MySqlParser;
+import language.mysql.utilities.MySqlParserBaseListener;
 import manager.lock.Lock;
 import manager.lock.LockConstants;
 import manager.lock.LockManager;
@@ -16,17 +18,68 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import manager.lock.LockConstants.LockTypes;
-import org.apache.drill.jdbc.Driver;
-
-import java.sql.*;
+import manager.connection.ConnectionPool;
+import manager.connection.ConnectionPools;
+import manager.federated.FederatedExecutor;
+import manager.federated.FederatedPlanner;
+import manager.federated.FederatedQuery;
+import manager.federated.SingleStoreSelect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Predicate;
 
 public class SelectExecutorRunnable extends QueryExecutor{
 
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "SelectExecutorRunnable";
+
     private String[] tables;
 
     private String query;
 
+    private MySqlParser.RootContext rootContext;
+
+    private SimpleSelectContainer selectContainer;
+
+    private String translatedQuery;
+
+    private String database;
+
+    /**
+     * Projected columns of the query if it is executed on a snapshot, null otherwise
+     */
+    private LinkedList<String> snapshotColumns;
+
+    /**
+     * The query on its storage system if all of its attributes live in one storage system, null otherwise
+     */
+    private SingleStoreSelect singleStoreSelect;
+
+    /**
+     * Plan of the query if Dolus executes it itself, null if it is executed by Drill
+     */
+    private FederatedQuery federatedQuery;
+
+    /**
+     * Rows of the result to deliver, null if they are streamed to the result handle while executing
+     */
+    private LinkedList<HashMap<String, String>> rows;
+
+    /**
+     * Reason the select failed on its storage system, null if it did not fail
+     */
+    private String failure;
+
     public SelectExecutorRunnable(String query, Transaction transaction) {
 
         super(transaction);
@@ -35,12 +88,39 @@ public class SelectExecutorRunnable extends QueryExecutor{
     }
 
     @Override
-    public void run() {
+    protected boolean translate() {
 
-        String translatedQuery = getTranslatedSelect(query);
+        translatedQuery = getTranslatedSelect(query);
 
-        //for each table request Shared lock
-        String database = getDatabase(tables[0]);
+        database = getDatabase(tables[0]);
+
+        if (isSnapshot()) {
+
+            snapshotColumns = getProjectedColumns();
+
+            if (snapshotColumns == null || tables.length != 1) {
+                Log.log("Query can not be executed on a snapshot, executing it with locks: " + query, componentName, Log.WARNING);
+                snapshotColumns = null;
+            }
+        }
+
+        //selects Dolus can execute itself do not go through Drill
+        if (ConfigUtilities.isNativeExecution()) {
+
+            singleStoreSelect = SingleStoreSelect.route(selectContainer, rootContext, ConfigUtilities.getFetchSize());
+
+            if (singleStoreSelect == null)
+                federatedQuery = FederatedPlanner.plan(rootContext);
+        }
+
+        return true;
+    }
+
+    @Override
+    protected void requestLocks() {
+
+        if (isOptimistic() || snapshotColumns != null)
+            return;
 
         //submit lock request for each table
         for (int i = 0; i < tables.length; i++) {
@@ -48,45 +128,381 @@ public class SelectExecutorRunnable extends QueryExecutor{
         }
 
         System.out.println("Lock requests are submitted");
-        waitOrDie();
+    }
+
+    @Override
+    protected boolean execute() {
+
+        if (snapshotColumns != null) {
+
+            rows = executeOnSnapshot(snapshotColumns);
+
+            if (getQueryResult() != null)
+                getQueryResult().setColumns(snapshotColumns);
+
+            return rows != null;
+        }
+
+        if (isOptimistic()) {
+
+            return executeOptimistically(() -> {
+
+                //remember versions of the tables before reading them
+                for (String table : tables)
+                    recordRead(database, table.toLowerCase());
+
+                //rows are buffered, they may be read again if validation fails
+                LinkedList<HashMap<String, String>> attemptRows = new LinkedList<>();
+                rows = attemptRows;
+
+                select(attemptRows::addAll);
+
+                //rows of a query that fails validation are never delivered
+                return commit(null);
+            });
+        }
+
         System.out.println("reached after wait or die");
 
-        try {
-            Class.forName("org.apache.drill.jdbc.Driver");
-            final Connection conn = DriverManager.getConnection("jdbc:drill:drillbit=localhost");
-            System.out.println("class loaded");
+        if (isDead()) {
+            Log.log("Query is chosen as a dead lock victim: " + query, componentName, Log.WARNING);
+            abort();
+            return false;
+        }
 
-            Statement stmt = conn.createStatement();
-            /* Perform a select on data in the classpath storage plugin. */
-            String sql = translatedQuery;
+        QueryResult result = getQueryResult();
 
-            System.out.println("Running: " + sql);
-            ResultSet rs = stmt.executeQuery(sql);
+        //locks are held while the rows are streamed, so they are handed to the caller without buffering
+        boolean read;
+
+        if (result != null) {
+            rows = null;
+            read = select(result::publish);
+        } else {
+            LinkedList<HashMap<String, String>> bufferedRows = new LinkedList<>();
+            rows = bufferedRows;
+            read = select(bufferedRows::addAll);
+        }
+
+        commit(null);
+
+        if (!read && result != null)
+            result.fail(failure == null ? "query is cancelled" : failure);
+
+        return read;
+    }
+
+    @Override
+    protected void deliver() {
+
+        QueryResult result = getQueryResult();
+
+        if (result == null) {
+            printRows(rows);
+            return;
+        }
+
+        if (failure != null) {
+            result.fail(failure);
+            return;
+        }
+
+        //buffered rows of snapshot and optimistic reads are handed over once they are known to be valid
+        if (rows != null) {
+
+            LinkedList<HashMap<String, String>> batch = new LinkedList<>();
+
+            for (HashMap<String, String> row : rows) {
 
-            while(rs.next()) {
-                String sid = rs.getString("sid");
-                String first = rs.getString("sname");
-                String phone = rs.getString("phone");
+                batch.add(row);
 
-                System.out.println("sid: " + sid);
-                System.out.println("Sname: " + first);
-                System.out.println("Phone: " + phone);
+                if (batch.size() == result.getBatchSize()) {
+
+                    if (!result.publish(batch))
+                        return;
+
+                    batch = new LinkedList<>();
+                }
             }
 
-            rs.close();
-            stmt.close();
-            conn.close();
+            if (!result.publish(batch))
+                return;
+        }
+
+        result.complete();
+    }
 
+    /**
+     * Executes the query on a consistent snapshot of the storage systems without taking any locks.
+     * each storage system is read directly and parts of the records are merged on primary key.
+     * only projections of a single table are supported
+     *
+     * @param columns projected columns of the query
+     * @return rows of the result, null if the snapshot can not be read
+     */
+    private LinkedList<HashMap<String, String>> executeOnSnapshot(LinkedList<String> columns) {
+
+        String table = tables[0].toLowerCase();
+
+        StorageConfigContainer tableStorage = ConfigUtilities.findStorage(table);
+        if (tableStorage == null)
+            return null;
+
+        String primaryKey = tableStorage.getPrimaryKey(table);
+
+        //group projected columns by the storage system containing them. the storage of the table defines the records
+        LinkedHashMap<StorageConfigContainer, LinkedList<String>> storageColumns = new LinkedHashMap<>();
+        storageColumns.put(tableStorage, new LinkedList<>());
+
+        for (String column : columns) {
+
+            StorageConfigContainer storage = ConfigUtilities.findStorage(table, column);
+            if (storage == null)
+                return null;
+
+            storageColumns.computeIfAbsent(storage, key -> new LinkedList<>()).add(column);
         }
-        catch (ClassNotFoundException e) {
-            e.printStackTrace();
+
+        ReadSnapshot snapshot = new ReadSnapshot(storageColumns.keySet(), table);
+
+        if (!openSnapshot(snapshot))
+            return null;
+
+        HashMap<StorageConfigContainer, LinkedHashMap<String, LinkedHashMap<String, String>>> storageRecords = new HashMap<>();
+
+        for (StorageConfigContainer storage : storageColumns.keySet()) {
+
+            LinkedHashMap<String, LinkedHashMap<String, String>> records = snapshot.readTable(storage, table, primaryKey, storageColumns.get(storage));
+
+            if (records == null) {
+                snapshot.close();
+                return null;
+            }
+
+            storageRecords.put(storage, records);
         }
-        catch (SQLException e1) {
-            e1.printStackTrace();
+
+        snapshot.close();
+
+        //merge parts of each record on primary key
+        LinkedList<HashMap<String, String>> rows = new LinkedList<>();
+
+        for (String primaryKeyValue : storageRecords.get(tableStorage).keySet()) {
+
+            LinkedHashMap<String, String> row = new LinkedHashMap<>();
+
+            for (String column : columns) {
+
+                LinkedHashMap<String, String> record = storageRecords.get(ConfigUtilities.findStorage(table, column)).get(primaryKeyValue);
+
+                row.put(column, record == null ? null : record.get(column));
+            }
+
+            rows.add(row);
         }
 
-        super.releaseLock();
+        return rows;
+    }
+
+    /**
+     * Get projected columns of the query in order
+     *
+     * @return projected columns, null if the query has anything other than plain column references or has a where clause
+     */
+    private LinkedList<String> getProjectedColumns() {
+
+        LinkedList<MySqlParser.QuerySpecificationContext> specifications = new LinkedList<>();
+
+        new ParseTreeWalker().walk(new MySqlParserBaseListener() {
+            @Override
+            public void enterQuerySpecification(MySqlParser.QuerySpecificationContext ctx) {
+                specifications.add(ctx);
+            }
+        }, rootContext);
+
+        if (specifications.size() != 1)
+            return null;
+
+        MySqlParser.QuerySpecificationContext specification = specifications.getFirst();
+
+        if (specification.fromClause() == null || specification.fromClause().whereExpr != null)
+            return null;
+
+        if (specification.selectElements().star != null)
+            return null;
+
+        LinkedList<String> columns = new LinkedList<>();
+
+        for (MySqlParser.SelectElementContext element : specification.selectElements().selectElement()) {
+
+            if (!(element instanceof MySqlParser.SelectColumnElementContext))
+                return null;
+
+            MySqlParser.FullColumnNameContext column = ((MySqlParser.SelectColumnElementContext) element).fullColumnName();
+
+            if (column.dottedId().isEmpty())
+                return null;
 
+            //just get the attribute and discard the "."
+            columns.add(column.dottedId(0).getText().substring(1).toLowerCase());
+        }
+
+        return columns;
+    }
+
+    /**
+     * Executes the query natively if it is planned to, on Drill otherwise
+     *
+     * @param batches accepts a batch of rows, returns false to stop reading
+     * @return true if all rows are read, false if the query failed or reading is stopped
+     */
+    private boolean select(Predicate<List<HashMap<String, String>>> batches) {
+
+        failure = null;
+
+        QueryResult result = getQueryResult();
+
+        if (singleStoreSelect != null) {
+
+            boolean read = singleStoreSelect.execute(columns -> {
+                if (result != null)
+                    result.setColumns(columns);
+            }, batches);
+
+            failure = singleStoreSelect.getFailure();
+
+            return read;
+        }
+
+        if (federatedQuery == null)
+            return executeSelect(translatedQuery, batches);
+        if (result != null)
+            result.setColumns(federatedQuery.getLabels());
+
+        FederatedExecutor executor = new FederatedExecutor(federatedQuery, ConfigUtilities.getFetchSize());
+
+        boolean read = executor.execute(batches);
+
+        failure = executor.getFailure();
+
+        return read;
+    }
+
+    /**
+     * Executes a translated query on Drill and hands its rows over in batches of the fetch size.
+     * the next batch is only fetched once the previous one is accepted
+     *
+     * @param sql     translated query
+     * @param batches accepts a batch of rows, returns false to stop reading
+     * @return true if all rows are read, false if the query failed or reading is stopped
+     */
+    private boolean executeSelect(String sql, Predicate<List<HashMap<String, String>>> batches) {
+
+        failure = null;
+
+        int fetchSize = ConfigUtilities.getFetchSize();
+
+        ConnectionPool drillPool = ConnectionPools.getDrillPool();
+
+        Connection connection = null;
+
+        try {
+            connection = drillPool.acquire();
+
+            //queries of the same shape share one statement, planned once per connection
+            PreparedStatement statement = drillPool.prepare(connection, normalize(sql));
+            statement.setFetchSize(fetchSize);
+
+            System.out.println("Running: " + sql);
+
+            try (ResultSet rs = statement.executeQuery()) {
+
+                ResultSetMetaData metaData = rs.getMetaData();
+
+                LinkedList<String> columns = new LinkedList<>();
+                for (int i = 1; i <= metaData.getColumnCount(); i++)
+                    columns.add(metaData.getColumnLabel(i));
+
+                QueryResult result = getQueryResult();
+                if (result != null)
+                    result.setColumns(columns);
+
+                LinkedList<HashMap<String, String>> batch = new LinkedList<>();
+
+                while (rs.next()) {
+
+                    HashMap<String, String> row = new LinkedHashMap<>();
+
+                    int index = 1;
+                    for (String column : columns)
+                        row.put(column, rs.getString(index++));
+
+                    batch.add(row);
+
+                    if (batch.size() == fetchSize) {
+
+                        if (!batches.test(batch))
+                            return false;
+
+                        batch = new LinkedList<>();
+                    }
+                }
+
+                return batches.test(batch);
+            }
+
+        } catch (SQLException e) {
+            failure = e.getMessage();
+            Log.log(String.format("Can not execute query: %s, %s", sql, e.getMessage()), componentName, Log.ERROR);
+            return false;
+        } finally {
+            drillPool.release(connection);
+        }
+    }
+
+    /**
+     * Collapses white space outside of string literals, so the same query always maps to the same cached statement
+     *
+     * @param sql translated query
+     * @return normalized query
+     */
+    static String normalize(String sql) {
+
+        StringBuilder normalized = new StringBuilder();
+
+        //quote character of the literal being copied, 0 outside of literals
+        char quote = 0;
+
+        for (int i = 0; i < sql.length(); i++) {
+
+            char c = sql.charAt(i);
+
+            if (quote != 0) {
+                normalized.append(c);
+
+                if (c == quote)
+                    quote = 0;
+
+            } else if (Character.isWhitespace(c)) {
+
+                if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ')
+                    normalized.append(' ');
+
+            } else {
+                if (c == '\'' || c == '"' || c == '`')
+                    quote = c;
+
+                normalized.append(c);
+            }
+        }
+
+        return normalized.toString().trim();
+    }
+
+    private void printRows(LinkedList<HashMap<String, String>> rows) {
+
+        for (HashMap<String, String> row : rows)
+            row.forEach((column, value) -> System.out.println(column + ": " + value));
     }
 
     private String getDatabase(String tableName) {
@@ -112,6 +528,10 @@ public class SelectExecutorRunnable extends QueryExecutor{
 
         SimpleSelectContainer container = new SimpleSelectContainer();
 
+        this.rootContext = rootContext;
+
+        this.selectContainer = container;
+
         SimpleSelectNameAliasListener simpleSelectNameAliasListener = new SimpleSelectNameAliasListener(container);
 
         SimpleSelectGeneratorListener simpleSelectGeneratorListener = new SimpleSelectGeneratorListener(container);
@@ -0,0 +1,217 @@
+package manager.transaction;
+
+import common.Log;
+import config.ConfigUtilities;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class runs several statements in one explicit transaction.
+ * <p>
+ * statements run one after another on the thread of the client. locks requested by a statement are kept
+ * by the transaction, so later statements on the same tables are granted without going through the lock service again.
+ * writes of the statements are deferred and applied when the session commits, then all locks are released with one unlock.
+ * a statement does not see the writes of earlier statements of the same session.
+ * </p>
+ * <p>
+ * a session is created by TransactionManager.beginSession and ends with COMMIT or ROLLBACK.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class Session {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "Session";
+
+    private final Transaction transaction;
+
+    /**
+     * Opened when the admission controller starts the transaction or the transaction is shed
+     */
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * Whether the session is committed or rolled back
+     */
+    private boolean closed;
+
+    Session(Transaction transaction) {
+
+        this.transaction = transaction;
+
+        transaction.setExplicit();
+
+        //a transaction shed while waiting to start must wake up its session
+        transaction.setAbortListener(abortedTransaction -> started.countDown());
+    }
+
+    /**
+     * Called by the admission controller when the transaction of the session may start
+     */
+    void start() {
+        started.countDown();
+    }
+
+    /**
+     * Waits until the transaction of the session is started
+     *
+     * @return true if the transaction is started, false if it is shed
+     */
+    boolean awaitStart() {
+
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        return !transaction.isAborted();
+    }
+
+    /**
+     * Executes a statement in the transaction of the session. BEGIN, COMMIT and ROLLBACK are recognized too.
+     * rows of a select are printed
+     *
+     * @param statement statement to execute
+     * @return true if the statement is executed, false if it failed or the transaction is aborted
+     * @since 1.0
+     */
+    public boolean execute(String statement) {
+        return execute(statement, null);
+    }
+
+    /**
+     * Executes a statement in the transaction of the session and hands its result to the caller.
+     * the statement runs on the thread of the caller, so all rows are buffered in the handle before it is returned
+     *
+     * @param statement statement to execute
+     * @return completed handle of the result of the statement, failed if the statement failed or the transaction is aborted
+     * @since 1.0
+     */
+    public QueryResult executeQuery(String statement) {
+
+        QueryResult result = QueryResult.buffered(ConfigUtilities.getFetchSize());
+
+        //only the first of complete and fail has effect, a statement that already terminated its handle keeps its outcome
+        if (execute(statement, result))
+            result.complete();
+        else
+            result.fail("statement failed, see the log for details");
+
+        return result;
+    }
+
+    private boolean execute(String statement, QueryResult result) {
+
+        String command = statement.trim().replaceAll(";$", "").trim().toUpperCase();
+
+        if (command.equals("COMMIT"))
+            return commit();
+        else if (command.equals("ROLLBACK"))
+            return rollback();
+
+        if (isClosed()) {
+            Log.log(String.format("Session of transaction: %s is closed, statement is ignored: %s", transaction.getTransactionId(), statement), componentName, Log.ERROR);
+            return false;
+        }
+
+        //session is already in a transaction
+        if (command.equals("BEGIN") || command.equals("START TRANSACTION"))
+            return true;
+
+        if (transaction.isAborted()) {
+            Log.log(String.format("Transaction: %s is aborted, statement is ignored until rollback: %s", transaction.getTransactionId(), statement), componentName, Log.ERROR);
+            return false;
+        }
+
+        QueryExecutor queryExecutor = transaction.createQueryExecutor(statement);
+
+        if (queryExecutor == null) {
+            Log.log("Statement is not supported: " + statement, componentName, Log.ERROR);
+            return false;
+        }
+
+        queryExecutor.setStatementResult(result);
+        queryExecutor.run();
+
+        return !transaction.isAborted();
+    }
+
+    /**
+     * Applies writes of all statements and releases all locks of the transaction
+     *
+     * @return true if the transaction is committed, false if it is aborted
+     * @since 1.0
+     */
+    public boolean commit() {
+
+        if (!close())
+            return false;
+
+        if (transaction.isAborted()) {
+
+            Log.log(String.format("Transaction: %s is aborted and can not be committed", transaction.getTransactionId()), componentName, Log.WARNING);
+
+            transaction.releaseLock();
+            transaction.finished();
+
+            return false;
+        }
+
+        CommitExecutor commitExecutor = new CommitExecutor(transaction);
+        commitExecutor.run();
+
+        if (!commitExecutor.isCommitted()) {
+            Log.log(String.format("Transaction: %s failed validation or its writes failed at commit, it is aborted", transaction.getTransactionId()), componentName, Log.WARNING);
+            transaction.abort();
+        }
+
+        transaction.finished();
+
+        return commitExecutor.isCommitted();
+    }
+
+    /**
+     * Discards writes of all statements and releases all locks of the transaction
+     *
+     * @return true if the transaction is rolled back, false if the session is already closed
+     * @since 1.0
+     */
+    public boolean rollback() {
+
+        if (!close())
+            return false;
+
+        transaction.abort();
+        transaction.releaseLock();
+        transaction.finished();
+
+        return true;
+    }
+
+    private synchronized boolean close() {
+
+        if (closed) {
+            Log.log(String.format("Session of transaction: %s is already closed", transaction.getTransactionId()), componentName, Log.ERROR);
+            return false;
+        }
+
+        closed = true;
+
+        return true;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+}
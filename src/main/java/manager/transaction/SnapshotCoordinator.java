@@ -0,0 +1,82 @@
+package manager.transaction;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class orders commits of writers and openings of read snapshots with a Dolus level commit timestamp.
+ * <p>
+ * a writer applies its writes to all storage systems between beginCommit and endCommit.
+ * a snapshot is opened on every storage system while no writer is between these two calls,
+ * so the snapshots of all storage systems contain exactly the commits up to the same commit timestamp.
+ * writers wait only while snapshots are being opened, never while they are being read.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SnapshotCoordinator {
+
+    /**
+     * Number of commits applied to the storage systems so far
+     */
+    private final AtomicLong commitTimestamp;
+
+    /**
+     * Writers hold the read lock while committing, snapshots are opened while holding the write lock
+     */
+    private final ReentrantReadWriteLock commitGate;
+
+    /**
+     * Default constructor
+     *
+     * @since 1.0
+     */
+    public SnapshotCoordinator() {
+        this.commitTimestamp = new AtomicLong();
+        this.commitGate = new ReentrantReadWriteLock(true);
+    }
+
+    /**
+     * Runs the write phase of a transaction as one commit
+     *
+     * @param writePhase writes of the transaction
+     * @return commit timestamp of the transaction
+     * @since 1.0
+     */
+    public long commit(Runnable writePhase) {
+
+        commitGate.readLock().lock();
+
+        try {
+            writePhase.run();
+
+            return commitTimestamp.incrementAndGet();
+        } finally {
+            commitGate.readLock().unlock();
+        }
+    }
+
+    /**
+     * Opens a snapshot on all of its storage systems at the same commit timestamp
+     *
+     * @param snapshot snapshot to open
+     * @return true if the snapshot is opened on all storage systems, false otherwise
+     * @since 1.0
+     */
+    public boolean openSnapshot(ReadSnapshot snapshot) {
+
+        commitGate.writeLock().lock();
+
+        try {
+            return snapshot.open(commitTimestamp.get());
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+    }
+
+    public long getCommitTimestamp() {
+        return commitTimestamp.get();
+    }
+}
@@ -0,0 +1,190 @@
+package manager.transaction;
+
+import common.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is one stage of the query pipeline: a bounded queue of tasks served by a fixed number of threads.
+ * <p>
+ * submitting a task to a stage with a full queue blocks the submitter until there is room,
+ * so an overloaded stage slows down the stages feeding it instead of growing without limit.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class Stage {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "Stage";
+
+    /**
+     * Name of the stage
+     */
+    private final String name;
+
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong submittedTasks = new AtomicLong();
+
+    private final AtomicLong completedTasks = new AtomicLong();
+
+    private final AtomicLong failedTasks = new AtomicLong();
+
+    /**
+     * Sum of the times tasks spent in the queue in nanoseconds
+     */
+    private final AtomicLong totalQueueTime = new AtomicLong();
+
+    /**
+     * Sum of the times tasks spent running in nanoseconds
+     */
+    private final AtomicLong totalServiceTime = new AtomicLong();
+
+    /**
+     * @param name          name of the stage, used for naming threads and logging
+     * @param threads       number of threads serving the stage
+     * @param queueCapacity maximum number of waiting tasks
+     */
+    public Stage(String name, int threads, int queueCapacity) {
+
+        this.name = name;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-stage-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+
+                    if (executor.isShutdown())
+                        throw new RejectedExecutionException("Stage: " + name + " is shut down");
+
+                    //queue is full -> make the submitter wait for room
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for room in stage: " + name);
+                    }
+                });
+    }
+
+    /**
+     * Submits a task to the stage, blocks while the queue of the stage is full
+     *
+     * @param task task to run
+     * @since 1.0
+     */
+    public void submit(Runnable task) {
+
+        long submittedAt = System.nanoTime();
+
+        submittedTasks.incrementAndGet();
+
+        pool.execute(() -> {
+
+            long startedAt = System.nanoTime();
+            totalQueueTime.addAndGet(startedAt - submittedAt);
+
+            try {
+                task.run();
+                completedTasks.incrementAndGet();
+            } catch (RuntimeException e) {
+                failedTasks.incrementAndGet();
+                Log.log(String.format("Task of stage: %s failed, %s", name, e), componentName, Log.ERROR);
+            } finally {
+                totalServiceTime.addAndGet(System.nanoTime() - startedAt);
+            }
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreadCount() {
+        return pool.getMaximumPoolSize();
+    }
+
+    public int getQueueLength() {
+        return pool.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public long getSubmittedTasks() {
+        return submittedTasks.get();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    public long getFailedTasks() {
+        return failedTasks.get();
+    }
+
+    /**
+     * Get average time tasks waited in the queue
+     *
+     * @return average queue time in milliseconds
+     * @since 1.0
+     */
+    public double getAverageQueueTime() {
+        long finished = completedTasks.get() + failedTasks.get();
+        return finished == 0 ? 0 : totalQueueTime.get() / 1e6 / finished;
+    }
+
+    /**
+     * Get average time tasks ran
+     *
+     * @return average service time in milliseconds
+     * @since 1.0
+     */
+    public double getAverageServiceTime() {
+        long finished = completedTasks.get() + failedTasks.get();
+        return finished == 0 ? 0 : totalServiceTime.get() / 1e6 / finished;
+    }
+
+    /**
+     * Stops accepting tasks and waits for queued and running tasks to finish
+     *
+     * @param timeout maximum time to wait in milliseconds
+     * @return true if all tasks finished, false if the timeout elapsed first
+     * @since 1.0
+     */
+    public boolean shutdown(long timeout) {
+
+        pool.shutdown();
+
+        try {
+            return pool.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("stage: %s, threads: %d, active: %d, queued: %d, submitted: %d, completed: %d, failed: %d, avg queue ms: %.2f, avg service ms: %.2f",
+                name, getThreadCount(), getActiveCount(), getQueueLength(), getSubmittedTasks(), getCompletedTasks(), getFailedTasks(),
+                getAverageQueueTime(), getAverageServiceTime());
+    }
+}
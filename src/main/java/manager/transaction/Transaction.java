@@ -1,18 +1,110 @@
 package manager.transaction;
 
+import common.Log;
+import manager.commit.CommitCoordinator;
+import manager.commit.CommitParticipant;
 import manager.lock.Lock;
-import manager.lock.LockManager;
+import manager.lock.LockService;
 
-import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class Transaction implements Runnable{
 
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "Transaction";
+
+    /**
+     * Queries lock what they access for the whole execution (strict two phase locking)
+     */
+    public static final int PESSIMISTIC = 1;
+
+    /**
+     * Queries take no locks while executing and are validated against the version table at commit
+     */
+    public static final int OPTIMISTIC = 2;
+
+    /**
+     * Selects read a consistent snapshot of the storage systems without locks, writes are pessimistic
+     */
+    public static final int SNAPSHOT = 3;
+
     private String transactionId;
     private String query;
 
-    private LockManager lockManager;
+    private LockService lockService;
+
+    /**
+     * Versions of tables and records, shared by all transactions of a transaction manager
+     */
+    private VersionTable versionTable;
+
+    /**
+     * Orders commits and snapshot reads, shared by all transactions of a transaction manager
+     */
+    private SnapshotCoordinator snapshotCoordinator;
+
+    /**
+     * Commits writes on several storage systems atomically, shared by all transactions of a transaction manager
+     */
+    private CommitCoordinator commitCoordinator;
+
+    private int concurrencyMode;
+
+    /**
+     * Informed once when the transaction is finished, successfully or not
+     */
+    private Consumer<Transaction> completionListener;
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * Whether the transaction runs several statements of a session and is committed by the session
+     */
+    private boolean explicit;
+
+    /**
+     * Tables and records read and written by all statements of an explicit transaction
+     */
+    private ReadWriteSet readWriteSet;
+
+    /**
+     * Writes of the statements of an explicit transaction, committed together when the session commits
+     */
+    private final LinkedList<CommitParticipant> deferredWrites = new LinkedList<>();
+
+    private volatile boolean aborted;
+
+    /**
+     * Informed when the transaction is aborted
+     */
+    private Consumer<Transaction> abortListener;
 
-    private HashMap<String,QueryExecutor> lockExecutorMap;
+    /**
+     * Handle streaming the result of the query to its caller, null if the result is printed
+     */
+    private QueryResult queryResult;
+
+    /**
+     * Time spent waiting for locks in nanoseconds
+     */
+    private final AtomicLong lockWaitTime = new AtomicLong();
+
+    /**
+     * Time spent executing on storage systems in nanoseconds
+     */
+    private final AtomicLong executionTime = new AtomicLong();
+
+    /**
+     * Mapping between a lock name and the executor waiting for it. grants arrive on threads of the lock service
+     */
+    private final ConcurrentHashMap<String,QueryExecutor> lockExecutorMap;
 
     private final int NOT_VALID = 0;
     private final int SELECT = 1;
@@ -20,69 +112,313 @@ public class Transaction implements Runnable{
     private final int DELETE = 3;
     private final int INSERT = 4;
 
-    public Transaction(String query, String transactionId, LockManager lockManager)
+    public Transaction(String query, String transactionId, LockService lockService)
+    {
+        this(query, transactionId, lockService, null, null, null, PESSIMISTIC);
+    }
+
+    public Transaction(String query, String transactionId, LockService lockService, VersionTable versionTable,
+                       SnapshotCoordinator snapshotCoordinator, CommitCoordinator commitCoordinator, int concurrencyMode)
     {
         this.transactionId = transactionId;
         this.query = query;
-        this.lockManager = lockManager;
-        this.lockExecutorMap = new HashMap<>();
+        this.lockService = lockService;
+        this.versionTable = versionTable;
+        this.snapshotCoordinator = snapshotCoordinator;
+        this.commitCoordinator = commitCoordinator;
+        this.concurrencyMode = concurrencyMode;
+        this.lockExecutorMap = new ConcurrentHashMap<>();
     }
 
     public String getTransactionId(){
         return this.transactionId;
     }
 
+    /**
+     * Orders transaction ids by the sequence number they end with, ids with the same number by the rest of the id.
+     * ids are a prefix followed by a counter, as strings "9" would come after "10"
+     *
+     * @param first  id of a transaction
+     * @param second id of another transaction
+     * @return negative if the first transaction started before the second one, positive if it started after it
+     * @since 1.0
+     */
+    public static int compareIds(String first, String second) {
+
+        int firstStart = getSequenceStart(first);
+        int secondStart = getSequenceStart(second);
+
+        //sequence numbers without leading zeros compare by their length first, then digit by digit
+        String firstSequence = stripZeros(first.substring(firstStart));
+        String secondSequence = stripZeros(second.substring(secondStart));
+
+        if (firstSequence.length() != secondSequence.length())
+            return Integer.compare(firstSequence.length(), secondSequence.length());
+
+        int comparison = firstSequence.compareTo(secondSequence);
+
+        if (comparison != 0)
+            return comparison;
+
+        return first.substring(0, firstStart).compareTo(second.substring(0, secondStart));
+    }
+
+    /**
+     * Get the index of the counter at the end of an id
+     */
+    private static int getSequenceStart(String id) {
+
+        int start = id.length();
+
+        while (start > 0 && Character.isDigit(id.charAt(start - 1)))
+            start--;
+
+        return start;
+    }
+
+    private static String stripZeros(String sequence) {
+
+        int start = 0;
+
+        while (start < sequence.length() - 1 && sequence.charAt(start) == '0')
+            start++;
+
+        return sequence.substring(start);
+    }
+
+    public VersionTable getVersionTable() {
+        return versionTable;
+    }
+
+    public SnapshotCoordinator getSnapshotCoordinator() {
+        return snapshotCoordinator;
+    }
+
+    public CommitCoordinator getCommitCoordinator() {
+        return commitCoordinator;
+    }
+
+    public int getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    public boolean isExplicit() {
+        return explicit;
+    }
+
+    /**
+     * Makes the transaction run several statements until its session commits or rolls it back
+     */
+    void setExplicit() {
+        this.explicit = true;
+        this.readWriteSet = new ReadWriteSet();
+    }
+
+    ReadWriteSet getReadWriteSet() {
+        return readWriteSet;
+    }
+
+    QueryResult getQueryResult() {
+        return queryResult;
+    }
+
+    void setQueryResult(QueryResult queryResult) {
+        this.queryResult = queryResult;
+    }
+
+    /**
+     * Keeps writes of a statement until the transaction is committed
+     *
+     * @param participants writes of the statement on each storage system
+     */
+    synchronized void deferWrites(List<CommitParticipant> participants) {
+        deferredWrites.addAll(participants);
+    }
+
+    /**
+     * Removes deferred writes of the transaction
+     *
+     * @return writes of all statements in order, null if there is none
+     */
+    synchronized List<CommitParticipant> takeDeferredWrites() {
+
+        if (deferredWrites.isEmpty())
+            return null;
+
+        LinkedList<CommitParticipant> writes = new LinkedList<>(deferredWrites);
+        deferredWrites.clear();
+
+        return writes;
+    }
+
+    /**
+     * Marks the transaction as aborted and discards its deferred writes. locks are released by the caller
+     */
+    void abort() {
+
+        aborted = true;
+
+        synchronized (this) {
+            deferredWrites.clear();
+        }
+
+        if (queryResult != null)
+            queryResult.fail("transaction is aborted");
+
+        if (abortListener != null)
+            abortListener.accept(this);
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    void setAbortListener(Consumer<Transaction> abortListener) {
+        this.abortListener = abortListener;
+    }
+
+    public void setCompletionListener(Consumer<Transaction> completionListener) {
+        this.completionListener = completionListener;
+    }
+
+    void addLockWaitTime(long time) {
+        lockWaitTime.addAndGet(time);
+    }
+
+    void addExecutionTime(long time) {
+        executionTime.addAndGet(time);
+    }
+
+    /**
+     * Get the time the transaction waited for locks and storage systems.
+     * time a streamed select waited for its consumer to take batches is not counted
+     *
+     * @return latency in nanoseconds
+     */
+    public long getLatency() {
+
+        long backpressureTime = queryResult != null ? queryResult.getBackpressureTime() : 0;
+
+        return Math.max(0, lockWaitTime.get() + executionTime.get() - backpressureTime);
+    }
+
+    /**
+     * Marks the transaction as finished and informs the completion listener, only the first call has effect
+     */
+    void finished() {
+
+        if (finished.getAndSet(true))
+            return;
+
+        //a query that did not complete its result failed on the way
+        if (queryResult != null)
+            queryResult.fail("query failed, see the log for details");
+
+        if (completionListener != null)
+            completionListener.accept(this);
+    }
+
+    public boolean isFinished() {
+        return finished.get();
+    }
+
     public void lockIsGranted(Lock lock) {
         System.out.println(String.format("Transaction: %s granted with -> (%s,%s,%s)", this.transactionId, lock.getDatabase(), lock.getTable(), lock.getRecord()));
 
-        lockExecutorMap.get(lock.toString()).lockIsGranted(lock);
+        QueryExecutor executor = lockExecutorMap.remove(lock.toString());
+
+        //the executor already died or released its locks, a late grant must not break the thread of the lock service
+        if (executor == null) {
+            Log.log(String.format("Lock: %s is granted to transaction: %s but no query is waiting for it", lock, transactionId), componentName, Log.WARNING);
+            return;
+        }
+
+        executor.lockIsGranted(lock);
+    }
+
+    /**
+     * Chooses the transaction as a dead lock victim, every query waiting for a lock stops waiting and aborts
+     *
+     * @since 1.0
+     */
+    public void die() {
+
+        Log.log(String.format("Transaction: %s is chosen as a dead lock victim", transactionId), componentName, Log.WARNING);
 
+        for (QueryExecutor executor : lockExecutorMap.values())
+            executor.die();
+
+        lockExecutorMap.clear();
     }
 
     public void submitLock(Lock lock, QueryExecutor queryExecutor) {
         System.out.println("Lock: " + lock.toString() + " is submitted");
-        boolean granted = lockManager.lock(this, lock);
-        if (granted)
+
+        //register the executor before requesting the lock
+        //a lock service may inform the transaction of the grant before lock() returns (e.g. a remote lock service)
+        lockExecutorMap.put(lock.toString(), queryExecutor);
+
+        boolean granted = lockService.lock(this, lock);
+        if (granted) {
+            lockExecutorMap.remove(lock.toString());
             queryExecutor.lockIsGranted(lock);
-        else
-            lockExecutorMap.put(lock.toString(), queryExecutor);
+        }
     }
 
     public void releaseLock() {
-        lockManager.unlock(this);
+        lockService.unlock(this);
     }
 
     @Override
     public void run() {
-        int queryType = getQueryType(this.query);
 
-        if (queryType == SELECT){
-            new Thread(
-                    new SelectExecutorRunnable(this.query, this)
-                    ).start();
-        }
-        else if (queryType == UPDATE)
-            ;
-        else if (queryType == INSERT)
-            new Thread(
-                    new InsertExecutorRunnable(this.query, this)
-            ).start();
-        else if (queryType == DELETE)
-            ;
-        else {
+        //executors run on the thread of the transaction, the transaction executor already gave it its own thread
+        QueryExecutor queryExecutor = createQueryExecutor();
 
-        }
+        if (queryExecutor != null)
+            queryExecutor.run();
+        else
+            finished();
+    }
 
+    /**
+     * Creates the executor of the query of the transaction
+     *
+     * @return executor of the query, null if the query type is not supported
+     */
+    public QueryExecutor createQueryExecutor() {
+        return createQueryExecutor(this.query);
+    }
+
+    /**
+     * Creates the executor of a statement running in this transaction
+     *
+     * @param query statement to execute
+     * @return executor of the statement, null if the statement type is not supported
+     */
+    public QueryExecutor createQueryExecutor(String query) {
+        int queryType = getQueryType(query);
+
+        if (queryType == SELECT)
+            return new SelectExecutorRunnable(query, this);
+        else if (queryType == INSERT)
+            return new InsertExecutorRunnable(query, this);
+
+        return null;
     }
 
     private int getQueryType(String query) {
-        if (query.toLowerCase().contains("select"))
+
+        //statement type is its first keyword, an insert may contain a select and a select may contain any word in its values
+        String keyword = query.trim().split("\\s+", 2)[0].toLowerCase();
+
+        if (keyword.equals("select"))
             return SELECT;
-        else if (query.toLowerCase().contains("update"))
+        else if (keyword.equals("update"))
             return UPDATE;
-        else if (query.toLowerCase().contains("insert"))
+        else if (keyword.equals("insert"))
             return INSERT;
-        else if (query.toLowerCase().contains("delete"))
+        else if (keyword.equals("delete"))
             return DELETE;
 
         return NOT_VALID;
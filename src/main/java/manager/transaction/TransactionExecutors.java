@@ -0,0 +1,91 @@
+package manager.transaction;
+
+import common.Log;
+import config.ConfigUtilities;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class creates executors that run transactions.
+ * <p>
+ * a transaction spends most of its life blocked: waiting for locks or for storage systems to answer.
+ * with one virtual thread per transaction these waits only park the virtual thread, so bursts cost memory instead of platform threads.
+ * a bounded pool of platform threads is available for deployments that want a hard limit on concurrency.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class TransactionExecutors {
+
+    /**
+     * Component name to use in logging system
+     */
+    private static final String componentName = "TransactionExecutors";
+
+    /**
+     * Number of queued transactions per pool thread before submitters run transactions themselves
+     */
+    private static final int QUEUED_TRANSACTIONS_PER_THREAD = 16;
+
+    /**
+     * Creates the executor specified in main config file
+     *
+     * @return executor to run transactions
+     * @since 1.0
+     */
+    public static ExecutorService fromConfig() {
+
+        if (ConfigUtilities.getTransactionExecutor().equals("pool"))
+            return newBoundedThreadPool(ConfigUtilities.getTransactionPoolSize());
+
+        return newVirtualThreadPerTransaction();
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each transaction
+     *
+     * @return executor to run transactions
+     * @since 1.0
+     */
+    public static ExecutorService newVirtualThreadPerTransaction() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transaction-", 0).factory());
+    }
+
+    /**
+     * Creates a pool with fixed number of platform threads.
+     * when the queue of the pool is full, the submitting thread runs the transaction itself,
+     * which slows down submitters instead of creating more threads
+     *
+     * @param threads number of threads of the pool
+     * @return executor to run transactions
+     * @since 1.0
+     */
+    public static ExecutorService newBoundedThreadPool(int threads) {
+
+        if (threads < 1) {
+            Log.log("Transaction pool must have at least one thread, using one thread", componentName, Log.WARNING);
+            threads = 1;
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "transaction-pool-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_TRANSACTIONS_PER_THREAD),
+                threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -1,31 +1,283 @@
 package manager.transaction;
 
 import config.ConfigUtilities;
+import manager.commit.CommitCoordinator;
+import manager.connection.ConnectionPools;
+import manager.connection.MongoClients;
 import manager.lock.LockManager;
+import manager.lock.LockService;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TransactionManager {
 
-    private int transactionId = 0;
+    /**
+     * Client id of queries submitted without one
+     */
+    public static final String DEFAULT_CLIENT_ID = "default";
 
-    private HashMap<String, Transaction> transactionMap;
+    /**
+     * Maximum time an insert of a stream waits for others to join its group in milliseconds
+     */
+    private static final long INSERT_GROUP_WINDOW = 2;
 
-    private LockManager lockManager;
+    /**
+     * Number of inserts of a stream written together at most
+     */
+    private static final int INSERT_GROUP_MAX_ROWS = 1000;
 
-    public TransactionManager(LockManager lockManager) {
-        transactionMap = new HashMap<>();
-        this.lockManager = lockManager;
+    private final AtomicInteger transactionId = new AtomicInteger();
+
+    /**
+     * Transactions that are pending or running. finished transactions are evicted
+     */
+    private ConcurrentHashMap<String, Transaction> transactionMap;
+
+    /**
+     * Decides when submitted transactions start
+     */
+    private AdmissionController admissionController;
+
+    private LockService lockService;
+
+    /**
+     * Versions of tables and records written through this transaction manager
+     */
+    private VersionTable versionTable;
+
+    /**
+     * Orders commits and snapshot reads of the transactions of this transaction manager
+     */
+    private SnapshotCoordinator snapshotCoordinator;
+
+    /**
+     * Commits writes of the transactions of this transaction manager on several storage systems atomically
+     */
+    private CommitCoordinator commitCoordinator;
+
+    /**
+     * Coalesces concurrent inserts of insert streams
+     */
+    private InsertGroupCommitter insertGroupCommitter;
+
+    /**
+     * Executor running the transactions
+     */
+    private ExecutorService executor;
+
+    /**
+     * Pipeline running the queries in stages, null if each transaction runs on the executor
+     */
+    private QueryPipeline pipeline;
+
+    /**
+     * Prefix of the generated transaction ids.
+     * when several Dolus nodes share a lock service, each node must generate globally unique transaction ids
+     */
+    private String transactionIdPrefix;
+
+    public TransactionManager(LockService lockService) {
+        this(lockService, null);
+    }
+
+    public TransactionManager(LockService lockService, String nodeId) {
+        this(lockService, nodeId, TransactionExecutors.fromConfig());
+    }
+
+    public TransactionManager(LockService lockService, String nodeId, QueryPipeline pipeline) {
+        this(lockService, nodeId, (ExecutorService) null);
+        this.pipeline = pipeline;
+    }
+
+    public TransactionManager(LockService lockService, String nodeId, ExecutorService executor) {
+        transactionMap = new ConcurrentHashMap<>();
+        this.executor = executor;
+        this.admissionController = new AdmissionController(16, 1, 256, 1024, this::shed);
+        this.lockService = lockService;
+        this.versionTable = new VersionTable();
+        this.snapshotCoordinator = new SnapshotCoordinator();
+        this.commitCoordinator = CommitCoordinator.fromConfig(nodeId);
+        //group transactions skip the admission controller: a group is already bounded by its window and size,
+        //and queueing it for admission would hold all of its inserts behind the longest pending queue
+        this.insertGroupCommitter = new InsertGroupCommitter(INSERT_GROUP_WINDOW, INSERT_GROUP_MAX_ROWS,
+                () -> new Transaction(null, nextTransactionId(), lockService, versionTable, snapshotCoordinator, commitCoordinator, Transaction.PESSIMISTIC));
+        this.transactionIdPrefix = nodeId == null ? "" : nodeId + "-";
+    }
+
+    public QueryResult executeQuery(String query) {
+        return executeQuery(DEFAULT_CLIENT_ID, query, Transaction.PESSIMISTIC);
+    }
+
+    public QueryResult executeQuery(String query, int concurrencyMode) {
+        return executeQuery(DEFAULT_CLIENT_ID, query, concurrencyMode);
+    }
+
+    /**
+     * Executes a query in its own transaction, once the admission controller lets it start
+     *
+     * @param clientId        id of the client submitting the query, pending queries are served fairly between clients
+     * @param query           query to execute
+     * @param concurrencyMode Transaction.PESSIMISTIC, Transaction.OPTIMISTIC or Transaction.SNAPSHOT
+     * @return handle streaming the result of the query, null if the query is rejected because of overload
+     */
+    public QueryResult executeQuery(String clientId, String query, int concurrencyMode) {
+
+        Transaction transaction = createTransaction(query, concurrencyMode);
+
+        QueryResult queryResult = new QueryResult(ConfigUtilities.getFetchSize());
+        transaction.setQueryResult(queryResult);
+
+        boolean accepted = admissionController.submit(clientId, transaction, () -> start(transaction));
+
+        if (!accepted) {
+            evict(transaction);
+            return null;
+        }
+
+        return queryResult;
+    }
+
+    /**
+     * Begins a session running several statements in one transaction. blocks until the admission controller lets the transaction start,
+     * the transaction holds its place among running transactions until the session is committed or rolled back
+     *
+     * @param clientId        id of the client beginning the session
+     * @param concurrencyMode Transaction.PESSIMISTIC, Transaction.OPTIMISTIC or Transaction.SNAPSHOT
+     * @return the started session, null if it is rejected or shed because of overload
+     */
+    public Session beginSession(String clientId, int concurrencyMode) {
+
+        Transaction transaction = createTransaction(null, concurrencyMode);
+
+        Session session = new Session(transaction);
+
+        if (!admissionController.submit(clientId, transaction, session::start)) {
+            evict(transaction);
+            return null;
+        }
+
+        return session.awaitStart() ? session : null;
+    }
+
+    public Session beginSession() {
+        return beginSession(DEFAULT_CLIENT_ID, Transaction.PESSIMISTIC);
+    }
+
+    private Transaction createTransaction(String query, int concurrencyMode) {
+
+        String id = nextTransactionId();
+
+        Transaction transaction = new Transaction(query, id, lockService, versionTable, snapshotCoordinator, commitCoordinator, concurrencyMode);
+
+        //evict the transaction once it is finished and free its place for pending transactions
+        transaction.setCompletionListener(finishedTransaction -> {
+            evict(finishedTransaction);
+            admissionController.finished(finishedTransaction.getLatency());
+        });
+
+        transactionMap.put(id, transaction);
+
+        return transaction;
     }
-    public synchronized void executeQuery(String query) {
 
-        transactionId++;
+    /**
+     * Executes an insert of a high rate insert stream.
+     * concurrent inserts into the same table are written together in one transaction, see InsertGroupCommitter.
+     * the query is parsed on the calling thread
+     *
+     * @param query insert query
+     * @return completed with true when the insert is committed, false if it is rolled back or can not be parsed
+     */
+    public CompletableFuture<Boolean> executeInsert(String query) {
+
+        InsertRow row = InsertRow.parse(query);
 
-        Transaction transaction = new Transaction(query, transactionId+"", lockManager);
+        if (row == null)
+            return CompletableFuture.completedFuture(false);
 
-        transactionMap.put(transactionId+"", transaction);
+        return insertGroupCommitter.submit(row);
+    }
 
-        new Thread(transaction).start();
+    private String nextTransactionId() {
+        return transactionIdPrefix + transactionId.incrementAndGet();
+    }
+
+    private void start(Transaction transaction) {
+
+        if (pipeline != null) {
+
+            QueryExecutor queryExecutor = transaction.createQueryExecutor();
+
+            if (queryExecutor != null)
+                pipeline.submit(queryExecutor);
+            else
+                transaction.finished();
+
+            return;
+        }
+
+        executor.execute(transaction);
+    }
+
+    private void evict(Transaction transaction) {
+        transactionMap.remove(transaction.getTransactionId());
+    }
+
+    /**
+     * Called for transactions shed by the admission controller before they are started and for transactions failing to start.
+     * aborting fails the result of the transaction
+     */
+    private void shed(Transaction transaction) {
+
+        evict(transaction);
+
+        //wakes up the session of the transaction, if it has one
+        transaction.abort();
+    }
+
+    public Transaction getTransaction(String transactionId) {
+        return transactionMap.get(transactionId);
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    /**
+     * Stops accepting new transactions, already submitted transactions are completed
+     */
+    public void shutdown() {
+
+        insertGroupCommitter.shutdown();
+
+        if (pipeline != null)
+            pipeline.shutdown(Long.MAX_VALUE);
+        else {
+            executor.shutdown();
+
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (commitCoordinator != null)
+            commitCoordinator.shutdown();
+
+        ConnectionPools.logMetrics();
+        ConnectionPools.closeAll();
+        MongoClients.closeAll();
     }
 
     public static void main(String[] args) {
@@ -39,7 +291,16 @@ public class TransactionManager {
 //        for (int i = 2; i < 100; i++)
 //            transactionManager.executeQuery(String.format("INSERT INTO SAILORS(SID, SNAME, PHONE) VALUES(%d, \"amin%d\", \"09111063006\")",i,i));
 
-        transactionManager.executeQuery("SELECT S.SID, S.SNAME, S.PHONE FROM SAILORS S");
+        QueryResult result = transactionManager.executeQuery("SELECT S.SID, S.SNAME, S.PHONE FROM SAILORS S");
+
+        if (result == null)
+            return;
+
+        for (List<HashMap<String, String>> batch = result.nextBatch(); batch != null; batch = result.nextBatch())
+            batch.forEach(System.out::println);
+
+        if (!result.isSucceeded())
+            System.out.println("Query failed: " + result.getFailure());
     }
 }
 
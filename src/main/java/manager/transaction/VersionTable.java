@@ -0,0 +1,130 @@
+package manager.transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps a version number for every table and every record written through Dolus.
+ * optimistic transactions remember the versions of what they read and are validated against this table at commit.
+ * <p>
+ * keys have the same shape as lock names: "database_table" for tables and "database_table_pk" for records.
+ * </p>
+ * <p>
+ * a write phase bumps the versions of its keys when it begins and again when it ends, and its keys are marked as being written meanwhile.
+ * so a read that overlaps a write phase in any way fails validation: it either sees a changed version or a key still being written.
+ * </p>
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class VersionTable {
+
+    /**
+     * Mapping between a table or record key and its current version
+     */
+    private final ConcurrentHashMap<String, Long> versions;
+
+    /**
+     * Mapping between a key and the number of write phases writing it right now, guarded by the monitor of the table
+     */
+    private final HashMap<String, Integer> writingKeys;
+
+    /**
+     * Default constructor
+     *
+     * @since 1.0
+     */
+    public VersionTable() {
+        this.versions = new ConcurrentHashMap<>();
+        this.writingKeys = new HashMap<>();
+    }
+
+    /**
+     * Get key of a table
+     *
+     * @param database name of the database
+     * @param table    name of the table
+     * @return key of the table
+     * @since 1.0
+     */
+    public static String getKey(String database, String table) {
+        return database + "_" + table;
+    }
+
+    /**
+     * Get key of a record
+     *
+     * @param database        name of the database
+     * @param table           name of the table
+     * @param primaryKeyValue value of the primary key of the record
+     * @return key of the record
+     * @since 1.0
+     */
+    public static String getKey(String database, String table, String primaryKeyValue) {
+        return database + "_" + table + "_" + primaryKeyValue;
+    }
+
+    /**
+     * Get current version of a table or record
+     *
+     * @param key key of the table or record
+     * @return current version, 0 if it has never been written
+     * @since 1.0
+     */
+    public long getVersion(String key) {
+        return versions.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Validates the read set of a transaction and if it is still valid, begins its write phase.
+     * only validation is serialized, the caller runs the write phase and then calls endWrite
+     *
+     * @param readWriteSet read and write set of the transaction
+     * @return true if the write phase may run, false if another transaction changed or is changing something it read
+     * @since 1.0
+     */
+    public synchronized boolean validateAndBeginWrite(ReadWriteSet readWriteSet) {
+
+        //every table or record read by the transaction must still have the version it had at read time
+        for (Map.Entry<String, Long> read : readWriteSet.getReadSet().entrySet()) {
+
+            if (getVersion(read.getKey()) != read.getValue() || writingKeys.containsKey(read.getKey()))
+                return false;
+        }
+
+        beginWrite(readWriteSet.getWriteSet());
+
+        return true;
+    }
+
+    /**
+     * Begins the write phase of a transaction, must be called before anything is written
+     *
+     * @param writeSet keys of the written tables and records
+     * @since 1.0
+     */
+    public synchronized void beginWrite(Set<String> writeSet) {
+
+        for (String key : writeSet) {
+            versions.merge(key, 1L, Long::sum);
+            writingKeys.merge(key, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Ends the write phase of a transaction, must be called after its write phase whether it succeeded or not
+     *
+     * @param writeSet keys of the written tables and records
+     * @since 1.0
+     */
+    public synchronized void endWrite(Set<String> writeSet) {
+
+        for (String key : writeSet) {
+            versions.merge(key, 1L, Long::sum);
+            writingKeys.computeIfPresent(key, (writtenKey, writers) -> writers == 1 ? null : writers - 1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package manager.commit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two phase commit of writes on several storage systems
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class CommitCoordinatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DecisionLog decisionLog;
+
+    private CommitCoordinator commitCoordinator;
+
+    @Before
+    public void createCoordinator() throws IOException {
+
+        decisionLog = new DecisionLog(folder.newFile("decisions.log").getPath());
+        assertTrue(decisionLog.open());
+
+        commitCoordinator = new CommitCoordinator(decisionLog, "node1");
+    }
+
+    @After
+    public void shutdownCoordinator() {
+        commitCoordinator.shutdown();
+    }
+
+    @Test
+    public void allParticipantsCommitUnderOneXidOfTheNode() {
+
+        RecordingParticipant mysql1 = new RecordingParticipant("mysql1", true, true);
+        RecordingParticipant mysql2 = new RecordingParticipant("mysql2", true, true);
+
+        assertTrue(commitCoordinator.commit(Arrays.asList(mysql1, mysql2)));
+
+        assertTrue(mysql1.committed);
+        assertTrue(mysql2.committed);
+        assertEquals(mysql1.xid, mysql2.xid);
+
+        assertTrue(mysql1.xid.startsWith(CommitCoordinator.XID_PREFIX + "node1:"));
+
+        //the decision is kept until every participant committed
+        assertTrue(decisionLog.getInDoubt().isEmpty());
+    }
+
+    @Test
+    public void failedPrepareRollsBackAllParticipants() {
+
+        RecordingParticipant mysql = new RecordingParticipant("mysql", true, true);
+        RecordingParticipant failing = new RecordingParticipant("failing", true, false);
+
+        assertFalse(commitCoordinator.commit(Arrays.asList(mysql, failing)));
+
+        assertFalse(mysql.committed);
+        assertTrue(mysql.rolledBack);
+        assertTrue(failing.rolledBack);
+        assertFalse(decisionLog.isCommitted(mysql.xid));
+    }
+
+    @Test
+    public void participantWithoutDurablePrepareDecidesTheOutcome() {
+
+        RecordingParticipant mysql = new RecordingParticipant("mysql", true, true);
+        RecordingParticipant mongo = new RecordingParticipant("mongo", false, true);
+        mongo.commits = false;
+
+        assertFalse(commitCoordinator.commit(Arrays.asList(mysql, mongo)));
+
+        assertFalse(mysql.committed);
+        assertTrue(mysql.rolledBack);
+    }
+
+    @Test
+    public void nodeOnlyOwnsItsXids() {
+
+        CommitCoordinator otherNode = new CommitCoordinator(decisionLog, "node10");
+
+        String xid = CommitCoordinator.XID_PREFIX + "node10:0f8fad5b-d9cb-469f-a165-70867728950e";
+
+        assertTrue(otherNode.isOwnXid(xid));
+        assertFalse(commitCoordinator.isOwnXid(xid));
+    }
+
+    /**
+     * Participant remembering what the coordinator asked it to do
+     */
+    private static class RecordingParticipant implements CommitParticipant {
+
+        private final String name;
+
+        private final boolean durablyPrepared;
+
+        private final boolean prepares;
+
+        private volatile boolean commits = true;
+
+        private volatile String xid;
+
+        private volatile boolean committed;
+
+        private volatile boolean rolledBack;
+
+        private RecordingParticipant(String name, boolean durablyPrepared, boolean prepares) {
+            this.name = name;
+            this.durablyPrepared = durablyPrepared;
+            this.prepares = prepares;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean prepare(String xid) {
+            this.xid = xid;
+            return prepares;
+        }
+
+        @Override
+        public boolean commit(String xid) {
+            committed = commits;
+            return commits;
+        }
+
+        @Override
+        public void rollback(String xid) {
+            rolledBack = true;
+        }
+
+        @Override
+        public boolean isDurablyPrepared() {
+            return durablyPrepared;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package manager.federated;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Primary key lookups of the build side of a join
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class BatchHashTableTest {
+
+    @Test
+    public void integerKeysMatchTheirStringForm() {
+
+        //MySQL reads integer keys, MongoDB the same keys as strings
+        BatchHashTable table = new BatchHashTable("sid");
+        table.add(batch(new Object[]{1L, 2L, 3L}, new Object[]{"red", "green", "blue"}));
+
+        StringVector probe = new StringVector(0);
+        probe.append("2");
+        probe.append("02");
+        probe.append("4");
+        probe.append(null);
+
+        long reference = table.find(probe, 0);
+
+        assertEquals("green", table.getBatch(reference).getColumn("color").getString(BatchHashTable.getRow(reference)));
+        assertEquals(JoinHashTable.NOT_FOUND, table.find(probe, 1));
+        assertEquals(JoinHashTable.NOT_FOUND, table.find(probe, 2));
+        assertEquals(JoinHashTable.NOT_FOUND, table.find(probe, 3));
+    }
+
+    @Test
+    public void rowsOfEveryBatchAreFound() {
+
+        BatchHashTable table = new BatchHashTable("sid");
+        table.add(batch(new Object[]{"a1", "a2"}, new Object[]{"red", "green"}));
+        table.add(batch(new Object[]{"b1", null}, new Object[]{"blue", "black"}));
+
+        StringVector probe = new StringVector(0);
+        probe.append("b1");
+        probe.append("a2");
+
+        long first = table.find(probe, 0);
+        long second = table.find(probe, 1);
+
+        assertEquals("blue", table.getBatch(first).getColumn("color").getString(BatchHashTable.getRow(first)));
+        assertEquals("green", table.getBatch(second).getColumn("color").getString(BatchHashTable.getRow(second)));
+    }
+
+    static ColumnBatch batch(Object[] keys, Object[] colors) {
+
+        LinkedHashMap<String, ColumnVector> columns = new LinkedHashMap<>();
+        columns.put("sid", ColumnVector.of(keys, keys.length));
+        columns.put("color", ColumnVector.of(colors, colors.length));
+
+        return new ColumnBatch(columns, keys.length);
+    }
+}
@@ -0,0 +1,115 @@
+package manager.federated;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Aggregates computed in Dolus give the results of the same select run by Drill or MySQL
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class HashAggregationTest {
+
+    private static final List<Aggregate> AGGREGATES = Arrays.asList(
+            new Aggregate(null, "color", "color"),
+            new Aggregate(Aggregate.COUNT, null, "count"),
+            new Aggregate(Aggregate.COUNT, "rating", "ratings"),
+            new Aggregate(Aggregate.SUM, "rating", "total"),
+            new Aggregate(Aggregate.MIN, "rating", "lowest"),
+            new Aggregate(Aggregate.MAX, "rating", "highest"));
+
+    @Test
+    public void rowsOfJoinAreGroupedLikeSql() {
+
+        HashAggregation aggregation = new HashAggregation(AGGREGATES, Collections.singletonList("color"), false);
+
+        //select color, count(*), count(rating), sum(rating), min(rating), max(rating) from boats group by color
+        aggregation.add(rows(new Object[]{"red", "blue", "red", "red", "blue"}, new Object[]{7L, 3L, null, 10L, null}));
+
+        HashMap<String, List<String>> groups = toGroups(aggregation.getResult());
+
+        assertEquals(Arrays.asList("red", "3", "2", "17", "7", "10"), groups.get("red"));
+        //sum, min and max of nulls only are null, count of them is 0
+        assertEquals(Arrays.asList("blue", "2", "1", "3", "3", "3"), groups.get("blue"));
+    }
+
+    @Test
+    public void combinedPartsEqualAggregatesOfAllRows() {
+
+        HashAggregation aggregation = new HashAggregation(AGGREGATES, Collections.singletonList("color"), true);
+
+        //each range of the table aggregated by its storage system
+        aggregation.add(parts(new Object[]{"red", "blue"}, new Object[]{2L, 1L}, new Object[]{1L, 1L}, new Object[]{"7", "3"}, new Object[]{7L, 3L}, new Object[]{7L, 3L}));
+        aggregation.add(parts(new Object[]{"red", "blue"}, new Object[]{1L, 1L}, new Object[]{1L, 0L}, new Object[]{"10", null}, new Object[]{10L, null}, new Object[]{10L, null}));
+
+        HashMap<String, List<String>> groups = toGroups(aggregation.getResult());
+
+        assertEquals(Arrays.asList("red", "3", "2", "17", "7", "10"), groups.get("red"));
+        assertEquals(Arrays.asList("blue", "2", "1", "3", "3", "3"), groups.get("blue"));
+    }
+
+    @Test
+    public void selectWithoutGroupByOverNoRowsHasOneRow() {
+
+        HashAggregation aggregation = new HashAggregation(AGGREGATES.subList(1, AGGREGATES.size()), Collections.emptyList(), false);
+
+        ColumnBatch result = aggregation.getResult();
+
+        assertEquals(1, result.getRowCount());
+        assertEquals("0", result.getColumn("count").getString(0));
+        assertEquals("0", result.getColumn("ratings").getString(0));
+        assertNull(result.getColumn("total").getString(0));
+        assertNull(result.getColumn("highest").getString(0));
+    }
+
+    private static ColumnBatch rows(Object[] colors, Object[] ratings) {
+
+        LinkedHashMap<String, ColumnVector> columns = new LinkedHashMap<>();
+        columns.put("color", ColumnVector.of(colors, colors.length));
+        columns.put("rating", ColumnVector.of(ratings, ratings.length));
+
+        return new ColumnBatch(columns, colors.length);
+    }
+
+    private static ColumnBatch parts(Object[]... values) {
+
+        LinkedHashMap<String, ColumnVector> columns = new LinkedHashMap<>();
+        columns.put("color", ColumnVector.of(values[0], values[0].length));
+
+        for (int i = 1; i < values.length; i++)
+            columns.put(Aggregate.getPartName(i), ColumnVector.of(values[i], values[i].length));
+
+        return new ColumnBatch(columns, values[0].length);
+    }
+
+    /**
+     * Get the values of the result by group
+     */
+    private static HashMap<String, List<String>> toGroups(ColumnBatch result) {
+
+        HashMap<String, List<String>> groups = new HashMap<>();
+
+        for (HashMap<String, String> row : result.toRows()) {
+
+            List<String> values = new ArrayList<>();
+
+            for (Aggregate aggregate : AGGREGATES)
+                values.add(row.get(aggregate.getLabel()));
+
+            groups.put(row.get("color"), values);
+        }
+
+        return groups;
+    }
+}
@@ -0,0 +1,102 @@
+package manager.federated;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Joins within a memory budget find the same rows whether the build side is spilled or not
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SpillableHashTableTest {
+
+    private static final int ROWS = 5000;
+
+    @Test
+    public void buildSideFittingInBudgetStaysInMemory() throws IOException {
+
+        try (SpillableHashTable table = build(new MemoryBudget(Long.MAX_VALUE / 2))) {
+
+            assertFalse(table.isSpilled());
+            assertEquals(ROWS / 2, probe(table.getTable()).size());
+        }
+    }
+
+    @Test
+    public void spilledBuildSideJoinsPartitionByPartition() throws IOException {
+
+        try (SpillableHashTable table = build(new MemoryBudget(1))) {
+
+            assertTrue(table.isSpilled());
+            assertNull(table.getTable());
+
+            HashMap<String, String> matches = new HashMap<>();
+
+            for (int partition = 0; partition < SpillableHashTable.PARTITIONS; partition++)
+                matches.putAll(probe(table.loadPartition(partition)));
+
+            //every even key once, keys missing on the build side are dropped like in an inner join
+            assertEquals(ROWS / 2, matches.size());
+
+            for (int i = 0; i < ROWS; i += 2)
+                assertEquals("color" + i % 7, matches.get(String.valueOf(i)));
+        }
+    }
+
+    /**
+     * Adds even keys 0 .. ROWS to a table in batches
+     */
+    private static SpillableHashTable build(MemoryBudget budget) throws IOException {
+
+        SpillableHashTable table = new SpillableHashTable(Arrays.asList("sid", "color"), "sid", budget);
+
+        for (int start = 0; start < ROWS; start += 1000) {
+
+            Object[] keys = new Object[500];
+            Object[] colors = new Object[500];
+
+            for (int i = 0; i < 500; i++) {
+                keys[i] = (long) start + i * 2;
+                colors[i] = "color" + (start + i * 2) % 7;
+            }
+
+            table.add(BatchHashTableTest.batch(keys, colors));
+        }
+
+        return table;
+    }
+
+    /**
+     * Looks every key 0 .. ROWS up in a table
+     *
+     * @return key -> color of the keys found
+     */
+    private static HashMap<String, String> probe(BatchHashTable table) {
+
+        HashMap<String, String> matches = new HashMap<>();
+
+        StringVector keys = new StringVector(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            keys.append(String.valueOf(i));
+
+        for (int i = 0; i < ROWS; i++) {
+
+            long reference = table.find(keys, i);
+
+            if (reference != JoinHashTable.NOT_FOUND)
+                matches.put(keys.getString(i), table.getBatch(reference).getColumn("color").getString(BatchHashTable.getRow(reference)));
+        }
+
+        return matches;
+    }
+}
@@ -0,0 +1,71 @@
+package manager.federated;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dictionary encoding of string columns and its fall back to plain strings
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class StringVectorTest {
+
+    @Test
+    public void repeatedValuesAreDictionaryEncoded() {
+
+        StringVector vector = new StringVector(0);
+
+        for (int i = 0; i < 1000; i++)
+            vector.append(i % 3 == 0 ? null : "color" + i % 5);
+
+        assertTrue(vector.isDictionaryEncoded());
+        assertEquals(5, vector.getDictionarySize());
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i % 3 == 0 ? null : "color" + i % 5, vector.getString(i));
+    }
+
+    @Test
+    public void uniqueValuesFallBackToPlainStrings() {
+
+        StringVector vector = new StringVector(0);
+
+        int count = StringVector.MAX_DICTIONARY_SIZE * 4;
+
+        for (int i = 0; i < count; i++)
+            vector.append(i % 7 == 0 ? null : "sailor" + i);
+
+        assertFalse(vector.isDictionaryEncoded());
+        assertEquals(count, vector.size());
+
+        //values encoded before the fall back keep their strings and nulls
+        for (int i = 0; i < count; i++)
+            assertEquals(i % 7 == 0 ? null : "sailor" + i, vector.getString(i));
+
+        assertTrue(vector.isNull(0));
+        assertNull(vector.getObject(7));
+    }
+
+    @Test
+    public void copiedValuesAreEqual() {
+
+        StringVector source = new StringVector(0);
+
+        for (int i = 0; i < StringVector.MAX_DICTIONARY_SIZE + 1; i++)
+            source.append("sailor" + i);
+
+        ColumnVector target = source.emptyCopy(0);
+
+        for (int i = source.size() - 1; i >= 0; i--)
+            target.appendFrom(source, i);
+
+        for (int i = 0; i < source.size(); i++)
+            assertEquals(source.getString(source.size() - 1 - i), target.getString(i));
+    }
+}
@@ -0,0 +1,214 @@
+package manager.lock;
+
+import manager.lock.LockConstants.LockTypes;
+import manager.transaction.QueryExecutor;
+import manager.transaction.Transaction;
+import org.junit.Test;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Granting locks and breaking dead locks in one lock manager
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockManagerTest {
+
+    /**
+     * Maximum time to wait for a grant or a dead lock victim in milliseconds
+     */
+    private static final long TIMEOUT = 10000;
+
+    /**
+     * Time the dead lock detector needs to look at the waiting graph at least once in milliseconds
+     */
+    private static final long DETECTION_WAIT = 2500;
+
+    @Test
+    public void waitingLockIsGrantedAfterRelease() throws InterruptedException {
+
+        LockManager lockManager = new LockManager();
+
+        Transaction holder = new Transaction(null, "transaction-1", lockManager);
+        Transaction waiter = new Transaction(null, "transaction-2", lockManager);
+
+        LockOnlyQueryExecutor holderExecutor = new LockOnlyQueryExecutor(holder);
+        LockOnlyQueryExecutor waiterExecutor = new LockOnlyQueryExecutor(waiter);
+
+        holderExecutor.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+        waiterExecutor.request(new Lock("database1", "table1", LockTypes.SHARED));
+
+        assertTrue(holderExecutor.isAllGranted());
+        assertFalse(waiterExecutor.isAllGranted());
+
+        holder.releaseLock();
+
+        assertTrue(waitFor(waiterExecutor::isAllGranted));
+    }
+
+    @Test
+    public void deadLockKillsOneVictim() throws InterruptedException {
+
+        LockManager lockManager = new LockManager();
+
+        Transaction transaction1 = new Transaction(null, "transaction-1", lockManager);
+        Transaction transaction2 = new Transaction(null, "transaction-2", lockManager);
+
+        LockOnlyQueryExecutor executor1 = new LockOnlyQueryExecutor(transaction1);
+        LockOnlyQueryExecutor executor2 = new LockOnlyQueryExecutor(transaction2);
+
+        //each transaction holds one table and waits for the other one
+        executor1.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", "table2", LockTypes.EXCLUSIVE));
+        executor1.request(new Lock("database1", "table2", LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+
+        //the transaction with the largest id is the victim
+        assertTrue(waitFor(executor2::isKilled));
+        assertFalse(executor1.isKilled());
+
+        //the victim gives up its locks, the survivor gets them
+        transaction2.releaseLock();
+
+        assertTrue(waitFor(executor1::isAllGranted));
+    }
+
+    @Test
+    public void youngestTransactionIsVictimAcrossDigitBoundary() throws InterruptedException {
+
+        LockManager lockManager = new LockManager();
+
+        //"transaction-9" sorts after "transaction-10" as a string, but started before it
+        Transaction older = new Transaction(null, "transaction-9", lockManager);
+        Transaction younger = new Transaction(null, "transaction-10", lockManager);
+
+        assertTrue(Transaction.compareIds(older.getTransactionId(), younger.getTransactionId()) < 0);
+
+        LockOnlyQueryExecutor olderExecutor = new LockOnlyQueryExecutor(older);
+        LockOnlyQueryExecutor youngerExecutor = new LockOnlyQueryExecutor(younger);
+
+        olderExecutor.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+        youngerExecutor.request(new Lock("database1", "table2", LockTypes.EXCLUSIVE));
+        olderExecutor.request(new Lock("database1", "table2", LockTypes.EXCLUSIVE));
+        youngerExecutor.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+
+        assertTrue(waitFor(youngerExecutor::isKilled));
+        assertFalse(olderExecutor.isKilled());
+
+        younger.releaseLock();
+
+        assertTrue(waitFor(olderExecutor::isAllGranted));
+    }
+
+    @Test
+    public void upgradeWaitsForOtherHolderWithoutDeadLock() throws InterruptedException {
+
+        LockManager lockManager = new LockManager();
+
+        Transaction upgrader = new Transaction(null, "transaction-1", lockManager);
+        Transaction holder = new Transaction(null, "transaction-2", lockManager);
+
+        LockOnlyQueryExecutor upgraderExecutor = new LockOnlyQueryExecutor(upgrader);
+        LockOnlyQueryExecutor holderExecutor = new LockOnlyQueryExecutor(holder);
+
+        //both transactions read the table, then one of them writes it
+        upgraderExecutor.request(new Lock("database1", "table1", LockTypes.SHARED));
+        holderExecutor.request(new Lock("database1", "table1", LockTypes.SHARED));
+        upgraderExecutor.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+
+        assertTrue(holderExecutor.isAllGranted());
+        assertFalse(upgraderExecutor.isAllGranted());
+
+        //longer than a detection period of the dead lock detector
+        Thread.sleep(DETECTION_WAIT);
+
+        assertFalse(upgraderExecutor.isKilled());
+        assertFalse(holderExecutor.isKilled());
+
+        holder.releaseLock();
+
+        assertTrue(waitFor(upgraderExecutor::isAllGranted));
+        assertFalse(upgraderExecutor.isKilled());
+    }
+
+    @Test
+    public void upgradesOfBothHoldersKillOneVictim() throws InterruptedException {
+
+        LockManager lockManager = new LockManager();
+
+        Transaction transaction1 = new Transaction(null, "transaction-1", lockManager);
+        Transaction transaction2 = new Transaction(null, "transaction-2", lockManager);
+
+        LockOnlyQueryExecutor executor1 = new LockOnlyQueryExecutor(transaction1);
+        LockOnlyQueryExecutor executor2 = new LockOnlyQueryExecutor(transaction2);
+
+        //each upgrade waits for the shared lock of the other transaction
+        executor1.request(new Lock("database1", "table1", LockTypes.SHARED));
+        executor2.request(new Lock("database1", "table1", LockTypes.SHARED));
+        executor1.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", "table1", LockTypes.EXCLUSIVE));
+
+        assertTrue(waitFor(executor2::isKilled));
+        assertFalse(executor1.isKilled());
+
+        transaction2.releaseLock();
+
+        assertTrue(waitFor(executor1::isAllGranted));
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!condition.getAsBoolean()) {
+
+            if (System.currentTimeMillis() > deadline)
+                return false;
+
+            Thread.sleep(20);
+        }
+
+        return true;
+    }
+
+    /**
+     * Query executor whose locks are submitted directly by the test
+     */
+    private static class LockOnlyQueryExecutor extends QueryExecutor {
+
+        private LockOnlyQueryExecutor(Transaction transaction) {
+            super(transaction);
+        }
+
+        private void request(Lock lock) {
+            submitLock(lock);
+        }
+
+        private boolean isKilled() {
+            return isDead();
+        }
+
+        @Override
+        protected boolean translate() {
+            return true;
+        }
+
+        @Override
+        protected void requestLocks() {
+        }
+
+        @Override
+        protected boolean execute() {
+            return false;
+        }
+
+        @Override
+        protected void deliver() {
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package manager.lock.distributed;
+
+import manager.lock.Lock;
+import manager.lock.LockConstants.LockTypes;
+import manager.transaction.QueryExecutor;
+import manager.transaction.Transaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs three lock nodes over loopback in one JVM
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class LockNodeTest {
+
+    private static final int NODE_COUNT = 3;
+
+    /**
+     * Maximum time to wait for a grant or a dead lock victim in milliseconds
+     */
+    private static final long TIMEOUT = 10000;
+
+    private LockNode[] nodes;
+
+    @Before
+    public void startNodes() throws IOException {
+
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++)
+            addresses.add(new InetSocketAddress("127.0.0.1", getFreePort()));
+
+        nodes = new LockNode[NODE_COUNT];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes[i] = new LockNode(i, addresses, 200);
+            nodes[i].start();
+        }
+    }
+
+    @After
+    public void closeNodes() {
+        for (LockNode node : nodes)
+            node.close();
+    }
+
+    @Test
+    public void waitingLockIsGrantedByRemoteNodeAfterRelease() throws InterruptedException {
+
+        String table = findTableOwnedBy(1);
+
+        Transaction holder = new Transaction(null, "node0-1", nodes[0].getLockService());
+        Transaction waiter = new Transaction(null, "node2-1", nodes[2].getLockService());
+
+        LockOnlyQueryExecutor holderExecutor = new LockOnlyQueryExecutor(holder);
+        LockOnlyQueryExecutor waiterExecutor = new LockOnlyQueryExecutor(waiter);
+
+        holderExecutor.request(new Lock("database1", table, LockTypes.EXCLUSIVE));
+        waiterExecutor.request(new Lock("database1", table, LockTypes.EXCLUSIVE));
+
+        assertTrue(holderExecutor.isAllGranted());
+        assertFalse(waiterExecutor.isAllGranted());
+
+        holder.releaseLock();
+
+        assertTrue(waitFor(waiterExecutor::isAllGranted));
+    }
+
+    @Test
+    public void databaseLockIsGrantedWhenAllNodesGrantIt() throws InterruptedException {
+
+        //tables owned by two different remote nodes, both grant the database lock later
+        String table1 = findTableOwnedBy(1);
+        String table2 = findTableOwnedBy(2);
+
+        Transaction holder = new Transaction(null, "node1-1", nodes[1].getLockService());
+        Transaction waiter = new Transaction(null, "node0-1", nodes[0].getLockService());
+
+        LockOnlyQueryExecutor holderExecutor = new LockOnlyQueryExecutor(holder);
+        LockOnlyQueryExecutor waiterExecutor = new LockOnlyQueryExecutor(waiter);
+
+        holderExecutor.request(new Lock("database1", table1, LockTypes.EXCLUSIVE));
+        holderExecutor.request(new Lock("database1", table2, LockTypes.EXCLUSIVE));
+        waiterExecutor.request(new Lock("database1", LockTypes.EXCLUSIVE));
+
+        assertFalse(waiterExecutor.isAllGranted());
+
+        holder.releaseLock();
+
+        assertTrue(waitFor(waiterExecutor::isAllGranted));
+    }
+
+    @Test
+    public void deadLockAcrossNodesKillsOneVictim() throws InterruptedException {
+
+        String table1 = findTableOwnedBy(0);
+        String table2 = findTableOwnedBy(1);
+
+        Transaction transaction1 = new Transaction(null, "node0-1", nodes[0].getLockService());
+        Transaction transaction2 = new Transaction(null, "node1-1", nodes[1].getLockService());
+
+        LockOnlyQueryExecutor executor1 = new LockOnlyQueryExecutor(transaction1);
+        LockOnlyQueryExecutor executor2 = new LockOnlyQueryExecutor(transaction2);
+
+        //each transaction holds one table and waits for the other one
+        executor1.request(new Lock("database1", table1, LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", table2, LockTypes.EXCLUSIVE));
+        executor1.request(new Lock("database1", table2, LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", table1, LockTypes.EXCLUSIVE));
+
+        //the transaction with the largest id is the victim
+        assertTrue(waitFor(executor2::isKilled));
+        assertFalse(executor1.isKilled());
+
+        //the victim gives up its locks, the survivor gets them
+        transaction2.releaseLock();
+
+        assertTrue(waitFor(executor1::isAllGranted));
+        assertFalse(executor1.isKilled());
+    }
+
+    @Test
+    public void upgradeOnRemoteNodeWaitsWithoutDeadLock() throws InterruptedException {
+
+        String table = findTableOwnedBy(1);
+
+        Transaction upgrader = new Transaction(null, "node0-1", nodes[0].getLockService());
+        Transaction holder = new Transaction(null, "node2-1", nodes[2].getLockService());
+
+        LockOnlyQueryExecutor upgraderExecutor = new LockOnlyQueryExecutor(upgrader);
+        LockOnlyQueryExecutor holderExecutor = new LockOnlyQueryExecutor(holder);
+
+        upgraderExecutor.request(new Lock("database1", table, LockTypes.SHARED));
+        holderExecutor.request(new Lock("database1", table, LockTypes.SHARED));
+
+        assertTrue(waitFor(() -> upgraderExecutor.isAllGranted() && holderExecutor.isAllGranted()));
+
+        upgraderExecutor.request(new Lock("database1", table, LockTypes.EXCLUSIVE));
+
+        //several probe periods of the edge chasing detectors
+        Thread.sleep(1000);
+
+        assertFalse(upgraderExecutor.isAllGranted());
+        assertFalse(upgraderExecutor.isKilled());
+
+        holder.releaseLock();
+
+        assertTrue(waitFor(upgraderExecutor::isAllGranted));
+        assertFalse(upgraderExecutor.isKilled());
+    }
+
+    @Test
+    public void upgradesOfBothHoldersOnRemoteNodeKillOneVictim() throws InterruptedException {
+
+        String table = findTableOwnedBy(1);
+
+        Transaction transaction1 = new Transaction(null, "node0-1", nodes[0].getLockService());
+        Transaction transaction2 = new Transaction(null, "node2-1", nodes[2].getLockService());
+
+        LockOnlyQueryExecutor executor1 = new LockOnlyQueryExecutor(transaction1);
+        LockOnlyQueryExecutor executor2 = new LockOnlyQueryExecutor(transaction2);
+
+        executor1.request(new Lock("database1", table, LockTypes.SHARED));
+        executor2.request(new Lock("database1", table, LockTypes.SHARED));
+
+        assertTrue(waitFor(() -> executor1.isAllGranted() && executor2.isAllGranted()));
+
+        //each upgrade waits for the shared lock of the other transaction
+        executor1.request(new Lock("database1", table, LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", table, LockTypes.EXCLUSIVE));
+
+        assertTrue(waitFor(executor2::isKilled));
+        assertFalse(executor1.isKilled());
+
+        transaction2.releaseLock();
+
+        assertTrue(waitFor(executor1::isAllGranted));
+        assertFalse(executor1.isKilled());
+    }
+
+    @Test
+    public void deadLockThroughUpgradeKillsOneVictim() throws InterruptedException {
+
+        String table1 = findTableOwnedBy(1);
+        String table2 = findTableOwnedBy(2);
+
+        Transaction transaction1 = new Transaction(null, "node0-1", nodes[0].getLockService());
+        Transaction transaction2 = new Transaction(null, "node2-1", nodes[2].getLockService());
+
+        LockOnlyQueryExecutor executor1 = new LockOnlyQueryExecutor(transaction1);
+        LockOnlyQueryExecutor executor2 = new LockOnlyQueryExecutor(transaction2);
+
+        executor1.request(new Lock("database1", table1, LockTypes.SHARED));
+        executor1.request(new Lock("database1", table2, LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", table1, LockTypes.SHARED));
+
+        assertTrue(waitFor(() -> executor1.isAllGranted() && executor2.isAllGranted()));
+
+        //the upgrade waits for transaction2, which waits for the table transaction1 holds
+        executor1.request(new Lock("database1", table1, LockTypes.EXCLUSIVE));
+        executor2.request(new Lock("database1", table2, LockTypes.EXCLUSIVE));
+
+        assertTrue(waitFor(executor2::isKilled));
+        assertFalse(executor1.isKilled());
+
+        transaction2.releaseLock();
+
+        assertTrue(waitFor(executor1::isAllGranted));
+    }
+
+    /**
+     * Finds a table of database1 whose lock subtree is owned by the specified node
+     */
+    private String findTableOwnedBy(int nodeId) {
+
+        PartitionedLockManager lockService = nodes[0].getLockService();
+
+        for (int i = 0; ; i++) {
+
+            String table = "table" + i;
+
+            if (lockService.getOwnerNode(new Lock("database1", table, LockTypes.EXCLUSIVE)) == nodeId)
+                return table;
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!condition.getAsBoolean()) {
+
+            if (System.currentTimeMillis() > deadline)
+                return false;
+
+            Thread.sleep(20);
+        }
+
+        return true;
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Query executor whose locks are submitted directly by the test
+     */
+    private static class LockOnlyQueryExecutor extends QueryExecutor {
+
+        private LockOnlyQueryExecutor(Transaction transaction) {
+            super(transaction);
+        }
+
+        private void request(Lock lock) {
+            submitLock(lock);
+        }
+
+        private boolean isKilled() {
+            return isDead();
+        }
+
+        @Override
+        protected boolean translate() {
+            return true;
+        }
+
+        @Override
+        protected void requestLocks() {
+        }
+
+        @Override
+        protected boolean execute() {
+            return false;
+        }
+
+        @Override
+        protected void deliver() {
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package manager.transaction;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Admission of transactions under a concurrency limit
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class AdmissionControllerTest {
+
+    /**
+     * Maximum time to wait for a transaction to start in milliseconds
+     */
+    private static final long TIMEOUT = 10000;
+
+    @Test
+    public void transactionFailingToStartIsDroppedAndFreesItsPlace() {
+
+        LinkedList<Transaction> dropped = new LinkedList<>();
+
+        AdmissionController admissionController = new AdmissionController(1, 1, 1, 10, dropped::add);
+
+        Transaction transaction = new Transaction(null, "transaction-1", null);
+
+        QueryResult queryResult = new QueryResult(10);
+        transaction.setQueryResult(queryResult);
+
+        assertTrue(admissionController.submit("client", transaction, () -> {
+            throw new IllegalStateException("pipeline is shut down");
+        }));
+
+        assertEquals(1, dropped.size());
+        assertEquals(0, admissionController.getInFlight());
+
+        //the listener aborts the transaction, its result must not wait forever
+        dropped.getFirst().abort();
+
+        assertTrue(transaction.isAborted());
+        assertFalse(queryResult.isSucceeded());
+    }
+
+    @Test
+    public void pendingTransactionStartsWhenRunningOneFinishes() throws InterruptedException {
+
+        AdmissionController admissionController = new AdmissionController(1, 1, 1, 10, null);
+
+        List<String> started = Collections.synchronizedList(new LinkedList<>());
+
+        admissionController.submit("client1", new Transaction(null, "transaction-1", null), () -> started.add("transaction-1"));
+        admissionController.submit("client2", new Transaction(null, "transaction-2", null), () -> started.add("transaction-2"));
+
+        assertEquals(1, started.size());
+        assertEquals(1, admissionController.getPendingCount());
+
+        admissionController.finished(1000);
+
+        //the pending transaction starts on the starter thread
+        assertEquals(0, admissionController.getPendingCount());
+        assertTrue(waitFor(() -> started.size() == 2));
+    }
+
+    @Test
+    public void finishedDoesNotWaitForSaturatedPipeline() throws InterruptedException {
+
+        AdmissionController admissionController = new AdmissionController(1, 1, 1, 10, null);
+
+        List<String> started = Collections.synchronizedList(new LinkedList<>());
+        CountDownLatch pipelineHasRoom = new CountDownLatch(1);
+
+        admissionController.submit("client1", new Transaction(null, "transaction-1", null), () -> started.add("transaction-1"));
+
+        //starting the pending transaction blocks like a submit to a full translate stage
+        admissionController.submit("client2", new Transaction(null, "transaction-2", null), () -> {
+            try {
+                pipelineHasRoom.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            started.add("transaction-2");
+        });
+
+        //finished is called by the stage finishing transaction-1
+        Thread stage = new Thread(() -> admissionController.finished(1000));
+        stage.start();
+        stage.join(TIMEOUT);
+
+        assertFalse(stage.isAlive());
+        assertEquals(1, started.size());
+
+        pipelineHasRoom.countDown();
+
+        assertTrue(waitFor(() -> started.size() == 2));
+    }
+
+    @Test
+    public void failedStartPassesItsPlaceToNextPendingTransaction() throws InterruptedException {
+
+        LinkedList<Transaction> dropped = new LinkedList<>();
+
+        AdmissionController admissionController = new AdmissionController(1, 1, 1, 10, dropped::add);
+
+        List<String> started = Collections.synchronizedList(new LinkedList<>());
+
+        admissionController.submit("client1", new Transaction(null, "transaction-1", null), () -> started.add("transaction-1"));
+        admissionController.submit("client2", new Transaction(null, "transaction-2", null), () -> {
+            throw new IllegalStateException("pipeline is shut down");
+        });
+        admissionController.submit("client3", new Transaction(null, "transaction-3", null), () -> started.add("transaction-3"));
+
+        admissionController.finished(1000);
+
+        assertTrue(waitFor(() -> started.size() == 2));
+        assertEquals("transaction-3", started.get(1));
+        assertEquals(1, dropped.size());
+        assertEquals(1, admissionController.getInFlight());
+        assertEquals(0, admissionController.getPendingCount());
+    }
+
+    @Test
+    public void backpressureIsNotCountedInLatency() throws InterruptedException {
+
+        Transaction transaction = new Transaction(null, "transaction-1", null);
+
+        QueryResult queryResult = new QueryResult(1);
+        transaction.setQueryResult(queryResult);
+
+        //the consumer takes its first batch late, the executor waits for it
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queryResult.nextBatch();
+        });
+        consumer.start();
+
+        long startedAt = System.nanoTime();
+
+        for (int i = 0; i <= QueryResult.PREFETCH_BATCHES; i++)
+            queryResult.publish(Collections.singletonList(new HashMap<>()));
+
+        transaction.addExecutionTime(System.nanoTime() - startedAt);
+
+        consumer.join();
+
+        assertTrue(queryResult.getBackpressureTime() >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertTrue(transaction.getLatency() < TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!condition.getAsBoolean()) {
+
+            if (System.currentTimeMillis() > deadline)
+                return false;
+
+            Thread.sleep(20);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package manager.transaction;
+
+import manager.commit.CommitCoordinator;
+import manager.commit.CommitParticipant;
+import manager.commit.DecisionLog;
+import manager.lock.LockManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Committing explicit transactions of sessions
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class SessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CommitCoordinator commitCoordinator;
+
+    private LockManager lockManager;
+
+    @Before
+    public void createCoordinator() throws IOException {
+
+        DecisionLog decisionLog = new DecisionLog(folder.newFile("decisions.log").getPath());
+        assertTrue(decisionLog.open());
+
+        commitCoordinator = new CommitCoordinator(decisionLog);
+        lockManager = new LockManager();
+    }
+
+    @Test
+    public void writesOfAllStatementsAreCommittedInOneAtomicCommit() {
+
+        Session session = beginSession("transaction-1");
+
+        RecordingParticipant mysql = new RecordingParticipant("mysql", true);
+        RecordingParticipant mongo = new RecordingParticipant("mongo", true);
+
+        session.getTransaction().deferWrites(Collections.singletonList(mysql));
+        session.getTransaction().deferWrites(Collections.singletonList(mongo));
+
+        assertTrue(session.commit());
+
+        assertTrue(mysql.committed);
+        assertTrue(mongo.committed);
+
+        //one global transaction for both statements
+        assertNotNull(mysql.xid);
+        assertEquals(mysql.xid, mongo.xid);
+    }
+
+    @Test
+    public void failedWriteAbortsTheSession() {
+
+        Session session = beginSession("transaction-1");
+
+        RecordingParticipant mysql = new RecordingParticipant("mysql", true);
+        RecordingParticipant mongo = new RecordingParticipant("mongo", false);
+
+        session.getTransaction().deferWrites(Collections.singletonList(mysql));
+        session.getTransaction().deferWrites(Collections.singletonList(mongo));
+
+        assertFalse(session.commit());
+
+        assertFalse(mysql.committed);
+        assertFalse(mongo.committed);
+        assertTrue(mysql.rolledBack);
+        assertTrue(session.getTransaction().isAborted());
+    }
+
+    @Test
+    public void statementOfAbortedSessionHasFailedResult() {
+
+        Session session = beginSession("transaction-1");
+
+        session.getTransaction().abort();
+
+        QueryResult result = session.executeQuery("SELECT S.SID FROM SAILORS S");
+
+        assertFalse(result.isSucceeded());
+        assertEquals(null, result.nextBatch());
+    }
+
+    private Session beginSession(String transactionId) {
+
+        Transaction transaction = new Transaction(null, transactionId, lockManager, new VersionTable(), null, commitCoordinator, Transaction.PESSIMISTIC);
+
+        Session session = new Session(transaction);
+        session.start();
+
+        assertTrue(session.awaitStart());
+
+        return session;
+    }
+
+    /**
+     * Participant remembering what the coordinator asked it to do
+     */
+    private static class RecordingParticipant implements CommitParticipant {
+
+        private final String name;
+
+        private final boolean prepares;
+
+        private volatile String xid;
+
+        private volatile boolean committed;
+
+        private volatile boolean rolledBack;
+
+        private RecordingParticipant(String name, boolean prepares) {
+            this.name = name;
+            this.prepares = prepares;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean prepare(String xid) {
+            this.xid = xid;
+            return prepares;
+        }
+
+        @Override
+        public boolean commit(String xid) {
+            committed = true;
+            return true;
+        }
+
+        @Override
+        public void rollback(String xid) {
+            rolledBack = true;
+        }
+
+        @Override
+        public boolean isDurablyPrepared() {
+            return true;
+        }
+    }
+}
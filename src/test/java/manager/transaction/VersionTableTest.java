@@ -0,0 +1,102 @@
+package manager.transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validation of optimistic transactions against write phases of other transactions
+ *
+ * @author m.amin rayej
+ * @version 1.0
+ * @since 1.0
+ */
+public class VersionTableTest {
+
+    private static final String TABLE_KEY = VersionTable.getKey("database1", "sailors");
+
+    private VersionTable versionTable;
+
+    private Set<String> writeSet;
+
+    @Before
+    public void createVersionTable() {
+        versionTable = new VersionTable();
+        writeSet = Collections.singleton(TABLE_KEY);
+    }
+
+    @Test
+    public void unchangedReadSetIsValid() {
+
+        ReadWriteSet reader = read(TABLE_KEY);
+
+        assertTrue(versionTable.validateAndBeginWrite(reader));
+    }
+
+    @Test
+    public void readBeforeWritePhaseFailsValidation() {
+
+        ReadWriteSet reader = read(TABLE_KEY);
+
+        versionTable.beginWrite(writeSet);
+
+        assertFalse(versionTable.validateAndBeginWrite(reader));
+
+        versionTable.endWrite(writeSet);
+
+        assertFalse(versionTable.validateAndBeginWrite(reader));
+    }
+
+    @Test
+    public void readDuringWritePhaseFailsValidation() {
+
+        versionTable.beginWrite(writeSet);
+
+        //the reader may have seen half of the writes
+        ReadWriteSet reader = read(TABLE_KEY);
+
+        assertFalse(versionTable.validateAndBeginWrite(reader));
+
+        versionTable.endWrite(writeSet);
+
+        assertFalse(versionTable.validateAndBeginWrite(reader));
+    }
+
+    @Test
+    public void readAfterWritePhaseIsValid() {
+
+        versionTable.beginWrite(writeSet);
+        versionTable.endWrite(writeSet);
+
+        ReadWriteSet reader = read(TABLE_KEY);
+
+        assertTrue(versionTable.validateAndBeginWrite(reader));
+    }
+
+    @Test
+    public void validatedWritePhaseInvalidatesOverlappingReaders() {
+
+        ReadWriteSet writer = read(TABLE_KEY);
+        writer.addWrite("database1", "sailors", "1");
+
+        ReadWriteSet reader = read(VersionTable.getKey("database1", "sailors", "1"));
+
+        assertTrue(versionTable.validateAndBeginWrite(writer));
+        assertFalse(versionTable.validateAndBeginWrite(reader));
+
+        versionTable.endWrite(writer.getWriteSet());
+    }
+
+    private ReadWriteSet read(String key) {
+
+        ReadWriteSet readWriteSet = new ReadWriteSet();
+        readWriteSet.addRead(key, versionTable.getVersion(key));
+
+        return readWriteSet;
+    }
+}